@@ -6,9 +6,14 @@
 #include "bgfxplatform.h"
 #include "bx/fpumath.h"
 #include "include/jni_cache.h"
+#include "include/state_filter.h"
 
 #include <bx/readerwriter.h>
 #include <bx/fpumath.h>
+#include <bx/mutex.h>
+
+#include <stdlib.h>
+#include <string.h>
 
 #include "include/twilight_bgfx_BGFX.h"
 
@@ -59,37 +64,82 @@ void JNICALL Java_twilight_bgfx_BGFX_ndestroyFrameBuffer(JNIEnv* env, jobject se
     bgfx::FrameBufferHandle fbHandle;
     fbHandle.idx = handleId;
 
+    stickyInvalidateFrameBuffer(handleId);
+
     bgfx::destroyFrameBuffer(fbHandle);
 }
 
-jlong JNICALL Java_twilight_bgfx_BGFX_nsetTransform(JNIEnv* env, jobject self, jfloatArray matrix, jint unknown) {
-    jsize matrixSize = env->GetArrayLength(matrix);
-    jfloat* matrixFloat = env->GetFloatArrayElements(matrix, 0);
+jlong JNICALL Java_twilight_bgfx_BGFX_nsetTransform(JNIEnv* env, jobject self, jfloatArray matrix, jint num) {
+    // bgfx copies the matrices into its cache, so the array is only pinned for the call
+    void* matrixFloat = env->GetPrimitiveArrayCritical(matrix, NULL);
+
+    uint32_t cache = bgfx::setTransform(matrixFloat, (uint16_t) num);
 
-    bgfx::setTransform(matrixFloat);
+    env->ReleasePrimitiveArrayCritical(matrix, matrixFloat, JNI_ABORT);
 
-    env->ReleaseFloatArrayElements(matrix, matrixFloat, 0);
+    return cache;
+}
+
+jlong JNICALL Java_twilight_bgfx_BGFX_nsetTransformBuffer(JNIEnv* env, jobject self, jobject matrix, jint offset,
+        jint num) {
+    const uint8_t* matrixData = (const uint8_t*) env->GetDirectBufferAddress(matrix);
+
+    return bgfx::setTransform(matrixData + offset, (uint16_t) num);
+}
+
+void JNICALL Java_twilight_bgfx_BGFX_nsetTransformCached(JNIEnv* env, jobject self, jint cache, jint num) {
+    bgfx::setTransform((uint32_t) cache, (uint16_t) num);
+}
+
+jlong JNICALL Java_twilight_bgfx_BGFX_nallocTransform(JNIEnv* env, jobject self, jobject matrix, jint offset, jint num) {
+    const uint8_t* matrixData = (const uint8_t*) env->GetDirectBufferAddress(matrix);
+
+    bgfx::Transform transform;
+    uint32_t cache = bgfx::allocTransform(&transform, (uint16_t) num);
+
+    // The cache hands out fewer matrices when it is full, the reserved ones stay unused
+    if (transform.num < num) {
+        return -1;
+    }
+
+    memcpy(transform.data, matrixData + offset, num * 16 * sizeof(float));
+
+    return cache;
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_nsetViewTransform(JNIEnv* env, jobject self, jshort id, jfloatArray view,
         jfloatArray proj) {
 
-    jsize viewSize = env->GetArrayLength(view);
-    jfloat* viewMatrix = env->GetFloatArrayElements(view, 0);
+    void* viewMatrix = view ? env->GetPrimitiveArrayCritical(view, NULL) : NULL;
+    void* projMatrix = proj ? env->GetPrimitiveArrayCritical(proj, NULL) : NULL;
 
-    jsize projSize = env->GetArrayLength(proj);
-    jfloat* projMatrix = env->GetFloatArrayElements(proj, 0);
+    bgfx::setViewTransform(id, viewMatrix, projMatrix);
+
+    if (proj) {
+        env->ReleasePrimitiveArrayCritical(proj, projMatrix, JNI_ABORT);
+    }
+
+    if (view) {
+        env->ReleasePrimitiveArrayCritical(view, viewMatrix, JNI_ABORT);
+    }
+}
 
-    bgfx::setViewTransform(id, (void*) viewMatrix, (void*) projMatrix);
+void JNICALL Java_twilight_bgfx_BGFX_nsetViewTransformBuffer(JNIEnv* env, jobject self, jshort id, jobject view,
+        jint viewOffset, jobject proj, jint projOffset) {
+    const uint8_t* viewMatrix = view ? (const uint8_t*) env->GetDirectBufferAddress(view) + viewOffset : NULL;
+    const uint8_t* projMatrix = proj ? (const uint8_t*) env->GetDirectBufferAddress(proj) + projOffset : NULL;
 
-    env->ReleaseFloatArrayElements(view, viewMatrix, 0);
-    env->ReleaseFloatArrayElements(proj, projMatrix, 0);
+    bgfx::setViewTransform(id, viewMatrix, projMatrix);
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_nsetProgram(JNIEnv* env, jobject self, jint handleIndex) {
     bgfx::ProgramHandle handle;
     handle.idx = handleIndex;
 
+    if (stickyIsEnabled()) {
+        stickySetProgram(handleIndex);
+    }
+
     bgfx::setProgram(handle);
 }
 
@@ -117,6 +167,8 @@ void JNICALL Java_twilight_bgfx_BGFX_ndestroyProgram(JNIEnv* env, jobject self,
     bgfx::ProgramHandle handle;
     handle.idx = programHandle;
 
+    stickyInvalidateProgram(programHandle);
+
     bgfx::destroyProgram(handle);
 }
 
@@ -139,6 +191,16 @@ void JNICALL Java_twilight_bgfx_BGFX_nsetIndexBuffer__Ltwilight_bgfx_buffers_Ind
     bgfx::setIndexBuffer(handle, start, count);
 }
 
+void JNICALL Java_twilight_bgfx_BGFX_nsetIndexBuffer__Ltwilight_bgfx_buffers_DynamicIndexBuffer_2JJ(JNIEnv* env,
+        jobject self, jobject buffer, jlong start, jlong count) {
+    jlong handleIndex = env->GetLongField(buffer, dynamicIndexBufferHandle);
+
+    bgfx::DynamicIndexBufferHandle handle;
+    handle.idx = handleIndex;
+
+    bgfx::setIndexBuffer(handle, start, count);
+}
+
 void JNICALL Java_twilight_bgfx_BGFX_nsetVertexBuffer__Ltwilight_bgfx_buffers_DynamicVertexBuffer_2J(JNIEnv* env,
         jobject self, jobject buffer, jlong vertexCount) {
 
@@ -183,6 +245,7 @@ jobject JNICALL Java_twilight_bgfx_BGFX_ngetCaps(JNIEnv* env, jobject self) {
     jobject javaCaps = env->NewObject(capsClazz, capsConstr);
 
     env->SetLongField(javaCaps, supportedFid, (jlong) caps->supported);
+    env->CallVoidMethod(javaCaps, capsSetRendererTypeOrdinal, (jint) caps->rendererType);
     //env->SetLongField(capsClazz, maxTextureSizeFid, caps->maxTextureSize);
     //env->SetLongField(capsClazz, maxDrawCallsFid, caps->maxDrawCalls);
     //env->SetLongField(capsClazz, maxFBAttachmentsFid, caps->maxFBAttachments);
@@ -190,13 +253,13 @@ jobject JNICALL Java_twilight_bgfx_BGFX_ngetCaps(JNIEnv* env, jobject self) {
     return javaCaps;
 }
 
-jint JNICALL Java_twilight_bgfx_BGFX_ncreateIndexBuffer(JNIEnv* env, jobject self, jobject buffer) {
+jint JNICALL Java_twilight_bgfx_BGFX_ncreateIndexBuffer(JNIEnv* env, jobject self, jobject buffer, jint flags) {
     jint capacity = env->CallIntMethod(buffer, capacityMethod);
     jshort* indexData = (jshort*) env->GetDirectBufferAddress(buffer);
 
     const bgfx::Memory* memory = bgfx::copy((uint8_t*) indexData, capacity);
 
-    bgfx::IndexBufferHandle handle = bgfx::createIndexBuffer(memory);
+    bgfx::IndexBufferHandle handle = bgfx::createIndexBuffer(memory, flags);
     return handle.idx;
 }
 
@@ -241,8 +304,19 @@ void JNICALL Java_twilight_bgfx_BGFX_ndestroyVertexBuffer(JNIEnv* env, jobject s
     bgfx::destroyVertexBuffer(handle);
 }
 
-jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicVertexBuffer(JNIEnv* env, jobject self, jobject buffer,
-        jobject vertexDecl) {
+jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicVertexBuffer__ILtwilight_bgfx_VertexDecl_2(JNIEnv* env,
+        jobject self, jint num, jobject vertexDecl) {
+
+    // Dereference the pointer to comply with bgfx API
+    const bgfx::VertexDecl& vertexDeclInst = *(bgfx::VertexDecl*) env->GetLongField(vertexDecl, vertexDeclPtrFid);
+
+    bgfx::DynamicVertexBufferHandle handle = bgfx::createDynamicVertexBuffer(num, vertexDeclInst);
+
+    return handle.idx;
+}
+
+jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicVertexBuffer__Ljava_nio_ByteBuffer_2Ltwilight_bgfx_VertexDecl_2(
+        JNIEnv* env, jobject self, jobject buffer, jobject vertexDecl) {
 
     jint capacity = env->CallIntMethod(buffer, capacityMethod);
 
@@ -260,7 +334,7 @@ jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicVertexBuffer(JNIEnv* env, job
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_nupdateDynamicVertexBuffer(JNIEnv* env, jobject self, jint handleIndex,
-        jint offset, jint size, jobject buffer) {
+        jobject buffer) {
 
     jint capacity = env->CallIntMethod(buffer, capacityMethod);
 
@@ -282,21 +356,22 @@ void JNICALL Java_twilight_bgfx_BGFX_ndestroyDynamicVertexBuffer(JNIEnv* env, jo
     bgfx::destroyDynamicVertexBuffer(handle);
 }
 
-jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicIndexBuffer__J(JNIEnv* env, jobject self, jlong count) {
+jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicIndexBuffer__JI(JNIEnv* env, jobject self, jlong count,
+        jint flags) {
 
-    bgfx::DynamicIndexBufferHandle handle = bgfx::createDynamicIndexBuffer(count);
+    bgfx::DynamicIndexBufferHandle handle = bgfx::createDynamicIndexBuffer(count, flags);
 
     return handle.idx;
 }
 
-jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicIndexBuffer__Ljava_nio_ByteBuffer_2(JNIEnv* env, jobject self,
-        jobject buffer) {
+jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicIndexBuffer__Ljava_nio_ByteBuffer_2I(JNIEnv* env, jobject self,
+        jobject buffer, jint flags) {
     jint capacity = env->CallIntMethod(buffer, capacityMethod);
 
     const void* indexData = env->GetDirectBufferAddress(buffer);
 
     const bgfx::Memory* mem = bgfx::copy((uint8_t*) indexData, capacity);
-    bgfx::DynamicIndexBufferHandle handle = bgfx::createDynamicIndexBuffer(mem);
+    bgfx::DynamicIndexBufferHandle handle = bgfx::createDynamicIndexBuffer(mem, flags);
     return handle.idx;
 }
 
@@ -359,32 +434,83 @@ jobject JNICALL Java_twilight_bgfx_BGFX_nallocTransientVertexBuffer(JNIEnv* env,
     return bufferObj;
 }
 
-void JNICALL Java_twilight_bgfx_BGFX_nfreeTransientIndexBuffers(JNIEnv* env, jobject self, jlongArray bufferPointers) {
+void JNICALL Java_twilight_bgfx_BGFX_nallocTransientIndexBufferInto(JNIEnv* env, jobject self, jobject buffer,
+        jlong size) {
 
-    int numElements = env->GetArrayLength(bufferPointers);
+    bgfx::TransientIndexBuffer* nativeBuffer = (bgfx::TransientIndexBuffer*) env->GetLongField(buffer,
+            transientIndexBufferPointer);
+
+    // Owned by the java object and freed by TransientIndexBuffer#destroy
+    if (!nativeBuffer) {
+        nativeBuffer = new bgfx::TransientIndexBuffer();
+        env->SetLongField(buffer, transientIndexBufferPointer, (jlong) nativeBuffer);
+        env->SetBooleanField(buffer, transientIndexBufferReusable, JNI_TRUE);
+    }
+
+    bgfx::allocTransientIndexBuffer(nativeBuffer, size);
+
+    // All allocations of a frame come from one region, the index offset is in 16-bit indices
+    uint8_t* regionBase = nativeBuffer->data - nativeBuffer->startIndex * sizeof(uint16_t);
+
+    env->SetLongField(buffer, transientIndexBufferSize, (jlong) nativeBuffer->size);
+    env->SetLongField(buffer, transientIndexBufferStartIndex, (jlong) nativeBuffer->startIndex);
+    env->SetIntField(buffer, transientIndexBufferHandle, (jint) nativeBuffer->handle.idx);
+    env->SetLongField(buffer, transientIndexBufferRegionBase, (jlong) regionBase);
+}
+
+void JNICALL Java_twilight_bgfx_BGFX_nallocTransientVertexBufferInto(JNIEnv* env, jobject self, jobject buffer,
+        jlong size, jobject vertexDecl) {
+
+    bgfx::TransientVertexBuffer* nativeBuffer = (bgfx::TransientVertexBuffer*) env->GetLongField(buffer,
+            transientVertexBufferPointer);
+
+    // Owned by the java object and freed by TransientVertexBuffer#destroy
+    if (!nativeBuffer) {
+        nativeBuffer = new bgfx::TransientVertexBuffer();
+        env->SetLongField(buffer, transientVertexBufferPointer, (jlong) nativeBuffer);
+        env->SetBooleanField(buffer, transientVertexBufferReusable, JNI_TRUE);
+    }
+
+    const bgfx::VertexDecl& vertexDeclInst = *reinterpret_cast<bgfx::VertexDecl*>(env->GetLongField(vertexDecl, vertexDeclPtrFid));
+
+    bgfx::allocTransientVertexBuffer(nativeBuffer, size, vertexDeclInst);
+
+    // Allocations are stride aligned within the frame region, so the base can be recovered
+    uint8_t* regionBase = nativeBuffer->data - nativeBuffer->startVertex * nativeBuffer->stride;
+
+    env->SetLongField(buffer, transientVertexBufferSize, (jlong) nativeBuffer->size);
+    env->SetLongField(buffer, transientVertexBufferStartVertex, (jlong) nativeBuffer->startVertex);
+    env->SetIntField(buffer, transientVertexBufferStride, (jint) nativeBuffer->stride);
+    env->SetIntField(buffer, transientVertexBufferHandle, (jint) nativeBuffer->handle.idx);
+    env->SetLongField(buffer, transientVertexBufferRegionBase, (jlong) regionBase);
+}
+
+void JNICALL Java_twilight_bgfx_BGFX_nfreeTransientIndexBuffers(JNIEnv* env, jobject self, jlongArray bufferPointers,
+        jint count) {
 
-    jlong* pointers = env->GetLongArrayElements(bufferPointers, NULL);
+    // Critical access avoids copying the pointer array, nothing is written back
+    jlong* pointers = (jlong*) env->GetPrimitiveArrayCritical(bufferPointers, NULL);
 
-    for (int i = 0; i < numElements; ++i) {
+    for (int i = 0; i < count; ++i) {
         bgfx::TransientIndexBuffer* buffer = reinterpret_cast<bgfx::TransientIndexBuffer*>(pointers[i]);
         delete buffer;
     }
 
-    env->ReleaseLongArrayElements(bufferPointers, pointers, 0);
+    env->ReleasePrimitiveArrayCritical(bufferPointers, pointers, JNI_ABORT);
 }
 
-void JNICALL Java_twilight_bgfx_BGFX_nfreeTransientVertexBuffers(JNIEnv* env, jobject self, jlongArray bufferPointers) {
-
-    int numElements = env->GetArrayLength(bufferPointers);
+void JNICALL Java_twilight_bgfx_BGFX_nfreeTransientVertexBuffers(JNIEnv* env, jobject self, jlongArray bufferPointers,
+        jint count) {
 
-    jlong* pointers = env->GetLongArrayElements(bufferPointers, NULL);
+    // Critical access avoids copying the pointer array, nothing is written back
+    jlong* pointers = (jlong*) env->GetPrimitiveArrayCritical(bufferPointers, NULL);
 
-    for (int i = 0; i < numElements; ++i) {
+    for (int i = 0; i < count; ++i) {
         bgfx::TransientVertexBuffer* buffer = reinterpret_cast<bgfx::TransientVertexBuffer*>(pointers[i]);
         delete buffer;
     }
 
-    env->ReleaseLongArrayElements(bufferPointers, pointers, 0);
+    env->ReleasePrimitiveArrayCritical(bufferPointers, pointers, JNI_ABORT);
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_nsetTexture__SIIJ(JNIEnv* env, jobject self, jshort stage, jint uniformId,
@@ -396,6 +522,10 @@ void JNICALL Java_twilight_bgfx_BGFX_nsetTexture__SIIJ(JNIEnv* env, jobject self
     bgfx::TextureHandle textureHandle;
     textureHandle.idx = textureId;
 
+    if (stickyIsEnabled()) {
+        stickySetTexture(stage, uniformId, textureId, flags);
+    }
+
     bgfx::setTexture(stage, uniformHandle, textureHandle, flags);
 }
 
@@ -408,26 +538,22 @@ void JNICALL Java_twilight_bgfx_BGFX_nsetTexture__SIISJ(JNIEnv* env, jobject sel
     bgfx::FrameBufferHandle framebufferHandle;
     framebufferHandle.idx = framebufferId;
 
+    if (stickyIsEnabled()) {
+        stickySetFrameBufferTexture(stage, uniformId, framebufferId, attachmentIndex, flags);
+    }
+
     bgfx::setTexture(stage, uniformHandle, framebufferHandle, attachmentIndex, flags);
 }
 
-bgfx::TextureInfo createTextureInfo(JNIEnv* env, jobject javaTexInfo) {
-    jlong storageSize = env->GetLongField(javaTexInfo, storageSizeFid);
-    jint width = env->GetLongField(javaTexInfo, widthFid);
-    jint height = env->GetLongField(javaTexInfo, heightFid);
-    jint depth = env->GetLongField(javaTexInfo, depthFid);
-    jint numMips = env->GetLongField(javaTexInfo, numMipsFid);
-    jint bitsPerPixel = env->GetLongField(javaTexInfo, bitsPerPixelFid);
-
-    bgfx::TextureInfo info;
-    info.storageSize = storageSize;
-    info.width = width;
-    info.height = height;
-    info.depth = depth;
-    info.numMips = numMips;
-    info.bitsPerPixel = bitsPerPixel;
-
-    return info;
+void writeTextureInfo(JNIEnv* env, jobject javaTexInfo, const bgfx::TextureInfo& info) {
+    env->CallVoidMethod(javaTexInfo, infoSetFormatOrdinal, (jint) info.format);
+    env->SetLongField(javaTexInfo, storageSizeFid, (jlong) info.storageSize);
+    env->SetIntField(javaTexInfo, widthFid, (jint) info.width);
+    env->SetIntField(javaTexInfo, heightFid, (jint) info.height);
+    env->SetIntField(javaTexInfo, depthFid, (jint) info.depth);
+    env->SetShortField(javaTexInfo, numMipsFid, (jshort) info.numMips);
+    env->SetShortField(javaTexInfo, bitsPerPixelFid, (jshort) info.bitsPerPixel);
+    env->SetBooleanField(javaTexInfo, cubeMapFid, (jboolean) info.cubeMap);
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_ncalcTextureSize(JNIEnv* env, jobject self, jobject textureInfo, jint width,
@@ -437,9 +563,10 @@ void JNICALL Java_twilight_bgfx_BGFX_ncalcTextureSize(JNIEnv* env, jobject self,
 
     const bgfx::TextureFormat::Enum& nativeFormat = static_cast<bgfx::TextureFormat::Enum>(formatValue);
 
-    bgfx::TextureInfo info = createTextureInfo(env, textureInfo);
-
+    bgfx::TextureInfo info;
     bgfx::calcTextureSize(info, width, height, depth, false, mipCount, nativeFormat);
+
+    writeTextureInfo(env, textureInfo, info);
 }
 
 jint JNICALL Java_twilight_bgfx_BGFX_ncreateTexture(JNIEnv* env, jobject self, jobject buffer, jlong flags, jshort skip,
@@ -454,6 +581,10 @@ jint JNICALL Java_twilight_bgfx_BGFX_ncreateTexture(JNIEnv* env, jobject self, j
     bgfx::TextureInfo info;
     bgfx::TextureHandle handle = bgfx::createTexture(memory, flags, skip, &info);
 
+    if (outputTextureInfo && bgfx::isValid(handle)) {
+        writeTextureInfo(env, outputTextureInfo, info);
+    }
+
     return handle.idx;
 }
 
@@ -513,13 +644,15 @@ void JNICALL Java_twilight_bgfx_BGFX_nupdateTexture2D(JNIEnv* env, jobject self,
     bgfx::TextureHandle textureHandle;
     textureHandle.idx = handle;
 
-    bgfx::updateTexture2D(textureHandle, mip, x, y, width, height, memory);
+    bgfx::updateTexture2D(textureHandle, mip, x, y, width, height, memory, pitch);
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_ndestroyTexture(JNIEnv* env, jobject self, jint handle) {
     bgfx::TextureHandle textureHandle;
     textureHandle.idx = handle;
 
+    stickyInvalidateTexture(handle);
+
     bgfx::destroyTexture(textureHandle);
 }
 
@@ -539,6 +672,8 @@ void JNICALL Java_twilight_bgfx_BGFX_ndestroyUniform(JNIEnv* env, jobject self,
     bgfx::UniformHandle uniformHandle;
     uniformHandle.idx = handleId;
 
+    stickyInvalidateSampler(handleId);
+
     bgfx::destroyUniform(uniformHandle);
 }
 
@@ -580,13 +715,25 @@ jlong JNICALL Java_twilight_bgfx_BGFX_ndoBlendFunc(JNIEnv* env, jobject self, jl
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_nsetState(JNIEnv* env, jobject self, jlong flag, jlong rgba) {
+    if (stickyIsEnabled()) {
+        stickySetState(flag, rgba);
+    }
+
     bgfx::setState(0 | flag, rgba);
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_nsetStencil(JNIEnv* env, jobject self, jlong fstencil, jlong bstencil) {
+    if (stickyIsEnabled()) {
+        stickySetStencil(fstencil, bstencil);
+    }
+
     bgfx::setStencil(fstencil, bstencil);
 }
 
+void JNICALL Java_twilight_bgfx_BGFX_nsetStateFilter(JNIEnv* env, jobject self, jboolean enabled) {
+    stickySetEnabled(enabled);
+}
+
 jint JNICALL Java_twilight_bgfx_BGFX_nsetScissor__IIII(JNIEnv* env, jobject self, jint x, jint y, jint width,
         jint height) {
     bgfx::setScissor(x, y, width, height);
@@ -601,7 +748,10 @@ void JNICALL Java_twilight_bgfx_BGFX_nsetUniform__IFI(JNIEnv* env, jobject self,
     bgfx::UniformHandle handle;
     handle.idx = id;
 
-    bgfx::setUniform(handle, (void*) &uniformValue);
+    // bgfx reads a full element, pad the single value with zeros
+    float value[4] = { uniformValue, 0.0f, 0.0f, 0.0f };
+
+    bgfx::setUniform(handle, value, num);
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_nsetUniform__I_3FI(JNIEnv* env, jobject self, jint id, jfloatArray uniformArray,
@@ -611,9 +761,20 @@ void JNICALL Java_twilight_bgfx_BGFX_nsetUniform__I_3FI(JNIEnv* env, jobject sel
     handle.idx = id;
 
     jsize matrixSize = env->GetArrayLength(uniformArray);
-    jfloat* floatData = env->GetFloatArrayElements(uniformArray, 0);
+    void* floatData = env->GetPrimitiveArrayCritical(uniformArray, NULL);
+
     bgfx::setUniform(handle, floatData, num);
-    env->ReleaseFloatArrayElements(uniformArray, floatData, 0);
+    env->ReleasePrimitiveArrayCritical(uniformArray, floatData, JNI_ABORT);
+}
+
+void JNICALL Java_twilight_bgfx_BGFX_nsetUniformBuffer(JNIEnv* env, jobject self, jint id, jobject buffer, jint offset,
+        jint size, jint num) {
+    const uint8_t* data = (const uint8_t*) env->GetDirectBufferAddress(buffer) + offset;
+
+    bgfx::UniformHandle handle;
+    handle.idx = id;
+
+    bgfx::setUniform(handle, data, num);
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_nsetIndexBuffer__Ltwilight_bgfx_buffers_TransientIndexBuffer_2(JNIEnv* env,
@@ -641,6 +802,8 @@ void JNICALL Java_twilight_bgfx_BGFX_nreset(JNIEnv* env, jobject self, jlong wid
 }
 
 jlong JNICALL Java_twilight_bgfx_BGFX_nsubmit(JNIEnv* env, jobject self, jshort id, jshort depth) {
+    stickyApply();
+
     return (jlong) bgfx::submit(id, depth);
 }
 
@@ -667,6 +830,8 @@ void JNICALL Java_twilight_bgfx_BGFX_nsetViewClear(JNIEnv* env, jobject self, js
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_ndiscard(JNIEnv* env, jobject self) {
+    stickyDiscard();
+
     bgfx::discard();
 }
 
@@ -686,6 +851,34 @@ void JNICALL Java_twilight_bgfx_BGFX_nsetUniform__ILjava_nio_ByteBuffer_2I(JNIEn
     bgfx::setUniform(uniformHandle, vertexData, num);
 }
 
+void JNICALL Java_twilight_bgfx_BGFX_nsetUniforms(JNIEnv* env, jobject self, jobject buffer, jintArray uniforms,
+        jint count) {
+    const uint8_t* data = (const uint8_t*) env->GetDirectBufferAddress(buffer);
+    jlong capacity = env->GetDirectBufferCapacity(buffer);
+
+    // Four ints per uniform: handle, byte offset, byte size and number of elements
+    jint* entries = (jint*) env->GetPrimitiveArrayCritical(uniforms, NULL);
+
+    for (jint i = 0; i < count; i++) {
+        const jint* entry = entries + i * 4;
+
+        // Never let bgfx read past the end of the buffer, the java side checks
+        // that the size holds the number of elements bgfx reads
+        if (entry[1] < 0 || entry[2] < 0 || (jlong) entry[1] + entry[2] > capacity) {
+            continue;
+        }
+
+        const void* value = data + entry[1];
+
+        bgfx::UniformHandle uniformHandle;
+        uniformHandle.idx = entry[0];
+
+        bgfx::setUniform(uniformHandle, value, entry[3]);
+    }
+
+    env->ReleasePrimitiveArrayCritical(uniforms, entries, JNI_ABORT);
+}
+
 jint JNICALL Java_twilight_bgfx_BGFX_ngetRendererType(JNIEnv* env, jobject self) {
 
     bgfx::RendererType::Enum type = bgfx::getRendererType();
@@ -713,26 +906,107 @@ jobject JNICALL Java_twilight_bgfx_BGFX_nalloc(JNIEnv* env, jobject self, jlong
     return buffer;
 }
 
-jobject JNICALL Java_twilight_bgfx_BGFX_ncopy(JNIEnv* env, jobject self, jobject buffer) {
-    jint capacity = env->CallIntMethod(buffer, capacityMethod);
+jobject JNICALL Java_twilight_bgfx_BGFX_ncopy(JNIEnv* env, jobject self, jlong data, jlong size) {
+    const bgfx::Memory* mem = bgfx::copy((const void*) data, size);
 
-    const void* data = env->GetDirectBufferAddress(buffer);
+    jobject newBuffer = env->NewDirectByteBuffer(mem->data, size);
+    return newBuffer;
+}
 
-    const bgfx::Memory* mem = bgfx::copy(data, capacity);
+jobject JNICALL Java_twilight_bgfx_BGFX_nmakeRef(JNIEnv* env, jobject self, jlong data, jlong size) {
+    const bgfx::Memory* mem = bgfx::makeRef((const void*) data, size);
 
-    jobject newBuffer = env->NewDirectByteBuffer(mem->data, capacity);
+    jobject newBuffer = env->NewDirectByteBuffer(mem->data, size);
     return newBuffer;
 }
 
-jobject JNICALL Java_twilight_bgfx_BGFX_nmakeRef(JNIEnv* env, jobject self, jobject buffer) {
-    jint capacity = env->CallIntMethod(buffer, capacityMethod);
+// Ids of makeRef memory released by bgfx, the release function may be called
+// from the render thread so the ids are drained by frame() on the API thread.
+static bx::Mutex releasedRefsMutex;
+static uint32_t* releasedRefs = NULL;
+static uint32_t numReleasedRefs = 0;
+static uint32_t maxReleasedRefs = 0;
 
-    const void* data = env->GetDirectBufferAddress(buffer);
+static void releaseRef(void* _ptr, void* _userData) {
+    bx::MutexScope lock(releasedRefsMutex);
 
-    const bgfx::Memory* mem = bgfx::makeRef(data, capacity);
+    if (numReleasedRefs == maxReleasedRefs) {
+        maxReleasedRefs = maxReleasedRefs == 0 ? 64 : maxReleasedRefs * 2;
+        releasedRefs = (uint32_t*) realloc(releasedRefs, maxReleasedRefs * sizeof(uint32_t));
+    }
 
-    jobject newBuffer = env->NewDirectByteBuffer(mem->data, capacity);
-    return newBuffer;
+    releasedRefs[numReleasedRefs++] = (uint32_t) (uintptr_t) _userData;
+}
+
+jlong JNICALL Java_twilight_bgfx_BGFX_nmakeRefRelease(JNIEnv* env, jobject self, jobject buffer, jint offset,
+        jint size, jint id) {
+    uint8_t* data = (uint8_t*) env->GetDirectBufferAddress(buffer);
+
+    const bgfx::Memory* mem = bgfx::makeRef(data + offset, size, releaseRef, (void*) (uintptr_t) id);
+    return (jlong) mem;
+}
+
+jint JNICALL Java_twilight_bgfx_BGFX_ndrainReleasedRefs(JNIEnv* env, jobject self, jintArray ids) {
+    bx::MutexScope lock(releasedRefsMutex);
+
+    uint32_t num = bx::uint32_min(numReleasedRefs, env->GetArrayLength(ids));
+
+    if (num > 0) {
+        env->SetIntArrayRegion(ids, 0, num, (const jint*) releasedRefs);
+
+        numReleasedRefs -= num;
+        memmove(releasedRefs, releasedRefs + num, numReleasedRefs * sizeof(uint32_t));
+    }
+
+    return num;
+}
+
+jint JNICALL Java_twilight_bgfx_BGFX_ncreateIndexBufferMem(JNIEnv* env, jobject self, jlong mem, jint flags) {
+    bgfx::IndexBufferHandle handle = bgfx::createIndexBuffer((const bgfx::Memory*) mem, flags);
+    return handle.idx;
+}
+
+jint JNICALL Java_twilight_bgfx_BGFX_ncreateVertexBufferMem(JNIEnv* env, jobject self, jlong mem,
+        jobject vertexDecl) {
+    const bgfx::VertexDecl& vertexDeclInst = *(bgfx::VertexDecl*) env->GetLongField(vertexDecl, vertexDeclPtrFid);
+
+    bgfx::VertexBufferHandle handle = bgfx::createVertexBuffer((const bgfx::Memory*) mem, vertexDeclInst);
+    return handle.idx;
+}
+
+void JNICALL Java_twilight_bgfx_BGFX_nupdateDynamicIndexBufferMem(JNIEnv* env, jobject self, jint handleId,
+        jlong mem) {
+    bgfx::DynamicIndexBufferHandle handle;
+    handle.idx = handleId;
+
+    bgfx::updateDynamicIndexBuffer(handle, (const bgfx::Memory*) mem);
+}
+
+void JNICALL Java_twilight_bgfx_BGFX_nupdateDynamicVertexBufferMem(JNIEnv* env, jobject self, jint handleId,
+        jlong mem) {
+    bgfx::DynamicVertexBufferHandle handle;
+    handle.idx = handleId;
+
+    bgfx::updateDynamicVertexBuffer(handle, (const bgfx::Memory*) mem);
+}
+
+jint JNICALL Java_twilight_bgfx_BGFX_ncreateTexture2DMem(JNIEnv* env, jobject self, jint width, jint height,
+        jshort numMips, jobject textureFormat, jlong flags, jlong mem) {
+    jint formatValue = env->CallIntMethod(textureFormat, formatOrdinal);
+
+    const bgfx::TextureFormat::Enum& nativeFormat = static_cast<bgfx::TextureFormat::Enum>(formatValue);
+
+    bgfx::TextureHandle handle = bgfx::createTexture2D(width, height, numMips, nativeFormat, flags,
+            (const bgfx::Memory*) mem);
+    return handle.idx;
+}
+
+void JNICALL Java_twilight_bgfx_BGFX_nupdateTexture2DMem(JNIEnv* env, jobject self, jint handleId, jshort mip,
+        jint x, jint y, jint width, jint height, jlong mem) {
+    bgfx::TextureHandle handle;
+    handle.idx = handleId;
+
+    bgfx::updateTexture2D(handle, mip, x, y, width, height, (const bgfx::Memory*) mem);
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_nupdateTexture3D(JNIEnv* env, jobject self, jint handleId, jshort mip, jint x,
@@ -780,11 +1054,32 @@ jint JNICALL Java_twilight_bgfx_BGFX_ncreateTextureCube(JNIEnv* env, jobject sel
     return handle.idx;
 }
 
-jint JNICALL Java_twilight_bgfx_BGFX_ngetShaderUniforms(JNIEnv* env, jobject self, jint handleId) {
+// Matches BGFX_CONFIG_MAX_UNIFORMS, which isn't part of the public headers
+static const uint16_t MAX_SHADER_UNIFORMS = 512;
+
+jint JNICALL Java_twilight_bgfx_BGFX_ngetShaderUniforms(JNIEnv* env, jobject self, jint handleId, jintArray uniforms,
+        jint max) {
     bgfx::ShaderHandle handle;
     handle.idx = handleId;
 
-    return bgfx::getShaderUniforms(handle);
+    if (!uniforms || max <= 0) {
+        return bgfx::getShaderUniforms(handle);
+    }
+
+    bgfx::UniformHandle handles[MAX_SHADER_UNIFORMS];
+    uint16_t capacity = (uint16_t) (max < MAX_SHADER_UNIFORMS ? max : MAX_SHADER_UNIFORMS);
+    uint16_t count = bgfx::getShaderUniforms(handle, handles, capacity);
+
+    jint ids[MAX_SHADER_UNIFORMS];
+    uint16_t written = count < capacity ? count : capacity;
+
+    for (uint16_t i = 0; i < written; i++) {
+        ids[i] = handles[i].idx;
+    }
+
+    env->SetIntArrayRegion(uniforms, 0, written, ids);
+
+    return count;
 }
 
 void JNICALL Java_twilight_bgfx_BGFX_nsetInstanceDataBuffer(JNIEnv* env, jobject self, jobject buffer, jint count) {
@@ -803,6 +1098,12 @@ jobject JNICALL Java_twilight_bgfx_BGFX_nallocInstanceDataBuffer(JNIEnv* env, jo
     jobject bufferObj = env->NewObject(instanceDataBufferClazz, instanceDataBufferConstr);
     env->SetLongField(bufferObj, instanceDataBufferPointer, (jlong) dataBuffer);
 
+    if (dataBuffer != NULL) {
+        env->SetLongField(bufferObj, instanceDataBufferSize, (jlong) dataBuffer->size);
+        env->SetIntField(bufferObj, instanceDataBufferStride, dataBuffer->stride);
+        env->SetIntField(bufferObj, instanceDataBufferNum, dataBuffer->num);
+    }
+
     return bufferObj;
 }
 
@@ -828,17 +1129,22 @@ void JNICALL Java_twilight_bgfx_BGFX_nvertexConvert(JNIEnv*, jobject, jobject, j
 
 }
 
-jint JNICALL Java_twilight_bgfx_BGFX_nweldVertices(JNIEnv*, jobject, jlong, jobject, jlong, jint, jfloat) {
+jint JNICALL Java_twilight_bgfx_BGFX_nweldVertices(JNIEnv* env, jobject self, jlong output, jobject vertexDecl,
+        jlong data, jint num, jfloat epsilon) {
+    const bgfx::VertexDecl& vertexDeclInst = *(bgfx::VertexDecl*) env->GetLongField(vertexDecl, vertexDeclPtrFid);
 
+    return bgfx::weldVertices((uint16_t*) output, vertexDeclInst, (const void*) data, (uint16_t) num, epsilon);
 }
 
-void JNICALL Java_twilight_bgfx_BGFX_nimageSwizzleBgra8(JNIEnv*, jobject, jlong, jlong, jlong, jlong, jlong) {
-
+void JNICALL Java_twilight_bgfx_BGFX_nimageSwizzleBgra8(JNIEnv* env, jobject self, jlong width, jlong height,
+        jlong pitch, jlong src, jlong dst) {
+    bgfx::imageSwizzleBgra8((uint32_t) width, (uint32_t) height, (uint32_t) pitch, (const void*) src, (void*) dst);
 }
 
-void JNICALL Java_twilight_bgfx_BGFX_nimageRgba8Downsample2x2(JNIEnv* env, jobject self, jlong, jlong, jlong, jlong,
-        jlong) {
-
+void JNICALL Java_twilight_bgfx_BGFX_nimageRgba8Downsample2x2(JNIEnv* env, jobject self, jlong width, jlong height,
+        jlong pitch, jlong src, jlong dst) {
+    bgfx::imageRgba8Downsample2x2((uint32_t) width, (uint32_t) height, (uint32_t) pitch, (const void*) src,
+            (void*) dst);
 }
 
 #endif
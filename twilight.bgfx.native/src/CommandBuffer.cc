@@ -0,0 +1,232 @@
+#ifndef COMMAND_BUFFER
+#define COMMAND_BUFFER
+
+#define __STDC_LIMIT_MACROS true
+#include "bgfx.h"
+#include "include/jni_cache.h"
+#include "include/twilight_bgfx_BGFX.h"
+
+#include <stdint.h>
+#include <string.h>
+
+/**
+ * Command ids, these must match the values in twilight.bgfx.CommandBuffer.
+ */
+enum CommandId {
+    CMD_END = 0,
+    CMD_SET_STATE,
+    CMD_SET_STENCIL,
+    CMD_SET_SCISSOR,
+    CMD_SET_SCISSOR_CACHED,
+    CMD_SET_TRANSFORM,
+    CMD_SET_UNIFORM,
+    CMD_SET_INDEX_BUFFER,
+    CMD_SET_DYNAMIC_INDEX_BUFFER,
+    CMD_SET_TRANSIENT_INDEX_BUFFER,
+    CMD_SET_VERTEX_BUFFER,
+    CMD_SET_DYNAMIC_VERTEX_BUFFER,
+    CMD_SET_TRANSIENT_VERTEX_BUFFER,
+    CMD_SET_INSTANCE_DATA_BUFFER,
+    CMD_SET_PROGRAM,
+    CMD_SET_TEXTURE,
+    CMD_SET_TEXTURE_ATTACHMENT,
+    CMD_SUBMIT,
+    CMD_DISCARD,
+    CMD_SET_TRANSFORM_CACHED
+};
+
+/**
+ * Reads values out of the command stream. The Java side writes in native
+ * byte order but does not align 64 bit values, so everything is read with
+ * memcpy.
+ */
+class CommandReader {
+public:
+    CommandReader(const uint8_t* data, uint32_t size) :
+            m_pos(data), m_end(data + size) {
+    }
+
+    bool hasMore() const {
+        return m_pos < m_end;
+    }
+
+    int32_t readInt() {
+        int32_t value;
+        memcpy(&value, m_pos, sizeof(value));
+        m_pos += sizeof(value);
+        return value;
+    }
+
+    int64_t readLong() {
+        int64_t value;
+        memcpy(&value, m_pos, sizeof(value));
+        m_pos += sizeof(value);
+        return value;
+    }
+
+    const uint8_t* readBytes(uint32_t size) {
+        const uint8_t* data = m_pos;
+        m_pos += (size + 3) & ~3;
+        return data;
+    }
+
+private:
+    const uint8_t* m_pos;
+    const uint8_t* m_end;
+};
+
+jlong JNICALL Java_twilight_bgfx_BGFX_nsubmitCommandBuffer(JNIEnv* env, jobject self, jobject buffer, jint size) {
+    const uint8_t* data = (const uint8_t*) env->GetDirectBufferAddress(buffer);
+
+    if (!data) {
+        return 0;
+    }
+
+    CommandReader reader(data, size);
+    jlong result = 0;
+
+    while (reader.hasMore()) {
+        switch (reader.readInt()) {
+        case CMD_SET_STATE: {
+            uint64_t state = reader.readLong();
+            uint32_t rgba = (uint32_t) reader.readLong();
+            bgfx::setState(state, rgba);
+            break;
+        }
+        case CMD_SET_STENCIL: {
+            uint32_t fstencil = (uint32_t) reader.readLong();
+            uint32_t bstencil = (uint32_t) reader.readLong();
+            bgfx::setStencil(fstencil, bstencil);
+            break;
+        }
+        case CMD_SET_SCISSOR: {
+            uint16_t x = reader.readInt();
+            uint16_t y = reader.readInt();
+            uint16_t width = reader.readInt();
+            uint16_t height = reader.readInt();
+            bgfx::setScissor(x, y, width, height);
+            break;
+        }
+        case CMD_SET_SCISSOR_CACHED: {
+            bgfx::setScissor((uint16_t) reader.readInt());
+            break;
+        }
+        case CMD_SET_TRANSFORM: {
+            uint16_t num = reader.readInt();
+            const uint8_t* mtx = reader.readBytes(num * 16 * sizeof(float));
+            bgfx::setTransform(mtx, num);
+            break;
+        }
+        case CMD_SET_TRANSFORM_CACHED: {
+            uint32_t cache = (uint32_t) reader.readInt();
+            uint16_t num = reader.readInt();
+            bgfx::setTransform(cache, num);
+            break;
+        }
+        case CMD_SET_UNIFORM: {
+            bgfx::UniformHandle handle;
+            handle.idx = reader.readInt();
+            uint16_t num = reader.readInt();
+            uint32_t bytes = reader.readInt();
+            bgfx::setUniform(handle, reader.readBytes(bytes), num);
+            break;
+        }
+        case CMD_SET_INDEX_BUFFER: {
+            bgfx::IndexBufferHandle handle;
+            handle.idx = reader.readInt();
+            uint32_t first = (uint32_t) reader.readLong();
+            uint32_t num = (uint32_t) reader.readLong();
+            bgfx::setIndexBuffer(handle, first, num);
+            break;
+        }
+        case CMD_SET_DYNAMIC_INDEX_BUFFER: {
+            bgfx::DynamicIndexBufferHandle handle;
+            handle.idx = reader.readInt();
+            uint32_t first = (uint32_t) reader.readLong();
+            uint32_t num = (uint32_t) reader.readLong();
+            bgfx::setIndexBuffer(handle, first, num);
+            break;
+        }
+        case CMD_SET_TRANSIENT_INDEX_BUFFER: {
+            const bgfx::TransientIndexBuffer* tib = (const bgfx::TransientIndexBuffer*) reader.readLong();
+            uint32_t first = (uint32_t) reader.readLong();
+            uint32_t num = (uint32_t) reader.readLong();
+            bgfx::setIndexBuffer(tib, first, num);
+            break;
+        }
+        case CMD_SET_VERTEX_BUFFER: {
+            bgfx::VertexBufferHandle handle;
+            handle.idx = reader.readInt();
+            uint32_t start = (uint32_t) reader.readLong();
+            uint32_t num = (uint32_t) reader.readLong();
+            bgfx::setVertexBuffer(handle, start, num);
+            break;
+        }
+        case CMD_SET_DYNAMIC_VERTEX_BUFFER: {
+            bgfx::DynamicVertexBufferHandle handle;
+            handle.idx = reader.readInt();
+            reader.readLong();
+            uint32_t num = (uint32_t) reader.readLong();
+            bgfx::setVertexBuffer(handle, num);
+            break;
+        }
+        case CMD_SET_TRANSIENT_VERTEX_BUFFER: {
+            const bgfx::TransientVertexBuffer* tvb = (const bgfx::TransientVertexBuffer*) reader.readLong();
+            uint32_t start = (uint32_t) reader.readLong();
+            uint32_t num = (uint32_t) reader.readLong();
+            bgfx::setVertexBuffer(tvb, start, num);
+            break;
+        }
+        case CMD_SET_INSTANCE_DATA_BUFFER: {
+            const bgfx::InstanceDataBuffer* idb = (const bgfx::InstanceDataBuffer*) reader.readLong();
+            reader.readLong();
+            uint32_t num = (uint32_t) reader.readLong();
+            bgfx::setInstanceDataBuffer(idb, num);
+            break;
+        }
+        case CMD_SET_PROGRAM: {
+            bgfx::ProgramHandle handle;
+            handle.idx = reader.readInt();
+            bgfx::setProgram(handle);
+            break;
+        }
+        case CMD_SET_TEXTURE: {
+            uint8_t stage = reader.readInt();
+            bgfx::UniformHandle sampler;
+            sampler.idx = reader.readInt();
+            bgfx::TextureHandle handle;
+            handle.idx = reader.readInt();
+            uint32_t flags = (uint32_t) reader.readLong();
+            bgfx::setTexture(stage, sampler, handle, flags);
+            break;
+        }
+        case CMD_SET_TEXTURE_ATTACHMENT: {
+            uint8_t stage = reader.readInt();
+            bgfx::UniformHandle sampler;
+            sampler.idx = reader.readInt();
+            bgfx::FrameBufferHandle handle;
+            handle.idx = reader.readInt();
+            uint8_t attachment = reader.readInt();
+            uint32_t flags = (uint32_t) reader.readLong();
+            bgfx::setTexture(stage, sampler, handle, attachment, flags);
+            break;
+        }
+        case CMD_SUBMIT: {
+            uint8_t id = reader.readInt();
+            int32_t depth = reader.readInt();
+            result = (jlong) bgfx::submit(id, depth);
+            break;
+        }
+        case CMD_DISCARD:
+            bgfx::discard();
+            break;
+        default:
+            // Unknown or end of stream, nothing sensible can follow
+            return result;
+        }
+    }
+
+    return result;
+}
+
+#endif
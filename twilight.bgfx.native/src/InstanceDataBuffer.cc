@@ -0,0 +1,16 @@
+#ifndef INSTANCE_DATA_BUFFER
+#define INSTANCE_DATA_BUFFER
+
+#include "include/jni_cache.h"
+#include "include/twilight_bgfx_buffers_InstanceDataBuffer.h"
+
+#include "bgfx.h"
+
+jobject JNICALL Java_twilight_bgfx_buffers_InstanceDataBuffer_nGetData(JNIEnv* env, jobject self) {
+    jlong dataBufferPtr = env->GetLongField(self, instanceDataBufferPointer);
+    const bgfx::InstanceDataBuffer* idb = reinterpret_cast<const bgfx::InstanceDataBuffer*>(dataBufferPtr);
+
+    return env->NewDirectByteBuffer(idb->data, idb->size);
+}
+
+#endif
@@ -0,0 +1,173 @@
+#ifndef STATE_FILTER
+#define STATE_FILTER
+
+#define __STDC_LIMIT_MACROS true
+#include "bgfx.h"
+#include "include/state_filter.h"
+
+#define STICKY_MAX_TEXTURE_STAGES 16
+
+enum StickyStageKind {
+    STAGE_NONE = 0, STAGE_TEXTURE, STAGE_FRAME_BUFFER
+};
+
+struct StickyStage {
+    uint8_t kind;
+    uint8_t attachment;
+    uint16_t sampler;
+    uint16_t handle;
+    uint32_t flags;
+};
+
+struct StickyState {
+    bool enabled;
+
+    bool hasState;
+    uint64_t state;
+    uint32_t rgba;
+
+    bool hasStencil;
+    uint32_t fstencil;
+    uint32_t bstencil;
+
+    uint16_t program;
+
+    StickyStage stages[STICKY_MAX_TEXTURE_STAGES];
+};
+
+static StickyState sticky;
+
+void stickySetEnabled(bool enabled) {
+    stickyDiscard();
+    sticky.enabled = enabled;
+}
+
+bool stickyIsEnabled() {
+    return sticky.enabled;
+}
+
+void stickySetState(uint64_t state, uint32_t rgba) {
+    sticky.hasState = true;
+    sticky.state = state;
+    sticky.rgba = rgba;
+}
+
+void stickySetStencil(uint32_t fstencil, uint32_t bstencil) {
+    sticky.hasStencil = true;
+    sticky.fstencil = fstencil;
+    sticky.bstencil = bstencil;
+}
+
+void stickySetProgram(uint16_t program) {
+    sticky.program = program;
+}
+
+void stickySetTexture(uint8_t stage, uint16_t sampler, uint16_t texture, uint32_t flags) {
+    if (stage >= STICKY_MAX_TEXTURE_STAGES) {
+        return;
+    }
+
+    StickyStage& entry = sticky.stages[stage];
+    entry.kind = STAGE_TEXTURE;
+    entry.sampler = sampler;
+    entry.handle = texture;
+    entry.attachment = 0;
+    entry.flags = flags;
+}
+
+void stickySetFrameBufferTexture(uint8_t stage, uint16_t sampler, uint16_t frameBuffer, uint8_t attachment,
+        uint32_t flags) {
+    if (stage >= STICKY_MAX_TEXTURE_STAGES) {
+        return;
+    }
+
+    StickyStage& entry = sticky.stages[stage];
+    entry.kind = STAGE_FRAME_BUFFER;
+    entry.sampler = sampler;
+    entry.handle = frameBuffer;
+    entry.attachment = attachment;
+    entry.flags = flags;
+}
+
+void stickyInvalidateSampler(uint16_t sampler) {
+    for (uint8_t i = 0; i < STICKY_MAX_TEXTURE_STAGES; ++i) {
+        if (sticky.stages[i].kind != STAGE_NONE && sticky.stages[i].sampler == sampler) {
+            sticky.stages[i].kind = STAGE_NONE;
+        }
+    }
+}
+
+void stickyInvalidateProgram(uint16_t program) {
+    if (sticky.program == program) {
+        sticky.program = bgfx::invalidHandle;
+    }
+}
+
+static void stickyInvalidateStages(uint8_t kind, uint16_t handle) {
+    for (uint8_t i = 0; i < STICKY_MAX_TEXTURE_STAGES; ++i) {
+        if (sticky.stages[i].kind == kind && sticky.stages[i].handle == handle) {
+            sticky.stages[i].kind = STAGE_NONE;
+        }
+    }
+}
+
+void stickyInvalidateTexture(uint16_t texture) {
+    stickyInvalidateStages(STAGE_TEXTURE, texture);
+}
+
+void stickyInvalidateFrameBuffer(uint16_t frameBuffer) {
+    stickyInvalidateStages(STAGE_FRAME_BUFFER, frameBuffer);
+}
+
+void stickyDiscard() {
+    sticky.hasState = false;
+    sticky.hasStencil = false;
+    sticky.program = bgfx::invalidHandle;
+
+    for (uint8_t i = 0; i < STICKY_MAX_TEXTURE_STAGES; ++i) {
+        sticky.stages[i].kind = STAGE_NONE;
+    }
+}
+
+void stickyApply() {
+    if (!sticky.enabled) {
+        return;
+    }
+
+    if (sticky.hasState) {
+        bgfx::setState(sticky.state, sticky.rgba);
+    }
+
+    if (sticky.hasStencil) {
+        bgfx::setStencil(sticky.fstencil, sticky.bstencil);
+    }
+
+    if (sticky.program != bgfx::invalidHandle) {
+        bgfx::ProgramHandle program;
+        program.idx = sticky.program;
+        bgfx::setProgram(program);
+    }
+
+    for (uint8_t i = 0; i < STICKY_MAX_TEXTURE_STAGES; ++i) {
+        const StickyStage& stage = sticky.stages[i];
+
+        if (stage.kind == STAGE_NONE) {
+            continue;
+        }
+
+        bgfx::UniformHandle sampler;
+        sampler.idx = stage.sampler;
+
+        if (stage.kind == STAGE_TEXTURE) {
+            bgfx::TextureHandle texture;
+            texture.idx = stage.handle;
+            bgfx::setTexture(i, sampler, texture, stage.flags);
+        } else {
+            bgfx::FrameBufferHandle frameBuffer;
+            frameBuffer.idx = stage.handle;
+            bgfx::setTexture(i, sampler, frameBuffer, stage.attachment, stage.flags);
+        }
+    }
+}
+
+#endif
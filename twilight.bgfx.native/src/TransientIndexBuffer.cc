@@ -12,4 +12,14 @@ jobject JNICALL Java_twilight_bgfx_buffers_TransientIndexBuffer_nGetData(JNIEnv*
     return env->NewDirectByteBuffer(tvp->data, tvp->size);
 }
 
+jobject JNICALL Java_twilight_bgfx_buffers_TransientIndexBuffer_nGetRegion(JNIEnv* env, jclass clazz, jlong base, jlong size) {
+    // Only the part of the region covered by allocations is mapped, the real
+    // size of the transient buffer depends on how bgfx was built
+    return env->NewDirectByteBuffer((void*) base, size);
+}
+
+void JNICALL Java_twilight_bgfx_buffers_TransientIndexBuffer_nfree(JNIEnv* env, jclass clazz, jlong pointer) {
+    delete reinterpret_cast<bgfx::TransientIndexBuffer*>(pointer);
+}
+
 #endif
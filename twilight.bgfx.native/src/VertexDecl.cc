@@ -31,9 +31,9 @@ void JNICALL Java_twilight_bgfx_VertexDecl_ndestroy(JNIEnv* env, jobject self) {
 }
 
 jlong JNICALL Java_twilight_bgfx_VertexDecl_nbegin(JNIEnv* env, jobject self,
-        jobject rendererType) {
+        jint rendererType) {
     bgfx::VertexDecl* decl = new bgfx::VertexDecl();
-    decl->begin();
+    decl->begin(static_cast<bgfx::RendererType::Enum>(rendererType));
 
     return (jlong) decl;
 }
@@ -53,7 +53,7 @@ void JNICALL Java_twilight_bgfx_VertexDecl_nAdd(JNIEnv* env, jobject self,
     bgfx::AttribType::Enum attribType =
             static_cast<bgfx::AttribType::Enum>(attributeFormat);
 
-    decl->add(attrib, attributeSize, attribType);
+    decl->add(attrib, attributeSize, attribType, normalized, asInt);
 }
 
 void JNICALL Java_twilight_bgfx_VertexDecl_nSkip(JNIEnv* env, jobject self, jshort skip) {
@@ -66,24 +66,4 @@ void JNICALL Java_twilight_bgfx_VertexDecl_nDecode(JNIEnv* env, jobject self,
 
 }
 
-jboolean JNICALL Java_twilight_bgfx_VertexDecl_nHas(JNIEnv* env, jobject self,
-        jobject attrib) {
-
-}
-
-jint JNICALL Java_twilight_bgfx_VertexDecl_ngetOffset(JNIEnv* env, jobject self,
-        jobject) {
-
-}
-
-jint JNICALL Java_twilight_bgfx_VertexDecl_ngetStride(JNIEnv* env,
-        jobject self) {
-
-}
-
-jlong JNICALL Java_twilight_bgfx_VertexDecl_ngetSize(JNIEnv* env, jobject self,
-        jlong) {
-
-}
-
 #endif
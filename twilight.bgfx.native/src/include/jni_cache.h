@@ -17,6 +17,7 @@ extern jfieldID vertexDeclPtrFid;
 extern jclass capsClazz;
 extern jmethodID capsConstr;
 extern jfieldID supportedFid;
+extern jmethodID capsSetRendererTypeOrdinal;
 extern jfieldID maxTextureSizeFid;
 extern jfieldID maxDrawCallsFid;
 extern jfieldID maxFBAttachmentsFid;
@@ -29,7 +30,9 @@ extern jfieldID heightFid;
 extern jfieldID depthFid;
 extern jfieldID numMipsFid;
 extern jfieldID bitsPerPixelFid;
+extern jfieldID cubeMapFid;
 extern jmethodID infoFormatOrdinal;
+extern jmethodID infoSetFormatOrdinal;
 
 // TextureFormat
 extern jclass texFormatCls;
@@ -57,10 +60,27 @@ extern jclass transientIndexBufferClazz;
 extern jfieldID transientIndexBufferPointer;
 extern jmethodID transientIndexBufferConstr;
 
+// Transient buffer fields filled by the reusable allocation path
+extern jfieldID transientVertexBufferSize;
+extern jfieldID transientVertexBufferStartVertex;
+extern jfieldID transientVertexBufferStride;
+extern jfieldID transientVertexBufferHandle;
+extern jfieldID transientVertexBufferRegionBase;
+extern jfieldID transientVertexBufferReusable;
+
+extern jfieldID transientIndexBufferSize;
+extern jfieldID transientIndexBufferStartIndex;
+extern jfieldID transientIndexBufferHandle;
+extern jfieldID transientIndexBufferRegionBase;
+extern jfieldID transientIndexBufferReusable;
+
 extern jclass instanceDataBufferClazz;
 extern jfieldID instanceDataBufferPointer;
 extern jmethodID instanceDataBufferConstr;
 extern jfieldID instanceDataBufferHandle;
+extern jfieldID instanceDataBufferSize;
+extern jfieldID instanceDataBufferStride;
+extern jfieldID instanceDataBufferNum;
 
 //---- NanoVG
 
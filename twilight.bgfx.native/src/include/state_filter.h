@@ -0,0 +1,31 @@
+#ifndef BGFX_STATE_FILTERH
+#define BGFX_STATE_FILTERH
+
+#include <stdint.h>
+
+// Draw state remembered while the java state filter is enabled. BGFX clears
+// state, stencil, program and texture stages after every submit, those are
+// applied again right before each submit so filtered calls don't lose their
+// effect. Uniforms are never filtered, so they are not remembered here.
+
+void stickySetEnabled(bool enabled);
+bool stickyIsEnabled();
+
+void stickySetState(uint64_t state, uint32_t rgba);
+void stickySetStencil(uint32_t fstencil, uint32_t bstencil);
+void stickySetProgram(uint16_t program);
+void stickySetTexture(uint8_t stage, uint16_t sampler, uint16_t texture, uint32_t flags);
+void stickySetFrameBufferTexture(uint8_t stage, uint16_t sampler, uint16_t frameBuffer, uint8_t attachment,
+        uint32_t flags);
+
+// Forgets the texture stages sampled through a destroyed uniform
+void stickyInvalidateSampler(uint16_t sampler);
+
+void stickyInvalidateProgram(uint16_t program);
+void stickyInvalidateTexture(uint16_t texture);
+void stickyInvalidateFrameBuffer(uint16_t frameBuffer);
+
+void stickyDiscard();
+void stickyApply();
+
+#endif
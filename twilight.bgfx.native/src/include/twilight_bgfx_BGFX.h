@@ -406,11 +406,27 @@ extern "C" {
 #undef twilight_bgfx_BGFX_BGFX_CAPS_TEXTURE_DEPTH_MASK
 #define twilight_bgfx_BGFX_BGFX_CAPS_TEXTURE_DEPTH_MASK 8355840LL
 
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nallocTransientIndexBufferInto
+ * Signature: (Ltwilight/bgfx/buffers/TransientIndexBuffer;J)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nallocTransientIndexBufferInto
+  (JNIEnv *, jobject, jobject, jlong);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nallocTransientVertexBufferInto
+ * Signature: (Ltwilight/bgfx/buffers/TransientVertexBuffer;JLtwilight/bgfx/VertexDecl;)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nallocTransientVertexBufferInto
+  (JNIEnv *, jobject, jobject, jlong, jobject);
+
 JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nfreeTransientIndexBuffers
-  (JNIEnv* env, jobject self, jlongArray bufferPointers);
+  (JNIEnv* env, jobject self, jlongArray bufferPointers, jint count);
 
 JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nfreeTransientVertexBuffers
-  (JNIEnv* env, jobject self, jlongArray bufferPointers);
+  (JNIEnv* env, jobject self, jlongArray bufferPointers, jint count);
 
 /*
  * Class:     twilight_bgfx_BGFX
@@ -564,6 +580,70 @@ JNIEXPORT jobject JNICALL Java_twilight_bgfx_BGFX_ncopy
 JNIEXPORT jobject JNICALL Java_twilight_bgfx_BGFX_nmakeRef
   (JNIEnv *, jobject, jlong, jlong);
 
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nmakeRefRelease
+ * Signature: (Ljava/nio/ByteBuffer;III)J
+ */
+JNIEXPORT jlong JNICALL Java_twilight_bgfx_BGFX_nmakeRefRelease
+  (JNIEnv *, jobject, jobject, jint, jint, jint);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    ndrainReleasedRefs
+ * Signature: ([I)I
+ */
+JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ndrainReleasedRefs
+  (JNIEnv *, jobject, jintArray);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    ncreateIndexBufferMem
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateIndexBufferMem
+  (JNIEnv *, jobject, jlong, jint);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    ncreateVertexBufferMem
+ * Signature: (JLtwilight/bgfx/VertexDecl;)I
+ */
+JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateVertexBufferMem
+  (JNIEnv *, jobject, jlong, jobject);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nupdateDynamicIndexBufferMem
+ * Signature: (IJ)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nupdateDynamicIndexBufferMem
+  (JNIEnv *, jobject, jint, jlong);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nupdateDynamicVertexBufferMem
+ * Signature: (IJ)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nupdateDynamicVertexBufferMem
+  (JNIEnv *, jobject, jint, jlong);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    ncreateTexture2DMem
+ * Signature: (IISLtwilight/bgfx/TextureFormat;JJ)I
+ */
+JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateTexture2DMem
+  (JNIEnv *, jobject, jint, jint, jshort, jobject, jlong, jlong);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nupdateTexture2DMem
+ * Signature: (ISIIIIJ)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nupdateTexture2DMem
+  (JNIEnv *, jobject, jint, jshort, jint, jint, jint, jint, jlong);
+
 /*
  * Class:     twilight_bgfx_BGFX
  * Method:    nsetDebug
@@ -591,10 +671,10 @@ JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_ndbgTextPrintf
 /*
  * Class:     twilight_bgfx_BGFX
  * Method:    ncreateIndexBuffer
- * Signature: (Ljava/nio/ByteBuffer;)Ll33tlabs/twilight/bgfx/BGFX/IndexBufferHandle;
+ * Signature: (Ljava/nio/ByteBuffer;I)I
  */
 JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateIndexBuffer
-  (JNIEnv *, jobject, jobject);
+  (JNIEnv *, jobject, jobject, jint);
 
 /*
  * Class:     twilight_bgfx_BGFX
@@ -623,18 +703,18 @@ JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_ndestroyVertexBuffer
 /*
  * Class:     twilight_bgfx_BGFX
  * Method:    ncreateDynamicIndexBuffer
- * Signature: (J)Ll33tlabs/twilight/bgfx/BGFX/DynamicIndexBufferHandle;
+ * Signature: (JI)I
  */
-JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicIndexBuffer__J
-  (JNIEnv *, jobject, jlong);
+JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicIndexBuffer__JI
+  (JNIEnv *, jobject, jlong, jint);
 
 /*
  * Class:     twilight_bgfx_BGFX
  * Method:    ncreateDynamicIndexBuffer
- * Signature: (Ljava/nio/ByteBuffer;)Ll33tlabs/twilight/bgfx/BGFX/DynamicIndexBufferHandle;
+ * Signature: (Ljava/nio/ByteBuffer;I)I
  */
-JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicIndexBuffer__Ljava_nio_ByteBuffer_2
-  (JNIEnv *, jobject, jobject);
+JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicIndexBuffer__Ljava_nio_ByteBuffer_2I
+  (JNIEnv *, jobject, jobject, jint);
 
 /*
  * Class:     twilight_bgfx_BGFX
@@ -655,18 +735,26 @@ JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_ndestroyDynamicIndexBuffer
 /*
  * Class:     twilight_bgfx_BGFX
  * Method:    ncreateDynamicVertexBuffer
- * Signature: (Ljava/nio/ByteBuffer;Ll33tlabs/twilight/bgfx/VertexDecl;)Ll33tlabs/twilight/bgfx/BGFX/DynamicVertexBufferHandle;
+ * Signature: (ILtwilight/bgfx/VertexDecl;)I
  */
-JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicVertexBuffer
+JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicVertexBuffer__ILtwilight_bgfx_VertexDecl_2
+  (JNIEnv *, jobject, jint, jobject);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    ncreateDynamicVertexBuffer
+ * Signature: (Ljava/nio/ByteBuffer;Ltwilight/bgfx/VertexDecl;)I
+ */
+JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateDynamicVertexBuffer__Ljava_nio_ByteBuffer_2Ltwilight_bgfx_VertexDecl_2
   (JNIEnv *, jobject, jobject, jobject);
 
 /*
  * Class:     twilight_bgfx_BGFX
  * Method:    nupdateDynamicVertexBuffer
- * Signature: (Ll33tlabs/twilight/bgfx/BGFX/DynamicVertexBufferHandle;Ljava/nio/ByteBuffer;)V
+ * Signature: (ILjava/nio/ByteBuffer;)V
  */
 JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nupdateDynamicVertexBuffer
-  (JNIEnv *, jobject, jint, jint, jint, jobject);
+  (JNIEnv *, jobject, jint, jobject);
 
 
 
@@ -745,10 +833,10 @@ JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ncreateShader
 /*
  * Class:     twilight_bgfx_BGFX
  * Method:    ngetShaderUniforms
- * Signature: (Ll33tlabs/twilight/bgfx/BGFX/ShaderHandle;Ll33tlabs/twilight/bgfx/BGFX/UniformHandle;I)I
+ * Signature: (I[II)I
  */
 JNIEXPORT jint JNICALL Java_twilight_bgfx_BGFX_ngetShaderUniforms
-  (JNIEnv *, jobject, jobject, jobject, jint);
+  (JNIEnv *, jobject, jint, jintArray, jint);
 
 /*
  * Class:     twilight_bgfx_BGFX
@@ -1014,7 +1102,7 @@ JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nsetScissor__I
 /*
  * Class:     twilight_bgfx_BGFX
  * Method:    nsetTransform
- * Signature: (JI)J
+ * Signature: ([FI)J
  */
 JNIEXPORT jlong JNICALL Java_twilight_bgfx_BGFX_nsetTransform
   (JNIEnv *, jobject, jfloatArray, jint);
@@ -1046,7 +1134,7 @@ JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nsetIndexBuffer__Ltwilight_bgfx_b
  * Method:    nsetIndexBuffer
  * Signature: (Ll33tlabs/twilight/bgfx/BGFX/DynamicIndexBufferHandle;JJ)V
  */
-JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nsetIndexBuffer__Ltwilight_bgfx_buffers_DynamicIndexBuffe_2JJ
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nsetIndexBuffer__Ltwilight_bgfx_buffers_DynamicIndexBuffer_2JJ
   (JNIEnv *, jobject, jobject, jlong, jlong);
 
 /*
@@ -1161,6 +1249,22 @@ JNIEXPORT jlong JNICALL Java_twilight_bgfx_BGFX_nsubmitMask
 JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_ndiscard
   (JNIEnv *, jobject);
 
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nsetStateFilter
+ * Signature: (Z)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nsetStateFilter
+  (JNIEnv *, jobject, jboolean);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nsubmitCommandBuffer
+ * Signature: (Ljava/nio/ByteBuffer;I)J
+ */
+JNIEXPORT jlong JNICALL Java_twilight_bgfx_BGFX_nsubmitCommandBuffer
+  (JNIEnv *, jobject, jobject, jint);
+
 /*
  * Class:     twilight_bgfx_BGFX
  * Method:    nsaveScreenShot
@@ -1169,6 +1273,54 @@ JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_ndiscard
 JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nsaveScreenShot
   (JNIEnv *, jobject, jstring);
 
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nsetUniforms
+ * Signature: (Ljava/nio/ByteBuffer;[II)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nsetUniforms
+  (JNIEnv *, jobject, jobject, jintArray, jint);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nsetTransformBuffer
+ * Signature: (Ljava/nio/Buffer;II)J
+ */
+JNIEXPORT jlong JNICALL Java_twilight_bgfx_BGFX_nsetTransformBuffer
+  (JNIEnv *, jobject, jobject, jint, jint);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nsetViewTransformBuffer
+ * Signature: (SLjava/nio/Buffer;ILjava/nio/Buffer;I)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nsetViewTransformBuffer
+  (JNIEnv *, jobject, jshort, jobject, jint, jobject, jint);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nsetUniformBuffer
+ * Signature: (ILjava/nio/Buffer;III)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nsetUniformBuffer
+  (JNIEnv *, jobject, jint, jobject, jint, jint, jint);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nsetTransformCached
+ * Signature: (II)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_BGFX_nsetTransformCached
+  (JNIEnv *, jobject, jint, jint);
+
+/*
+ * Class:     twilight_bgfx_BGFX
+ * Method:    nallocTransform
+ * Signature: (Ljava/nio/Buffer;II)J
+ */
+JNIEXPORT jlong JNICALL Java_twilight_bgfx_BGFX_nallocTransform
+  (JNIEnv *, jobject, jobject, jint, jint);
+
 #ifdef __cplusplus
 }
 #endif
@@ -19,10 +19,10 @@ JNIEXPORT void JNICALL Java_twilight_bgfx_VertexDecl_ndestroy
 /*
  * Class:     twilight_bgfx_VertexDecl
  * Method:    nbegin
- * Signature: (Ll33tlabs/twilight/bgfx/RendererType;)J
+ * Signature: (I)J
  */
 JNIEXPORT jlong JNICALL Java_twilight_bgfx_VertexDecl_nbegin
-  (JNIEnv *, jobject, jobject);
+  (JNIEnv *, jobject, jint);
 
 /*
  * Class:     twilight_bgfx_VertexDecl
@@ -56,38 +56,6 @@ JNIEXPORT void JNICALL Java_twilight_bgfx_VertexDecl_nSkip
 JNIEXPORT void JNICALL Java_twilight_bgfx_VertexDecl_nDecode
   (JNIEnv *, jobject, jobject, jshort, jobject, jboolean, jboolean);
 
-/*
- * Class:     twilight_bgfx_VertexDecl
- * Method:    nHas
- * Signature: (Ll33tlabs/twilight/bgfx/Attrib;)Z
- */
-JNIEXPORT jboolean JNICALL Java_twilight_bgfx_VertexDecl_nHas
-  (JNIEnv *, jobject, jobject);
-
-/*
- * Class:     twilight_bgfx_VertexDecl
- * Method:    ngetOffset
- * Signature: (Ll33tlabs/twilight/bgfx/Attrib;)I
- */
-JNIEXPORT jint JNICALL Java_twilight_bgfx_VertexDecl_ngetOffset
-  (JNIEnv *, jobject, jobject);
-
-/*
- * Class:     twilight_bgfx_VertexDecl
- * Method:    ngetStride
- * Signature: ()I
- */
-JNIEXPORT jint JNICALL Java_twilight_bgfx_VertexDecl_ngetStride
-  (JNIEnv *, jobject);
-
-/*
- * Class:     twilight_bgfx_VertexDecl
- * Method:    ngetStride
- * Signature: (J)J
- */
-JNIEXPORT jlong JNICALL Java_twilight_bgfx_VertexDecl_ngetSize
-  (JNIEnv *, jobject, jlong);
-
 #ifdef __cplusplus
 }
 #endif
@@ -19,6 +19,22 @@ JNIEXPORT jobject JNICALL Java_twilight_bgfx_buffers_TransientIndexBuffer_initJV
 JNIEXPORT jobject JNICALL Java_twilight_bgfx_buffers_TransientIndexBuffer_nGetData
   (JNIEnv *, jobject);
 
+/*
+ * Class:     twilight_bgfx_buffers_TransientIndexBuffer
+ * Method:    nGetRegion
+ * Signature: (JJ)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_twilight_bgfx_buffers_TransientIndexBuffer_nGetRegion
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     twilight_bgfx_buffers_TransientIndexBuffer
+ * Method:    nfree
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_buffers_TransientIndexBuffer_nfree
+  (JNIEnv *, jclass, jlong);
+
 #ifdef __cplusplus
 }
 #endif
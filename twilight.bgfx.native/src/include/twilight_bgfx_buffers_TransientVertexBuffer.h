@@ -19,6 +19,22 @@ JNIEXPORT jobject JNICALL Java_twilight_bgfx_buffers_TransientVertexBuffer_initJ
 JNIEXPORT jobject JNICALL Java_twilight_bgfx_buffers_TransientVertexBuffer_nGetData
   (JNIEnv *, jobject);
 
+/*
+ * Class:     twilight_bgfx_buffers_TransientVertexBuffer
+ * Method:    nGetRegion
+ * Signature: (JJ)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_twilight_bgfx_buffers_TransientVertexBuffer_nGetRegion
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     twilight_bgfx_buffers_TransientVertexBuffer
+ * Method:    nfree
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_twilight_bgfx_buffers_TransientVertexBuffer_nfree
+  (JNIEnv *, jclass, jlong);
+
 #ifdef __cplusplus
 }
 #endif
@@ -17,6 +17,7 @@ jfieldID vertexDeclPtrFid;
 jclass capsClazz;
 jmethodID capsConstr;
 jfieldID supportedFid;
+jmethodID capsSetRendererTypeOrdinal;
 jfieldID maxTextureSizeFid;
 jfieldID maxDrawCallsFid;
 jfieldID maxFBAttachmentsFid;
@@ -29,7 +30,9 @@ jfieldID heightFid;
 jfieldID depthFid;
 jfieldID numMipsFid;
 jfieldID bitsPerPixelFid;
+jfieldID cubeMapFid;
 jmethodID infoFormatOrdinal;
+jmethodID infoSetFormatOrdinal;
 
 // TextureFormat
 jclass texFormatCls;
@@ -57,10 +60,27 @@ jclass transientIndexBufferClazz;
 jfieldID transientIndexBufferPointer;
 jmethodID transientIndexBufferConstr;
 
+// Transient buffer fields filled by the reusable allocation path
+jfieldID transientVertexBufferSize;
+jfieldID transientVertexBufferStartVertex;
+jfieldID transientVertexBufferStride;
+jfieldID transientVertexBufferHandle;
+jfieldID transientVertexBufferRegionBase;
+jfieldID transientVertexBufferReusable;
+
+jfieldID transientIndexBufferSize;
+jfieldID transientIndexBufferStartIndex;
+jfieldID transientIndexBufferHandle;
+jfieldID transientIndexBufferRegionBase;
+jfieldID transientIndexBufferReusable;
+
 jclass instanceDataBufferClazz;
 jfieldID instanceDataBufferPointer;
 jmethodID instanceDataBufferConstr;
 jfieldID instanceDataBufferHandle;
+jfieldID instanceDataBufferSize;
+jfieldID instanceDataBufferStride;
+jfieldID instanceDataBufferNum;
 
 //---- NanoVG
 
@@ -154,6 +174,7 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *jvm, void *reserved) {
 
     capsConstr = env->GetMethodID(capsClazz, "<init>", "()V");
     supportedFid = env->GetFieldID(capsClazz, "supported", "J");
+    capsSetRendererTypeOrdinal = env->GetMethodID(capsClazz, "setRendererTypeOrdinal", "(I)V");
 
     //maxTextureSizeFid = env->GetFieldID(capsClazz, "maxTextureSize", "J");
     //maxDrawCallsFid = env->GetFieldID(capsClazz, "maxDrawCalls", "J");
@@ -170,7 +191,9 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *jvm, void *reserved) {
     depthFid = env->GetFieldID(texInfoCls, "depth", "I");
     numMipsFid = env->GetFieldID(texInfoCls, "numMips", "S");
     bitsPerPixelFid = env->GetFieldID(texInfoCls, "bitsPerPixel", "S");
+    cubeMapFid = env->GetFieldID(texInfoCls, "cubeMap", "Z");
     infoFormatOrdinal = env->GetMethodID(texInfoCls, "getFormatOrdinal", "()I");
+    infoSetFormatOrdinal = env->GetMethodID(texInfoCls, "setFormatOrdinal", "(I)V");
 
     texFormatCls = (jclass) env->NewGlobalRef(env->FindClass("twilight/bgfx/TextureFormat"));
     formatOrdinal = env->GetMethodID(texFormatCls, "ordinal", "()I");
@@ -200,9 +223,25 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *jvm, void *reserved) {
     transientVertexBufferPointer = env->GetFieldID(transientVertexBufferClazz, "pointer", "J");
     transientIndexBufferPointer = env->GetFieldID(transientIndexBufferClazz, "pointer", "J");
 
+    transientVertexBufferSize = env->GetFieldID(transientVertexBufferClazz, "size", "J");
+    transientVertexBufferStartVertex = env->GetFieldID(transientVertexBufferClazz, "startVertex", "J");
+    transientVertexBufferStride = env->GetFieldID(transientVertexBufferClazz, "stride", "I");
+    transientVertexBufferHandle = env->GetFieldID(transientVertexBufferClazz, "handleId", "I");
+    transientVertexBufferRegionBase = env->GetFieldID(transientVertexBufferClazz, "regionBase", "J");
+    transientVertexBufferReusable = env->GetFieldID(transientVertexBufferClazz, "reusable", "Z");
+
+    transientIndexBufferSize = env->GetFieldID(transientIndexBufferClazz, "size", "J");
+    transientIndexBufferStartIndex = env->GetFieldID(transientIndexBufferClazz, "startIndex", "J");
+    transientIndexBufferHandle = env->GetFieldID(transientIndexBufferClazz, "handleId", "I");
+    transientIndexBufferRegionBase = env->GetFieldID(transientIndexBufferClazz, "regionBase", "J");
+    transientIndexBufferReusable = env->GetFieldID(transientIndexBufferClazz, "reusable", "Z");
+
     instanceDataBufferClazz = (jclass) env->NewGlobalRef(env->FindClass("twilight/bgfx/buffers/InstanceDataBuffer"));
     instanceDataBufferConstr = env->GetMethodID(instanceDataBufferClazz, "<init>", "()V");
     instanceDataBufferPointer = env->GetFieldID(instanceDataBufferClazz, "pointer", "J");
+    instanceDataBufferSize = env->GetFieldID(instanceDataBufferClazz, "size", "J");
+    instanceDataBufferStride = env->GetFieldID(instanceDataBufferClazz, "stride", "I");
+    instanceDataBufferNum = env->GetFieldID(instanceDataBufferClazz, "num", "I");
 
     //---- NanoVG
 
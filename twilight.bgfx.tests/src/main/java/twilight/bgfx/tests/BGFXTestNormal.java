@@ -111,7 +111,7 @@ public class BGFXTestNormal {
 
 			// Configure render state
 			bgfx.setTexture(0, texUniformHandle, texture, BGFX.BGFX_TEXTURE_NONE);
-			bgfx.setTransform(model.toArray(), 16);
+			bgfx.setTransform(model.toArray(), 1);
 			bgfx.setProgram(program);
 			bgfx.setVertexBuffer(vertexBufferHandle);
 			bgfx.setIndexBuffer(indexBufferHandle, 0, 6);
@@ -121,7 +121,7 @@ public class BGFXTestNormal {
 			
 			/*// Configure render state
 			bgfx.setTexture(0, texUniformHandle, texture, BGFX.BGFX_TEXTURE_NONE);
-			bgfx.setTransform(model2.toArray(), 16);
+			bgfx.setTransform(model2.toArray(), 1);
 			bgfx.setProgram(program);
 			bgfx.setVertexBuffer(vertexBufferHandle2, 6);
 			bgfx.setIndexBuffer(indexBufferHandle2, 0, 6);
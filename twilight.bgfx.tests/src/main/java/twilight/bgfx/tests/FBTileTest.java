@@ -179,7 +179,7 @@ public class FBTileTest {
 	private static void drawOutputQuad(BGFX bgfx, VertexBuffer vertexBufferHandle, IndexBuffer indexBufferHandle, int program, int texUniformHandle, int tex, Mat4 model) {
 		bgfx.setTexture(0, texUniformHandle, tex, BGFX.BGFX_TEXTURE_NONE);
 		bgfx.setUniform(colorHandle, new float[] {1f, 0f, 0f, 1f}, 0);
-		bgfx.setTransform(model.toArray(), 16);
+		bgfx.setTransform(model.toArray(), 1);
 		bgfx.setProgram(program);
 		bgfx.setVertexBuffer(vertexBufferHandle, 0, 6);
 		bgfx.setIndexBuffer(indexBufferHandle, 0, 6);
@@ -196,11 +196,11 @@ public class FBTileTest {
 	private static void drawTiledTextureOffset(BGFX bgfx, VertexBuffer vertexBufferHandle, IndexBuffer indexBufferHandle, int tiledProgram, int texture, int texUniformHandle, int tilePosition, int tileSize, int tileScale, int primCoefficient, int targetFrameBuffer, Mat4 model) {
 		// Configure render state
 		bgfx.setTexture(0, texUniformHandle, texture, BGFX.BGFX_TEXTURE_NONE);
-		bgfx.setUniform(primCoefficient, new float[] {PRIM_W/150f, PRIM_H/150f}, 1);
-		bgfx.setUniform(tilePosition, new float[] {0.1f, 0.1f}, 1);
-		bgfx.setUniform(tileSize, new float[] {0.15f, 0.15f}, 1);
-		bgfx.setUniform(tileScale, new float[] {2.25f, 2.25f}, 1);
-		bgfx.setTransform(model.toArray(), 16);
+		bgfx.setUniform(primCoefficient, new float[] {PRIM_W/150f, PRIM_H/150f, 0f, 0f}, 1);
+		bgfx.setUniform(tilePosition, new float[] {0.1f, 0.1f, 0f, 0f}, 1);
+		bgfx.setUniform(tileSize, new float[] {0.15f, 0.15f, 0f, 0f}, 1);
+		bgfx.setUniform(tileScale, new float[] {2.25f, 2.25f, 0f, 0f}, 1);
+		bgfx.setTransform(model.toArray(), 1);
 		bgfx.setProgram(tiledProgram);
 		bgfx.setVertexBuffer(vertexBufferHandle, 0, 6);
 		bgfx.setIndexBuffer(indexBufferHandle, 0, 6);
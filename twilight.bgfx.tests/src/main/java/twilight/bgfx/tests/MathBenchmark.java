@@ -0,0 +1,132 @@
+package twilight.bgfx.tests;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import twilight.bgfx.math.Mat4;
+import twilight.bgfx.math.Quat;
+import twilight.bgfx.math.Vec3;
+
+/**
+ * Times building the model matrices of a frame the way the tests used to,
+ * allocating a matrix and an array per draw, against reusing them, and
+ * times transforming points one at a time against the batch transform.
+ *
+ * @author tmccrary
+ *
+ */
+public class MathBenchmark {
+
+	private static final int DRAWS = 10000;
+	private static final int POINTS = 1 << 16;
+	private static final int WARMUP = 200;
+	private static final int RUNS = 200;
+
+	/** Keeps the results alive so the JIT can't drop the work. */
+	private static float sink;
+
+	/**
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		Mat4 view = new Mat4().lookAt(new Vec3(0, 0, -10), new Vec3(), new Vec3(0, 1, 0));
+		Mat4 proj = new Mat4().perspective(60, 16f / 9f, 0.1f, 100f, false);
+		Mat4 viewProj = new Mat4().mul(view, proj);
+		Quat rotation = new Quat().axisAngle(0, 1, 0, 0.5f);
+
+		Mat4 model = new Mat4();
+		Mat4 modelViewProj = new Mat4();
+		float[] array = new float[16];
+		FloatBuffer buffer = ByteBuffer.allocateDirect(DRAWS * 16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+		float[] points = new float[POINTS * 3];
+		float[] transformed = new float[POINTS * 3];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = (float) Math.random();
+		}
+		Vec3 point = new Vec3();
+
+		System.out.println(DRAWS + " model matrices per run, " + POINTS + " points per run");
+
+		for (int i = 0; i < WARMUP; i++) {
+			allocating(viewProj, rotation);
+			reusedArray(viewProj, rotation, model, modelViewProj, array);
+			reusedBuffer(viewProj, rotation, model, modelViewProj, buffer);
+			single(viewProj, points, transformed, point);
+			viewProj.transformPoints(points, 0, transformed, 0, POINTS);
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			allocating(viewProj, rotation);
+		}
+		report("new Mat4 and float[] per draw", System.nanoTime() - start, DRAWS);
+
+		start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			reusedArray(viewProj, rotation, model, modelViewProj, array);
+		}
+		report("reused Mat4 and float[]", System.nanoTime() - start, DRAWS);
+
+		start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			reusedBuffer(viewProj, rotation, model, modelViewProj, buffer);
+		}
+		report("reused Mat4 into FloatBuffer", System.nanoTime() - start, DRAWS);
+
+		start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			single(viewProj, points, transformed, point);
+		}
+		report("transformPoint per point", System.nanoTime() - start, POINTS);
+
+		start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			viewProj.transformPoints(points, 0, transformed, 0, POINTS);
+		}
+		sink += transformed[transformed.length - 1];
+		report("transformPoints batch", System.nanoTime() - start, POINTS);
+
+		System.out.println("(" + sink + ")");
+	}
+
+	private static void allocating(Mat4 viewProj, Quat rotation) {
+		for (int i = 0; i < DRAWS; i++) {
+			Mat4 model = new Mat4().rotation(rotation).setTranslation(i, 0, 0);
+			float[] array = new Mat4().mul(model, viewProj).get(new float[16], 0);
+			sink += array[12];
+		}
+	}
+
+	private static void reusedArray(Mat4 viewProj, Quat rotation, Mat4 model, Mat4 modelViewProj, float[] array) {
+		for (int i = 0; i < DRAWS; i++) {
+			model.rotation(rotation).setTranslation(i, 0, 0);
+			modelViewProj.mul(model, viewProj).get(array, 0);
+			sink += array[12];
+		}
+	}
+
+	private static void reusedBuffer(Mat4 viewProj, Quat rotation, Mat4 model, Mat4 modelViewProj, FloatBuffer buffer) {
+		for (int i = 0; i < DRAWS; i++) {
+			model.rotation(rotation).setTranslation(i, 0, 0);
+			buffer.position(i * 16);
+			modelViewProj.mul(model, viewProj).get(buffer);
+		}
+		sink += buffer.get(12);
+	}
+
+	private static void single(Mat4 matrix, float[] points, float[] transformed, Vec3 point) {
+		for (int i = 0; i < points.length; i += 3) {
+			point.set(points[i], points[i + 1], points[i + 2]).transform(matrix);
+			point.get(transformed, i);
+		}
+	}
+
+	private static void report(String name, long nanos, int count) {
+		double millis = nanos / 1e6 / RUNS;
+		System.out.println(String.format("%-30s %8.3f ms/run %8.1f ns/item", name, millis, millis * 1e6 / count));
+	}
+
+}
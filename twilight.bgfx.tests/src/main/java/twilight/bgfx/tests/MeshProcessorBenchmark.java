@@ -0,0 +1,151 @@
+package twilight.bgfx.tests;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import twilight.bgfx.Attrib;
+import twilight.bgfx.AttribType;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.VertexDecl;
+import twilight.bgfx.mesh.MeshProcessor;
+import twilight.bgfx.mesh.ProcessedMesh;
+
+/**
+ * Processes a shuffled, unwelded grid with {@link MeshProcessor} and reports
+ * the post transform cache misses counted by the FIFO cache simulator before
+ * and after, then processes several meshes on worker threads.
+ *
+ * @author tmccrary
+ *
+ */
+public class MeshProcessorBenchmark {
+
+	private static final int GRID = 256;
+	private static final int MESHES = 8;
+	private static final int[] CACHE_SIZES = { 16, 32 };
+
+	/**
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) throws InterruptedException, ExecutionException {
+		VertexDecl decl = VertexDecl.begin(RendererType.OpenGL);
+		decl.add(Attrib.Position, 3, AttribType.Float, false, false);
+		decl.add(Attrib.TexCoord0, 2, AttribType.Float, false, false);
+		decl.end();
+
+		final int numVertices = GRID * GRID * 6;
+		final ByteBuffer vertices = createShuffledGrid(decl, new Random(1));
+
+		final MeshProcessor processor = new MeshProcessor(decl);
+
+		System.out.println("Processing " + numVertices / 3 + " triangles, " + numVertices + " unwelded vertices");
+
+		// Welding alone gives the shuffled indexed mesh most loaders produce
+		int[] welded = new int[numVertices];
+		int unique = processor.weld(welded, vertices, numVertices);
+
+		System.out.println("Welded to " + unique + " vertices");
+
+		long start = System.nanoTime();
+		ProcessedMesh processed = processor.process(vertices, numVertices);
+		long serial = System.nanoTime() - start;
+
+		processor.setOverdrawThreshold(0);
+		ProcessedMesh cacheOnly = processor.process(vertices, numVertices);
+		processor.setOverdrawThreshold(MeshProcessor.DEFAULT_OVERDRAW_THRESHOLD);
+
+		for (int cacheSize : CACHE_SIZES) {
+			System.out.println("FIFO cache of " + cacheSize + " vertices:");
+			report("  welded, shuffled", welded, welded.length, cacheSize);
+			report("  vertex cache optimized", cacheOnly.getIndices(), cacheOnly.getIndexCount(), cacheSize);
+			report("  cache and overdraw optimized", processed.getIndices(), processed.getIndexCount(), cacheSize);
+		}
+
+		System.out.println(String.format("%-30s %8.2f ms", "serial", serial / 1e6));
+
+		ForkJoinPool pool = new ForkJoinPool();
+		List<Callable<ProcessedMesh>> tasks = new ArrayList<Callable<ProcessedMesh>>();
+
+		for (int i = 0; i < MESHES; i++) {
+			tasks.add(new Callable<ProcessedMesh>() {
+				@Override
+				public ProcessedMesh call() {
+					return processor.process(vertices, numVertices);
+				}
+			});
+		}
+
+		start = System.nanoTime();
+		for (Future<ProcessedMesh> result : pool.invokeAll(tasks)) {
+			result.get();
+		}
+		long parallel = System.nanoTime() - start;
+
+		System.out.println(String.format("%-30s %8.2f ms for %d meshes", "parallel (" + pool.getParallelism()
+				+ " threads)", parallel / 1e6, MESHES));
+
+		pool.shutdown();
+		decl.destroy();
+	}
+
+	/**
+	 * Creates a non indexed grid of quads in the xy plane with the triangles
+	 * in random order.
+	 */
+	private static ByteBuffer createShuffledGrid(VertexDecl decl, Random random) {
+		int numTriangles = GRID * GRID * 2;
+		int[] order = new int[numTriangles];
+
+		for (int i = 0; i < numTriangles; i++) {
+			order[i] = i;
+		}
+
+		for (int i = numTriangles - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+
+		ByteBuffer data = ByteBuffer.allocateDirect(numTriangles * 3 * decl.getStride()).order(ByteOrder.nativeOrder());
+
+		for (int i = 0; i < numTriangles; i++) {
+			int quad = order[i] / 2;
+			int x = quad % GRID;
+			int y = quad / GRID;
+
+			if (order[i] % 2 == 0) {
+				putVertex(data, x, y);
+				putVertex(data, x + 1, y);
+				putVertex(data, x + 1, y + 1);
+			} else {
+				putVertex(data, x, y);
+				putVertex(data, x + 1, y + 1);
+				putVertex(data, x, y + 1);
+			}
+		}
+
+		data.flip();
+
+		return data;
+	}
+
+	private static void putVertex(ByteBuffer data, int x, int y) {
+		data.putFloat(x).putFloat(y).putFloat(0);
+		data.putFloat(x / (float) GRID).putFloat(y / (float) GRID);
+	}
+
+	private static void report(String name, int[] indices, int numIndices, int cacheSize) {
+		int misses = MeshProcessor.countCacheMisses(indices, numIndices, cacheSize);
+		System.out.println(String.format("%-32s %9d misses, ACMR %.3f", name, misses, misses / (numIndices / 3.0)));
+	}
+
+}
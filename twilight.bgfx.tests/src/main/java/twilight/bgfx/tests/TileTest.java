@@ -2,17 +2,17 @@ package twilight.bgfx.tests;
 
 import java.io.File;
 
-import l33tlabs.bling.math.affine.Mat4;
-import l33tlabs.bling.math.affine.Vec3;
-import l33tlabs.bling.math.util.SceneUtil;
 import twilight.bgfx.Attrib;
 import twilight.bgfx.AttribType;
 import twilight.bgfx.BGFX;
+import twilight.bgfx.Caps;
 import twilight.bgfx.UniformType;
 import twilight.bgfx.VertexDecl;
 import twilight.bgfx.buffers.DynamicVertexBuffer;
 import twilight.bgfx.buffers.IndexBuffer;
 import twilight.bgfx.buffers.VertexBuffer;
+import twilight.bgfx.math.Mat4;
+import twilight.bgfx.math.Vec3;
 import twilight.bgfx.util.ResourceUtil;
 import twilight.bgfx.window.Display;
 import twilight.bgfx.window.Window;
@@ -46,21 +46,27 @@ public class TileTest {
 		bgfx.reset(window.getWidth(), window.getHeight(), BGFX.BGFX_RESET_NONE | BGFX.BGFX_RESET_VSYNC);
 		bgfx.setDebug(BGFX.BGFX_DEBUG_STATS);
 
-		// Create matrices to define the scene 
+		Caps caps = bgfx.getCaps();
+
+		// Create matrices to define the scene, reused every frame
 		Mat4 view = new Mat4();
-		
-		//Mat4 projMat4 = SceneUtil.perspective(60.0f, 1600f/1200f, 1f, 100.0f);
-		Mat4 proj = SceneUtil.ortho(0f, 1024, 768, 0f, -1f, 1f);
-		
-			
-		Mat4 model2 = new Mat4();
-			model2.setTranslation(55f, 55f, 0f);
-			//model2.transposeLocal();
+		Mat4 proj = new Mat4().ortho(0f, 1024, 768, 0f, -1f, 1f, caps);
+		Mat4 model = new Mat4();
+
+		float[] viewArray = view.get(new float[16], 0);
+		float[] projArray = proj.get(new float[16], 0);
+		float[] modelArray = new float[16];
+
+		// Vec4 uniforms, the unused components are zero
+		float[] primCoefficientValue = new float[] {PRIM_W/150f, PRIM_H/150f, 0f, 0f};
+		float[] tilePositionValue = new float[] {0.1f, 0.1f, 0f, 0f};
+		float[] tileSizeValue = new float[] {0.15f, 0.15f, 0f, 0f};
+		float[] tileScaleValue = new float[] {2.25f, 2.25f, 0f, 0f};
 				
 		// Setup the viewport
 		bgfx.setViewClear(0, BGFX.BGFX_CLEAR_COLOR_BIT|BGFX.BGFX_CLEAR_DEPTH_BIT, 1024, 1.0f, 0);
 		bgfx.setViewRect(0, 0, 0, 1024, 768);
-		bgfx.setViewTransform(0, view.toArray(), proj.toArray());
+		bgfx.setViewTransform(0, viewArray, projArray);
 
 		bgfx.setViewSeq(0, true);
 		bgfx.setViewRect(0, 0, 0, 1024, 768);
@@ -97,7 +103,7 @@ public class TileTest {
 		
 		display.update();
 		bgfx.reset(window.getWidth(), window.getHeight(), BGFX.BGFX_RESET_NONE | BGFX.BGFX_RESET_VSYNC);
-		proj = SceneUtil.ortho(0f, window.getWidth(), window.getHeight(), 0f, -1f, 1f);
+		proj.ortho(0f, window.getWidth(), window.getHeight(), 0f, -1f, 1f, caps).get(projArray, 0);
 		
 		// Submit a draw call
 		bgfx.submit(0, 0);
@@ -111,26 +117,24 @@ public class TileTest {
 				bgfx.reset(width, height, BGFX.BGFX_RESET_NONE | BGFX.BGFX_RESET_VSYNC);
 				lastWidth = width;
 				lastHeight = height;
-				proj = SceneUtil.ortho(0f, width, height, 0f, -1f, 1f);
+				proj.ortho(0f, width, height, 0f, -1f, 1f, caps).get(projArray, 0);
 			}
 
 			// Submit a draw call
 			bgfx.submit(0, 0);
 			
-			Mat4 model = new Mat4();
-			model.setTranslation(trans);
-			model.transposeLocal();
+			model.identity().setTranslation(trans).get(modelArray, 0);
 			
 			bgfx.setViewRect(0, 0, 0, width, height);
-			bgfx.setViewTransform(0, view.toArray(), proj.toArray());
+			bgfx.setViewTransform(0, viewArray, projArray);
 			
 			// Configure render state
 			bgfx.setTexture(0, texUniformHandle, texture, BGFX.BGFX_TEXTURE_NONE);
-			bgfx.setUniform(primCoefficient, new float[] {PRIM_W/150f, PRIM_H/150f}, 1);
-			bgfx.setUniform(tilePosition, new float[] {0.1f, 0.1f}, 1);
-			bgfx.setUniform(tileSize, new float[] {0.15f, 0.15f}, 1);
-			bgfx.setUniform(tileScale, new float[] {2.25f, 2.25f}, 1);
-			bgfx.setTransform(model.toArray(), 16);
+			bgfx.setUniform(primCoefficient, primCoefficientValue, 1);
+			bgfx.setUniform(tilePosition, tilePositionValue, 1);
+			bgfx.setUniform(tileSize, tileSizeValue, 1);
+			bgfx.setUniform(tileScale, tileScaleValue, 1);
+			bgfx.setTransform(modelArray, 1);
 			bgfx.setProgram(program);
 			bgfx.setVertexBuffer(vertexBufferHandle, 0, 6);
 			bgfx.setIndexBuffer(indexBufferHandle, 0, 6);
@@ -0,0 +1,158 @@
+package twilight.bgfx.tests;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.UniformType;
+
+/**
+ * Times the per call cost of passing matrices and uniforms to BGFX, from
+ * float arrays and from direct FloatBuffers. Runs on the null renderer, so
+ * only the binding and BGFX's own bookkeeping are measured.
+ *
+ * @author tmccrary
+ *
+ */
+public class TransformCallBenchmark {
+
+	/** Calls between frames, below the transform cache size of BGFX. */
+	private static final int CALLS = 1024;
+	private static final int WARMUP = 2000;
+	private static final int RUNS = 2000;
+
+	/**
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		int uniform = bgfx.createUniform("u_params", UniformType.Vec4, 4);
+
+		float[] matrixArray = new float[16];
+		float[] uniformArray = new float[16];
+		for (int i = 0; i < 16; i += 5) {
+			matrixArray[i] = 1;
+		}
+
+		FloatBuffer matrixBuffer = ByteBuffer.allocateDirect(16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		FloatBuffer uniformBuffer = ByteBuffer.allocateDirect(16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		matrixBuffer.put(matrixArray).clear();
+		uniformBuffer.put(uniformArray).clear();
+
+		System.out.println("Timing " + CALLS + " calls per frame");
+
+		for (int i = 0; i < WARMUP; i++) {
+			setTransforms(bgfx, matrixArray);
+			setTransforms(bgfx, matrixBuffer);
+			setViewTransforms(bgfx, matrixArray);
+			setViewTransforms(bgfx, matrixBuffer);
+			setUniforms(bgfx, uniform, uniformArray);
+			setUniforms(bgfx, uniform, uniformBuffer);
+			bgfx.frame();
+		}
+
+		long nanos = 0;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			setTransforms(bgfx, matrixArray);
+			nanos += System.nanoTime() - start;
+			bgfx.frame();
+		}
+		report("setTransform(float[])", nanos);
+
+		nanos = 0;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			setTransforms(bgfx, matrixBuffer);
+			nanos += System.nanoTime() - start;
+			bgfx.frame();
+		}
+		report("setTransform(FloatBuffer)", nanos);
+
+		nanos = 0;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			setViewTransforms(bgfx, matrixArray);
+			nanos += System.nanoTime() - start;
+			bgfx.frame();
+		}
+		report("setViewTransform(float[])", nanos);
+
+		nanos = 0;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			setViewTransforms(bgfx, matrixBuffer);
+			nanos += System.nanoTime() - start;
+			bgfx.frame();
+		}
+		report("setViewTransform(FloatBuffer)", nanos);
+
+		nanos = 0;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			setUniforms(bgfx, uniform, uniformArray);
+			nanos += System.nanoTime() - start;
+			bgfx.frame();
+		}
+		report("setUniform(float[])", nanos);
+
+		nanos = 0;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			setUniforms(bgfx, uniform, uniformBuffer);
+			nanos += System.nanoTime() - start;
+			bgfx.frame();
+		}
+		report("setUniform(FloatBuffer)", nanos);
+
+		bgfx.destroyUniform(uniform);
+		bgfx.shutdown();
+	}
+
+	private static void setTransforms(BGFX bgfx, float[] matrix) {
+		for (int i = 0; i < CALLS; i++) {
+			bgfx.setTransform(matrix, 1);
+		}
+	}
+
+	private static void setTransforms(BGFX bgfx, FloatBuffer matrix) {
+		for (int i = 0; i < CALLS; i++) {
+			bgfx.setTransform(matrix, 1);
+		}
+	}
+
+	private static void setViewTransforms(BGFX bgfx, float[] matrix) {
+		for (int i = 0; i < CALLS; i++) {
+			bgfx.setViewTransform(0, matrix, matrix);
+		}
+	}
+
+	private static void setViewTransforms(BGFX bgfx, FloatBuffer matrix) {
+		for (int i = 0; i < CALLS; i++) {
+			bgfx.setViewTransform(0, matrix, matrix);
+		}
+	}
+
+	private static void setUniforms(BGFX bgfx, int uniform, float[] value) {
+		for (int i = 0; i < CALLS; i++) {
+			bgfx.setUniform(uniform, value, 4);
+		}
+	}
+
+	private static void setUniforms(BGFX bgfx, int uniform, FloatBuffer value) {
+		for (int i = 0; i < CALLS; i++) {
+			bgfx.setUniform(uniform, value, 4);
+		}
+	}
+
+	private static void report(String name, long nanos) {
+		double perCall = nanos / (double) RUNS / CALLS;
+		System.out.println(String.format("%-30s %8.1f ns/call", name, perCall));
+	}
+
+}
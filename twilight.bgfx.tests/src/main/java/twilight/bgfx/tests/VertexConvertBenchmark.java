@@ -0,0 +1,85 @@
+package twilight.bgfx.tests;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+
+import twilight.bgfx.Attrib;
+import twilight.bgfx.AttribType;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.VertexConverter;
+import twilight.bgfx.VertexDecl;
+
+/**
+ * Times the Java vertex conversion paths, converting a float mesh to a
+ * packed layout on the calling thread and in parallel.
+ *
+ * @author tmccrary
+ *
+ */
+public class VertexConvertBenchmark {
+
+	private static final int VERTICES = 1 << 20;
+	private static final int WARMUP = 10;
+	private static final int RUNS = 20;
+
+	/**
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		VertexDecl src = VertexDecl.begin(RendererType.OpenGL);
+		src.add(Attrib.Position, 3, AttribType.Float, false, false);
+		src.add(Attrib.Normal, 3, AttribType.Float, false, false);
+		src.add(Attrib.Color0, 4, AttribType.Float, false, false);
+		src.add(Attrib.TexCoord0, 2, AttribType.Float, false, false);
+		src.end();
+
+		VertexDecl dest = VertexDecl.begin(RendererType.OpenGL);
+		dest.add(Attrib.Position, 3, AttribType.Float, false, false);
+		dest.add(Attrib.Normal, 4, AttribType.Uint8, true, true);
+		dest.add(Attrib.Color0, 4, AttribType.Uint8, true, false);
+		dest.add(Attrib.TexCoord0, 2, AttribType.Int16, true, true);
+		dest.end();
+
+		ByteBuffer srcData = ByteBuffer.allocateDirect(src.getStride() * VERTICES).order(ByteOrder.nativeOrder());
+		ByteBuffer destData = ByteBuffer.allocateDirect(dest.getStride() * VERTICES).order(ByteOrder.nativeOrder());
+
+		while (srcData.hasRemaining()) {
+			srcData.putFloat((float) Math.random());
+		}
+		srcData.clear();
+
+		VertexConverter converter = new VertexConverter(dest, src);
+		ForkJoinPool pool = new ForkJoinPool();
+
+		System.out.println("Converting " + VERTICES + " vertices, " + src.getStride() + " to " + dest.getStride() + " bytes per vertex");
+
+		for (int i = 0; i < WARMUP; i++) {
+			converter.convert(destData, srcData, VERTICES);
+			converter.convert(destData, srcData, VERTICES, pool);
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			converter.convert(destData, srcData, VERTICES);
+		}
+		report("serial", System.nanoTime() - start);
+
+		start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			converter.convert(destData, srcData, VERTICES, pool);
+		}
+		report("parallel (" + pool.getParallelism() + " threads)", System.nanoTime() - start);
+
+		pool.shutdown();
+		src.destroy();
+		dest.destroy();
+	}
+
+	private static void report(String name, long nanos) {
+		double millis = nanos / 1e6 / RUNS;
+		System.out.println(String.format("%-30s %8.2f ms/run %8.1f Mvertices/s", name, millis, VERTICES / millis / 1e3));
+	}
+
+}
@@ -0,0 +1,58 @@
+package twilight.bgfx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CommandQueueTests {
+
+	@Test
+	public void emptyBuffersAreReturnedToThePool() {
+		CommandQueue queue = new CommandQueue(64);
+
+		CommandBuffer buffer = queue.acquire();
+		queue.commit(buffer, 0);
+
+		assertEquals(0, queue.getCommittedCount());
+		assertSame(buffer, queue.acquire());
+	}
+
+	@Test
+	public void destroyDiscardsCommittedBuffers() {
+		BGFX bgfx = new BGFX();
+		CommandQueue queue = bgfx.createCommandQueue();
+
+		CommandBuffer pooled = queue.acquire();
+		queue.release(pooled);
+
+		for (int i = 0; i < 2; i++) {
+			CommandBuffer buffer = queue.acquire();
+			buffer.setState(BGFX.BGFX_STATE_DEFAULT, 0);
+			buffer.submit(0, i);
+			queue.commit(buffer, i);
+		}
+
+		assertEquals(2, queue.getCommittedCount());
+
+		bgfx.destroyCommandQueue(queue);
+		assertEquals(0, queue.getCommittedCount());
+
+		// The pool was emptied, new buffers are created
+		assertNotSame(pooled, queue.acquire());
+
+		// Buffers committed by workers that are still running are dropped
+		CommandBuffer late = queue.acquire();
+		late.submit(0, 3);
+		queue.commit(late, 3);
+
+		assertEquals(0, queue.getCommittedCount());
+		assertTrue(late.isEmpty());
+	}
+
+}
@@ -0,0 +1,110 @@
+package twilight.bgfx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class StateFilterTests {
+
+	@Test
+	public void redundantCallsAreElided() {
+		StateFilter filter = new StateFilter();
+
+		assertFalse(filter.filterState(BGFX.BGFX_STATE_DEFAULT, 0));
+		assertTrue(filter.filterState(BGFX.BGFX_STATE_DEFAULT, 0));
+		assertFalse(filter.filterState(BGFX.BGFX_STATE_DEFAULT, 1));
+
+		assertFalse(filter.filterStencil(1, 2));
+		assertTrue(filter.filterStencil(1, 2));
+
+		assertFalse(filter.filterProgram(3));
+		assertTrue(filter.filterProgram(3));
+		assertFalse(filter.filterProgram(4));
+
+		assertFalse(filter.filterTexture(0, 5, 6, 0));
+		assertTrue(filter.filterTexture(0, 5, 6, 0));
+		assertFalse(filter.filterTexture(0, 5, 7, 0));
+		assertFalse(filter.filterFrameBufferTexture(0, 5, 7, 0, 0));
+
+		assertEquals(1, filter.getElidedStates());
+		assertEquals(1, filter.getElidedStencils());
+		assertEquals(1, filter.getElidedPrograms());
+		assertEquals(1, filter.getElidedTextures());
+		assertEquals(4, filter.getElidedTotal());
+
+		filter.resetCounters();
+		assertEquals(0, filter.getElidedTotal());
+	}
+
+	@Test
+	public void invalidHandlesAreNeverElided() {
+		StateFilter filter = new StateFilter();
+
+		assertFalse(filter.filterProgram(BGFX.INVALID_HANDLE));
+		assertFalse(filter.filterProgram(BGFX.INVALID_HANDLE));
+
+		assertEquals(0, filter.getElidedTotal());
+	}
+
+	@Test
+	public void invalidateForgetsValues() {
+		StateFilter filter = new StateFilter();
+
+		filter.filterState(BGFX.BGFX_STATE_DEFAULT, 0);
+		filter.filterProgram(1);
+		filter.filterTexture(0, 2, 3, 0);
+
+		filter.invalidateProgram(1);
+		assertFalse(filter.filterProgram(1));
+
+		filter.invalidateTexture(3);
+		assertFalse(filter.filterTexture(0, 2, 3, 0));
+
+		// Destroying the sampler uniform unbinds its stages
+		filter.invalidateSampler(2);
+		assertFalse(filter.filterTexture(0, 2, 3, 0));
+
+		filter.invalidate();
+		assertFalse(filter.filterState(BGFX.BGFX_STATE_DEFAULT, 0));
+		assertFalse(filter.filterProgram(1));
+
+		assertEquals(0, filter.getElidedTotal());
+	}
+
+	@Test
+	public void uniformsAreAlwaysForwarded() {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		try {
+			int uniform = bgfx.createUniform("u_color", UniformType.Vec4, 1);
+			float[] value = { 1, 2, 3, 4 };
+
+			bgfx.setStateFilterEnabled(true);
+			StateFilter filter = bgfx.getStateFilter();
+
+			// Draws are sorted after submit, a dropped value could be
+			// overwritten by a draw sorted in between
+			for (int i = 0; i < 4; i++) {
+				bgfx.setState(BGFX.BGFX_STATE_DEFAULT, 0);
+				bgfx.setUniform(uniform, value, 1);
+				bgfx.setUniform(uniform, 1f, 1);
+				bgfx.submit(0, 0);
+			}
+
+			assertEquals(3, filter.getElidedStates());
+			assertEquals(3, filter.getElidedTotal());
+
+			bgfx.frame();
+			bgfx.destroyUniform(uniform);
+		} finally {
+			bgfx.shutdown();
+		}
+	}
+
+}
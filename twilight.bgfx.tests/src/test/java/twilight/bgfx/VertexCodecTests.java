@@ -0,0 +1,82 @@
+package twilight.bgfx;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class VertexCodecTests {
+
+	private static final float EPSILON = 1e-3f;
+
+	@Test
+	public void packsUint8() {
+		ByteBuffer buffer = buffer(4);
+
+		VertexCodec.pack(buffer, 0, AttribType.Uint8, 4, true, false, 0, 0.5f, 1, 1);
+		assertEquals(0, buffer.get(0) & 0xff);
+		assertEquals(127, buffer.get(1) & 0xff);
+		assertEquals(255, buffer.get(2) & 0xff);
+
+		// Integer attributes map -1 to 1 around 128
+		VertexCodec.pack(buffer, 0, AttribType.Uint8, 2, true, true, -1, 1, 0, 0);
+		assertEquals(1, buffer.get(0) & 0xff);
+		assertEquals(255, buffer.get(1) & 0xff);
+
+		VertexCodec.pack(buffer, 0, AttribType.Uint8, 1, false, false, 200, 0, 0, 0);
+		assertEquals(200, buffer.get(0) & 0xff);
+
+		// Only num elements are written
+		assertEquals(255, buffer.get(2) & 0xff);
+	}
+
+	@Test
+	public void roundTripsEveryType() {
+		ByteBuffer buffer = buffer(16);
+		float[] output = new float[4];
+
+		for (AttribType type : new AttribType[] { AttribType.Uint8, AttribType.Int16, AttribType.Half,
+				AttribType.Float }) {
+			VertexCodec.pack(buffer, 0, type, 3, true, false, 0.25f, 0.5f, 1, 1);
+			VertexCodec.unpack(output, 0, buffer, 0, type, 3, true, false);
+
+			assertEquals(type.name(), 0.25f, output[0], 1.0f / 128);
+			assertEquals(type.name(), 0.5f, output[1], 1.0f / 128);
+			assertEquals(type.name(), 1, output[2], 1.0f / 128);
+			assertEquals(type.name(), 0, output[3], 0);
+		}
+
+		VertexCodec.pack(buffer, 0, AttribType.Int16, 2, true, true, -1, 0.5f, 0, 0);
+		VertexCodec.unpack(output, 0, buffer, 0, AttribType.Int16, 2, true, true);
+		assertEquals(-1, output[0], EPSILON);
+		assertEquals(0.5f, output[1], EPSILON);
+	}
+
+	@Test
+	public void convertsHalf() {
+		assertEquals(0x3c00, VertexCodec.halfFromFloat(1) & 0xffff);
+		assertEquals(0xc000, VertexCodec.halfFromFloat(-2) & 0xffff);
+		assertEquals(0x7bff, VertexCodec.halfFromFloat(65504) & 0xffff);
+		assertEquals(0x7c00, VertexCodec.halfFromFloat(1e6f) & 0xffff);
+		assertEquals(0x0001, VertexCodec.halfFromFloat(5.9604645e-8f) & 0xffff);
+		assertEquals(0, VertexCodec.halfFromFloat(1e-10f) & 0xffff);
+
+		// 1 + 2^-11 is halfway between two halves and rounds to the even one
+		assertEquals(0x3c00, VertexCodec.halfFromFloat(1 + 1.0f / 2048) & 0xffff);
+
+		assertEquals(1, VertexCodec.halfToFloat((short) 0x3c00), 0);
+		assertEquals(65504, VertexCodec.halfToFloat((short) 0x7bff), 0);
+		assertEquals(5.9604645e-8f, VertexCodec.halfToFloat((short) 0x0001), 0);
+		assertEquals(Float.POSITIVE_INFINITY, VertexCodec.halfToFloat((short) 0x7c00), 0);
+	}
+
+	private static ByteBuffer buffer(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+	}
+
+}
@@ -0,0 +1,111 @@
+package twilight.bgfx;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class VertexWriterTests {
+
+	private static final int ABGR = 0xff804020;
+
+	@Test
+	public void writesVertices() {
+		// Float3 position followed by a normalized Uint8x4 color
+		VertexLayout layout = layout(16, AttribType.Uint8, true, false);
+		ByteBuffer buffer = ByteBuffer.allocate(4 + 3 * 16);
+		buffer.position(4);
+
+		VertexWriter writer = new VertexWriter(layout).begin(buffer);
+		writer.position(1, 2, 3).color(ABGR).texCoord(5, 6).next();
+		writer.position(4, 5, 6).color(1, 0, 0, 1).next();
+
+		assertEquals(2, writer.end());
+		assertEquals(4 + 2 * 16, buffer.position());
+		assertEquals(ByteOrder.nativeOrder(), buffer.order());
+
+		assertEquals(1, buffer.getFloat(4), 0);
+		assertEquals(3, buffer.getFloat(4 + 8), 0);
+		assertEquals(0x20, buffer.get(4 + 12) & 0xff);
+		assertEquals(0xff, buffer.get(4 + 15) & 0xff);
+		assertEquals(4, buffer.getFloat(4 + 16), 0);
+		assertEquals(255, buffer.get(4 + 16 + 12) & 0xff);
+		assertEquals(0, buffer.get(4 + 16 + 13));
+
+		// Rewriting a vertex doesn't complete it
+		buffer.position(4);
+		writer.begin(buffer);
+		writer.vertex(1).position(7, 8, 9);
+		assertEquals(0, writer.end());
+		assertEquals(7, buffer.getFloat(4 + 16), 0);
+		assertEquals(255, buffer.get(4 + 16 + 12) & 0xff);
+	}
+
+	@Test
+	public void copiesEveryUint8Color() {
+		boolean[][] flags = { { true, false }, { false, false }, { true, true }, { false, true } };
+
+		for (boolean[] flag : flags) {
+			ByteBuffer buffer = ByteBuffer.allocate(16);
+
+			new VertexWriter(layout(16, AttribType.Uint8, flag[0], flag[1])).begin(buffer).color(ABGR).next().end();
+
+			assertEquals(0x20, buffer.get(12) & 0xff);
+			assertEquals(0x40, buffer.get(13) & 0xff);
+			assertEquals(0x80, buffer.get(14) & 0xff);
+			assertEquals(0xff, buffer.get(15) & 0xff);
+		}
+	}
+
+	@Test
+	public void convertsFloatColors() {
+		ByteBuffer buffer = ByteBuffer.allocate(28);
+		new VertexWriter(layout(28, AttribType.Float, false, false)).begin(buffer).color(ABGR).next().end();
+
+		assertEquals(0x20 / 255.0f, buffer.getFloat(12), 1e-6f);
+		assertEquals(0x80 / 255.0f, buffer.getFloat(20), 1e-6f);
+		assertEquals(1, buffer.getFloat(24), 1e-6f);
+
+		buffer = ByteBuffer.allocate(20);
+		new VertexWriter(layout(20, AttribType.Half, false, false)).begin(buffer).color(ABGR).next().end();
+
+		assertEquals(0x3c00, buffer.getShort(18) & 0xffff);
+		assertEquals(0x40 / 255.0f, VertexCodec.halfToFloat(buffer.getShort(14)), 1e-3f);
+	}
+
+	@Test(expected = BGFXException.class)
+	public void requiresBegin() {
+		new VertexWriter(layout(16, AttribType.Uint8, true, false)).next();
+	}
+
+	/**
+	 * @return a layout with a Float3 position at 0 and a 4 element color at 12
+	 */
+	private static VertexLayout layout(int stride, AttribType colorType, boolean normalized, boolean asInt) {
+		int count = Attrib.Count.ordinal();
+		int[] offsets = new int[count];
+		int[] nums = new int[count];
+		AttribType[] types = new AttribType[count];
+		boolean[] normalizedFlags = new boolean[count];
+		boolean[] asIntFlags = new boolean[count];
+
+		int position = Attrib.Position.ordinal();
+		nums[position] = 3;
+		types[position] = AttribType.Float;
+
+		int color = Attrib.Color0.ordinal();
+		offsets[color] = 12;
+		nums[color] = 4;
+		types[color] = colorType;
+		normalizedFlags[color] = normalized;
+		asIntFlags[color] = asInt;
+
+		return new VertexLayout(RendererType.OpenGL, stride, offsets, nums, types, normalizedFlags, asIntFlags);
+	}
+
+}
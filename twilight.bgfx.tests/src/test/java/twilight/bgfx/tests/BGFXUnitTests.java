@@ -1,15 +1,228 @@
 package twilight.bgfx.tests;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.CommandBuffer;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.StateFilter;
+import twilight.bgfx.UniformType;
+
 @RunWith(JUnit4.class)
 public class BGFXUnitTests {
 
+	private static final float[] IDENTITY = { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1 };
+
 	@Test
 	public void bgfxTest() {
-		
+
+	}
+
+	@Test
+	public void commandBufferPadsFloatUniforms() {
+		CommandBuffer commands = new CommandBuffer(64);
+
+		// Command, handle, num and size, then a full Vec4 per element
+		commands.setUniform(1, 2f, 1);
+		assertEquals(16 + 16, commands.size());
+
+		commands.reset();
+		commands.setUniform(1, 2f, 3);
+		assertEquals(16 + 3 * 16, commands.size());
+	}
+
+	@Test
+	public void commandBufferMatchesDirectSubmission() {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		try {
+			int draws = 16;
+
+			long[] direct = new long[draws];
+			for (int i = 0; i < draws; i++) {
+				bgfx.setTransform(IDENTITY, 1);
+				bgfx.setState(BGFX.BGFX_STATE_DEFAULT, 0);
+				direct[i] = bgfx.submit(0, i);
+			}
+			bgfx.frame();
+
+			CommandBuffer commands = new CommandBuffer(64);
+			long[] batched = new long[draws];
+			for (int i = 0; i < draws; i++) {
+				commands.reset();
+				for (int j = 0; j <= i; j++) {
+					commands.setTransform(IDENTITY, 1);
+					commands.setState(BGFX.BGFX_STATE_DEFAULT, 0);
+					commands.submit(0, j);
+				}
+				assertEquals(i + 1, commands.getSubmitCount());
+
+				batched[i] = bgfx.submit(commands);
+				bgfx.frame();
+			}
+
+			for (int i = 0; i < draws; i++) {
+				assertEquals(direct[i], batched[i]);
+			}
+		} finally {
+			bgfx.shutdown();
+		}
+	}
+
+	@Test
+	public void stateFilterRestoresStateAfterSubmit() {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		try {
+			bgfx.setStateFilterEnabled(true);
+			StateFilter filter = bgfx.getStateFilter();
+
+			long direct = 0;
+			for (int i = 0; i < 4; i++) {
+				bgfx.setTransform(IDENTITY, 1);
+				bgfx.setState(BGFX.BGFX_STATE_DEFAULT, 0);
+				bgfx.setStencil(1, 2);
+				direct = bgfx.submit(0, i);
+			}
+
+			// Submit resets the state, the filter applies it again so repeats are dropped
+			assertEquals(3, filter.getElidedStates());
+			assertEquals(3, filter.getElidedStencils());
+			bgfx.frame();
+
+			bgfx.setStateFilterEnabled(false);
+			long unfiltered = 0;
+			for (int i = 0; i < 4; i++) {
+				bgfx.setTransform(IDENTITY, 1);
+				bgfx.setState(BGFX.BGFX_STATE_DEFAULT, 0);
+				bgfx.setStencil(1, 2);
+				unfiltered = bgfx.submit(0, i);
+			}
+			assertEquals(unfiltered, direct);
+			bgfx.frame();
+
+			bgfx.setStateFilterEnabled(true);
+			bgfx.setState(BGFX.BGFX_STATE_DEFAULT, 0);
+			bgfx.discard();
+
+			// Discard forgets the state, the next call is forwarded
+			filter.resetCounters();
+			bgfx.setState(BGFX.BGFX_STATE_DEFAULT, 0);
+			assertEquals(0, filter.getElidedTotal());
+		} finally {
+			bgfx.shutdown();
+		}
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsForeignOrderTransformBuffer() {
+		BGFX bgfx = new BGFX();
+		bgfx.setTransform(floats(16, foreignOrder()), 1);
 	}
-	
+
+	@Test(expected = BGFXException.class)
+	public void rejectsForeignOrderViewBuffer() {
+		BGFX bgfx = new BGFX();
+		bgfx.setViewTransform(0, floats(16, ByteOrder.nativeOrder()), floats(16, foreignOrder()));
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsForeignOrderUniformBuffer() {
+		BGFX bgfx = new BGFX();
+		bgfx.setUniform(0, floats(4, foreignOrder()), 1);
+	}
+
+	@Test
+	public void rejectsInvalidTransformCache() {
+		BGFX bgfx = new BGFX();
+		CommandBuffer commands = new CommandBuffer(64);
+
+		long[] caches = { -1, 0x100000000L, 0, 0 };
+		int[] nums = { 1, 1, 0, 0x10000 };
+
+		for (int i = 0; i < caches.length; i++) {
+			try {
+				bgfx.setTransform(caches[i], nums[i]);
+				fail("Accepted cache " + caches[i] + ", num " + nums[i]);
+			} catch (BGFXException e) {
+				// Expected
+			}
+
+			try {
+				commands.setTransform(caches[i], nums[i]);
+				fail("Recorded cache " + caches[i] + ", num " + nums[i]);
+			} catch (BGFXException e) {
+				// Expected
+			}
+		}
+
+		assertEquals(0, commands.size());
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsShortUniformBuffer() {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		try {
+			int uniform = bgfx.createUniform("u_mtx", UniformType.Mat4, 2);
+
+			// One matrix, but two are read
+			bgfx.setUniform(uniform, floats(16, ByteOrder.nativeOrder()), 2);
+		} finally {
+			bgfx.shutdown();
+		}
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsShortUniformArray() {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		try {
+			int uniform = bgfx.createUniform("u_offset", UniformType.Vec4, 1);
+
+			// bgfx reads a full Vec4
+			bgfx.setUniform(uniform, new float[] { 0.1f, 0.1f }, 1);
+		} finally {
+			bgfx.shutdown();
+		}
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsUniformEntryReadingPastItsSize() {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		try {
+			int uniform = bgfx.createUniform("u_params", UniformType.Vec4, 4);
+			ByteBuffer data = ByteBuffer.allocateDirect(4 * 16).order(ByteOrder.nativeOrder());
+
+			// 16 bytes hold one Vec4, but four are read
+			bgfx.setUniforms(data, new int[] { uniform, 0, 16, 4 }, 1);
+		} finally {
+			bgfx.shutdown();
+		}
+	}
+
+	private static FloatBuffer floats(int count, ByteOrder order) {
+		return ByteBuffer.allocateDirect(count * 4).order(order).asFloatBuffer();
+	}
+
+	private static ByteOrder foreignOrder() {
+		return ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+	}
+
 }
@@ -0,0 +1,163 @@
+package twilight.bgfx.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import twilight.bgfx.math.ImmutableMat4;
+import twilight.bgfx.math.Mat4;
+import twilight.bgfx.math.Quat;
+import twilight.bgfx.math.ReadableMat4;
+import twilight.bgfx.math.ReadableQuat;
+import twilight.bgfx.math.ReadableVec3;
+import twilight.bgfx.math.Vec3;
+
+@RunWith(JUnit4.class)
+public class MathTests {
+
+	private static final float EPSILON = 1e-4f;
+
+	@Test
+	public void invertGivesIdentity() {
+		Quat rotation = new Quat().axisAngle(0.267f, 0.534f, 0.801f, 1.1f).normalize();
+		Mat4 matrix = new Mat4().translationRotationScale(new Vec3(3, 4, 5), rotation, new Vec3(2, 3, 4));
+
+		Mat4 inverse = new Mat4(matrix);
+		assertTrue(inverse.invert());
+
+		assertMatrix(ImmutableMat4.IDENTITY, new Mat4().mul(matrix, inverse));
+		assertMatrix(ImmutableMat4.IDENTITY, new Mat4().mul(inverse, matrix));
+	}
+
+	@Test
+	public void invertLeavesSingularMatrix() {
+		Mat4 matrix = new Mat4().scaling(1, 0, 1);
+
+		assertFalse(matrix.invert());
+		assertMatrix(new Mat4().scaling(1, 0, 1), matrix);
+	}
+
+	@Test
+	public void mulAppliesLeftOperandFirst() {
+		Mat4 translation = new Mat4().translation(1, 2, 3);
+		Mat4 scaling = new Mat4().scaling(2, 2, 2);
+
+		// Translated to (2, 3, 4), then scaled
+		assertVec(4, 6, 8, new Vec3(1, 1, 1).transform(new Mat4().mul(translation, scaling)));
+
+		// Scaled to (2, 2, 2), then translated
+		assertVec(3, 4, 5, new Vec3(1, 1, 1).transform(new Mat4().mul(scaling, translation)));
+
+		assertMatrix(new Mat4().mul(translation, scaling), new Mat4(translation).mul(scaling));
+	}
+
+	@Test
+	public void orthoMapsNearDepth() {
+		Mat4 direct3d = new Mat4().ortho(0, 10, 0, 10, 1, 5, false);
+		assertVec(-1, -1, 0, new Vec3(0, 0, 1).transform(direct3d));
+		assertVec(1, 1, 1, new Vec3(10, 10, 5).transform(direct3d));
+
+		Mat4 openGl = new Mat4().ortho(0, 10, 0, 10, 1, 5, true);
+		assertVec(-1, -1, -1, new Vec3(0, 0, 1).transform(openGl));
+		assertVec(1, 1, 1, new Vec3(10, 10, 5).transform(openGl));
+	}
+
+	@Test
+	public void perspectiveMapsDepthRange() {
+		float near = 0.5f;
+		float far = 50;
+
+		Mat4 direct3d = new Mat4().perspective(60, 1.5f, near, far, false);
+		assertEquals(0, projectDepth(direct3d, near), EPSILON);
+		assertEquals(1, projectDepth(direct3d, far), EPSILON);
+
+		Mat4 openGl = new Mat4().perspective(60, 1.5f, near, far, true);
+		assertEquals(-1, projectDepth(openGl, near), EPSILON);
+		assertEquals(1, projectDepth(openGl, far), EPSILON);
+
+		// A 90 degree field of view puts the top edge at y = z
+		Mat4 square = new Mat4().perspective(90, 2, near, far, false);
+		assertEquals(1, square.get(5), EPSILON);
+		assertEquals(0.5f, square.get(0), EPSILON);
+	}
+
+	@Test
+	public void lookAtMovesEyeToOrigin() {
+		Mat4 view = new Mat4().lookAt(new Vec3(1, 2, 3), new Vec3(1, 2, 10), new Vec3(0, 1, 0));
+
+		assertVec(0, 0, 0, new Vec3(1, 2, 3).transform(view));
+		assertVec(0, 0, 7, new Vec3(1, 2, 10).transform(view));
+		assertVec(0, 1, 0, new Vec3(1, 3, 3).transform(view));
+
+		// Left handed, +x is to the right when looking down +z
+		assertVec(1, 0, 0, new Vec3(2, 2, 3).transform(view));
+	}
+
+	@Test
+	public void slerpReturnsEndpoints() {
+		Quat from = new Quat().axisAngle(1, 0, 0, 0.3f);
+		Quat to = new Quat().axisAngle(0, 1, 0, 1.2f);
+
+		assertQuat(from, new Quat(from).slerp(to, 0));
+		assertQuat(to, new Quat(from).slerp(to, 1));
+
+		Quat half = new Quat().slerp(new Quat().axisAngle(0, 1, 0, 1), 0.5f);
+		assertQuat(new Quat().axisAngle(0, 1, 0, 0.5f), half);
+	}
+
+	@Test
+	public void axisAngleRotates() {
+		Quat quarter = new Quat().axisAngle(0, 0, 1, (float) (Math.PI / 2));
+
+		assertEquals(1, quarter.length(), EPSILON);
+		assertVec(0, 1, 0, new Vec3(1, 0, 0).rotate(quarter));
+
+		// The matrix of a rotation rotates like the quaternion
+		Quat rotation = new Quat().axisAngle(new Vec3(1, 2, 3).normalize(), 1.1f);
+		Vec3 point = new Vec3(0.3f, -2, 5);
+		Vec3 expected = new Vec3(point).rotate(rotation);
+		assertVec(expected.getX(), expected.getY(), expected.getZ(), point.transform(new Mat4().rotation(rotation)));
+	}
+
+	@Test
+	public void quatMulMatchesMat4Mul() {
+		Quat a = new Quat().axisAngle(0, 0, 1, (float) (Math.PI / 2));
+		Quat b = new Quat().axisAngle(1, 0, 0, (float) (Math.PI / 2));
+
+		Mat4 expected = new Mat4().rotation(a).mul(new Mat4().rotation(b));
+		assertMatrix(expected, new Mat4().rotation(new Quat(a).mul(b)));
+
+		// Rotated to +y by a, then to +z by b
+		assertVec(0, 0, 1, new Vec3(1, 0, 0).rotate(new Quat(a).mul(b)));
+		assertVec(0, 0, 1, new Vec3(1, 0, 0).transform(expected));
+	}
+
+	/**
+	 * @return the depth of a point on the z axis after the perspective divide
+	 */
+	private static float projectDepth(ReadableMat4 projection, float z) {
+		return (z * projection.get(10) + projection.get(14)) / (z * projection.get(11) + projection.get(15));
+	}
+
+	private static void assertMatrix(ReadableMat4 expected, ReadableMat4 actual) {
+		for (int i = 0; i < ReadableMat4.SIZE; i++) {
+			assertEquals("Element " + i, expected.get(i), actual.get(i), EPSILON);
+		}
+	}
+
+	private static void assertVec(float x, float y, float z, ReadableVec3 actual) {
+		assertEquals(x, actual.getX(), EPSILON);
+		assertEquals(y, actual.getY(), EPSILON);
+		assertEquals(z, actual.getZ(), EPSILON);
+	}
+
+	private static void assertQuat(ReadableQuat expected, ReadableQuat actual) {
+		// q and -q are the same rotation
+		assertEquals(1, Math.abs(expected.dot(actual)), EPSILON);
+	}
+
+}
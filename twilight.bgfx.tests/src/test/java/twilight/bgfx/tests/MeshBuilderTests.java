@@ -0,0 +1,111 @@
+package twilight.bgfx.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import twilight.bgfx.Attrib;
+import twilight.bgfx.AttribType;
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.VertexDecl;
+import twilight.bgfx.mesh.MeshBuilder;
+
+@RunWith(JUnit4.class)
+public class MeshBuilderTests {
+
+	@Test
+	public void picksIndexSizeFromLargestIndex() {
+		VertexDecl decl = positionDecl();
+
+		try {
+			MeshBuilder builder = new MeshBuilder(decl, 1, 1);
+			assertFalse(builder.needsIndex32());
+
+			builder.triangle(0, 1, MeshBuilder.MAX_INDEX16);
+			assertFalse(builder.needsIndex32());
+
+			builder.index(MeshBuilder.MAX_INDEX16 + 1);
+			assertTrue(builder.needsIndex32());
+			assertEquals(4, builder.getIndexCount());
+
+			builder.clear();
+			assertFalse(builder.needsIndex32());
+			assertEquals(0, builder.getIndexCount());
+
+			// Short indices are unsigned, 0xffff still fits
+			builder.indices(new short[] { 0, (short) 0xffff, 2 });
+			assertFalse(builder.needsIndex32());
+			assertEquals(3, builder.getIndexCount());
+		} finally {
+			decl.destroy();
+		}
+	}
+
+	@Test
+	public void rejectsNegativeIndices() {
+		VertexDecl decl = positionDecl();
+
+		try {
+			MeshBuilder builder = new MeshBuilder(decl);
+
+			try {
+				builder.triangle(0, -1, 2);
+				fail("Accepted negative index");
+			} catch (BGFXException e) {
+				// Expected
+			}
+
+			try {
+				builder.indices(new int[] { 3, Integer.MIN_VALUE });
+				fail("Accepted negative index");
+			} catch (BGFXException e) {
+				// Expected
+			}
+
+			// Indices before the rejected one were kept
+			assertEquals(2, builder.getIndexCount());
+			assertFalse(builder.needsIndex32());
+		} finally {
+			decl.destroy();
+		}
+	}
+
+	@Test
+	public void rejectsIndicesPastLastVertex() {
+		VertexDecl decl = positionDecl();
+
+		try {
+			MeshBuilder builder = new MeshBuilder(decl, 1, 3);
+			builder.writeVertices(3).position(0, 0, 0).next().position(1, 0, 0).next().position(0, 1, 0).next().end();
+			assertEquals(3, builder.getVertexCount());
+
+			builder.triangle(0, 1, 3);
+
+			try {
+				// Checked before anything is created
+				builder.build(new BGFX());
+				fail("Accepted index past the last vertex");
+			} catch (BGFXException e) {
+				// Expected
+			}
+		} finally {
+			decl.destroy();
+		}
+	}
+
+	private static VertexDecl positionDecl() {
+		VertexDecl decl = VertexDecl.begin(RendererType.Null);
+		decl.add(Attrib.Position, 3, AttribType.Float, false, false);
+		decl.end();
+
+		return decl;
+	}
+
+}
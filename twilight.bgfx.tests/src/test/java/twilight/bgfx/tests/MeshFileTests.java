@@ -0,0 +1,202 @@
+package twilight.bgfx.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import twilight.bgfx.Attrib;
+import twilight.bgfx.AttribType;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.VertexDecl;
+import twilight.bgfx.mesh.MeshFile;
+
+@RunWith(JUnit4.class)
+public class MeshFileTests {
+
+	@Test
+	public void roundTrips() throws IOException {
+		VertexDecl decl = positionDecl();
+		File file = tempFile();
+
+		try {
+			float[] positions = { -1, 0, 2, 3, 4, 2, 1, -2, 2 };
+			ByteBuffer vertices = toBuffer(positions);
+			int[] indices = { 0, 1, 2, 2, 1, 0 };
+
+			MeshFile.write(file, decl, vertices, 3, indices, 6);
+			assertEquals(0, vertices.position());
+
+			MeshFile mesh = MeshFile.load(file, decl);
+
+			assertEquals(3, mesh.getVertexCount());
+			assertEquals(6, mesh.getIndexCount());
+			assertFalse(mesh.isIndex32());
+			assertArrayEquals(new float[] { -1, -2, 2, 3, 4, 2 }, mesh.getBounds(), 0);
+
+			float[] sphere = mesh.getBoundingSphere();
+			assertEquals(1, sphere[0], 0);
+			assertEquals(1, sphere[1], 0);
+			assertEquals(2, sphere[2], 0);
+			assertEquals((float) Math.sqrt(13), sphere[3], 1e-6f);
+
+			ByteBuffer vertexData = mesh.getVertexData();
+			assertEquals(positions.length * 4, vertexData.remaining());
+			for (int i = 0; i < positions.length; i++) {
+				assertEquals(positions[i], vertexData.getFloat(i * 4), 0);
+			}
+
+			ByteBuffer indexData = mesh.getIndexData();
+			assertEquals(indices.length * 2, indexData.remaining());
+			for (int i = 0; i < indices.length; i++) {
+				assertEquals(indices[i], indexData.getShort(i * 2) & 0xffff);
+			}
+
+			mesh.destroy();
+		} finally {
+			decl.destroy();
+		}
+	}
+
+	@Test
+	public void picksIndexSizeFromLargestIndex() throws IOException {
+		VertexDecl decl = positionDecl();
+		File file16 = tempFile();
+		File file32 = tempFile();
+
+		try {
+			int numVertices = 0x10001;
+			ByteBuffer vertices = toBuffer(new float[numVertices * 3]);
+
+			// Many vertices, but every index fits into 16 bits
+			MeshFile.write(file16, decl, vertices, numVertices, new int[] { 0, 1, 0xffff }, 3);
+			MeshFile mesh = MeshFile.load(file16, decl);
+			assertFalse(mesh.isIndex32());
+			assertEquals(0xffff, mesh.getIndexData().getShort(4) & 0xffff);
+
+			MeshFile.write(file32, decl, vertices, numVertices, new int[] { 0, 1, 0x10000 }, 3);
+			mesh = MeshFile.load(file32, decl);
+			assertTrue(mesh.isIndex32());
+			assertEquals(3 * 4, mesh.getIndexData().remaining());
+			assertEquals(0x10000, mesh.getIndexData().getInt(8));
+		} finally {
+			decl.destroy();
+		}
+	}
+
+	@Test
+	public void rejectsOutOfRangeIndices() throws IOException {
+		VertexDecl decl = positionDecl();
+		File file = tempFile();
+
+		try {
+			ByteBuffer vertices = toBuffer(new float[3 * 3]);
+			int[][] invalid = { { 0, 1, 3 }, { 0, -1, 2 } };
+
+			for (int[] indices : invalid) {
+				try {
+					MeshFile.write(file, decl, vertices, 3, indices, 3);
+					fail("Accepted index out of range");
+				} catch (BGFXException e) {
+					// Expected
+				}
+			}
+
+			try {
+				MeshFile.write(file, decl, vertices, 3, new int[] { 0, 1 }, 3);
+				fail("Accepted short index array");
+			} catch (BGFXException e) {
+				// Expected
+			}
+		} finally {
+			decl.destroy();
+		}
+	}
+
+	@Test
+	public void rejectsCorruptHeaders() throws IOException {
+		VertexDecl decl = positionDecl();
+		File file = tempFile();
+
+		try {
+			MeshFile.write(file, decl, toBuffer(new float[3 * 3]), 3, new int[] { 0, 1, 2 }, 3);
+
+			// Magic, version, renderer type and vertex count
+			int[] offsets = { 0, 4, 12, 24 };
+			int[] values = { 0x12345678, MeshFile.VERSION + 1, RendererType.Count.ordinal(), 4 };
+
+			for (int i = 0; i < offsets.length; i++) {
+				int original = patchInt(file, offsets[i], values[i]);
+
+				try {
+					MeshFile.load(file, decl);
+					fail("Accepted corrupt header at " + offsets[i]);
+				} catch (BGFXException e) {
+					// Expected
+				}
+
+				patchInt(file, offsets[i], original);
+			}
+
+			MeshFile.load(file, decl);
+		} finally {
+			decl.destroy();
+		}
+	}
+
+	private static VertexDecl positionDecl() {
+		VertexDecl decl = VertexDecl.begin(RendererType.Null);
+		decl.add(Attrib.Position, 3, AttribType.Float, false, false);
+		decl.end();
+
+		return decl;
+	}
+
+	private static File tempFile() throws IOException {
+		File file = File.createTempFile("mesh", ".tbm");
+		file.deleteOnExit();
+
+		return file;
+	}
+
+	/**
+	 * @return the little endian value that was replaced
+	 */
+	private static int patchInt(File file, int offset, int value) throws IOException {
+		RandomAccessFile output = new RandomAccessFile(file, "rw");
+
+		try {
+			ByteBuffer data = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			output.getChannel().read(data, offset);
+
+			data.clear();
+			int original = data.getInt(0);
+			data.putInt(0, value);
+			output.getChannel().write(data, offset);
+
+			return original;
+		} finally {
+			output.close();
+		}
+	}
+
+	private static ByteBuffer toBuffer(float[] values) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(values.length * 4).order(ByteOrder.nativeOrder());
+		buffer.asFloatBuffer().put(values);
+
+		return buffer;
+	}
+
+}
@@ -0,0 +1,198 @@
+package twilight.bgfx.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import twilight.bgfx.Attrib;
+import twilight.bgfx.AttribType;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.VertexDecl;
+import twilight.bgfx.mesh.MeshProcessor;
+
+@RunWith(JUnit4.class)
+public class MeshProcessorTests {
+
+	private static final int GRID = 32;
+
+	private static final int CACHE_SIZE = MeshProcessor.DEFAULT_CACHE_SIZE;
+
+	@Test
+	public void vertexCacheDoesNotGetWorseOnGrid() {
+		int[] indices = gridIndices();
+		int[] original = indices.clone();
+
+		float before = MeshProcessor.getAcmr(indices, indices.length, CACHE_SIZE);
+		MeshProcessor.optimizeVertexCache(indices, indices.length, vertexCount(), CACHE_SIZE);
+		float after = MeshProcessor.getAcmr(indices, indices.length, CACHE_SIZE);
+
+		assertTrue("ACMR went from " + before + " to " + after, after <= before);
+		assertIsPermutation(original, indices);
+	}
+
+	@Test
+	public void vertexCacheImprovesShuffledGrid() {
+		int[] indices = shuffleTriangles(gridIndices(), new Random(7));
+		int[] original = indices.clone();
+
+		float before = MeshProcessor.getAcmr(indices, indices.length, CACHE_SIZE);
+		MeshProcessor.optimizeVertexCache(indices, indices.length, vertexCount(), CACHE_SIZE);
+		float after = MeshProcessor.getAcmr(indices, indices.length, CACHE_SIZE);
+
+		assertTrue("ACMR went from " + before + " to " + after, after < before);
+		assertIsPermutation(original, indices);
+	}
+
+	@Test
+	public void overdrawKeepsTriangles() {
+		MeshProcessor processor = new MeshProcessor(positionDecl());
+
+		int[] indices = gridIndices();
+		int[] original = indices.clone();
+		ByteBuffer vertices = gridVertices();
+
+		MeshProcessor.optimizeVertexCache(indices, indices.length, vertexCount(), CACHE_SIZE);
+		processor.optimizeOverdraw(indices, indices.length, vertices, vertexCount());
+
+		assertIsPermutation(original, indices);
+	}
+
+	@Test
+	public void weldMergesDuplicateVertices() {
+		MeshProcessor processor = new MeshProcessor(positionDecl());
+
+		// Two triangles of a quad, the shared edge is stored twice
+		float[] positions = { 0, 0, 0, 1, 0, 0, 1, 1, 0, 1, 1, 0, 0, 1, 0, 0, 0, 0 };
+		ByteBuffer vertices = toBuffer(positions);
+
+		int[] remap = new int[6];
+		assertEquals(4, processor.weld(remap, vertices, 6));
+		assertArrayEquals(new int[] { 0, 1, 2, 2, 4, 0 }, remap);
+	}
+
+	@Test
+	public void weldUsesEpsilon() {
+		MeshProcessor processor = new MeshProcessor(positionDecl());
+
+		float[] positions = { 0, 0, 0, 0.0005f, 0, 0, 0.5f, 0, 0 };
+		ByteBuffer vertices = toBuffer(positions);
+
+		int[] remap = new int[3];
+		assertEquals(2, processor.weld(remap, vertices, 3));
+		assertArrayEquals(new int[] { 0, 0, 2 }, remap);
+
+		processor.setWeldEpsilon(0);
+		assertEquals(3, processor.weld(remap, vertices, 3));
+		assertArrayEquals(new int[] { 0, 1, 2 }, remap);
+	}
+
+	private static int vertexCount() {
+		return (GRID + 1) * (GRID + 1);
+	}
+
+	/**
+	 * @return a GRID x GRID quad grid, two triangles per quad in row order
+	 */
+	private static int[] gridIndices() {
+		int[] indices = new int[GRID * GRID * 6];
+		int at = 0;
+
+		for (int y = 0; y < GRID; y++) {
+			for (int x = 0; x < GRID; x++) {
+				int v = y * (GRID + 1) + x;
+
+				indices[at++] = v;
+				indices[at++] = v + 1;
+				indices[at++] = v + GRID + 1;
+
+				indices[at++] = v + 1;
+				indices[at++] = v + GRID + 2;
+				indices[at++] = v + GRID + 1;
+			}
+		}
+
+		return indices;
+	}
+
+	private static ByteBuffer gridVertices() {
+		float[] positions = new float[vertexCount() * 3];
+
+		for (int i = 0; i < vertexCount(); i++) {
+			positions[i * 3] = i % (GRID + 1);
+			positions[i * 3 + 1] = i / (GRID + 1);
+		}
+
+		return toBuffer(positions);
+	}
+
+	private static ByteBuffer toBuffer(float[] positions) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(positions.length * 4).order(ByteOrder.nativeOrder());
+		buffer.asFloatBuffer().put(positions);
+
+		return buffer;
+	}
+
+	private static VertexDecl positionDecl() {
+		VertexDecl decl = VertexDecl.begin(RendererType.Null);
+		decl.add(Attrib.Position, 3, AttribType.Float, false, false);
+		decl.end();
+
+		return decl;
+	}
+
+	private static int[] shuffleTriangles(int[] indices, Random random) {
+		for (int i = indices.length / 3 - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+
+			for (int k = 0; k < 3; k++) {
+				int swap = indices[i * 3 + k];
+				indices[i * 3 + k] = indices[j * 3 + k];
+				indices[j * 3 + k] = swap;
+			}
+		}
+
+		return indices;
+	}
+
+	/**
+	 * Checks both lists hold the same triangles with the same winding, in any
+	 * order and starting at any corner.
+	 */
+	private static void assertIsPermutation(int[] expected, int[] actual) {
+		assertArrayEquals(triangleKeys(expected), triangleKeys(actual));
+	}
+
+	private static long[] triangleKeys(int[] indices) {
+		long[] keys = new long[indices.length / 3];
+
+		for (int i = 0; i < keys.length; i++) {
+			int a = indices[i * 3];
+			int b = indices[i * 3 + 1];
+			int c = indices[i * 3 + 2];
+
+			// Rotate the smallest index first, which keeps the winding
+			while (a > b || a > c) {
+				int swap = a;
+				a = b;
+				b = c;
+				c = swap;
+			}
+
+			keys[i] = ((long) a << 42) | ((long) b << 21) | c;
+		}
+
+		Arrays.sort(keys);
+
+		return keys;
+	}
+
+}
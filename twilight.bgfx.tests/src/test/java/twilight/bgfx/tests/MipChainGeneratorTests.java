@@ -0,0 +1,140 @@
+package twilight.bgfx.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.texture.MipChainGenerator;
+
+@RunWith(JUnit4.class)
+public class MipChainGeneratorTests {
+
+	@Test
+	public void computesChainSizes() {
+		assertEquals(1, MipChainGenerator.getMipCount(1, 1));
+		assertEquals(3, MipChainGenerator.getMipCount(4, 2));
+		assertEquals(3, MipChainGenerator.getMipCount(5, 3));
+		assertEquals(9, MipChainGenerator.getMipCount(256, 1));
+
+		assertEquals((8 + 2 + 1) * 4, MipChainGenerator.calcChainSize(4, 2));
+		assertEquals((15 + 2 + 1) * 4, MipChainGenerator.calcChainSize(5, 3));
+		assertEquals((4 + 2 + 1) * 4, MipChainGenerator.calcChainSize(1, 4));
+	}
+
+	@Test
+	public void boxFiltersEveryLevel() {
+		// 4x2 with padded rows, texel (x, y) channel c holds (x + 4y) * 10 + c
+		int pitch = 20;
+		ByteBuffer src = ByteBuffer.allocateDirect(3 + pitch + 16);
+		src.position(3);
+
+		for (int y = 0; y < 2; y++) {
+			for (int x = 0; x < 4; x++) {
+				for (int c = 0; c < 4; c++) {
+					src.put(3 + y * pitch + x * 4 + c, (byte) ((x + 4 * y) * 10 + c));
+				}
+			}
+		}
+
+		ByteBuffer chain = new MipChainGenerator().generate(src, 4, 2, pitch);
+
+		assertEquals(MipChainGenerator.calcChainSize(4, 2), chain.capacity());
+		assertEquals(3, src.position());
+
+		for (int c = 0; c < 4; c++) {
+			// The top level is copied without the padding
+			assertEquals(50 + c, chain.get(4 * 4 + 4 + c));
+
+			// 2x1, rounded averages of each 2x2 block
+			assertEquals(25 + c, chain.get(32 + c));
+			assertEquals(45 + c, chain.get(32 + 4 + c));
+
+			// 1x1, the single row is repeated
+			assertEquals(35 + c, chain.get(40 + c));
+		}
+	}
+
+	@Test
+	public void convertsTexels() {
+		ByteBuffer src = ByteBuffer.allocateDirect(8);
+		src.put(0, (byte) 255).put(3, (byte) 128);
+		src.put(4, (byte) 0).put(5, (byte) 0).put(6, (byte) 255).put(7, (byte) 255);
+
+		MipChainGenerator generator = new MipChainGenerator();
+		generator.setSwizzle(true);
+		generator.setPremultiplyAlpha(true);
+
+		ByteBuffer chain = generator.generate(src, 2, 1, 8);
+
+		// Red is moved to blue and scaled by alpha
+		assertEquals(0, chain.get(0));
+		assertEquals(128, chain.get(2) & 0xff);
+		assertEquals(255, chain.get(4) & 0xff);
+		assertEquals(0, chain.get(6));
+		assertEquals(192, chain.get(8 + 3) & 0xff);
+
+		// Black and white average to half the linear intensity
+		src.put(0, (byte) 0).put(3, (byte) 255);
+		src.put(4, (byte) 255).put(5, (byte) 255).put(6, (byte) 255);
+
+		generator = new MipChainGenerator();
+		generator.setSrgb(true);
+		chain = generator.generate(src, 2, 1, 8);
+
+		assertEquals(188, chain.get(8) & 0xff);
+		assertEquals(188, chain.get(8 + 2) & 0xff);
+
+		generator.setSrgb(false);
+		chain = generator.generate(src, 2, 1, 8);
+
+		assertEquals(128, chain.get(8) & 0xff);
+	}
+
+	@Test
+	public void parallelMatchesSerial() {
+		int width = 512;
+		int height = 300;
+		byte[] texels = new byte[width * height * 4];
+		new Random(3).nextBytes(texels);
+
+		ByteBuffer src = ByteBuffer.allocateDirect(texels.length);
+		src.put(texels).flip();
+
+		MipChainGenerator generator = new MipChainGenerator();
+		generator.setSrgb(true);
+
+		ByteBuffer serial = generator.generate(src, width, height, width * 4);
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			ByteBuffer parallel = generator.generate(src, width, height, width * 4, pool);
+			assertEquals(serial, parallel);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void rejectsShortImages() {
+		MipChainGenerator generator = new MipChainGenerator();
+		int[][] invalid = { { 4, 4, 12 }, { 0, 4, 16 }, { 4, 5, 16 } };
+
+		for (int[] image : invalid) {
+			try {
+				generator.generate(ByteBuffer.allocateDirect(64), image[0], image[1], image[2]);
+				fail("Accepted " + image[0] + "x" + image[1]);
+			} catch (BGFXException e) {
+				// Expected
+			}
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+package twilight.bgfx.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.UniformType;
+import twilight.bgfx.shader.ShaderReflection;
+import twilight.bgfx.shader.UniformInfo;
+
+@RunWith(JUnit4.class)
+public class ShaderReflectionTests {
+
+	private static final int FRAGMENT_BIT = 0x10;
+
+	@Test
+	public void decodesLegacyTypes() {
+		// Uniform1i, Uniform1f, End, Uniform1iv, Uniform1fv, Uniform2fv,
+		// Uniform3fv, Uniform4fv, Uniform3x3fv and Uniform4x4fv
+		int[] types = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 | FRAGMENT_BIT };
+		List<UniformInfo> uniforms = ShaderReflection.getUniforms(shader('F', 3, types));
+
+		UniformType[] expected = { UniformType.Int1, UniformType.Vec4, UniformType.End, UniformType.Int1,
+				UniformType.Vec4, UniformType.Vec4, UniformType.Vec4, UniformType.Vec4, UniformType.Mat3,
+				UniformType.Mat4 };
+
+		assertEquals(expected.length, uniforms.size());
+
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], uniforms.get(i).getType());
+		}
+
+		assertFalse(uniforms.get(8).isFragment());
+		assertTrue(uniforms.get(9).isFragment());
+	}
+
+	@Test
+	public void decodesCurrentTypes() {
+		int[] types = { 0, 1, 2, 3, 4 };
+		List<UniformInfo> uniforms = ShaderReflection.getUniforms(shader('V', 4, types));
+
+		for (int i = 0; i < types.length; i++) {
+			assertEquals(UniformType.values()[i], uniforms.get(i).getType());
+		}
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsUnknownCurrentType() {
+		ShaderReflection.getUniforms(shader('V', 4, new int[] { 9 }));
+	}
+
+	/**
+	 * Builds a shader header with one uniform per type, named u0, u1 and so
+	 * on.
+	 */
+	private static byte[] shader(char stage, int version, int[] types) {
+		ByteBuffer data = ByteBuffer.allocate(10 + types.length * 9).order(ByteOrder.LITTLE_ENDIAN);
+
+		data.put((byte) stage).put((byte) 'S').put((byte) 'H').put((byte) version);
+		data.putInt(0x12345678);
+		data.putShort((short) types.length);
+
+		for (int i = 0; i < types.length; i++) {
+			data.put((byte) 2).put((byte) 'u').put((byte) ('0' + i));
+			data.put((byte) types[i]).put((byte) 1);
+			data.putShort((short) i).putShort((short) 1);
+		}
+
+		return data.array();
+	}
+
+}
@@ -0,0 +1,130 @@
+package twilight.bgfx.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.TextureFormat;
+import twilight.bgfx.TextureInfo;
+import twilight.bgfx.texture.CachedTexture;
+import twilight.bgfx.texture.TextureCache;
+import twilight.bgfx.texture.TextureSource;
+
+@RunWith(JUnit4.class)
+public class TextureCacheTests {
+
+	private static final int SIZE = 64;
+
+	private static final long TEXTURE_BYTES = SIZE * SIZE * 4;
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		try {
+			TextureCache cache = new TextureCache(bgfx, 3 * TEXTURE_BYTES);
+			CachedTexture a = cache.add(new Source());
+			CachedTexture b = cache.add(new Source());
+			CachedTexture c = cache.add(new Source());
+			CachedTexture d = cache.add(new Source());
+
+			a.get();
+			b.get();
+			c.get();
+			assertEquals(3 * TEXTURE_BYTES, cache.getResidentBytes());
+			assertEquals(TEXTURE_BYTES, a.getSize());
+			bgfx.frame();
+
+			// Touching a leaves b as the least recently used
+			a.get();
+			bgfx.frame();
+
+			d.get();
+			assertFalse(b.isResident());
+			assertTrue(a.isResident());
+			assertTrue(c.isResident());
+			assertTrue(d.isResident());
+			assertEquals(3, cache.getResidentCount());
+			assertEquals(3 * TEXTURE_BYTES, cache.getResidentBytes());
+			assertEquals(1, cache.getEvictionCount());
+
+			// Binding an evicted texture creates it again
+			b.get();
+			assertTrue(b.isResident());
+			assertFalse(c.isResident());
+			assertEquals(5, cache.getLoadCount());
+			assertEquals(2, cache.getEvictionCount());
+
+			cache.destroy();
+			assertEquals(0, cache.getResidentBytes());
+		} finally {
+			bgfx.shutdown();
+		}
+	}
+
+	@Test
+	public void keepsTexturesUsedThisFrame() {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		try {
+			TextureCache cache = new TextureCache(bgfx, 2 * TEXTURE_BYTES);
+			CachedTexture a = cache.add(new Source());
+			CachedTexture b = cache.add(new Source());
+			CachedTexture c = cache.add(new Source());
+
+			a.get();
+			bgfx.frame();
+
+			b.get();
+			c.get();
+
+			// Only a was used before this frame
+			cache.setBudget(TEXTURE_BYTES);
+			assertFalse(a.isResident());
+			assertTrue(b.isResident());
+			assertTrue(c.isResident());
+			assertEquals(2 * TEXTURE_BYTES, cache.getResidentBytes());
+
+			// The frame is trimmed before it ends, so nothing is evicted yet
+			bgfx.frame();
+			assertEquals(2, cache.getResidentCount());
+
+			c.get();
+			bgfx.frame();
+			assertFalse(b.isResident());
+			assertTrue(c.isResident());
+			assertEquals(TEXTURE_BYTES, cache.getResidentBytes());
+
+			c.destroy();
+			assertFalse(c.isResident());
+			assertEquals(0, cache.getResidentBytes());
+
+			cache.destroy();
+		} finally {
+			bgfx.shutdown();
+		}
+	}
+
+	/**
+	 * Creates an empty RGBA8 texture.
+	 */
+	private static final class Source implements TextureSource {
+		@Override
+		public int create(BGFX bgfx, TextureInfo info) {
+			info.setStorageSize(TEXTURE_BYTES);
+
+			return bgfx.createTexture2D(SIZE, SIZE, 1, TextureFormat.RGBA8, BGFX.BGFX_TEXTURE_NONE, (ByteBuffer) null);
+		}
+	}
+
+}
@@ -0,0 +1,212 @@
+package twilight.bgfx.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.TextureFormat;
+import twilight.bgfx.texture.TextureContainer;
+
+@RunWith(JUnit4.class)
+public class TextureContainerTests {
+
+	private static final int DDSD_MIPMAPCOUNT = 0x20000;
+	private static final int DDPF_FOURCC = 0x4;
+	private static final int DDPF_RGB = 0x40;
+	private static final int DDSCAPS2_CUBEMAP_ALLFACES = 0xfe00;
+
+	private static final int GL_RGBA8 = 0x8058;
+
+	@Test
+	public void parsesUncompressedDds() {
+		ByteBuffer file = dds(8, 4, 4, DDPF_RGB, 0, 0, 128 + 128 + 32 + 8 + 4);
+		file.putInt(88, 32).putInt(92, 0x00ff0000).putInt(96, 0x0000ff00).putInt(100, 0x000000ff);
+
+		TextureContainer container = TextureContainer.parse(file);
+
+		assertEquals(TextureFormat.BGRA8, container.getFormat());
+		assertEquals(8, container.getWidth());
+		assertEquals(4, container.getHeight());
+		assertEquals(4, container.getNumMips());
+		assertFalse(container.isCubeMap());
+
+		// Rows are tightly packed, 4 bytes per texel
+		assertEquals(8 * 4 * 4, container.getMipSize(0));
+		assertEquals(2 * 1 * 4, container.getMipSize(2));
+		assertEquals(1 * 1 * 4, container.getMipSize(3));
+
+		assertEquals(128, container.getMipOffset(0, 0));
+		assertEquals(128 + 128, container.getMipOffset(0, 1));
+		assertEquals(128 + 128 + 32 + 8, container.getMipOffset(0, 3));
+		assertEquals(32 + 8 + 4, container.getMipChain(0, 1).remaining());
+	}
+
+	@Test
+	public void parsesCompressedCubeDds() {
+		// BC1 stores 8 bytes per 4x4 block: 32 bytes for 8x8, 8 bytes for 4x4
+		ByteBuffer file = dds(8, 8, 2, DDPF_FOURCC, fourCC("DXT1"), DDSCAPS2_CUBEMAP_ALLFACES, 128 + 6 * 40);
+
+		TextureContainer container = TextureContainer.parse(file);
+
+		assertEquals(TextureFormat.BC1, container.getFormat());
+		assertEquals(2, container.getNumMips());
+		assertTrue(container.isCubeMap());
+		assertEquals(6, container.getNumFaces());
+
+		assertEquals(32, container.getMipSize(0));
+		assertEquals(8, container.getMipSize(1));
+		assertEquals(128 + 32, container.getMipOffset(0, 1));
+		assertEquals(128 + 40, container.getMipOffset(1, 0));
+		assertEquals(128 + 5 * 40 + 32, container.getMipOffset(5, 1));
+	}
+
+	@Test
+	public void parsesDx10Dds() {
+		ByteBuffer file = dds(4, 4, 1, DDPF_FOURCC, fourCC("DX10"), 0, 128 + 20 + 16);
+		file.putInt(128, 98); // BC7_UNORM
+		file.putInt(128 + 12, 1);
+
+		TextureContainer container = TextureContainer.parse(file);
+
+		assertEquals(TextureFormat.BC7, container.getFormat());
+		assertEquals(1, container.getNumMips());
+		assertEquals(16, container.getMipSize(0));
+		assertEquals(128 + 20, container.getMipOffset(0, 0));
+	}
+
+	@Test
+	public void parsesKtx() {
+		int[] sizes = { 64, 16, 4 };
+		ByteBuffer file = ktx(4, 4, 3, 1, sizes);
+
+		TextureContainer container = TextureContainer.parse(file);
+
+		assertEquals(TextureFormat.RGBA8, container.getFormat());
+		assertEquals(3, container.getNumMips());
+		assertFalse(container.isCubeMap());
+
+		// Every level is preceded by its image size
+		assertEquals(64 + 4, container.getMipOffset(0, 0));
+		assertEquals(64 + 4 + 64 + 4, container.getMipOffset(0, 1));
+		assertEquals(64 + 4 + 64 + 4 + 16 + 4, container.getMipOffset(0, 2));
+		assertEquals(4 * 4, container.getMipSize(0) / container.getMipHeight(0));
+
+		ByteBuffer chain = container.getMipChain(0, 0);
+		assertEquals(64 + 16 + 4, chain.remaining());
+	}
+
+	@Test
+	public void parsesKtxCubeMap() {
+		ByteBuffer file = ktx(2, 2, 1, 6, new int[] { 16 });
+
+		TextureContainer container = TextureContainer.parse(file);
+
+		assertTrue(container.isCubeMap());
+		assertEquals(1, container.getNumMips());
+		assertEquals(64 + 4, container.getMipOffset(0, 0));
+		assertEquals(64 + 4 + 16, container.getMipOffset(1, 0));
+		assertEquals(64 + 4 + 5 * 16, container.getMipOffset(5, 0));
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsTruncatedDdsHeader() {
+		ByteBuffer file = dds(4, 4, 1, DDPF_FOURCC, fourCC("DXT1"), 0, 128 + 8);
+		file.limit(100);
+
+		TextureContainer.parse(file);
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsTruncatedDx10Header() {
+		TextureContainer.parse(dds(4, 4, 1, DDPF_FOURCC, fourCC("DX10"), 0, 128 + 8));
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsTruncatedDdsData() {
+		TextureContainer.parse(dds(8, 8, 2, DDPF_FOURCC, fourCC("DXT1"), 0, 128 + 32));
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsTruncatedKtxHeader() {
+		ByteBuffer file = ktx(4, 4, 1, 1, new int[] { 64 });
+		file.limit(40);
+
+		TextureContainer.parse(file);
+	}
+
+	@Test(expected = BGFXException.class)
+	public void rejectsTruncatedKtxData() {
+		ByteBuffer file = ktx(4, 4, 2, 1, new int[] { 64, 16 });
+		file.limit(64 + 4 + 64 + 4 + 8);
+
+		TextureContainer.parse(file);
+	}
+
+	/**
+	 * Builds a DDS file with zeroed texel data.
+	 */
+	private static ByteBuffer dds(int width, int height, int numMips, int pixelFlags, int fourCC, int caps2, int size) {
+		ByteBuffer file = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+		file.putInt(0, fourCC("DDS "));
+		file.putInt(4, 124);
+		file.putInt(8, numMips > 1 ? DDSD_MIPMAPCOUNT : 0);
+		file.putInt(12, height);
+		file.putInt(16, width);
+		file.putInt(28, numMips);
+		file.putInt(76, 32);
+		file.putInt(80, pixelFlags);
+		file.putInt(84, fourCC);
+		file.putInt(112, caps2);
+
+		return file;
+	}
+
+	/**
+	 * Builds a little endian RGBA8 KTX file with zeroed texel data.
+	 */
+	private static ByteBuffer ktx(int width, int height, int numMips, int numFaces, int[] mipSizes) {
+		int size = 64;
+
+		for (int i = 0; i < numMips; i++) {
+			size += 4 + mipSizes[i] * numFaces;
+		}
+
+		ByteBuffer file = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+		byte[] identifier = { (byte) 0xab, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xbb, '\r', '\n', 0x1a, '\n' };
+		file.put(identifier);
+		file.putInt(12, 0x04030201);
+		file.putInt(16, 0x1401); // UNSIGNED_BYTE
+		file.putInt(20, 1);
+		file.putInt(28, GL_RGBA8);
+		file.putInt(36, width);
+		file.putInt(40, height);
+		file.putInt(52, numFaces);
+		file.putInt(56, numMips);
+
+		int offset = 64;
+
+		for (int i = 0; i < numMips; i++) {
+			file.putInt(offset, mipSizes[i]);
+			offset += 4 + mipSizes[i] * numFaces;
+		}
+
+		file.position(0);
+
+		return file;
+	}
+
+	private static int fourCC(String name) {
+		return name.charAt(0) | (name.charAt(1) << 8) | (name.charAt(2) << 16) | (name.charAt(3) << 24);
+	}
+
+}
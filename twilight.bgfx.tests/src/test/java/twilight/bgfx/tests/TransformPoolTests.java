@@ -0,0 +1,104 @@
+package twilight.bgfx.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.render.TransformPool;
+
+@RunWith(JUnit4.class)
+public class TransformPoolTests {
+
+	private static final float[] IDENTITY = { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1 };
+
+	@Test
+	public void keepsIndicesAcrossGrowth() {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		try {
+			TransformPool pool = new TransformPool(bgfx, 2);
+
+			assertEquals(0, pool.add(IDENTITY));
+			assertEquals(1, pool.add(IDENTITY));
+			long first = pool.getCacheIndex(0);
+
+			// Grows the pool past its initial capacity with uploaded matrices
+			for (int i = 2; i < 7; i++) {
+				assertEquals(i, pool.add(IDENTITY));
+			}
+
+			assertEquals(7, pool.size());
+			assertEquals(first, pool.getCacheIndex(0));
+			assertEquals(first + 1, pool.getCacheIndex(1));
+			assertEquals(1, pool.getUploadCalls());
+
+			long rest = pool.getCacheIndex(6) - 4;
+			for (int i = 2; i < 7; i++) {
+				assertEquals(rest + i - 2, pool.getCacheIndex(i));
+			}
+
+			assertEquals(2, pool.getUploadCalls());
+			pool.destroy();
+		} finally {
+			bgfx.shutdown();
+		}
+	}
+
+	@Test
+	public void uploadsOncePerFrame() {
+		BGFX bgfx = new BGFX();
+		bgfx.init(RendererType.Null, BGFX.BGFX_PCI_ID_NONE, 0);
+
+		try {
+			TransformPool pool = new TransformPool(bgfx);
+
+			for (int i = 0; i < 100; i++) {
+				pool.add(IDENTITY);
+			}
+
+			// Nothing is uploaded until a cache index is needed
+			assertEquals(0, pool.getUploadCalls());
+
+			for (int i = 0; i < 100; i++) {
+				pool.setTransform(i);
+				bgfx.submit(0, 0);
+				pool.setTransform(i);
+				bgfx.submit(1, 0);
+			}
+
+			assertEquals(1, pool.getUploadCalls());
+
+			pool.upload();
+			assertEquals(1, pool.getUploadCalls());
+
+			bgfx.frame();
+
+			// The cache of the last frame is gone
+			assertEquals(0, pool.size());
+			assertEquals(0, pool.getUploadCalls());
+
+			try {
+				pool.getCacheIndex(0);
+				fail("Index of the last frame accepted");
+			} catch (BGFXException e) {
+				// Expected
+			}
+
+			pool.add(IDENTITY);
+			pool.getCacheIndex(0);
+			assertEquals(1, pool.getUploadCalls());
+
+			pool.destroy();
+		} finally {
+			bgfx.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package twilight.bgfx.texture;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SkylinePackerTests {
+
+	@Test
+	public void regionsDoNotOverlap() {
+		int size = 256;
+		SkylinePacker packer = new SkylinePacker(size, size);
+		Random random = new Random(11);
+
+		List<int[]> regions = new ArrayList<int[]>();
+		long area = 0;
+		int[] position = new int[2];
+
+		for (int i = 0; i < 2000; i++) {
+			int w = 1 + random.nextInt(24);
+			int h = 1 + random.nextInt(24);
+
+			if (!packer.add(w, h, position)) {
+				continue;
+			}
+
+			int[] region = { position[0], position[1], w, h };
+
+			assertTrue(region[0] >= 0 && region[1] >= 0);
+			assertTrue(region[0] + w <= size && region[1] + h <= size);
+
+			for (int[] other : regions) {
+				assertFalse("Regions overlap", overlaps(region, other));
+			}
+
+			regions.add(region);
+			area += (long) w * h;
+		}
+
+		assertTrue(regions.size() > 100);
+		assertEquals(area, packer.getUsedArea());
+	}
+
+	@Test
+	public void signalsFull() {
+		SkylinePacker packer = new SkylinePacker(64, 64);
+		int[] position = new int[2];
+
+		for (int i = 0; i < 16; i++) {
+			assertTrue(packer.add(16, 16, position));
+		}
+
+		// The area is used up, a full packer leaves the position alone
+		position[0] = position[1] = -1;
+		assertFalse(packer.add(16, 16, position));
+		assertFalse(packer.add(1, 1, position));
+		assertArrayEquals(new int[] { -1, -1 }, position);
+
+		assertFalse(new SkylinePacker(64, 64).add(65, 1, position));
+		assertFalse(new SkylinePacker(64, 64).add(1, 65, position));
+
+		packer.clear();
+		assertEquals(0, packer.getUsedArea());
+		assertTrue(packer.add(64, 64, position));
+		assertArrayEquals(new int[] { 0, 0 }, position);
+	}
+
+	private static boolean overlaps(int[] a, int[] b) {
+		return a[0] < b[0] + b[2] && b[0] < a[0] + a[2] && a[1] < b[1] + b[3] && b[1] < a[1] + a[3];
+	}
+
+}
@@ -1,10 +1,14 @@
 package twilight.bgfx;
 
 import java.io.File;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import twilight.bgfx.buffers.DynamicIndexBuffer;
 import twilight.bgfx.buffers.DynamicVertexBuffer;
@@ -13,6 +17,7 @@ import twilight.bgfx.buffers.InstanceDataBuffer;
 import twilight.bgfx.buffers.TransientIndexBuffer;
 import twilight.bgfx.buffers.TransientVertexBuffer;
 import twilight.bgfx.buffers.VertexBuffer;
+import twilight.bgfx.util.FrameArena;
 import twilight.bgfx.window.Window;
 
 /**
@@ -44,6 +49,9 @@ final public class BGFX {
     /** The native library name. */
     private static final String LIB_NAME = "twilight-bgfx";
 
+    /** The initial size of the frame arena in bytes. */
+    public static final int DEFAULT_FRAME_ARENA_SIZE = 1 << 20;
+
     /** Invalid BFGX handle (buffers, shaders, etc.) */
     public final static int INVALID_HANDLE = 65535;
 
@@ -57,13 +65,43 @@ final public class BGFX {
      * A list of allocated transient vertex buffers. These are freed after every
      * frame.
      */
-    private List<Long> vertexPointerList = new ArrayList<Long>();
+    private final LongList vertexPointerList = new LongList(256);
 
     /**
      * A list of allocated transient index buffers. These are freed after every
      * frame.
      */
-    private List<Long> indexPointerList = new ArrayList<Long>();
+    private final LongList indexPointerList = new LongList(256);
+
+    /** Tracks redundant draw state, only used while filtering is enabled. */
+    private final StateFilter stateFilter = new StateFilter();
+
+    /** Whether redundant draw state calls are dropped. */
+    private boolean stateFilterEnabled;
+
+    /** The type of every uniform created through this context, by handle. */
+    private final UniformType[] uniformTypes = new UniformType[StateFilter.MAX_UNIFORMS];
+
+    /** The number of elements every uniform was created with, by handle. */
+    private final int[] uniformNums = new int[StateFilter.MAX_UNIFORMS];
+
+    /** Scratch memory for create and update calls, reset by frame(). */
+    private final FrameArena frameArena = new FrameArena(DEFAULT_FRAME_ARENA_SIZE);
+
+    /** Memory referenced with makeRef that the renderer has not released yet. */
+    private final MemoryRefs memoryRefs = new MemoryRefs();
+
+    /** Command queues replayed at the start of every frame. */
+    private final List<CommandQueue> commandQueues = new ArrayList<CommandQueue>();
+
+    /** Tasks queued with invokeLater, run by the next frame. */
+    private final ConcurrentLinkedQueue<Runnable> pendingTasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /** The number of transient vertex buffers released by the last frame. */
+    private int releasedTransientVertexBuffers;
+
+    /** The number of transient index buffers released by the last frame. */
+    private int releasedTransientIndexBuffers;
 
     /** Whether the init call has been successfully made.  */
     private boolean inititalized = false;
@@ -152,6 +190,84 @@ final public class BGFX {
         return true;
     }
 
+    /**
+     * Checks that a FloatBuffer is direct and in native byte order, so native
+     * code can read the floats in place.
+     */
+    private void checkFloatBuffer(FloatBuffer buffer) {
+        if (buffer == null) {
+            throw new NullPointerException(Messages.getString("BGFX.NullByteBuffer")); //$NON-NLS-1$
+        }
+
+        if (!buffer.isDirect()) {
+            throw new BGFXException(Messages.getString("BGFX.NonDirectBufferError")); //$NON-NLS-1$
+        }
+
+        if (buffer.order() != ByteOrder.nativeOrder()) {
+            throw new BGFXException(Messages.getString("BGFX.NonNativeOrderBufferError")); //$NON-NLS-1$
+        }
+    }
+
+    private void checkMatrixBuffer(FloatBuffer matrix, int num) {
+        checkFloatBuffer(matrix);
+
+        if (matrix.remaining() < num * 16) {
+            throw new BGFXException("Matrix buffer is too small for " + num + " matrices.");
+        }
+    }
+
+    /**
+     * Checks a matrix cache index and count, bgfx takes the index as an
+     * unsigned 32-bit and the count as an unsigned 16-bit value.
+     */
+    static void checkTransformCache(long cache, int num) {
+        if (cache < 0 || cache > 0xffffffffL) {
+            throw new BGFXException("Invalid matrix cache index: " + cache);
+        }
+
+        if (num <= 0 || num > 0xffff) {
+            throw new BGFXException("Invalid number of matrices: " + num);
+        }
+    }
+
+    /**
+     * Checks that a uniform value holds num elements of the type the uniform
+     * was created with. Uniforms created elsewhere aren't checked.
+     */
+    private void checkUniformSize(int handle, int floats, int num) {
+        if (handle < 0 || handle >= uniformTypes.length || uniformTypes[handle] == null) {
+            return;
+        }
+
+        // UINT16_MAX uses the number of elements the uniform was created with
+        int elements = num == 0xffff ? uniformNums[handle] : num;
+        int required = elements * getUniformSize(uniformTypes[handle]);
+
+        if (floats < required) {
+            throw new BGFXException("Uniform value is too small for " + elements + " " + uniformTypes[handle]
+                    + " elements: " + floats + " floats, " + required + " required.");
+        }
+    }
+
+    /**
+     * @return the size of one element of a uniform in floats, as bgfx reads
+     *         it
+     */
+    private static int getUniformSize(UniformType type) {
+        switch (type) {
+        case Int1:
+            return 1;
+        case Vec4:
+            return 4;
+        case Mat3:
+            return 9;
+        case Mat4:
+            return 16;
+        default:
+            return 0;
+        }
+    }
+
     /**
      * <p>
      * Checks the input ByteBuffer for use with BGFX. The input object cannot be
@@ -203,11 +319,55 @@ final public class BGFX {
      * @param decl
      * @param data
      * @param index
+     * @deprecated use
+     *             {@link #vertexPack(float[], boolean, Attrib, VertexDecl, ByteBuffer, int)}
      */
+    @Deprecated
     public void vertexPack(float input[], boolean inputNormalized, Attrib attr, VertexDecl decl, long data, long index) {
         nvertexPack(input, inputNormalized, attr, decl, data, index);
     }
 
+    /**
+     * <p>
+     * Pack vec4 into vertex stream format.
+     * </p>
+     * 
+     * <p>
+     * This is implemented in Java against the cached {@link VertexLayout} and
+     * can be called from any thread. Nothing is written if the declaration
+     * doesn't contain the attribute.
+     * </p>
+     * 
+     * @param input
+     *            Value to pack, at least as many elements as the attribute.
+     * @param inputNormalized
+     *            true if the input is normalized and has to be scaled to the
+     *            range of integer attribute types.
+     * @param attr
+     *            Attribute to pack.
+     * @param decl
+     *            Vertex stream declaration.
+     * @param data
+     *            Vertex stream, vertex 0 starts at the buffer position.
+     * @param index
+     *            Vertex index that will be modified.
+     */
+    public static void vertexPack(float input[], boolean inputNormalized, Attrib attr, VertexDecl decl,
+            ByteBuffer data, int index) {
+        VertexLayout layout = decl.getLayout();
+
+        if (!layout.has(attr)) {
+            return;
+        }
+
+        int num = layout.getNum(attr);
+        int offset = data.position() + index * layout.getStride() + layout.getOffset(attr);
+
+        VertexCodec.pack(data.order(ByteOrder.nativeOrder()), offset, layout.getType(attr), num, inputNormalized,
+                layout.isAsInt(attr), input[0], num > 1 ? input[1] : 0, num > 2 ? input[2] : 0,
+                num > 3 ? input[3] : 0);
+    }
+
     /**
      * <p>
      * Unpack vec4 from vertex stream format.
@@ -218,11 +378,51 @@ final public class BGFX {
      * @param decl
      * @param data
      * @param index
+     * @deprecated the output can't be returned, use
+     *             {@link #vertexUnpack(float[], Attrib, VertexDecl, ByteBuffer, int)}
      */
+    @Deprecated
     public void vertexUnpack(float output, Attrib attr, VertexDecl decl, long data, long index) {
         nvertexUnpack(output, attr, decl, data, index);
     }
 
+    /**
+     * <p>
+     * Unpack vec4 from vertex stream format.
+     * </p>
+     * 
+     * <p>
+     * This is implemented in Java against the cached {@link VertexLayout} and
+     * can be called from any thread. Normalized integer attributes are
+     * returned in the normalized range, elements the attribute doesn't have
+     * are set to 0.
+     * </p>
+     * 
+     * @param output
+     *            Receives the unpacked value, at least 4 elements.
+     * @param attr
+     *            Attribute to unpack.
+     * @param decl
+     *            Vertex stream declaration.
+     * @param data
+     *            Vertex stream, vertex 0 starts at the buffer position.
+     * @param index
+     *            Vertex index that will be unpacked.
+     */
+    public static void vertexUnpack(float output[], Attrib attr, VertexDecl decl, ByteBuffer data, int index) {
+        VertexLayout layout = decl.getLayout();
+
+        if (!layout.has(attr)) {
+            output[0] = output[1] = output[2] = output[3] = 0;
+            return;
+        }
+
+        int offset = data.position() + index * layout.getStride() + layout.getOffset(attr);
+
+        VertexCodec.unpack(output, 0, data.order(ByteOrder.nativeOrder()), offset, layout.getType(attr),
+                layout.getNum(attr), layout.isNormalized(attr), layout.isAsInt(attr));
+    }
+
     /**
      * <p>
      * Converts vertex stream data from one vertex stream format to another.
@@ -238,16 +438,52 @@ final public class BGFX {
      *            Source vertex stream data.
      * @param num
      *            Number of vertices to convert from source to destination.
+     * @deprecated use
+     *             {@link #vertexConvert(VertexDecl, ByteBuffer, VertexDecl, ByteBuffer, int)}
      */
+    @Deprecated
     public void vertexConvert(VertexDecl destDecl, long destData, VertexDecl srcDecl, long srcData, long num) {
         nvertexConvert(destDecl, destData, srcDecl, srcData, num);
     }
 
+    /**
+     * <p>
+     * Converts vertex stream data from one vertex stream format to another.
+     * </p>
+     * 
+     * <p>
+     * This is implemented in Java and can be called from any thread. To
+     * convert many buffers between the same declarations, or to convert large
+     * meshes in parallel, use a {@link VertexConverter} directly.
+     * </p>
+     * 
+     * @param destDecl
+     *            Destination vertex stream declaration.
+     * @param destData
+     *            Destination vertex stream, starting at the buffer position.
+     * @param srcDecl
+     *            Source vertex stream declaration.
+     * @param srcData
+     *            Source vertex stream data, starting at the buffer position.
+     * @param num
+     *            Number of vertices to convert from source to destination.
+     */
+    public static void vertexConvert(VertexDecl destDecl, ByteBuffer destData, VertexDecl srcDecl, ByteBuffer srcData,
+            int num) {
+        new VertexConverter(destDecl, srcDecl).convert(destData, srcData, num);
+    }
+
     /**
      * <p>
      * Weld vertices.
      * </p>
      * 
+     * <p>
+     * The native implementation is limited to 65535 vertices. Use
+     * {@code twilight.bgfx.mesh.MeshProcessor} to weld and optimize
+     * ByteBuffer data of any size on a worker thread.
+     * </p>
+     * 
      * @param output
      *            Welded vertices remapping table. The size of buffer must be
      *            the same as number of vertices.
@@ -301,6 +537,8 @@ final public class BGFX {
      *            Source image.
      * @param dst
      *            Destination image. Must be at least quarter size of
+     *            input image.
+     * @see twilight.bgfx.texture.MipChainGenerator
      */
     public void imageRgba8Downsample2x2(long width, long height, long pitch, long src, long dst) {
         nimageRgba8Downsample2x2(width, height, pitch, src, dst);
@@ -402,11 +640,20 @@ final public class BGFX {
      *         library via `bgfx::makeRef` calls.
      */
     public long frame() {
+        runPendingTasks();
+
+        for (int i = 0; i < commandQueues.size(); i++) {
+            commandQueues.get(i).flush(this);
+        }
+
         long result = nframe();
 
         freeTransientVertexPointers();
         freeTransientIndexPointers();
 
+        frameArena.reset();
+        memoryRefs.drain(this);
+
         return result;
     }
 
@@ -421,6 +668,19 @@ final public class BGFX {
         return ngetCaps();
     }
 
+    /**
+     * <p>
+     * Returns the arena used for per frame scratch memory. Slices allocated
+     * from it can be passed to the create and update methods and are released
+     * by {@link #frame()}. Must only be used on the submission thread.
+     * </p>
+     * 
+     * @return the frame arena
+     */
+    public FrameArena getFrameArena() {
+        return frameArena;
+    }
+
     /**
      * <p>
      * Allocate buffer to pass to bgfx calls. Data will be freed inside bgfx.
@@ -432,7 +692,7 @@ final public class BGFX {
      * @return a direct ByteBuffer of the specified size
      */
     public ByteBuffer alloc(long size) {
-        return alloc(size);
+        return nalloc(size);
     }
 
     /**
@@ -461,7 +721,10 @@ final public class BGFX {
      * called from any thread.
      * </p>
      * 
-     * <b>This method needs some refactoring.</b>
+     * <p>
+     * Prefer {@link #makeRef(ByteBuffer, ReleaseHandler)}, which tells when
+     * the memory can be reused.
+     * </p>
      * 
      * @param data
      *            pointer to create a reference for
@@ -473,6 +736,58 @@ final public class BGFX {
         return nmakeRef(data, size);
     }
 
+    /**
+     * <p>
+     * References the remaining bytes of a direct buffer without copying them.
+     * </p>
+     * 
+     * @param buffer
+     *            the memory to reference
+     * @return a Memory to pass to one create or update call
+     * @see #makeRef(ByteBuffer, ReleaseHandler)
+     */
+    public Memory makeRef(ByteBuffer buffer) {
+        return makeRef(buffer, null);
+    }
+
+    /**
+     * <p>
+     * References the bytes between the position and limit of a direct buffer
+     * without copying them. The returned Memory must be passed to exactly one
+     * create or update call that accepts a Memory.
+     * </p>
+     * 
+     * <p>
+     * The buffer is kept reachable and must not be modified until the
+     * renderer has consumed it. Once it has, the handler is called from
+     * {@link #frame()} on the submission thread, usually one or two frames
+     * after the buffer was passed to BGFX.
+     * </p>
+     * 
+     * @param buffer
+     *            the memory to reference
+     * @param handler
+     *            notified when the buffer can be reused, may be null
+     * @return a Memory to pass to one create or update call
+     */
+    public Memory makeRef(ByteBuffer buffer, ReleaseHandler handler) {
+        checkValidByteBuffer(buffer);
+
+        Memory memory = new Memory(buffer, buffer.remaining(), handler);
+
+        int id = memoryRefs.add(memory);
+        memory.pointer = nmakeRefRelease(buffer, buffer.position(), buffer.remaining(), id);
+
+        return memory;
+    }
+
+    /**
+     * @return the number of makeRef buffers the renderer has not released yet
+     */
+    public int getPendingRefCount() {
+        return memoryRefs.getPending();
+    }
+
     /**
      * <p>
      * Set debug flags.
@@ -573,6 +888,11 @@ final public class BGFX {
      * </p>
      * 
      * <p>
+     * The data is staged in the frame arena, so no direct buffer is
+     * allocated.
+     * </p>
+     * 
+     * <p>
      * NOTE: This method needs to be updated to support BGFX flags.
      * </p>
      * 
@@ -583,11 +903,7 @@ final public class BGFX {
      *         supplied array
      */
     public IndexBuffer createIndexBuffer(short[] indices) {
-        ByteBuffer indexData = ByteBuffer.allocateDirect(indices.length * 2).order(ByteOrder.nativeOrder());
-        indexData.asShortBuffer().put(indices);
-        indexData.rewind();
-
-        return createIndexBuffer(indexData);
+        return createIndexBuffer(frameArena.put(indices));
     }
 
     /**
@@ -606,9 +922,103 @@ final public class BGFX {
      *         supplied buffer
      */
     public IndexBuffer createIndexBuffer(ByteBuffer mem) {
+        return createIndexBuffer(mem, BGFX_BUFFER_NONE);
+    }
+
+    /**
+     * <p>
+     * Create static index buffer.
+     * </p>
+     * 
+     * @param mem
+     *            a direct ByteBuffer containing index values
+     * @param flags
+     *            BGFX_BUFFER_* flags, BGFX_BUFFER_INDEX32 if mem holds 32
+     *            bit indices
+     * 
+     * @return a GPU BGFX IndexBuffer handle containing indices from the
+     *         supplied buffer
+     */
+    public IndexBuffer createIndexBuffer(ByteBuffer mem, long flags) {
         checkValidByteBuffer(mem);
 
-        return new IndexBuffer(ncreateIndexBuffer(mem));
+        return new IndexBuffer(ncreateIndexBuffer(mem, (int) flags));
+    }
+
+    /**
+     * <p>
+     * Create static index buffer with 32 bit indices. Requires
+     * {@link Capability#BGFX_CAPS_INDEX32}.
+     * </p>
+     * 
+     * <p>
+     * The data is staged in the frame arena, so no direct buffer is
+     * allocated.
+     * </p>
+     * 
+     * @param indices
+     *            an int array containing index values
+     * 
+     * @return a GPU BGFX IndexBuffer handle containing indices from the
+     *         supplied array
+     */
+    public IndexBuffer createIndexBuffer(int[] indices) {
+        return createIndexBuffer(frameArena.put(indices), BGFX_BUFFER_INDEX32);
+    }
+
+    /**
+     * <p>
+     * Create static index buffer from the remaining 32 bit indices of a
+     * buffer. Requires {@link Capability#BGFX_CAPS_INDEX32}.
+     * </p>
+     * 
+     * <p>
+     * The data is staged in the frame arena, so no direct buffer is
+     * allocated.
+     * </p>
+     * 
+     * @param indices
+     *            the index values
+     * 
+     * @return a GPU BGFX IndexBuffer handle containing indices from the
+     *         supplied buffer
+     */
+    public IndexBuffer createIndexBuffer(IntBuffer indices) {
+        ByteBuffer indexData = frameArena.allocate(indices.remaining() * 4);
+        indexData.asIntBuffer().put(indices.duplicate());
+
+        return createIndexBuffer(indexData, BGFX_BUFFER_INDEX32);
+    }
+
+    /**
+     * <p>
+     * Create static index buffer from referenced memory, without copying it.
+     * </p>
+     * 
+     * @param mem
+     *            memory returned by {@link #makeRef(ByteBuffer, ReleaseHandler)}
+     * 
+     * @return a GPU BGFX IndexBuffer handle
+     */
+    public IndexBuffer createIndexBuffer(Memory mem) {
+        return createIndexBuffer(mem, BGFX_BUFFER_NONE);
+    }
+
+    /**
+     * <p>
+     * Create static index buffer from referenced memory, without copying it.
+     * </p>
+     * 
+     * @param mem
+     *            memory returned by {@link #makeRef(ByteBuffer, ReleaseHandler)}
+     * @param flags
+     *            BGFX_BUFFER_* flags, BGFX_BUFFER_INDEX32 if mem holds 32
+     *            bit indices
+     * 
+     * @return a GPU BGFX IndexBuffer handle
+     */
+    public IndexBuffer createIndexBuffer(Memory mem, long flags) {
+        return new IndexBuffer(ncreateIndexBufferMem(mem.consume(), (int) flags));
     }
 
     /**
@@ -623,6 +1033,18 @@ final public class BGFX {
         ndestroyIndexBuffer(handle);
     }
 
+    /**
+     * <p>
+     * Destroy static index buffer, 16 or 32 bit.
+     * </p>
+     * 
+     * @param handle
+     *            the buffer handle to destroy
+     */
+    public void destroyIndexBuffer(IndexBuffer handle) {
+        ndestroyIndexBuffer((int) handle.getHandle());
+    }
+
     /**
      * <p>
      * Create static vertex buffer. Convenience method, prefer the ByteBuffer
@@ -630,6 +1052,11 @@ final public class BGFX {
      * </p>
      * 
      * <p>
+     * The data is staged in the frame arena, so no direct buffer is
+     * allocated.
+     * </p>
+     * 
+     * <p>
      * Note: This method needs to be updated to support BGFX flags.
      * </p>
      * <p>
@@ -643,11 +1070,7 @@ final public class BGFX {
      * @return Static vertex buffer handle.
      */
     public VertexBuffer createVertexBuffer(float[] mem, VertexDecl decl) {
-        ByteBuffer vertexData = ByteBuffer.allocateDirect(mem.length * 4).order(ByteOrder.nativeOrder());
-        vertexData.asFloatBuffer().put(mem);
-        vertexData.rewind();
-
-        return createVertexBuffer(vertexData, decl);
+        return createVertexBuffer(frameArena.put(mem), decl);
     }
 
     /**
@@ -681,6 +1104,29 @@ final public class BGFX {
         return new VertexBuffer(handle);
     }
 
+    /**
+     * <p>
+     * Create static vertex buffer from referenced memory, without copying it.
+     * </p>
+     * 
+     * @param mem
+     *            memory returned by {@link #makeRef(ByteBuffer, ReleaseHandler)}
+     * @param decl
+     *            Vertex declaration.
+     * @return Static vertex buffer handle.
+     */
+    public VertexBuffer createVertexBuffer(Memory mem, VertexDecl decl) {
+        if (decl == null) {
+            throw new NullPointerException(Messages.getString("BGFX.NullVertexDeclaration")); //$NON-NLS-1$
+        }
+
+        if (!decl.isValid()) {
+            throw new BGFXException(Messages.getString("BGFX.InvalidVertexDeclaration")); //$NON-NLS-1$
+        }
+
+        return new VertexBuffer(ncreateVertexBufferMem(mem.consume(), decl));
+    }
+
     /**
      * <p>
      * Destroy static vertex buffer.
@@ -693,6 +1139,40 @@ final public class BGFX {
         ndestroyVertexBuffer((int) handle.getHandle());
     }
 
+    /**
+     * <p>
+     * Create empty dynamic index buffer.
+     * </p>
+     * 
+     * @param num
+     *            Number of indices.
+     * @return Dynamic index buffer handle.
+     */
+    public DynamicIndexBuffer createDynamicIndexBuffer(long num) {
+        return createDynamicIndexBuffer(num, BGFX_BUFFER_NONE);
+    }
+
+    /**
+     * <p>
+     * Create empty dynamic index buffer.
+     * </p>
+     * 
+     * @param num
+     *            Number of indices.
+     * @param flags
+     *            BGFX_BUFFER_* flags, BGFX_BUFFER_INDEX32 for 32 bit indices
+     * @return Dynamic index buffer handle.
+     */
+    public DynamicIndexBuffer createDynamicIndexBuffer(long num, long flags) {
+        int bufferHandle = ncreateDynamicIndexBuffer(num, (int) flags);
+
+        if (bufferHandle == BGFX.INVALID_HANDLE) {
+            throw new BGFXException(Messages.getString("BGFX.ErrorCreatingIndexBuffer") + bufferHandle); //$NON-NLS-1$
+        }
+
+        return new DynamicIndexBuffer(bufferHandle);
+    }
+
     /**
      * <p>
      * Create dynamic index buffer.
@@ -709,9 +1189,27 @@ final public class BGFX {
      *         supplied buffer
      */
     public DynamicIndexBuffer createDynamicIndexBuffer(ByteBuffer mem) {
+        return createDynamicIndexBuffer(mem, BGFX_BUFFER_NONE);
+    }
+
+    /**
+     * <p>
+     * Create dynamic index buffer.
+     * </p>
+     * 
+     * @param mem
+     *            a direct ByteBuffer containing index values
+     * @param flags
+     *            BGFX_BUFFER_* flags, BGFX_BUFFER_INDEX32 if mem holds 32
+     *            bit indices
+     * 
+     * @return a GPU BGFX IndexBuffer handle containing indices from the
+     *         supplied buffer
+     */
+    public DynamicIndexBuffer createDynamicIndexBuffer(ByteBuffer mem, long flags) {
         checkValidByteBuffer(mem);
 
-        int handle = ncreateDynamicIndexBuffer(mem);
+        int handle = ncreateDynamicIndexBuffer(mem, (int) flags);
 
         return new DynamicIndexBuffer(handle);
     }
@@ -732,6 +1230,20 @@ final public class BGFX {
         nupdateDynamicIndexBuffer((int) handle.getHandle(), mem);
     }
 
+    /**
+     * <p>
+     * Update dynamic index buffer from referenced memory, without copying it.
+     * </p>
+     * 
+     * @param handle
+     *            Dynamic index buffer handle
+     * @param mem
+     *            memory returned by {@link #makeRef(ByteBuffer, ReleaseHandler)}
+     */
+    public void updateDynamicIndexBuffer(DynamicIndexBuffer handle, Memory mem) {
+        nupdateDynamicIndexBufferMem((int) handle.getHandle(), mem.consume());
+    }
+
     /**
      * <p>
      * Destroy dynamic index buffer.
@@ -776,6 +1288,11 @@ final public class BGFX {
      * </p>
      * 
      * <p>
+     * The data is staged in the frame arena, so no direct buffer is
+     * allocated.
+     * </p>
+     * 
+     * <p>
      * Note: This method needs to be updated to support BGFX flags.
      * </p>
      * 
@@ -786,11 +1303,7 @@ final public class BGFX {
      * @return Static vertex buffer handle.
      */
     public DynamicVertexBuffer createDynamicVertexBuffer(float[] mem, VertexDecl decl) {
-        ByteBuffer vertexData = ByteBuffer.allocateDirect(mem.length * 4).order(ByteOrder.nativeOrder());
-        vertexData.asFloatBuffer().put(mem);
-        vertexData.rewind();
-
-        return createDynamicVertexBuffer(vertexData, decl);
+        return createDynamicVertexBuffer(frameArena.put(mem), decl);
     }
 
     /**
@@ -834,6 +1347,20 @@ final public class BGFX {
         nupdateDynamicVertexBuffer(handle, mem);
     }
 
+    /**
+     * <p>
+     * Update dynamic vertex buffer from referenced memory, without copying it.
+     * </p>
+     * 
+     * @param handle
+     *            Dynamic vertex buffer handle
+     * @param mem
+     *            memory returned by {@link #makeRef(ByteBuffer, ReleaseHandler)}
+     */
+    public void updateDynamicVertexBuffer(int handle, Memory mem) {
+        nupdateDynamicVertexBufferMem(handle, mem.consume());
+    }
+
     /**
      * <p>
      * Destroy dynamic vertex buffer.
@@ -956,6 +1483,78 @@ final public class BGFX {
         return buffer;
     }
 
+    /**
+     * <p>
+     * Allocate transient index buffer into a reusable TransientIndexBuffer.
+     * </p>
+     * 
+     * <p>
+     * Unlike {@link #allocTransientIndexBuffer(long)} no Java objects are
+     * created. The supplied buffer owns its native struct, which is reused by
+     * every allocation until {@link TransientIndexBuffer#destroy()} is called,
+     * and {@link TransientIndexBuffer#getData()} returns a view into the per
+     * frame transient region that is only mapped once.
+     * </p>
+     * 
+     * <ol>
+     * <li>The allocation is only valid until the next call to frame().</li>
+     * <li>Only 16-bit index buffer is supported.</li>
+     * </ol>
+     * 
+     * @param buffer
+     *            a buffer created by the application, or previously filled by
+     *            this method
+     * @param num
+     *            Number of indices to allocate.
+     * @return the supplied buffer
+     */
+    public TransientIndexBuffer allocTransientIndexBuffer(TransientIndexBuffer buffer, long num) {
+        if (buffer.pointer != 0 && !buffer.isReusable()) {
+            throw new BGFXException(Messages.getString("BGFX.TransientBufferNotReusable")); //$NON-NLS-1$
+        }
+
+        nallocTransientIndexBufferInto(buffer, num);
+
+        return buffer;
+    }
+
+    /**
+     * <p>
+     * Allocate transient vertex buffer into a reusable TransientVertexBuffer.
+     * </p>
+     * 
+     * <p>
+     * Unlike {@link #allocTransientVertexBuffer(long, VertexDecl)} no Java
+     * objects are created. The supplied buffer owns its native struct, which
+     * is reused by every allocation until
+     * {@link TransientVertexBuffer#destroy()} is called, and
+     * {@link TransientVertexBuffer#getData()} returns a view into the per
+     * frame transient region that is only mapped once.
+     * </p>
+     * 
+     * <ol>
+     * <li>The allocation is only valid until the next call to frame().</li>
+     * </ol>
+     * 
+     * @param buffer
+     *            a buffer created by the application, or previously filled by
+     *            this method
+     * @param num
+     *            Number of vertices to allocate.
+     * @param decl
+     *            the Vertex Declaration
+     * @return the supplied buffer
+     */
+    public TransientVertexBuffer allocTransientVertexBuffer(TransientVertexBuffer buffer, long num, VertexDecl decl) {
+        if (buffer.pointer != 0 && !buffer.isReusable()) {
+            throw new BGFXException(Messages.getString("BGFX.TransientBufferNotReusable")); //$NON-NLS-1$
+        }
+
+        nallocTransientVertexBufferInto(buffer, num, decl);
+
+        return buffer;
+    }
+
     private void storeTransientVertexPointer(long pointer) {
         vertexPointerList.add(pointer);
     }
@@ -1001,13 +1600,32 @@ final public class BGFX {
 
     /**
      * <p>
-     * Note: This method needs more work to match up with the native use case.
+     * Returns the number of uniforms used by a shader.
+     * </p>
+     * 
+     * @param handle
+     *            ShaderHandle id
+     * @return Number of uniforms used by the shader.
+     * @see twilight.bgfx.shader.ShaderReflection
+     */
+    public int getShaderUniforms(int handle) {
+        return ngetShaderUniforms(handle, null, 0);
+    }
+
+    /**
+     * <p>
+     * Returns the uniforms used by a shader.
      * </p>
      * 
-     * @return Returns num of uniforms
+     * @param handle
+     *            ShaderHandle id
+     * @param uniforms
+     *            Receives the UniformHandle ids, up to its length.
+     * @return Number of uniforms used by the shader, may be larger than the
+     *         array.
      */
-    public int getShaderUniforms(int handle, int uniforms, int max) {
-        return ngetShaderUniforms(handle, uniforms, max);
+    public int getShaderUniforms(int handle, int[] uniforms) {
+        return ngetShaderUniforms(handle, uniforms, uniforms.length);
     }
 
     /**
@@ -1049,20 +1667,30 @@ final public class BGFX {
      * @param handle
      */
     public void destroyProgram(int handle) {
+        stateFilter.invalidateProgram(handle);
+
         ndestroyProgram(handle);
     }
 
     /***
      * <p>
-     * Note: This method needs more work to match up with the native use case.
+     * Calculates the amount of memory a 2D or 3D texture needs, including
+     * its mip levels, and writes it to {@link TextureInfo#getStorageSize()}
+     * along with the other fields of the info.
      * </p>
      * 
      * @param info
+     *            Receives the texture information.
      * @param width
+     *            Width.
      * @param height
+     *            Height.
      * @param depth
+     *            Depth, 1 unless the texture is a volume.
      * @param numMips
+     *            Number of mip maps.
      * @param format
+     *            Texture format.
      */
     public void calcTextureSize(TextureInfo info, int width, int height, int depth, short numMips, TextureFormat format) {
         ncalcTextureSize(info, width, height, depth, numMips, format);
@@ -1092,7 +1720,74 @@ final public class BGFX {
 
     /**
      * <p>
-     * Create 2D texture.
+     * Create 2D texture.
+     * </p>
+     * 
+     * @param width
+     *            Width.
+     * @param height
+     *            Height.
+     * @param numMips
+     *            Number of mip-maps.
+     * @param format
+     *            Texture format. See: `TextureFormat::Enum`.
+     * @param flags
+     *            Default texture sampling mode is linear, and wrap mode is
+     *            repeat
+     * @param mem
+     *            ByteBuffer containing texture data
+     * 
+     *            <ul>
+     *            <li>BGFX_TEXTURE_[U/V/W]_[MIRROR/CLAMP] - Mirror or clamp to
+     *            edge wrap mode.</li>
+     *            <li>BGFX_TEXTURE_[MIN/MAG/MIP]_[POINT/ANISOTROPIC] - Point or
+     *            anisotropic sampling.</li>
+     *            </ul>
+     *
+     * @return TextureHandle id for the new texture
+     */
+    public int createTexture2D(int width, int height, int numMips, TextureFormat format, long flags, ByteBuffer mem) {
+        if (format == null) {
+            throw new BGFXException(Messages.getString("BGFX.InvalidTextureFormat"));
+        }
+
+        if (mem != null && !mem.isDirect()) {
+            throw new BGFXException(Messages.getString("BGFX.NonDirectBufferError")); //$NON-NLS-1$
+        }
+
+        return ncreateTexture2D(width, height, (short) numMips, format, flags, mem);
+    }
+
+    /**
+     * <p>
+     * Update 2D texture.
+     * </p>
+     * 
+     * @param handle
+     *            Texture handle.
+     * @param mip
+     *            Mip level.
+     * @param x
+     *            X offset in texture.
+     * @param y
+     *            Y offset in texture.
+     * @param width
+     *            Width of texture block.
+     * @param height
+     *            Height of texture block.
+     * @param mem
+     *            Texture update data.
+     * @param pitch
+     *            Pitch of input image (bytes). When pitch is set to
+     *            UINT16_MAX, it will be calculated internally based on width.
+     */
+    public void updateTexture2D(int handle, short mip, int x, int y, int width, int height, ByteBuffer mem, int pitch) {
+        nupdateTexture2D(handle, mip, x, y, width, height, mem, pitch);
+    }
+
+    /**
+     * <p>
+     * Create 2D texture from referenced memory, without copying it.
      * </p>
      * 
      * @param width
@@ -1107,32 +1802,20 @@ final public class BGFX {
      *            Default texture sampling mode is linear, and wrap mode is
      *            repeat
      * @param mem
-     *            ByteBuffer containing texture data
-     * 
-     *            <ul>
-     *            <li>BGFX_TEXTURE_[U/V/W]_[MIRROR/CLAMP] - Mirror or clamp to
-     *            edge wrap mode.</li>
-     *            <li>BGFX_TEXTURE_[MIN/MAG/MIP]_[POINT/ANISOTROPIC] - Point or
-     *            anisotropic sampling.</li>
-     *            </ul>
-     *
+     *            memory returned by {@link #makeRef(ByteBuffer, ReleaseHandler)}
      * @return TextureHandle id for the new texture
      */
-    public int createTexture2D(int width, int height, int numMips, TextureFormat format, long flags, ByteBuffer mem) {
+    public int createTexture2D(int width, int height, int numMips, TextureFormat format, long flags, Memory mem) {
         if (format == null) {
             throw new BGFXException(Messages.getString("BGFX.InvalidTextureFormat"));
         }
 
-        if (mem != null && !mem.isDirect()) {
-            throw new BGFXException(Messages.getString("BGFX.NonDirectBufferError")); //$NON-NLS-1$
-        }
-
-        return ncreateTexture2D(width, height, (short) numMips, format, flags, mem);
+        return ncreateTexture2DMem(width, height, (short) numMips, format, flags, mem.consume());
     }
 
     /**
      * <p>
-     * Update 2D texture.
+     * Update 2D texture from referenced memory, without copying it.
      * </p>
      * 
      * @param handle
@@ -1148,13 +1831,10 @@ final public class BGFX {
      * @param height
      *            Height of texture block.
      * @param mem
-     *            Texture update data.
-     * @param pitch
-     *            Pitch of input image (bytes). When pitch is set to
-     *            UINT16_MAX, it will be calculated internally based on width.
+     *            memory returned by {@link #makeRef(ByteBuffer, ReleaseHandler)}
      */
-    public void updateTexture2D(int handle, short mip, int x, int y, int width, int height, ByteBuffer mem, int pitch) {
-        nupdateTexture2D(handle, mip, x, y, width, height, mem, pitch);
+    public void updateTexture2D(int handle, short mip, int x, int y, int width, int height, Memory mem) {
+        nupdateTexture2DMem(handle, mip, x, y, width, height, mem.consume());
     }
 
     /**
@@ -1300,6 +1980,8 @@ final public class BGFX {
      *            TextureHandle id of the texture to destroy
      */
     public void destroyTexture(int handle) {
+        stateFilter.invalidateTexture(handle);
+
         ndestroyTexture(handle);
     }
 
@@ -1368,6 +2050,8 @@ final public class BGFX {
      * @param handle
      */
     public void destroyFrameBuffer(int handle) {
+        stateFilter.invalidateFrameBuffer(handle);
+
         ndestroyFrameBuffer(handle);
     }
 
@@ -1409,7 +2093,14 @@ final public class BGFX {
      *         </ul>
      */
     public int createUniform(String name, UniformType type, int num) {
-        return ncreateUniform(name, type.ordinal(), num);
+        int handle = ncreateUniform(name, type.ordinal(), num);
+
+        if (handle >= 0 && handle < uniformTypes.length) {
+            uniformTypes[handle] = type;
+            uniformNums[handle] = num;
+        }
+
+        return handle;
     }
 
     /**
@@ -1421,6 +2112,12 @@ final public class BGFX {
      *            UniformHandle id
      */
     public void destroyUniform(int handle) {
+        stateFilter.invalidateSampler(handle);
+
+        if (handle >= 0 && handle < uniformTypes.length) {
+            uniformTypes[handle] = null;
+        }
+
         ndestroyUniform(handle);
     }
 
@@ -1565,6 +2262,37 @@ final public class BGFX {
         nsetViewTransform((short) id, view, proj);
     }
 
+    /**
+     * <p>
+     * Set view view and projection matrices from direct buffers in native
+     * byte order, read from their positions without copying them into
+     * arrays.
+     * </p>
+     * 
+     * @param id
+     *            View id.
+     * @param view
+     *            View matrix, 16 floats, or null to leave it unchanged.
+     * @param proj
+     *            Projection matrix, 16 floats, or null to leave it unchanged.
+     */
+    public void setViewTransform(int id, FloatBuffer view, FloatBuffer proj) {
+        int viewOffset = 0;
+        int projOffset = 0;
+
+        if (view != null) {
+            checkMatrixBuffer(view, 1);
+            viewOffset = view.position() * 4;
+        }
+
+        if (proj != null) {
+            checkMatrixBuffer(proj, 1);
+            projOffset = proj.position() * 4;
+        }
+
+        nsetViewTransformBuffer((short) id, view, viewOffset, proj, projOffset);
+    }
+
     /**
      * <p>
      * Sets debug marker.
@@ -1614,6 +2342,10 @@ final public class BGFX {
      * 
      */
     public void setState(long state, long rgba) {
+        if (stateFilterEnabled && stateFilter.filterState(state, rgba)) {
+            return;
+        }
+
         nsetState(state, rgba);
     }
 
@@ -1629,6 +2361,10 @@ final public class BGFX {
      *            fstencil is applied to both front and back facing primitives.
      */
     public void setStencil(long fstencil, long bstencil) {
+        if (stateFilterEnabled && stateFilter.filterStencil(fstencil, bstencil)) {
+            return;
+        }
+
         nsetStencil(fstencil, bstencil);
     }
 
@@ -1680,9 +2416,87 @@ final public class BGFX {
      *         used for other draw primitive call.
      */
     public long setTransform(float[] mtx, int num) {
+        if (mtx.length < num * 16) {
+            throw new BGFXException("Matrix array is too small for " + num + " matrices.");
+        }
+
         return nsetTransform(mtx, num);
     }
 
+    /**
+     * <p>
+     * Set model matrix for draw primitive from a direct buffer, read from its
+     * position without copying it into an array.
+     * </p>
+     * 
+     * @param mtx
+     *            Direct buffer in native byte order holding the matrices, 16
+     *            floats each.
+     * @param num
+     *            Number of matrices in the buffer.
+     * @return index into matrix cache in case the same model matrix has to be
+     *         used for other draw primitive call.
+     */
+    public long setTransform(FloatBuffer mtx, int num) {
+        checkMatrixBuffer(mtx, num);
+
+        return nsetTransformBuffer(mtx, mtx.position() * 4, num);
+    }
+
+    /**
+     * <p>
+     * Set model matrix from matrix cache for draw primitive, so matrices used
+     * by several draws in a frame are only copied once.
+     * </p>
+     * 
+     * @param cache
+     *            Index in matrix cache, returned by setTransform or
+     *            allocTransform in the current frame.
+     * @param num
+     *            Number of matrices from cache.
+     * @throws BGFXException
+     *             if cache is not a valid matrix cache index or num is not
+     *             between 1 and 65535
+     */
+    public void setTransform(long cache, int num) {
+        checkTransformCache(cache, num);
+
+        nsetTransformCached((int) cache, num);
+    }
+
+    /**
+     * <p>
+     * Copies matrices into the matrix cache without setting them for a draw.
+     * The returned index can be passed to {@link #setTransform(long, int)}
+     * until the next call to {@link #frame()}, matrix i of the buffer is at
+     * index + i.
+     * </p>
+     * 
+     * @param mtx
+     *            Direct buffer in native byte order holding the matrices, 16
+     *            floats each, read from its position.
+     * @param num
+     *            Number of matrices in the buffer.
+     * @return index into matrix cache of the first matrix.
+     * @throws BGFXException
+     *             if the matrix cache can't hold num more matrices this frame
+     */
+    public long allocTransform(FloatBuffer mtx, int num) {
+        checkMatrixBuffer(mtx, num);
+
+        if (num <= 0 || num > 0xffff) {
+            throw new BGFXException("Invalid number of matrices: " + num);
+        }
+
+        long cache = nallocTransform(mtx, mtx.position() * 4, num);
+
+        if (cache < 0) {
+            throw new BGFXException("Matrix cache is full, could not allocate " + num + " matrices.");
+        }
+
+        return cache;
+    }
+
     /**
      * <p>
      * Set shader uniform parameter for draw primitive.
@@ -1699,6 +2513,69 @@ final public class BGFX {
         nsetUniform(handle, buffer, num);
     }
 
+    /**
+     * <p>
+     * Sets several shader uniforms from one direct buffer with a single
+     * native call.
+     * </p>
+     * 
+     * @param buffer
+     *            direct ByteBuffer containing the uniform data.
+     * @param uniforms
+     *            Four ints per uniform: the UniformHandle id, the byte offset
+     *            of its data in the buffer, the byte size of its data and its
+     *            number of elements. The size must hold the number of
+     *            elements of the uniform type.
+     * @param count
+     *            Number of uniforms.
+     * @see twilight.bgfx.shader.UniformBlock
+     */
+    public void setUniforms(ByteBuffer buffer, int[] uniforms, int count) {
+        checkValidByteBuffer(buffer);
+
+        if (uniforms.length < count * 4) {
+            throw new BGFXException("Uniform array is too small for " + count + " uniforms.");
+        }
+
+        int capacity = buffer.capacity();
+
+        for (int i = 0; i < count; i++) {
+            int offset = uniforms[i * 4 + 1];
+            int size = uniforms[i * 4 + 2];
+
+            if (offset < 0 || size < 0 || (long) offset + size > capacity) {
+                throw new BGFXException("Uniform " + i + " is outside of the buffer: offset " + offset + ", size "
+                        + size + ", capacity " + capacity + ".");
+            }
+
+            // bgfx reads num elements of the uniform type, not size bytes
+            checkUniformSize(uniforms[i * 4], size / 4, uniforms[i * 4 + 3]);
+        }
+
+        nsetUniforms(buffer, uniforms, count);
+    }
+
+    /**
+     * <p>
+     * Set shader uniform parameter for draw primitive from a direct buffer.
+     * The floats from the position to the limit are the uniform value.
+     * </p>
+     * 
+     * @param handle
+     *            handle Uniform.
+     * @param value
+     *            direct FloatBuffer in native byte order containing uniform
+     *            data.
+     * @param num
+     *            Number of elements.
+     */
+    public void setUniform(int handle, FloatBuffer value, int num) {
+        checkFloatBuffer(value);
+        checkUniformSize(handle, value.remaining(), num);
+
+        nsetUniformBuffer(handle, value, value.position() * 4, value.remaining() * 4, num);
+    }
+
     /**
      * <p>
      * Set shader uniform parameter for draw primitive. Convenience method.
@@ -1712,6 +2589,8 @@ final public class BGFX {
      *            Number of elements.
      */
     public void setUniform(int handle, float[] value, int num) {
+        checkUniformSize(handle, value.length, num);
+
         nsetUniform(handle, value, num);
     }
 
@@ -1884,6 +2763,10 @@ final public class BGFX {
      *            ProgramHandle ind
      */
     public void setProgram(int handle) {
+        if (stateFilterEnabled && stateFilter.filterProgram(handle)) {
+            return;
+        }
+
         nsetProgram(handle);
     }
 
@@ -1910,6 +2793,10 @@ final public class BGFX {
      *            </ul>
      */
     public void setTexture(int stage, int sampler, int handle, long flags) {
+        if (stateFilterEnabled && stateFilter.filterTexture(stage, sampler, handle, flags)) {
+            return;
+        }
+
         nsetTexture((short) stage, sampler, handle, flags);
     }
 
@@ -1938,6 +2825,10 @@ final public class BGFX {
      *            </ul>
      */
     public void setTexture(short stage, int sampler, int handle, short attachment, long flags) {
+        if (stateFilterEnabled && stateFilter.filterFrameBufferTexture(stage, sampler, handle, attachment, flags)) {
+            return;
+        }
+
         nsetTexture(stage, sampler, handle, attachment, flags);
     }
 
@@ -1970,15 +2861,177 @@ final public class BGFX {
         return nsubmit((short) id, (short) depth);
     }
 
+    /**
+     * <p>
+     * Replays all of the commands recorded in a {@link CommandBuffer} with a
+     * single native call. The result is the same as issuing each recorded
+     * call on this object in order, without the per call JNI overhead.
+     * </p>
+     * 
+     * <p>
+     * The command buffer is not reset, call {@link CommandBuffer#reset()} to
+     * reuse it for new commands.
+     * </p>
+     * 
+     * @param commands
+     *            the recorded commands
+     * 
+     * @return Number of draw calls returned by the last recorded submit, or 0
+     *         if no submit was recorded.
+     */
+    public long submit(CommandBuffer commands) {
+        if (commands.isEmpty()) {
+            return 0;
+        }
+
+        return nsubmitCommandBuffer(commands.getBuffer(), commands.size());
+    }
+
+    /**
+     * <p>
+     * Replays the buffers committed to a {@link CommandQueue} in key order and
+     * returns them to the queue's pool. Queues created with
+     * {@link #createCommandQueue()} don't need to be submitted, they are
+     * replayed by {@link #frame()}.
+     * </p>
+     * 
+     * @param queue
+     *            the queue to replay
+     */
+    public void submit(CommandQueue queue) {
+        checkValidContext(this);
+
+        queue.flush(this);
+    }
+
+    /**
+     * <p>
+     * Creates a {@link CommandQueue} that is replayed at the start of every
+     * call to {@link #frame()}, before the frame is kicked. Worker threads can
+     * record draws into buffers acquired from the queue in parallel.
+     * </p>
+     * 
+     * @return a new command queue
+     */
+    public CommandQueue createCommandQueue() {
+        CommandQueue queue = new CommandQueue();
+        commandQueues.add(queue);
+
+        return queue;
+    }
+
+    /**
+     * <p>
+     * Stops replaying a queue created with {@link #createCommandQueue()}.
+     * Buffers still committed to it are discarded without being replayed and
+     * its pooled buffers are released, buffers committed to it afterwards
+     * are dropped.
+     * </p>
+     * 
+     * @param queue
+     *            the queue to destroy
+     */
+    public void destroyCommandQueue(CommandQueue queue) {
+        if (commandQueues.remove(queue)) {
+            queue.discard();
+        }
+    }
+
+    /**
+     * <p>
+     * Queues a task to run on the BGFX submission thread at the start of the
+     * next {@link #frame()}, before command queues are replayed. May be
+     * called from any thread, tasks run in the order they were queued.
+     * </p>
+     * 
+     * @param task
+     *            the task to run
+     */
+    public void invokeLater(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("Null task");
+        }
+
+        pendingTasks.offer(task);
+    }
+
+    /**
+     * <p>
+     * Runs the tasks queued with {@link #invokeLater(Runnable)} so far. Called
+     * by {@link #frame()}, must be called on the submission thread. Tasks
+     * queued while running are left for the next call.
+     * </p>
+     * 
+     * @return the number of tasks run
+     */
+    public int runPendingTasks() {
+        int count = pendingTasks.size();
+
+        for (int i = 0; i < count; i++) {
+            Runnable task = pendingTasks.poll();
+
+            if (task == null) {
+                return i;
+            }
+
+            task.run();
+        }
+
+        return count;
+    }
+
     /**
      * <p>
      * Discard all previously set state for draw or compute call.
      * </p>
      */
     public void discard() {
+        stateFilter.invalidate();
+
         ndiscard();
     }
 
+    /**
+     * <p>
+     * Enables or disables dropping of redundant setState, setStencil,
+     * setProgram, setTexture and small setUniform calls.
+     * </p>
+     * 
+     * <p>
+     * While enabled, draw state is no longer reset by submit. It stays set
+     * until it is changed or {@link #discard()} is called, see
+     * {@link StateFilter} for details. Changing the setting clears all
+     * remembered state.
+     * </p>
+     * 
+     * @param enabled
+     *            true to drop redundant calls
+     */
+    public void setStateFilterEnabled(boolean enabled) {
+        stateFilterEnabled = enabled;
+        stateFilter.invalidate();
+
+        nsetStateFilter(enabled);
+    }
+
+    /**
+     * @return true if redundant draw state calls are dropped
+     */
+    public boolean isStateFilterEnabled() {
+        return stateFilterEnabled;
+    }
+
+    /**
+     * <p>
+     * Returns the state filter, which reports how many calls were dropped.
+     * </p>
+     * 
+     * @return the state filter
+     */
+    public StateFilter getStateFilter() {
+        return stateFilter;
+    }
+
     /**
      * <p>
      * Request screen shot.
@@ -1996,45 +3049,61 @@ final public class BGFX {
         nsaveScreenShot(filePath.getAbsolutePath());
     }
 
+    /**
+     * <p>
+     * Returns the number of transient vertex buffers released by the last
+     * call to {@link #frame()}.
+     * </p>
+     * 
+     * @return the number of released transient vertex buffers
+     */
+    public int getReleasedTransientVertexBuffers() {
+        return releasedTransientVertexBuffers;
+    }
+
+    /**
+     * <p>
+     * Returns the number of transient index buffers released by the last
+     * call to {@link #frame()}.
+     * </p>
+     * 
+     * @return the number of released transient index buffers
+     */
+    public int getReleasedTransientIndexBuffers() {
+        return releasedTransientIndexBuffers;
+    }
+
     private void freeTransientIndexPointers() {
         int indexPointerSize = indexPointerList.size();
 
+        releasedTransientIndexBuffers = indexPointerSize;
+
         if (indexPointerSize == 0) {
             return;
         }
 
-        long[] pointers = new long[indexPointerSize];
-
-        for (int i = 0; i < indexPointerSize; i++) {
-            pointers[i] = indexPointerList.get(i);
-        }
+        nfreeTransientIndexBuffers(indexPointerList.array(), indexPointerSize);
 
         indexPointerList.clear();
-
-        nfreeTransientIndexBuffers(pointers);
     }
 
     private void freeTransientVertexPointers() {
         int vertexPointerSize = vertexPointerList.size();
 
+        releasedTransientVertexBuffers = vertexPointerSize;
+
         if (vertexPointerSize == 0) {
             return;
         }
 
-        long[] pointers = new long[vertexPointerSize];
-
-        for (int i = 0; i < vertexPointerSize; i++) {
-            pointers[i] = vertexPointerList.get(i);
-        }
+        nfreeTransientVertexBuffers(vertexPointerList.array(), vertexPointerSize);
 
         vertexPointerList.clear();
-
-        nfreeTransientVertexBuffers(pointers);
     }
 
-    protected native void nfreeTransientIndexBuffers(long[] pointers);
+    protected native void nfreeTransientIndexBuffers(long[] pointers, int count);
 
-    protected native void nfreeTransientVertexBuffers(long[] pointers);
+    protected native void nfreeTransientVertexBuffers(long[] pointers, int count);
 
     protected native void nvertexPack(float _input[], boolean _inputNormalized, Attrib _attr, VertexDecl _decl, long _data, long _index);
 
@@ -2066,13 +3135,29 @@ final public class BGFX {
 
     protected native ByteBuffer nmakeRef(long _data, long _size);
 
+    protected native long nmakeRefRelease(ByteBuffer _buffer, int _offset, int _size, int _id);
+
+    native int ndrainReleasedRefs(int[] _ids);
+
+    protected native int ncreateIndexBufferMem(long _mem, int _flags);
+
+    protected native int ncreateVertexBufferMem(long _mem, VertexDecl _decl);
+
+    protected native void nupdateDynamicIndexBufferMem(int _handle, long _mem);
+
+    protected native void nupdateDynamicVertexBufferMem(int _handle, long _mem);
+
+    protected native int ncreateTexture2DMem(int _width, int _height, short _numMips, TextureFormat _format, long _flags, long _mem);
+
+    protected native void nupdateTexture2DMem(int _handle, short _mip, int _x, int _y, int _width, int _height, long _mem);
+
     protected native void nsetDebug(long _debug);
 
     protected native void ndbgTextClear(short _attr, boolean _small);
 
     protected native void ndbgTextPrintf(int _x, int _y, short _attr, String _format);
 
-    protected native int ncreateIndexBuffer(ByteBuffer _mem);
+    protected native int ncreateIndexBuffer(ByteBuffer _mem, int _flags);
 
     protected native void ndestroyIndexBuffer(int _handle);
 
@@ -2080,9 +3165,9 @@ final public class BGFX {
 
     protected native void ndestroyVertexBuffer(int _handle);
 
-    protected native int ncreateDynamicIndexBuffer(long _num);
+    protected native int ncreateDynamicIndexBuffer(long _num, int _flags);
 
-    protected native int ncreateDynamicIndexBuffer(ByteBuffer _mem);
+    protected native int ncreateDynamicIndexBuffer(ByteBuffer _mem, int _flags);
 
     protected native void nupdateDynamicIndexBuffer(int _handle, ByteBuffer _mem);
 
@@ -2110,9 +3195,13 @@ final public class BGFX {
 
     protected native InstanceDataBuffer nallocInstanceDataBuffer(long _num, int _stride);
 
+    protected native void nallocTransientIndexBufferInto(TransientIndexBuffer _tib, long _num);
+
+    protected native void nallocTransientVertexBufferInto(TransientVertexBuffer _tvb, long _num, VertexDecl _decl);
+
     protected native int ncreateShader(ByteBuffer _mem);
 
-    protected native int ngetShaderUniforms(int _handle, int _uniforms, int _max);
+    protected native int ngetShaderUniforms(int _handle, int[] _uniforms, int _max);
 
     protected native void ndestroyShader(int _handle);
 
@@ -2174,6 +3263,8 @@ final public class BGFX {
 
     protected native void nsetViewTransform(short _id, float[] _view, float[] _proj);
 
+    protected native void nsetViewTransformBuffer(short _id, Buffer _view, int _viewOffset, Buffer _proj, int _projOffset);
+
     protected native void nsetViewTransformMask(long _viewMask, long _view, long _proj, short _otherxff);
 
     protected native void nsetMarker(String _marker);
@@ -2188,12 +3279,22 @@ final public class BGFX {
 
     protected native long nsetTransform(float[] _mtx, int _num);
 
+    protected native long nsetTransformBuffer(Buffer _mtx, int _offset, int _num);
+
+    protected native void nsetTransformCached(int _cache, int _num);
+
+    protected native long nallocTransform(Buffer _mtx, int _offset, int _num);
+
     protected native void nsetUniform(int _handle, ByteBuffer _value, int _num);
 
     protected native void nsetUniform(int _handle, float _value, int _num);
 
     protected native void nsetUniform(int _handle, float[] _value, int _num);
 
+    protected native void nsetUniforms(ByteBuffer _buffer, int[] _uniforms, int _count);
+
+    protected native void nsetUniformBuffer(int _handle, Buffer _value, int _offset, int _size, int _num);
+
     protected native void nsetIndexBuffer(IndexBuffer _handle, long _firstIndex, long _numIndices);
 
     protected native void nsetIndexBuffer(DynamicIndexBuffer _handle, long _firstIndex, long _numIndices);
@@ -2228,6 +3329,10 @@ final public class BGFX {
 
     protected native void ndiscard();
 
+    protected native long nsubmitCommandBuffer(ByteBuffer _commands, int _size);
+
+    protected native void nsetStateFilter(boolean _enabled);
+
     protected native void nsaveScreenShot(String _filePath);
 
     protected static long blendFunc(long src, long dst) {
@@ -2441,6 +3546,31 @@ final public class BGFX {
     public static final long BGFX_DEBUG_STATS = 0x00000004L;
     public static final long BGFX_DEBUG_TEXT = 0x00000008L;
 
+    ///
+    public static final long BGFX_BUFFER_NONE = 0x0000L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_8x1 = 0x0001L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_8x2 = 0x0002L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_8x4 = 0x0003L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_16x1 = 0x0004L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_16x2 = 0x0005L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_16x4 = 0x0006L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_32x1 = 0x0007L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_32x2 = 0x0008L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_32x4 = 0x0009L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_SHIFT = 0L;
+    public static final long BGFX_BUFFER_COMPUTE_FORMAT_MASK = 0x000fL;
+    public static final long BGFX_BUFFER_COMPUTE_TYPE_UINT = 0x0010L;
+    public static final long BGFX_BUFFER_COMPUTE_TYPE_INT = 0x0020L;
+    public static final long BGFX_BUFFER_COMPUTE_TYPE_FLOAT = 0x0030L;
+    public static final long BGFX_BUFFER_COMPUTE_TYPE_SHIFT = 4L;
+    public static final long BGFX_BUFFER_COMPUTE_TYPE_MASK = 0x0030L;
+    public static final long BGFX_BUFFER_COMPUTE_READ = 0x0100L;
+    public static final long BGFX_BUFFER_COMPUTE_WRITE = 0x0200L;
+    public static final long BGFX_BUFFER_DRAW_INDIRECT = 0x0400L;
+    public static final long BGFX_BUFFER_ALLOW_RESIZE = 0x0800L;
+    public static final long BGFX_BUFFER_INDEX32 = 0x1000L;
+    public static final long BGFX_BUFFER_COMPUTE_READ_WRITE = BGFX_BUFFER_COMPUTE_READ | BGFX_BUFFER_COMPUTE_WRITE;
+
     ///
     public static final long BGFX_TEXTURE_NONE = 0x00000000L;
     public static final long BGFX_TEXTURE_U_MIRROR = 0x00000001L;
@@ -21,7 +21,9 @@ public enum Capability {
     BGFX_CAPS_COMPUTE(0x0000000000000100), 
     BGFX_CAPS_FRAGMENT_ORDERING(0x0000000000000200), 
     BGFX_CAPS_SWAP_CHAIN(0x0000000000000400), 
-    BGFX_CAPS_HMD(0x0000000000000800);
+    BGFX_CAPS_HMD(0x0000000000000800), 
+    BGFX_CAPS_INDEX32(0x0000000000001000), 
+    BGFX_CAPS_DRAW_INDIRECT(0x0000000000002000);
 
     // The ID of the capability
     long id;
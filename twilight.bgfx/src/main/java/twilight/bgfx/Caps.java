@@ -38,6 +38,22 @@ public class Caps {
     /** Maximum frame buffer attachments. */
     short maxFBAttachments;
 
+    /**
+     * <p>
+     * Checks whether clip space depth ranges from -1 to 1, as with OpenGL,
+     * instead of from 0 to 1. Projection matrices must match the renderer.
+     * </p>
+     * 
+     * @return true if the renderer uses -1 to 1 depth
+     */
+    public boolean isHomogeneousDepth() {
+        return rendererType == RendererType.OpenGL || rendererType == RendererType.OpenGLES;
+    }
+
+    void setRendererTypeOrdinal(int ordinal) {
+        rendererType = RendererType.values()[ordinal];
+    }
+
     /**
      * <p>
      * Checks whether the supplied capability is supported by the current
@@ -0,0 +1,656 @@
+package twilight.bgfx;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import twilight.bgfx.buffers.DynamicIndexBuffer;
+import twilight.bgfx.buffers.DynamicVertexBuffer;
+import twilight.bgfx.buffers.IndexBuffer;
+import twilight.bgfx.buffers.InstanceDataBuffer;
+import twilight.bgfx.buffers.TransientIndexBuffer;
+import twilight.bgfx.buffers.TransientVertexBuffer;
+import twilight.bgfx.buffers.VertexBuffer;
+
+/**
+ * <p>
+ * Records draw state and submit calls into a direct, off-heap ByteBuffer so a
+ * whole batch of draws can be replayed with a single native call through
+ * {@link BGFX#submit(CommandBuffer)}.
+ * </p>
+ *
+ * <p>
+ * The recording methods mirror the set and submit methods of {@link BGFX}.
+ * Nothing is sent to BGFX until the buffer is submitted, and the recorded
+ * commands are kept until {@link #reset()} is called, so a buffer can be
+ * replayed more than once. Commands that reference transient or instance data
+ * buffers are only valid until the next call to {@link BGFX#frame()}, and
+ * commands that reference a reusable transient buffer use whatever allocation
+ * the buffer holds when the command buffer is submitted.
+ * </p>
+ *
+ * <p>
+ * CommandBuffer is not thread safe, but it does not touch BGFX while
+ * recording, so it may be filled on any thread as long as it is submitted on
+ * the BGFX submission thread.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class CommandBuffer {
+
+    /** The initial capacity in bytes when none is specified. */
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    // Command ids, these must match the values in CommandBuffer.cc
+    static final int CMD_END = 0;
+    static final int CMD_SET_STATE = 1;
+    static final int CMD_SET_STENCIL = 2;
+    static final int CMD_SET_SCISSOR = 3;
+    static final int CMD_SET_SCISSOR_CACHED = 4;
+    static final int CMD_SET_TRANSFORM = 5;
+    static final int CMD_SET_UNIFORM = 6;
+    static final int CMD_SET_INDEX_BUFFER = 7;
+    static final int CMD_SET_DYNAMIC_INDEX_BUFFER = 8;
+    static final int CMD_SET_TRANSIENT_INDEX_BUFFER = 9;
+    static final int CMD_SET_VERTEX_BUFFER = 10;
+    static final int CMD_SET_DYNAMIC_VERTEX_BUFFER = 11;
+    static final int CMD_SET_TRANSIENT_VERTEX_BUFFER = 12;
+    static final int CMD_SET_INSTANCE_DATA_BUFFER = 13;
+    static final int CMD_SET_PROGRAM = 14;
+    static final int CMD_SET_TEXTURE = 15;
+    static final int CMD_SET_TEXTURE_ATTACHMENT = 16;
+    static final int CMD_SUBMIT = 17;
+    static final int CMD_DISCARD = 18;
+    static final int CMD_SET_TRANSFORM_CACHED = 19;
+
+    /** Matches UINT32_MAX, used when the full range of a buffer is drawn. */
+    private static final long ALL = 0xffffffffL;
+
+    /** The recorded command stream. */
+    private ByteBuffer buffer;
+
+    /** The number of submit commands recorded. */
+    private int submitCount;
+
+    /**
+     * <p>
+     * Creates a command buffer with the default initial capacity.
+     * </p>
+     */
+    public CommandBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * <p>
+     * Creates a command buffer with the supplied initial capacity. The
+     * buffer grows as needed, but sizing it for a full frame avoids
+     * reallocation.
+     * </p>
+     *
+     * @param capacity
+     *            the initial capacity in bytes
+     */
+    public CommandBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new BGFXException("CommandBuffer capacity must be positive: " + capacity);
+        }
+
+        buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * <p>
+     * Discards all recorded commands so the buffer can be reused.
+     * </p>
+     */
+    public void reset() {
+        buffer.clear();
+        submitCount = 0;
+    }
+
+    /**
+     * @return true if no commands have been recorded
+     */
+    public boolean isEmpty() {
+        return buffer.position() == 0;
+    }
+
+    /**
+     * @return the number of bytes of recorded commands
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    /**
+     * @return the number of submit commands recorded
+     */
+    public int getSubmitCount() {
+        return submitCount;
+    }
+
+    /**
+     * @return the direct buffer holding the recorded commands
+     */
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setState(long, long)}.
+     * </p>
+     *
+     * @param state
+     *            State flags.
+     * @param rgba
+     *            Blend factor.
+     */
+    public void setState(long state, long rgba) {
+        ensureCapacity(20);
+
+        buffer.putInt(CMD_SET_STATE);
+        buffer.putLong(state);
+        buffer.putLong(rgba);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setStencil(long, long)}.
+     * </p>
+     *
+     * @param fstencil
+     *            Front stencil state.
+     * @param bstencil
+     *            Back stencil state.
+     */
+    public void setStencil(long fstencil, long bstencil) {
+        ensureCapacity(20);
+
+        buffer.putInt(CMD_SET_STENCIL);
+        buffer.putLong(fstencil);
+        buffer.putLong(bstencil);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setScissor(int, int, int, int)}. The scissor cache
+     * index is not available when recording.
+     * </p>
+     *
+     * @param x
+     *            Position x from the left corner of the window.
+     * @param y
+     *            Position y from the top corner of the window.
+     * @param width
+     *            Width of scissor region.
+     * @param height
+     *            Height of scissor region.
+     */
+    public void setScissor(int x, int y, int width, int height) {
+        ensureCapacity(20);
+
+        buffer.putInt(CMD_SET_SCISSOR);
+        buffer.putInt(x);
+        buffer.putInt(y);
+        buffer.putInt(width);
+        buffer.putInt(height);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setScissor(int)}.
+     * </p>
+     *
+     * @param cache
+     *            Index in scissor cache.
+     */
+    public void setScissor(int cache) {
+        ensureCapacity(8);
+
+        buffer.putInt(CMD_SET_SCISSOR_CACHED);
+        buffer.putInt(cache);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setTransform(float[], int)}. The matrices are copied
+     * into the command buffer, so the array may be reused immediately.
+     * </p>
+     *
+     * @param mtx
+     *            array containing num 4x4 matrices.
+     * @param num
+     *            Number of matrices in array.
+     */
+    public void setTransform(float[] mtx, int num) {
+        int count = num * 16;
+
+        if (mtx.length < count) {
+            throw new BGFXException("Transform array too small for " + num + " matrices: " + mtx.length);
+        }
+
+        ensureCapacity(8 + count * 4);
+
+        buffer.putInt(CMD_SET_TRANSFORM);
+        buffer.putInt(num);
+        putFloats(mtx, count);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setTransform(long, int)}. Only the cache index is
+     * recorded, so the buffer must be submitted in the frame the matrices
+     * were cached in.
+     * </p>
+     *
+     * @param cache
+     *            Index in matrix cache.
+     * @param num
+     *            Number of matrices from cache.
+     */
+    public void setTransform(long cache, int num) {
+        BGFX.checkTransformCache(cache, num);
+        ensureCapacity(12);
+
+        buffer.putInt(CMD_SET_TRANSFORM_CACHED);
+        buffer.putInt((int) cache);
+        buffer.putInt(num);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setUniform(int, float[], int)}. The values are
+     * copied into the command buffer.
+     * </p>
+     *
+     * @param handle
+     *            handle Uniform.
+     * @param value
+     *            array containing uniform data.
+     * @param num
+     *            Number of elements.
+     */
+    public void setUniform(int handle, float[] value, int num) {
+        ensureCapacity(16 + value.length * 4);
+
+        buffer.putInt(CMD_SET_UNIFORM);
+        buffer.putInt(handle);
+        buffer.putInt(num);
+        buffer.putInt(value.length * 4);
+        putFloats(value, value.length);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setUniform(int, float, int)}. BGFX reads a full
+     * Vec4 per element, so like the direct call every element is recorded as
+     * the value followed by three zeros.
+     * </p>
+     *
+     * @param handle
+     *            handle Uniform.
+     * @param value
+     *            float value
+     * @param num
+     *            Number of elements.
+     */
+    public void setUniform(int handle, float value, int num) {
+        int size = Math.max(num, 1) * 16;
+
+        ensureCapacity(16 + size);
+
+        buffer.putInt(CMD_SET_UNIFORM);
+        buffer.putInt(handle);
+        buffer.putInt(num);
+        buffer.putInt(size);
+
+        for (int i = 0; i < size; i += 16) {
+            buffer.putFloat(value);
+            buffer.putFloat(0);
+            buffer.putFloat(0);
+            buffer.putFloat(0);
+        }
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setUniform(int, ByteBuffer, int)}. The bytes between
+     * the position and the limit of the supplied buffer are copied into the
+     * command buffer, the position of the supplied buffer is not changed.
+     * </p>
+     *
+     * @param handle
+     *            handle Uniform.
+     * @param value
+     *            ByteBuffer containing uniform data.
+     * @param num
+     *            Number of elements.
+     */
+    public void setUniform(int handle, ByteBuffer value, int num) {
+        int size = value.remaining();
+        int padded = (size + 3) & ~3;
+
+        ensureCapacity(16 + padded);
+
+        buffer.putInt(CMD_SET_UNIFORM);
+        buffer.putInt(handle);
+        buffer.putInt(num);
+        buffer.putInt(size);
+        buffer.put(value.duplicate());
+        buffer.position(buffer.position() + padded - size);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setIndexBuffer(IndexBuffer, long, long)}.
+     * </p>
+     *
+     * @param handle
+     *            Index buffer.
+     * @param firstIndex
+     *            First index to render.
+     * @param numIndices
+     *            Number of indices to render.
+     */
+    public void setIndexBuffer(IndexBuffer handle, long firstIndex, long numIndices) {
+        putBufferCommand(CMD_SET_INDEX_BUFFER, handle.getHandle(), firstIndex, numIndices);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setIndexBuffer(DynamicIndexBuffer, long, long)}.
+     * </p>
+     *
+     * @param handle
+     *            Index buffer.
+     * @param firstIndex
+     *            First index to render.
+     * @param numIndices
+     *            Number of indices to render.
+     */
+    public void setIndexBuffer(DynamicIndexBuffer handle, long firstIndex, long numIndices) {
+        putBufferCommand(CMD_SET_DYNAMIC_INDEX_BUFFER, handle.getHandle(), firstIndex, numIndices);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setIndexBuffer(TransientIndexBuffer)}.
+     * </p>
+     *
+     * @param tib
+     *            Index buffer.
+     */
+    public void setIndexBuffer(TransientIndexBuffer tib) {
+        putPointerCommand(CMD_SET_TRANSIENT_INDEX_BUFFER, tib.pointer, 0, ALL);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setIndexBuffer(TransientIndexBuffer, long, long)}.
+     * </p>
+     *
+     * @param tib
+     *            Index buffer.
+     * @param firstIndex
+     *            First index to render.
+     * @param numIndices
+     *            Number of indices to render.
+     */
+    public void setIndexBuffer(TransientIndexBuffer tib, long firstIndex, long numIndices) {
+        putPointerCommand(CMD_SET_TRANSIENT_INDEX_BUFFER, tib.pointer, firstIndex, numIndices);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setVertexBuffer(VertexBuffer)}.
+     * </p>
+     *
+     * @param handle
+     *            Vertex buffer.
+     */
+    public void setVertexBuffer(VertexBuffer handle) {
+        putBufferCommand(CMD_SET_VERTEX_BUFFER, handle.getHandle(), 0, ALL);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setVertexBuffer(VertexBuffer, long, long)}.
+     * </p>
+     *
+     * @param handle
+     *            Vertex buffer.
+     * @param startVertex
+     *            First vertex to render.
+     * @param numVertices
+     *            Number of vertices to render.
+     */
+    public void setVertexBuffer(VertexBuffer handle, long startVertex, long numVertices) {
+        putBufferCommand(CMD_SET_VERTEX_BUFFER, handle.getHandle(), startVertex, numVertices);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setVertexBuffer(DynamicVertexBuffer, long)}.
+     * </p>
+     *
+     * @param handle
+     *            Vertex buffer.
+     * @param numVertices
+     *            Number of vertices to render.
+     */
+    public void setVertexBuffer(DynamicVertexBuffer handle, long numVertices) {
+        putBufferCommand(CMD_SET_DYNAMIC_VERTEX_BUFFER, handle.getHandle(), 0, numVertices);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setVertexBuffer(TransientVertexBuffer)}.
+     * </p>
+     *
+     * @param tvb
+     *            Vertex buffer.
+     */
+    public void setVertexBuffer(TransientVertexBuffer tvb) {
+        putPointerCommand(CMD_SET_TRANSIENT_VERTEX_BUFFER, tvb.pointer, 0, ALL);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setVertexBuffer(TransientVertexBuffer, long, long)}.
+     * </p>
+     *
+     * @param tvb
+     *            Vertex buffer.
+     * @param startVertex
+     *            First vertex to render.
+     * @param numVertices
+     *            Number of vertices to render.
+     */
+    public void setVertexBuffer(TransientVertexBuffer tvb, long startVertex, long numVertices) {
+        putPointerCommand(CMD_SET_TRANSIENT_VERTEX_BUFFER, tvb.pointer, startVertex, numVertices);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setInstanceDataBuffer(InstanceDataBuffer, int)}.
+     * </p>
+     *
+     * @param idb
+     *            instance buffer
+     * @param num
+     *            number of instances
+     */
+    public void setInstanceDataBuffer(InstanceDataBuffer idb, int num) {
+        putPointerCommand(CMD_SET_INSTANCE_DATA_BUFFER, idb.pointer, 0, num & ALL);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setProgram(int)}.
+     * </p>
+     *
+     * @param handle
+     *            ProgramHandle id
+     */
+    public void setProgram(int handle) {
+        ensureCapacity(8);
+
+        buffer.putInt(CMD_SET_PROGRAM);
+        buffer.putInt(handle);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setTexture(int, int, int, long)}.
+     * </p>
+     *
+     * @param stage
+     *            Texture unit.
+     * @param sampler
+     *            Program sampler.
+     * @param handle
+     *            Texture handle.
+     * @param flags
+     *            Texture sampling mode.
+     */
+    public void setTexture(int stage, int sampler, int handle, long flags) {
+        ensureCapacity(24);
+
+        buffer.putInt(CMD_SET_TEXTURE);
+        buffer.putInt(stage);
+        buffer.putInt(sampler);
+        buffer.putInt(handle);
+        buffer.putLong(flags);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#setTexture(short, int, int, short, long)}.
+     * </p>
+     *
+     * @param stage
+     *            Texture unit.
+     * @param sampler
+     *            Program sampler.
+     * @param handle
+     *            Frame buffer handle.
+     * @param attachment
+     *            Attachment index.
+     * @param flags
+     *            Texture sampling mode.
+     */
+    public void setTexture(short stage, int sampler, int handle, short attachment, long flags) {
+        ensureCapacity(28);
+
+        buffer.putInt(CMD_SET_TEXTURE_ATTACHMENT);
+        buffer.putInt(stage);
+        buffer.putInt(sampler);
+        buffer.putInt(handle);
+        buffer.putInt(attachment);
+        buffer.putLong(flags);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#submit(int)}.
+     * </p>
+     *
+     * @param id
+     *            View id.
+     */
+    public void submit(int id) {
+        submit(id, 0);
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#submit(int, int)}.
+     * </p>
+     *
+     * @param id
+     *            View id.
+     * @param depth
+     *            Depth for sorting.
+     */
+    public void submit(int id, int depth) {
+        ensureCapacity(12);
+
+        buffer.putInt(CMD_SUBMIT);
+        buffer.putInt(id);
+        buffer.putInt(depth);
+
+        submitCount++;
+    }
+
+    /**
+     * <p>
+     * Records {@link BGFX#discard()}.
+     * </p>
+     */
+    public void discard() {
+        ensureCapacity(4);
+
+        buffer.putInt(CMD_DISCARD);
+    }
+
+    private void putBufferCommand(int command, long handle, long first, long num) {
+        ensureCapacity(24);
+
+        buffer.putInt(command);
+        buffer.putInt((int) handle);
+        buffer.putLong(first);
+        buffer.putLong(num);
+    }
+
+    private void putPointerCommand(int command, long pointer, long first, long num) {
+        if (pointer == 0) {
+            throw new BGFXException("Cannot record a command for a buffer that has not been allocated.");
+        }
+
+        ensureCapacity(28);
+
+        buffer.putInt(command);
+        buffer.putLong(pointer);
+        buffer.putLong(first);
+        buffer.putLong(num);
+    }
+
+    private void putFloats(float[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.putFloat(values[i]);
+        }
+    }
+
+    /**
+     * <p>
+     * Grows the backing buffer so at least the supplied number of bytes can be
+     * written. Only allocates when the current capacity is exceeded.
+     * </p>
+     *
+     * @param bytes
+     *            the number of bytes about to be written
+     */
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        int capacity = buffer.capacity();
+        int required = buffer.position() + bytes;
+
+        while (capacity < required) {
+            capacity *= 2;
+        }
+
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+
+        buffer.flip();
+        grown.put(buffer);
+
+        buffer = grown;
+    }
+
+}
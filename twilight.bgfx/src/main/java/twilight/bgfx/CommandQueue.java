@@ -0,0 +1,238 @@
+package twilight.bgfx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <p>
+ * Collects {@link CommandBuffer}s recorded on worker threads so they can be
+ * replayed on the BGFX submission thread.
+ * </p>
+ *
+ * <p>
+ * Worker threads {@link #acquire()} a command buffer, record draws into it
+ * and {@link #commit(CommandBuffer, long)} it with an order key, for example
+ * the index of the view or scene partition it contains. Queues created with
+ * {@link BGFX#createCommandQueue()} are replayed automatically at the start
+ * of {@link BGFX#frame()}, other queues can be replayed with
+ * {@link BGFX#submit(CommandQueue)}. Buffers are replayed in ascending key
+ * order, so the result doesn't depend on which worker finished first as long
+ * as keys are unique. Buffers with equal keys are replayed in commit order.
+ * </p>
+ *
+ * <p>
+ * Replayed buffers are reset and returned to a pool, so in steady state no
+ * new command buffers are created. Workers must not call BGFX directly,
+ * transient and instance buffers referenced by the recorded commands have to
+ * be allocated on the submission thread beforehand.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class CommandQueue {
+
+    /** Orders committed buffers by key, Collections.sort is stable. */
+    private static final Comparator<Entry> KEY_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return a.key < b.key ? -1 : (a.key == b.key ? 0 : 1);
+        }
+    };
+
+    /** Buffers available for reuse. */
+    private final ConcurrentLinkedQueue<CommandBuffer> pool = new ConcurrentLinkedQueue<CommandBuffer>();
+
+    /** Buffers committed since the last flush, guarded by this. */
+    private List<Entry> committed = new ArrayList<Entry>();
+
+    /** The list being replayed, swapped with committed on flush. */
+    private List<Entry> replaying = new ArrayList<Entry>();
+
+    /** Entries available for reuse, only used while holding the lock. */
+    private final List<Entry> freeEntries = new ArrayList<Entry>();
+
+    /** The initial capacity of new command buffers. */
+    private final int bufferCapacity;
+
+    /** The number of buffers replayed by the last flush. */
+    private volatile int lastFlushCount;
+
+    /** Set once the queue is destroyed, later commits are dropped. Guarded by this. */
+    private boolean destroyed;
+
+    /**
+     * <p>
+     * Creates a queue whose command buffers start with the default capacity.
+     * </p>
+     */
+    public CommandQueue() {
+        this(CommandBuffer.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param bufferCapacity
+     *            the initial capacity in bytes of new command buffers
+     */
+    public CommandQueue(int bufferCapacity) {
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    /**
+     * <p>
+     * Returns an empty command buffer, reusing a pooled buffer if one is
+     * available. May be called from any thread.
+     * </p>
+     *
+     * @return an empty command buffer
+     */
+    public CommandBuffer acquire() {
+        CommandBuffer buffer = pool.poll();
+
+        if (buffer == null) {
+            buffer = new CommandBuffer(bufferCapacity);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * <p>
+     * Queues a recorded buffer for replay. The buffer must not be used by the
+     * caller afterwards. May be called from any thread.
+     * </p>
+     *
+     * @param buffer
+     *            a buffer returned by {@link #acquire()}
+     * @param key
+     *            the replay order key, lower keys are replayed first
+     */
+    public void commit(CommandBuffer buffer, long key) {
+        if (buffer.isEmpty()) {
+            release(buffer);
+            return;
+        }
+
+        synchronized (this) {
+            if (destroyed) {
+                buffer.reset();
+                return;
+            }
+
+            Entry entry = freeEntries.isEmpty() ? new Entry() : freeEntries.remove(freeEntries.size() - 1);
+            entry.buffer = buffer;
+            entry.key = key;
+
+            committed.add(entry);
+        }
+    }
+
+    /**
+     * <p>
+     * Returns an acquired buffer to the pool without replaying it.
+     * </p>
+     *
+     * @param buffer
+     *            a buffer returned by {@link #acquire()}
+     */
+    public void release(CommandBuffer buffer) {
+        buffer.reset();
+        pool.offer(buffer);
+    }
+
+    /**
+     * @return the number of buffers committed since the last flush
+     */
+    synchronized int getCommittedCount() {
+        return committed.size();
+    }
+
+    /**
+     * @return the number of buffers replayed by the last flush
+     */
+    public int getLastFlushCount() {
+        return lastFlushCount;
+    }
+
+    /**
+     * <p>
+     * Replays all committed buffers in key order. Must be called on the BGFX
+     * submission thread.
+     * </p>
+     *
+     * @param bgfx
+     *            the context to replay into
+     */
+    void flush(BGFX bgfx) {
+        List<Entry> entries;
+
+        synchronized (this) {
+            entries = committed;
+            committed = replaying;
+            replaying = entries;
+        }
+
+        int count = entries.size();
+
+        if (count > 1) {
+            Collections.sort(entries, KEY_ORDER);
+        }
+
+        for (int i = 0; i < count; i++) {
+            Entry entry = entries.get(i);
+
+            bgfx.submit(entry.buffer);
+            release(entry.buffer);
+
+            entry.buffer = null;
+        }
+
+        synchronized (this) {
+            freeEntries.addAll(entries);
+        }
+
+        entries.clear();
+        lastFlushCount = count;
+    }
+
+    /**
+     * <p>
+     * Drops all committed buffers without replaying them and empties the
+     * pool, so their memory can be reclaimed. Buffers committed afterwards
+     * are dropped as well.
+     * </p>
+     *
+     * @return the number of committed buffers that were dropped
+     */
+    int discard() {
+        int count;
+
+        synchronized (this) {
+            destroyed = true;
+            count = committed.size();
+
+            for (int i = 0; i < count; i++) {
+                committed.get(i).buffer = null;
+            }
+
+            committed.clear();
+            freeEntries.clear();
+        }
+
+        pool.clear();
+
+        return count;
+    }
+
+    /**
+     * A committed buffer and its key.
+     */
+    private static final class Entry {
+        CommandBuffer buffer;
+        long key;
+    }
+
+}
@@ -0,0 +1,97 @@
+package twilight.bgfx;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A minimal growable list of primitive longs, used to track native pointers
+ * without boxing.
+ * </p>
+ *
+ * <p>
+ * The backing array is exposed through {@link #array()} so it can be handed
+ * to native code together with {@link #size()}. Clearing the list only
+ * resets the size, so once the list has grown to its steady state size no
+ * further allocation takes place.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+final class LongList {
+
+    /** The backing array, only the first size elements are valid. */
+    private long[] values;
+
+    /** The number of valid elements. */
+    private int size;
+
+    /**
+     * @param capacity
+     *            the initial capacity
+     */
+    LongList(int capacity) {
+        values = new long[Math.max(capacity, 1)];
+    }
+
+    /**
+     * <p>
+     * Appends a value, growing the backing array when needed.
+     * </p>
+     *
+     * @param value
+     *            the value to add
+     */
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        values[size++] = value;
+    }
+
+    /**
+     * @param index
+     *            the index of the value
+     * @return the value at the index
+     */
+    long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        return values[index];
+    }
+
+    /**
+     * @return the number of values in the list
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the list contains no values
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * <p>
+     * Removes all values, the backing array is kept for reuse.
+     * </p>
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the backing array, only the first {@link #size()} elements are
+     *         valid
+     */
+    long[] array() {
+        return values;
+    }
+
+}
@@ -0,0 +1,72 @@
+package twilight.bgfx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * A reference to memory that is passed to BGFX without copying it, created
+ * by {@link BGFX#makeRef(ByteBuffer, ReleaseHandler)}.
+ * </p>
+ *
+ * <p>
+ * A Memory must be passed to exactly one create or update call, after which
+ * it is consumed. The referenced buffer is kept reachable until the renderer
+ * has released the memory, it must not be modified in the meantime.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class Memory {
+
+    /** The native bgfx::Memory, 0 once consumed. */
+    long pointer;
+
+    /** The referenced buffer, kept reachable until released. */
+    final ByteBuffer buffer;
+
+    /** Notified once the memory is released, may be null. */
+    final ReleaseHandler handler;
+
+    /** The number of referenced bytes. */
+    private final int size;
+
+    Memory(ByteBuffer buffer, int size, ReleaseHandler handler) {
+        this.buffer = buffer;
+        this.size = size;
+        this.handler = handler;
+    }
+
+    /**
+     * @return the number of referenced bytes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return true if the memory was passed to a create or update call
+     */
+    public boolean isConsumed() {
+        return pointer == 0;
+    }
+
+    /**
+     * <p>
+     * Marks the memory as consumed.
+     * </p>
+     *
+     * @return the native pointer to pass to bgfx
+     */
+    long consume() {
+        if (pointer == 0) {
+            throw new BGFXException(Messages.getString("BGFX.MemoryConsumed")); //$NON-NLS-1$
+        }
+
+        long result = pointer;
+        pointer = 0;
+
+        return result;
+    }
+
+}
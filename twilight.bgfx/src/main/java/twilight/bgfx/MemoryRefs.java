@@ -0,0 +1,107 @@
+package twilight.bgfx;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Tracks memory referenced with makeRef until the renderer releases it.
+ * </p>
+ *
+ * <p>
+ * Each reference gets a slot id which is passed to bgfx as the user data of
+ * the release function. The native release function may run on the render
+ * thread, so it only queues the id. {@link #drain(BGFX)} collects the queued
+ * ids on the submission thread, unpins the buffers and notifies their
+ * handlers.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+final class MemoryRefs {
+
+    /** Pending references by slot id. */
+    private Memory[] slots = new Memory[64];
+
+    /** Unused slot ids. */
+    private int[] freeSlots = new int[64];
+
+    private int freeCount;
+
+    /** The number of slots that were ever used. */
+    private int used;
+
+    /** The number of pending references. */
+    private int pending;
+
+    /** Ids copied from the native release queue. */
+    private final int[] released = new int[256];
+
+    /**
+     * <p>
+     * Reserves a slot for a new reference.
+     * </p>
+     *
+     * @return the slot id
+     */
+    int add(Memory memory) {
+        int id;
+
+        if (freeCount > 0) {
+            id = freeSlots[--freeCount];
+        } else {
+            if (used == slots.length) {
+                slots = Arrays.copyOf(slots, used * 2);
+            }
+
+            id = used++;
+        }
+
+        slots[id] = memory;
+        pending++;
+
+        return id;
+    }
+
+    /**
+     * @return the number of references the renderer has not released yet
+     */
+    int getPending() {
+        return pending;
+    }
+
+    /**
+     * <p>
+     * Releases all references the renderer is done with.
+     * </p>
+     */
+    void drain(BGFX bgfx) {
+        int count;
+
+        do {
+            count = bgfx.ndrainReleasedRefs(released);
+
+            for (int i = 0; i < count; i++) {
+                int id = released[i];
+                Memory memory = slots[id];
+
+                slots[id] = null;
+                free(id);
+                pending--;
+
+                if (memory.handler != null) {
+                    memory.handler.released(memory.buffer);
+                }
+            }
+        } while (count == released.length);
+    }
+
+    private void free(int id) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+
+        freeSlots[freeCount++] = id;
+    }
+
+}
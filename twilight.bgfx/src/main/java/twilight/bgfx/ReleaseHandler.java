@@ -0,0 +1,28 @@
+package twilight.bgfx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Notified when BGFX no longer needs memory referenced with
+ * {@link BGFX#makeRef(ByteBuffer, ReleaseHandler)}, for example to return the
+ * buffer to a pool.
+ * </p>
+ *
+ * <p>
+ * The handler is called on the submission thread from {@link BGFX#frame()},
+ * after the renderer has consumed the memory.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public interface ReleaseHandler {
+
+    /**
+     * @param buffer
+     *            the buffer passed to makeRef, it can be reused or released
+     */
+    void released(ByteBuffer buffer);
+
+}
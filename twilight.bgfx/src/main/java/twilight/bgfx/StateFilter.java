@@ -0,0 +1,252 @@
+package twilight.bgfx;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Remembers the last draw state passed to {@link BGFX} so redundant calls can
+ * be dropped before they cross into native code. Enabled with
+ * {@link BGFX#setStateFilterEnabled(boolean)}.
+ * </p>
+ *
+ * <p>
+ * BGFX clears the state, stencil, program and texture stages after every
+ * submit, so while the filter is enabled the native side keeps the last ones
+ * and applies them again before every submit. Draw state therefore stays set
+ * until it is changed, instead of being reset by submit. Call
+ * {@link BGFX#discard()} to clear the remembered state. Command buffers replayed with
+ * {@link BGFX#submit(CommandBuffer)} are not filtered and don't use the
+ * remembered state.
+ * </p>
+ *
+ * <p>
+ * Uniforms are never filtered. BGFX stores the uniform values set for a draw
+ * with that draw and applies them in sorted draw order, so a value that is
+ * dropped because it matches the previous submission may be overwritten by a
+ * draw sorted in between.
+ * </p>
+ *
+ * <p>
+ * The counters report how many calls were dropped since they were last
+ * reset.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class StateFilter {
+
+    /** The number of texture stages tracked, matches BGFX_CONFIG_MAX_TEXTURE_SAMPLERS. */
+    static final int MAX_TEXTURE_STAGES = 16;
+
+    /** The number of uniform handles, matches BGFX_CONFIG_MAX_UNIFORMS. */
+    static final int MAX_UNIFORMS = 512;
+
+    /** Marks a texture stage bound to a texture. */
+    private static final int STAGE_TEXTURE = 1;
+
+    /** Marks a texture stage bound to a frame buffer attachment. */
+    private static final int STAGE_FRAME_BUFFER = 2;
+
+    private boolean stateValid;
+    private long state;
+    private long rgba;
+
+    private boolean stencilValid;
+    private long fstencil;
+    private long bstencil;
+
+    private int program = BGFX.INVALID_HANDLE;
+
+    private final int[] stageKinds = new int[MAX_TEXTURE_STAGES];
+    private final int[] stageSamplers = new int[MAX_TEXTURE_STAGES];
+    private final int[] stageHandles = new int[MAX_TEXTURE_STAGES];
+    private final int[] stageAttachments = new int[MAX_TEXTURE_STAGES];
+    private final long[] stageFlags = new long[MAX_TEXTURE_STAGES];
+
+    private long elidedStates;
+    private long elidedStencils;
+    private long elidedPrograms;
+    private long elidedTextures;
+
+    StateFilter() {
+
+    }
+
+    /**
+     * @return the number of dropped setState calls
+     */
+    public long getElidedStates() {
+        return elidedStates;
+    }
+
+    /**
+     * @return the number of dropped setStencil calls
+     */
+    public long getElidedStencils() {
+        return elidedStencils;
+    }
+
+    /**
+     * @return the number of dropped setProgram calls
+     */
+    public long getElidedPrograms() {
+        return elidedPrograms;
+    }
+
+    /**
+     * @return the number of dropped setTexture calls
+     */
+    public long getElidedTextures() {
+        return elidedTextures;
+    }
+
+    /**
+     * @return the total number of dropped calls
+     */
+    public long getElidedTotal() {
+        return elidedStates + elidedStencils + elidedPrograms + elidedTextures;
+    }
+
+    /**
+     * <p>
+     * Resets all counters to 0.
+     * </p>
+     */
+    public void resetCounters() {
+        elidedStates = 0;
+        elidedStencils = 0;
+        elidedPrograms = 0;
+        elidedTextures = 0;
+    }
+
+    /**
+     * <p>
+     * Forgets all remembered values, the next call of every kind is
+     * forwarded.
+     * </p>
+     */
+    void invalidate() {
+        stateValid = false;
+        stencilValid = false;
+        program = BGFX.INVALID_HANDLE;
+
+        Arrays.fill(stageKinds, 0);
+    }
+
+    /**
+     * @return true if the call is redundant and should be dropped
+     */
+    boolean filterState(long newState, long newRgba) {
+        if (stateValid && state == newState && rgba == newRgba) {
+            elidedStates++;
+            return true;
+        }
+
+        stateValid = true;
+        state = newState;
+        rgba = newRgba;
+
+        return false;
+    }
+
+    /**
+     * @return true if the call is redundant and should be dropped
+     */
+    boolean filterStencil(long newFstencil, long newBstencil) {
+        if (stencilValid && fstencil == newFstencil && bstencil == newBstencil) {
+            elidedStencils++;
+            return true;
+        }
+
+        stencilValid = true;
+        fstencil = newFstencil;
+        bstencil = newBstencil;
+
+        return false;
+    }
+
+    /**
+     * @return true if the call is redundant and should be dropped
+     */
+    boolean filterProgram(int handle) {
+        if (program == handle && handle != BGFX.INVALID_HANDLE) {
+            elidedPrograms++;
+            return true;
+        }
+
+        program = handle;
+
+        return false;
+    }
+
+    /**
+     * @return true if the call is redundant and should be dropped
+     */
+    boolean filterTexture(int stage, int sampler, int handle, long flags) {
+        return filterStage(STAGE_TEXTURE, stage, sampler, handle, 0, flags);
+    }
+
+    /**
+     * @return true if the call is redundant and should be dropped
+     */
+    boolean filterFrameBufferTexture(int stage, int sampler, int handle, int attachment, long flags) {
+        return filterStage(STAGE_FRAME_BUFFER, stage, sampler, handle, attachment, flags);
+    }
+
+    private boolean filterStage(int kind, int stage, int sampler, int handle, int attachment, long flags) {
+        if (stage < 0 || stage >= MAX_TEXTURE_STAGES) {
+            return false;
+        }
+
+        if (stageKinds[stage] == kind && stageSamplers[stage] == sampler && stageHandles[stage] == handle
+                && stageAttachments[stage] == attachment && stageFlags[stage] == flags) {
+            elidedTextures++;
+            return true;
+        }
+
+        stageKinds[stage] = kind;
+        stageSamplers[stage] = sampler;
+        stageHandles[stage] = handle;
+        stageAttachments[stage] = attachment;
+        stageFlags[stage] = flags;
+
+        return false;
+    }
+
+    /**
+     * <p>
+     * Forgets the texture stages sampled through a destroyed uniform.
+     * </p>
+     */
+    void invalidateSampler(int handle) {
+        invalidateStages(STAGE_TEXTURE | STAGE_FRAME_BUFFER, handle, true);
+    }
+
+    void invalidateProgram(int handle) {
+        if (program == handle) {
+            program = BGFX.INVALID_HANDLE;
+        }
+    }
+
+    void invalidateTexture(int handle) {
+        invalidateStages(STAGE_TEXTURE, handle, false);
+    }
+
+    void invalidateFrameBuffer(int handle) {
+        invalidateStages(STAGE_FRAME_BUFFER, handle, false);
+    }
+
+    private void invalidateStages(int kinds, int handle, boolean sampler) {
+        for (int i = 0; i < MAX_TEXTURE_STAGES; i++) {
+            if ((stageKinds[i] & kinds) == 0) {
+                continue;
+            }
+
+            if ((sampler ? stageSamplers[i] : stageHandles[i]) == handle) {
+                stageKinds[i] = 0;
+            }
+        }
+    }
+
+}
@@ -21,7 +21,7 @@ public enum TextureFormat {
 
     Unknown, // compressed formats above
 
-    R1, R8, R16, R16F, R32, R32F, RG8, RG16, RG16F, RG32, RG32F, BGRA8, RGBA16, RGBA16F, RGBA32, RGBA32F, R5G6B5, RGBA4, RGB5A1, RGB10A2, R11G11B10F,
+    R1, R8, R16, R16F, R32, R32F, RG8, RG16, RG16F, RG32, RG32F, BGRA8, RGBA8, RGBA16, RGBA16F, RGBA32, RGBA32F, R5G6B5, RGBA4, RGB5A1, RGB10A2, R11G11B10F,
 
     UnknownDepth, // depth formats below
 
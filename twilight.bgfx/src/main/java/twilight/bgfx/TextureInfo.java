@@ -8,11 +8,16 @@ public class TextureInfo {
     int depth;
     short numMips;
     short bitsPerPixel;
+    boolean cubeMap;
 
     public int getFormatOrdinal() {
         return format.ordinal();
     }
 
+    void setFormatOrdinal(int ordinal) {
+        format = TextureFormat.values()[ordinal];
+    }
+
     public TextureFormat getFormat() {
         return format;
     }
@@ -69,4 +74,12 @@ public class TextureInfo {
         this.bitsPerPixel = bitsPerPixel;
     }
 
+    public boolean isCubeMap() {
+        return cubeMap;
+    }
+
+    public void setCubeMap(boolean cubeMap) {
+        this.cubeMap = cubeMap;
+    }
+
 }
\ No newline at end of file
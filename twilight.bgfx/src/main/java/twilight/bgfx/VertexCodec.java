@@ -0,0 +1,286 @@
+package twilight.bgfx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Packs and unpacks single vertex attributes to and from their declared
+ * {@link AttribType}, following the same conversion rules as the native
+ * bgfx::vertexPack and bgfx::vertexUnpack.
+ * </p>
+ *
+ * <p>
+ * All methods use absolute buffer access, so the position of the buffer is
+ * never changed. Buffers are expected to be in native byte order.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+final class VertexCodec {
+
+    private VertexCodec() {
+
+    }
+
+    /**
+     * <p>
+     * Writes num elements of an attribute.
+     * </p>
+     *
+     * @param buffer
+     *            the target buffer
+     * @param offset
+     *            the byte offset of the attribute
+     * @param type
+     *            the attribute element type
+     * @param num
+     *            the number of elements, 1 to 4
+     * @param inputNormalized
+     *            true if the input values are normalized, they are then scaled
+     *            to the range of integer types
+     * @param asInt
+     *            true if the attribute is passed as an integer, which selects
+     *            the signed mapping for normalized values
+     * @param x
+     *            the first element
+     * @param y
+     *            the second element
+     * @param z
+     *            the third element
+     * @param w
+     *            the fourth element
+     */
+    static void pack(ByteBuffer buffer, int offset, AttribType type, int num, boolean inputNormalized, boolean asInt,
+            float x, float y, float z, float w) {
+        switch (type) {
+        case Uint8:
+            buffer.put(offset, toUint8(x, inputNormalized, asInt));
+            if (num > 1) {
+                buffer.put(offset + 1, toUint8(y, inputNormalized, asInt));
+            }
+            if (num > 2) {
+                buffer.put(offset + 2, toUint8(z, inputNormalized, asInt));
+            }
+            if (num > 3) {
+                buffer.put(offset + 3, toUint8(w, inputNormalized, asInt));
+            }
+            break;
+        case Int16:
+            buffer.putShort(offset, toInt16(x, inputNormalized, asInt));
+            if (num > 1) {
+                buffer.putShort(offset + 2, toInt16(y, inputNormalized, asInt));
+            }
+            if (num > 2) {
+                buffer.putShort(offset + 4, toInt16(z, inputNormalized, asInt));
+            }
+            if (num > 3) {
+                buffer.putShort(offset + 6, toInt16(w, inputNormalized, asInt));
+            }
+            break;
+        case Half:
+            buffer.putShort(offset, halfFromFloat(x));
+            if (num > 1) {
+                buffer.putShort(offset + 2, halfFromFloat(y));
+            }
+            if (num > 2) {
+                buffer.putShort(offset + 4, halfFromFloat(z));
+            }
+            if (num > 3) {
+                buffer.putShort(offset + 6, halfFromFloat(w));
+            }
+            break;
+        case Float:
+            buffer.putFloat(offset, x);
+            if (num > 1) {
+                buffer.putFloat(offset + 4, y);
+            }
+            if (num > 2) {
+                buffer.putFloat(offset + 8, z);
+            }
+            if (num > 3) {
+                buffer.putFloat(offset + 12, w);
+            }
+            break;
+        default:
+            throw new BGFXException("Unknown vertex attribute type: " + type);
+        }
+    }
+
+    /**
+     * <p>
+     * Reads num elements of an attribute into output, the remaining elements
+     * of output up to 4 are set to 0.
+     * </p>
+     *
+     * @param output
+     *            receives the elements
+     * @param outputOffset
+     *            the first index written in output
+     * @param buffer
+     *            the source buffer
+     * @param offset
+     *            the byte offset of the attribute
+     * @param type
+     *            the attribute element type
+     * @param num
+     *            the number of elements, 1 to 4
+     * @param normalized
+     *            true if integer types are scaled back to the normalized range
+     * @param asInt
+     *            true if the attribute is passed as an integer
+     */
+    static void unpack(float[] output, int outputOffset, ByteBuffer buffer, int offset, AttribType type, int num,
+            boolean normalized, boolean asInt) {
+        for (int i = 0; i < 4; i++) {
+            float value = 0;
+
+            if (i < num) {
+                switch (type) {
+                case Uint8:
+                    value = fromUint8(buffer.get(offset + i), normalized, asInt);
+                    break;
+                case Int16:
+                    value = fromInt16(buffer.getShort(offset + i * 2), normalized, asInt);
+                    break;
+                case Half:
+                    value = halfToFloat(buffer.getShort(offset + i * 2));
+                    break;
+                case Float:
+                    value = buffer.getFloat(offset + i * 4);
+                    break;
+                default:
+                    throw new BGFXException("Unknown vertex attribute type: " + type);
+                }
+            }
+
+            output[outputOffset + i] = value;
+        }
+    }
+
+    static byte toUint8(float value, boolean normalized, boolean asInt) {
+        if (!normalized) {
+            return (byte) (int) value;
+        }
+
+        return (byte) (int) (asInt ? value * 127.0f + 128.0f : value * 255.0f);
+    }
+
+    static float fromUint8(byte value, boolean normalized, boolean asInt) {
+        int unsigned = value & 0xff;
+
+        if (!normalized) {
+            return unsigned;
+        }
+
+        return asInt ? (unsigned - 128.0f) * (1.0f / 127.0f) : unsigned * (1.0f / 255.0f);
+    }
+
+    static short toInt16(float value, boolean normalized, boolean asInt) {
+        if (!normalized) {
+            return (short) (int) value;
+        }
+
+        return (short) (int) (asInt ? value * 32767.0f : value * 65535.0f - 32768.0f);
+    }
+
+    static float fromInt16(short value, boolean normalized, boolean asInt) {
+        if (!normalized) {
+            return value;
+        }
+
+        return asInt ? value * (1.0f / 32767.0f) : (value + 32768.0f) * (1.0f / 65535.0f);
+    }
+
+    /**
+     * <p>
+     * Converts a float to an IEEE 754 half precision value, rounding to
+     * nearest even. Values too large for a half become infinity.
+     * </p>
+     *
+     * @param value
+     *            the float value
+     * @return the half value bits
+     */
+    static short halfFromFloat(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = (bits >>> 23) & 0xff;
+        int mantissa = bits & 0x7fffff;
+
+        // NaN and infinity
+        if (exponent == 0xff) {
+            return (short) (sign | 0x7c00 | (mantissa != 0 ? 0x200 : 0));
+        }
+
+        int halfExponent = exponent - 127 + 15;
+
+        // Overflow
+        if (halfExponent >= 0x1f) {
+            return (short) (sign | 0x7c00);
+        }
+
+        // Denormal or zero
+        if (halfExponent <= 0) {
+            if (halfExponent < -10) {
+                return (short) sign;
+            }
+
+            mantissa |= 0x800000;
+
+            int shift = 14 - halfExponent;
+            int half = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+                half++;
+            }
+
+            return (short) (sign | half);
+        }
+
+        int half = sign | (halfExponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1fff;
+
+        // Rounding may carry into the exponent, which is the correct result
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            half++;
+        }
+
+        return (short) half;
+    }
+
+    /**
+     * @param half
+     *            the half value bits
+     * @return the float value
+     */
+    static float halfToFloat(short half) {
+        int bits = half & 0xffff;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1f;
+        int mantissa = bits & 0x3ff;
+
+        if (exponent == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        }
+
+        if (exponent == 0) {
+            if (mantissa == 0) {
+                return Float.intBitsToFloat(sign);
+            }
+
+            // Denormal, normalize it
+            exponent = 1;
+            while ((mantissa & 0x400) == 0) {
+                mantissa <<= 1;
+                exponent--;
+            }
+            mantissa &= 0x3ff;
+        }
+
+        return Float.intBitsToFloat(sign | ((exponent + 127 - 15) << 23) | (mantissa << 13));
+    }
+
+}
@@ -0,0 +1,330 @@
+package twilight.bgfx;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Converts vertex data from one {@link VertexLayout} to another in Java.
+ * </p>
+ *
+ * <p>
+ * The conversion is planned once per pair of layouts. Attributes with the
+ * same type, element count and flags in both layouts are copied as raw
+ * bytes, attributes that differ are unpacked and packed again, and
+ * attributes missing from the source are cleared. When both layouts are
+ * identical the data is copied in a single bulk operation.
+ * </p>
+ *
+ * <p>
+ * A converter is immutable and doesn't touch the BGFX context, so it can be
+ * used from any thread. Large meshes can be split across a ForkJoinPool with
+ * {@link #convert(ByteBuffer, ByteBuffer, int, ForkJoinPool)}. Buffers are
+ * accessed with absolute reads and writes relative to their position, which
+ * is left unchanged.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class VertexConverter {
+
+    /** The minimum number of vertices converted by one parallel task. */
+    public static final int PARALLEL_THRESHOLD = 16 * 1024;
+
+    private static final int OP_COPY = 0;
+    private static final int OP_CONVERT = 1;
+    private static final int OP_CLEAR = 2;
+
+    /** The element size in bytes of each AttribType, without padding. */
+    private static final int[] ELEMENT_SIZE = { 1, 2, 2, 4 };
+
+    private final VertexLayout destLayout;
+    private final VertexLayout srcLayout;
+
+    private final int destStride;
+    private final int srcStride;
+
+    /** True if both layouts are identical, whole vertices are copied. */
+    private final boolean identical;
+
+    // The planned operations, one entry per destination attribute
+    private final int opCount;
+    private final int[] ops;
+    private final int[] destOffsets;
+    private final int[] srcOffsets;
+    private final int[] sizes;
+    private final Attrib[] attribs;
+
+    /**
+     * @param destLayout
+     *            the layout to convert to
+     * @param srcLayout
+     *            the layout to convert from
+     */
+    public VertexConverter(VertexLayout destLayout, VertexLayout srcLayout) {
+        this.destLayout = destLayout;
+        this.srcLayout = srcLayout;
+        this.destStride = destLayout.getStride();
+        this.srcStride = srcLayout.getStride();
+
+        int count = Attrib.Count.ordinal();
+
+        ops = new int[count];
+        destOffsets = new int[count];
+        srcOffsets = new int[count];
+        sizes = new int[count];
+        attribs = new Attrib[count];
+
+        boolean same = destStride == srcStride;
+        int num = 0;
+
+        for (Attrib attrib : Attrib.values()) {
+            if (attrib == Attrib.Count) {
+                continue;
+            }
+
+            boolean inDest = destLayout.has(attrib);
+            boolean inSrc = srcLayout.has(attrib);
+
+            if (inDest != inSrc) {
+                same = false;
+            }
+
+            if (!inDest) {
+                continue;
+            }
+
+            AttribType type = destLayout.getType(attrib);
+            int elements = destLayout.getNum(attrib);
+
+            attribs[num] = attrib;
+            destOffsets[num] = destLayout.getOffset(attrib);
+
+            if (!inSrc) {
+                ops[num] = OP_CLEAR;
+                sizes[num] = VertexLayout.getAttribSize(destLayout.getRendererType(), type, elements);
+            } else {
+                srcOffsets[num] = srcLayout.getOffset(attrib);
+
+                boolean compatible = type == srcLayout.getType(attrib) && elements == srcLayout.getNum(attrib)
+                        && destLayout.isNormalized(attrib) == srcLayout.isNormalized(attrib)
+                        && destLayout.isAsInt(attrib) == srcLayout.isAsInt(attrib);
+
+                ops[num] = compatible ? OP_COPY : OP_CONVERT;
+                sizes[num] = elements * ELEMENT_SIZE[type.ordinal()];
+
+                if (!compatible || destOffsets[num] != srcOffsets[num]) {
+                    same = false;
+                }
+            }
+
+            num++;
+        }
+
+        opCount = num;
+        identical = same;
+    }
+
+    /**
+     * @param destDecl
+     *            the declaration to convert to
+     * @param srcDecl
+     *            the declaration to convert from
+     */
+    public VertexConverter(VertexDecl destDecl, VertexDecl srcDecl) {
+        this(destDecl.getLayout(), srcDecl.getLayout());
+    }
+
+    /**
+     * @return the layout converted to
+     */
+    public VertexLayout getDestLayout() {
+        return destLayout;
+    }
+
+    /**
+     * @return the layout converted from
+     */
+    public VertexLayout getSrcLayout() {
+        return srcLayout;
+    }
+
+    /**
+     * <p>
+     * Converts num vertices on the calling thread.
+     * </p>
+     *
+     * @param dest
+     *            receives the converted vertices, starting at its position
+     * @param src
+     *            the source vertices, starting at its position
+     * @param num
+     *            the number of vertices
+     */
+    public void convert(ByteBuffer dest, ByteBuffer src, int num) {
+        checkBuffers(dest, src, num);
+
+        ByteBuffer destOrdered = dest.duplicate().order(ByteOrder.nativeOrder());
+        ByteBuffer srcOrdered = src.duplicate().order(ByteOrder.nativeOrder());
+
+        convertRange(destOrdered, dest.position(), srcOrdered, src.position(), 0, num, new float[4]);
+    }
+
+    /**
+     * <p>
+     * Converts num vertices, splitting the work across the supplied pool when
+     * the mesh is larger than {@link #PARALLEL_THRESHOLD}. The call blocks
+     * until the conversion is complete.
+     * </p>
+     *
+     * @param dest
+     *            receives the converted vertices, starting at its position
+     * @param src
+     *            the source vertices, starting at its position
+     * @param num
+     *            the number of vertices
+     * @param pool
+     *            the pool to run the conversion on
+     */
+    public void convert(ByteBuffer dest, ByteBuffer src, int num, ForkJoinPool pool) {
+        if (num <= PARALLEL_THRESHOLD) {
+            convert(dest, src, num);
+            return;
+        }
+
+        checkBuffers(dest, src, num);
+
+        ByteBuffer destOrdered = dest.duplicate().order(ByteOrder.nativeOrder());
+        ByteBuffer srcOrdered = src.duplicate().order(ByteOrder.nativeOrder());
+
+        pool.invoke(new ConvertTask(destOrdered, dest.position(), srcOrdered, src.position(), 0, num));
+    }
+
+    private void checkBuffers(ByteBuffer dest, ByteBuffer src, int num) {
+        if (dest == null || src == null) {
+            throw new NullPointerException(Messages.getString("BGFX.NullByteBuffer")); //$NON-NLS-1$
+        }
+
+        if (dest.remaining() < (long) num * destStride || src.remaining() < (long) num * srcStride) {
+            throw new BGFXException("Vertex buffers are too small to convert " + num + " vertices.");
+        }
+    }
+
+    /**
+     * <p>
+     * Converts the vertices first to last, the buffers must not be shared
+     * with another thread unless the ranges don't overlap.
+     * </p>
+     */
+    private void convertRange(ByteBuffer dest, int destBase, ByteBuffer src, int srcBase, int first, int last,
+            float[] scratch) {
+        if (identical) {
+            copyBytes(dest, destBase + first * destStride, src, srcBase + first * srcStride,
+                    (last - first) * destStride);
+            return;
+        }
+
+        for (int vertex = first; vertex < last; vertex++) {
+            int destVertex = destBase + vertex * destStride;
+            int srcVertex = srcBase + vertex * srcStride;
+
+            for (int i = 0; i < opCount; i++) {
+                int destAt = destVertex + destOffsets[i];
+
+                switch (ops[i]) {
+                case OP_COPY:
+                    copyBytes(dest, destAt, src, srcVertex + srcOffsets[i], sizes[i]);
+                    break;
+                case OP_CONVERT: {
+                    Attrib attrib = attribs[i];
+
+                    VertexCodec.unpack(scratch, 0, src, srcVertex + srcOffsets[i], srcLayout.getType(attrib),
+                            srcLayout.getNum(attrib), srcLayout.isNormalized(attrib), srcLayout.isAsInt(attrib));
+                    VertexCodec.pack(dest, destAt, destLayout.getType(attrib), destLayout.getNum(attrib),
+                            destLayout.isNormalized(attrib), destLayout.isAsInt(attrib), scratch[0], scratch[1],
+                            scratch[2], scratch[3]);
+                    break;
+                }
+                default:
+                    clearBytes(dest, destAt, sizes[i]);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Copies bytes with absolute access, four bytes at a time where possible.
+     * </p>
+     */
+    private static void copyBytes(ByteBuffer dest, int destAt, ByteBuffer src, int srcAt, int size) {
+        int i = 0;
+
+        for (; i + 8 <= size; i += 8) {
+            dest.putLong(destAt + i, src.getLong(srcAt + i));
+        }
+
+        for (; i + 4 <= size; i += 4) {
+            dest.putInt(destAt + i, src.getInt(srcAt + i));
+        }
+
+        for (; i < size; i++) {
+            dest.put(destAt + i, src.get(srcAt + i));
+        }
+    }
+
+    private static void clearBytes(ByteBuffer dest, int destAt, int size) {
+        int i = 0;
+
+        for (; i + 4 <= size; i += 4) {
+            dest.putInt(destAt + i, 0);
+        }
+
+        for (; i < size; i++) {
+            dest.put(destAt + i, (byte) 0);
+        }
+    }
+
+    /**
+     * Splits a conversion in halves until it is below the threshold.
+     */
+    private final class ConvertTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer dest;
+        private final int destBase;
+        private final ByteBuffer src;
+        private final int srcBase;
+        private final int first;
+        private final int last;
+
+        ConvertTask(ByteBuffer dest, int destBase, ByteBuffer src, int srcBase, int first, int last) {
+            this.dest = dest;
+            this.destBase = destBase;
+            this.src = src;
+            this.srcBase = srcBase;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first <= PARALLEL_THRESHOLD) {
+                convertRange(dest, destBase, src, srcBase, first, last, new float[4]);
+                return;
+            }
+
+            int middle = (first + last) >>> 1;
+
+            invokeAll(new ConvertTask(dest, destBase, src, srcBase, first, middle),
+                    new ConvertTask(dest, destBase, src, srcBase, middle, last));
+        }
+
+    }
+
+}
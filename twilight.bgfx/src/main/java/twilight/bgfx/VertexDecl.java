@@ -1,6 +1,17 @@
 package twilight.bgfx;
 
 /**
+ * <p>
+ * Describes the layout of a vertex. Start a declaration with
+ * {@link #begin(RendererType)}, add the attributes and finish it with
+ * {@link #end()}.
+ * </p>
+ *
+ * <p>
+ * The layout is mirrored in Java while it is built, and {@link #end()}
+ * produces an immutable {@link VertexLayout}. Stride, offset and attribute
+ * queries read from that layout, so they don't call into native code.
+ * </p>
  * 
  * @author tmccrary
  *
@@ -16,6 +27,30 @@ public class VertexDecl {
     /** */
     private boolean valid;
 
+    /** The renderer the declaration was started with. */
+    private RendererType rendererType;
+
+    /** The current stride while the declaration is being built. */
+    private int buildStride;
+
+    /** Attribute offsets while the declaration is being built. */
+    private final int[] buildOffsets = new int[Attrib.Count.ordinal()];
+
+    /** Attribute element counts while the declaration is being built. */
+    private final int[] buildNums = new int[Attrib.Count.ordinal()];
+
+    /** Attribute types while the declaration is being built. */
+    private final AttribType[] buildTypes = new AttribType[Attrib.Count.ordinal()];
+
+    /** Attribute normalization while the declaration is being built. */
+    private final boolean[] buildNormalized = new boolean[Attrib.Count.ordinal()];
+
+    /** Attribute integer flags while the declaration is being built. */
+    private final boolean[] buildAsInt = new boolean[Attrib.Count.ordinal()];
+
+    /** The finished layout, null until end is called. */
+    private VertexLayout layout;
+
     private VertexDecl() {
         valid = false;
         buildActive = false;
@@ -48,6 +83,19 @@ public class VertexDecl {
         }
     }
 
+    /**
+     * 
+     */
+    private VertexLayout checkLayout() {
+        VertexLayout result = layout;
+
+        if (result == null) {
+            throw new BGFXException("Vertex declaration layout is not available until VertexDecl#end has been called.");
+        }
+
+        return result;
+    }
+
     /**
      * 
      * @return
@@ -73,7 +121,9 @@ public class VertexDecl {
     private void intBegin(RendererType _renderer) {
         checkDeclBegin();
 
-        vertexDeclPtr = this.nbegin(_renderer);
+        rendererType = _renderer;
+
+        vertexDeclPtr = this.nbegin(_renderer.ordinal());
         buildActive = true;
     }
 
@@ -81,24 +131,53 @@ public class VertexDecl {
         checkDecl();
 
         this.nend();
+
+        layout = new VertexLayout(rendererType, buildStride, buildOffsets, buildNums, buildTypes, buildNormalized,
+                buildAsInt);
+
         buildActive = false;
         valid = true;
     }
 
+    /**
+     * <p>
+     * Returns the immutable layout computed by {@link #end()}.
+     * </p>
+     * 
+     * @return the vertex layout
+     */
+    public VertexLayout getLayout() {
+        return checkLayout();
+    }
+
     public void destroy() {
         ndestroy();
     }
 
     private native void ndestroy();
 
-    private native long nbegin(RendererType type);
+    private native long nbegin(int type);
 
     private native void nend();
 
     public void add(Attrib _attrib, int elements, AttribType _type, boolean _normalized, boolean _asInt) {
         checkDecl();
 
-        this.nAdd(_attrib.ordinal(), (short) elements, _type.ordinal(), _normalized, _asInt);
+        if (elements < 1 || elements > 4) {
+            throw new BGFXException("Vertex attributes must have between 1 and 4 elements: " + elements);
+        }
+
+        int index = _attrib.ordinal();
+
+        buildOffsets[index] = buildStride;
+        buildNums[index] = elements;
+        buildTypes[index] = _type;
+        buildNormalized[index] = _normalized;
+        buildAsInt[index] = _asInt;
+
+        buildStride += VertexLayout.getAttribSize(rendererType, _type, elements);
+
+        this.nAdd(index, (short) elements, _type.ordinal(), _normalized, _asInt);
     }
 
     private native void nAdd(int _attrib, short _num, int _type, boolean _normalized, boolean _asInt);
@@ -106,6 +185,8 @@ public class VertexDecl {
     void skip(short _num) {
         checkDecl();
 
+        buildStride += _num;
+
         this.nSkip(_num);
     }
 
@@ -120,35 +201,19 @@ public class VertexDecl {
     private native void nDecode(Attrib _attrib, short _num, AttribType _type, boolean _normalized, boolean _asInt);
 
     public boolean has(Attrib _attrib) {
-        checkDecl();
-
-        return nHas(_attrib);
+        return checkLayout().has(_attrib);
     }
 
-    private native boolean nHas(Attrib attrib);
-
     public int getOffset(Attrib _attrib) {
-        checkDecl();
-
-        return ngetOffset(_attrib);
+        return checkLayout().getOffset(_attrib);
     }
 
-    private native int ngetOffset(Attrib attrib);
-
-    int getStride() {
-        checkDecl();
-
-        return ngetStride();
+    public int getStride() {
+        return checkLayout().getStride();
     }
 
-    private native int ngetStride();
-
-    long getSize(long _num) {
-        checkDecl();
-
-        return ngetSize(_num);
+    public long getSize(long _num) {
+        return checkLayout().getSize(_num);
     }
 
-    private native long ngetSize(long num);
-
 }
@@ -0,0 +1,204 @@
+package twilight.bgfx;
+
+/**
+ * <p>
+ * The immutable layout of a vertex declaration, computed in Java when
+ * {@link VertexDecl#end()} is called.
+ * </p>
+ *
+ * <p>
+ * The stride and attribute offsets follow the same per renderer rules as the
+ * native BGFX vertex declaration, so they match the data expected by the
+ * native side. All queries are plain field reads, and since the layout can't
+ * be changed it can be shared freely between threads.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class VertexLayout {
+
+    /** Attribute sizes in bytes for Direct3D 9, indexed by [type][num - 1]. */
+    private static final int[][] SIZE_DX9 = {
+            { 4, 4, 4, 4 }, // Uint8
+            { 4, 4, 8, 8 }, // Int16
+            { 4, 4, 8, 8 }, // Half
+            { 4, 8, 12, 16 }, // Float
+    };
+
+    /** Attribute sizes in bytes for Direct3D 11 and 12. */
+    private static final int[][] SIZE_DX1X = {
+            { 1, 2, 4, 4 }, // Uint8
+            { 2, 4, 8, 8 }, // Int16
+            { 2, 4, 8, 8 }, // Half
+            { 4, 8, 12, 16 }, // Float
+    };
+
+    /** Attribute sizes in bytes for OpenGL, OpenGL ES and Vulkan. */
+    private static final int[][] SIZE_GL = {
+            { 1, 2, 4, 4 }, // Uint8
+            { 2, 4, 6, 8 }, // Int16
+            { 2, 4, 6, 8 }, // Half
+            { 4, 8, 12, 16 }, // Float
+    };
+
+    /** The renderer the layout was computed for. */
+    private final RendererType rendererType;
+
+    /** The size of a single vertex in bytes. */
+    private final int stride;
+
+    /** The byte offset of every attribute, indexed by Attrib ordinal. */
+    private final int[] offsets;
+
+    /** The number of elements of every attribute, 0 if it isn't present. */
+    private final int[] nums;
+
+    /** The element type of every attribute, null if it isn't present. */
+    private final AttribType[] types;
+
+    /** Whether the attribute is normalized. */
+    private final boolean[] normalized;
+
+    /** Whether the attribute is passed to the shader as an integer. */
+    private final boolean[] asInt;
+
+    VertexLayout(RendererType rendererType, int stride, int[] offsets, int[] nums, AttribType[] types,
+            boolean[] normalized, boolean[] asInt) {
+        this.rendererType = rendererType;
+        this.stride = stride;
+        this.offsets = offsets.clone();
+        this.nums = nums.clone();
+        this.types = types.clone();
+        this.normalized = normalized.clone();
+        this.asInt = asInt.clone();
+    }
+
+    /**
+     * <p>
+     * Returns the size in bytes of an attribute, using the same padding rules
+     * as the native vertex declaration for the supplied renderer.
+     * </p>
+     *
+     * @param renderer
+     *            the renderer type the declaration was started with
+     * @param type
+     *            the element type
+     * @param num
+     *            the number of elements, 1 to 4
+     * @return the size of the attribute in bytes
+     */
+    static int getAttribSize(RendererType renderer, AttribType type, int num) {
+        int[][] table;
+
+        switch (renderer) {
+        case Direct3D11:
+        case Direct3D12:
+            table = SIZE_DX1X;
+            break;
+        case OpenGLES:
+        case OpenGL:
+        case Vulkan:
+            table = SIZE_GL;
+            break;
+        default:
+            table = SIZE_DX9;
+            break;
+        }
+
+        return table[type.ordinal()][num - 1];
+    }
+
+    /**
+     * @return the renderer type the layout was computed for
+     */
+    public RendererType getRendererType() {
+        return rendererType;
+    }
+
+    /**
+     * @return the size of a single vertex in bytes
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * @param num
+     *            the number of vertices
+     * @return the size in bytes of num vertices
+     */
+    public long getSize(long num) {
+        return num * stride;
+    }
+
+    /**
+     * @param attrib
+     *            the attribute
+     * @return true if the attribute is part of the layout
+     */
+    public boolean has(Attrib attrib) {
+        return types[attrib.ordinal()] != null;
+    }
+
+    /**
+     * @param attrib
+     *            the attribute
+     * @return the byte offset of the attribute within a vertex, 0 if the
+     *         attribute isn't part of the layout
+     */
+    public int getOffset(Attrib attrib) {
+        return offsets[attrib.ordinal()];
+    }
+
+    /**
+     * @param attrib
+     *            the attribute
+     * @return the number of elements of the attribute, 0 if the attribute
+     *         isn't part of the layout
+     */
+    public int getNum(Attrib attrib) {
+        return nums[attrib.ordinal()];
+    }
+
+    /**
+     * @param attrib
+     *            the attribute
+     * @return the size of the attribute in bytes including padding, 0 if the
+     *         attribute isn't part of the layout
+     */
+    public int getAttribSize(Attrib attrib) {
+        AttribType type = types[attrib.ordinal()];
+
+        return type == null ? 0 : getAttribSize(rendererType, type, nums[attrib.ordinal()]);
+    }
+
+    /**
+     * @param attrib
+     *            the attribute
+     * @return the element type of the attribute, null if the attribute isn't
+     *         part of the layout
+     */
+    public AttribType getType(Attrib attrib) {
+        return types[attrib.ordinal()];
+    }
+
+    /**
+     * @param attrib
+     *            the attribute
+     * @return true if the attribute values are normalized
+     */
+    public boolean isNormalized(Attrib attrib) {
+        return normalized[attrib.ordinal()];
+    }
+
+    /**
+     * @param attrib
+     *            the attribute
+     * @return true if the attribute is passed to the shader as an integer
+     */
+    public boolean isAsInt(Attrib attrib) {
+        return asInt[attrib.ordinal()];
+    }
+
+}
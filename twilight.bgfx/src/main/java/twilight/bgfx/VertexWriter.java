@@ -0,0 +1,382 @@
+package twilight.bgfx;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * Writes vertices directly into a ByteBuffer using the attribute types of a
+ * vertex declaration, so packed types such as Uint8 colors or normalized
+ * Int16 texture coordinates can be written without building float arrays
+ * first.
+ * </p>
+ *
+ * <p>
+ * Bind a target buffer with {@link #begin(ByteBuffer)}, write the attributes
+ * of a vertex and call {@link #next()} to move to the following vertex. The
+ * first vertex is written at the position of the buffer, and {@link #end()}
+ * moves the position past the last completed vertex. Values for normalized
+ * attributes are expected in the normalized range and are scaled to the
+ * declared type, the same as bgfx::vertexPack with input normalization.
+ * Attributes that are not part of the declaration are ignored.
+ * </p>
+ *
+ * <p>
+ * A writer does not allocate once it has been created and can be reused for
+ * any number of buffers, but it is not thread safe.
+ * </p>
+ *
+ * <pre>
+ * writer.begin(transientBuffer.getData());
+ * writer.position(0, 0, 0).color(0xff0000ff).texCoord(0, 0).next();
+ * writer.position(1, 0, 0).color(0xff00ff00).texCoord(1, 0).next();
+ * writer.end();
+ * </pre>
+ *
+ * @author tmccrary
+ *
+ */
+public final class VertexWriter {
+
+    /** The layout written by this writer. */
+    private final VertexLayout layout;
+
+    /** The vertex stride in bytes. */
+    private final int stride;
+
+    /** Attribute offsets, -1 for attributes that aren't declared. */
+    private final int[] offsets = new int[Attrib.Count.ordinal()];
+
+    /** Attribute element counts. */
+    private final int[] nums = new int[Attrib.Count.ordinal()];
+
+    /** Attribute types. */
+    private final AttribType[] types = new AttribType[Attrib.Count.ordinal()];
+
+    /** Attribute normalization. */
+    private final boolean[] normalized = new boolean[Attrib.Count.ordinal()];
+
+    /** Attribute integer flags. */
+    private final boolean[] asInt = new boolean[Attrib.Count.ordinal()];
+
+    /** The bound target buffer. */
+    private ByteBuffer buffer;
+
+    /** The byte offset of the first vertex. */
+    private int start;
+
+    /** The byte offset of the current vertex. */
+    private int vertexOffset;
+
+    /** The number of completed vertices. */
+    private int count;
+
+    /**
+     * @param decl
+     *            a vertex declaration, VertexDecl#end must have been called
+     */
+    public VertexWriter(VertexDecl decl) {
+        this(decl.getLayout());
+    }
+
+    /**
+     * @param layout
+     *            the vertex layout to write
+     */
+    public VertexWriter(VertexLayout layout) {
+        this.layout = layout;
+        this.stride = layout.getStride();
+
+        for (Attrib attrib : Attrib.values()) {
+            if (attrib == Attrib.Count) {
+                continue;
+            }
+
+            int index = attrib.ordinal();
+
+            if (layout.has(attrib)) {
+                offsets[index] = layout.getOffset(attrib);
+                nums[index] = layout.getNum(attrib);
+                types[index] = layout.getType(attrib);
+                normalized[index] = layout.isNormalized(attrib);
+                asInt[index] = layout.isAsInt(attrib);
+            } else {
+                offsets[index] = -1;
+            }
+        }
+    }
+
+    /**
+     * @return the layout written by this writer
+     */
+    public VertexLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * <p>
+     * Binds a target buffer, the first vertex is written at its current
+     * position. The byte order of the buffer is set to the native order.
+     * </p>
+     *
+     * @param target
+     *            the buffer to write to
+     * @return this writer
+     */
+    public VertexWriter begin(ByteBuffer target) {
+        if (target == null) {
+            throw new NullPointerException(Messages.getString("BGFX.NullByteBuffer")); //$NON-NLS-1$
+        }
+
+        buffer = target.order(ByteOrder.nativeOrder());
+        start = target.position();
+        vertexOffset = start;
+        count = 0;
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Moves to the vertex with the supplied index relative to the start of
+     * the bound buffer, for example to rewrite a vertex.
+     * </p>
+     *
+     * @param index
+     *            the vertex index
+     * @return this writer
+     */
+    public VertexWriter vertex(int index) {
+        checkBound();
+
+        vertexOffset = start + index * stride;
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Completes the current vertex and moves to the next one.
+     * </p>
+     *
+     * @return this writer
+     */
+    public VertexWriter next() {
+        checkBound();
+
+        vertexOffset += stride;
+        count = Math.max(count, (vertexOffset - start) / stride);
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Moves the position of the bound buffer past the last completed vertex
+     * and releases it.
+     * </p>
+     *
+     * @return the number of vertices written
+     */
+    public int end() {
+        checkBound();
+
+        buffer.position(start + count * stride);
+        buffer = null;
+
+        return count;
+    }
+
+    /**
+     * @return the number of completed vertices
+     */
+    public int getVertexCount() {
+        return count;
+    }
+
+    /**
+     * @param x
+     *            position x
+     * @param y
+     *            position y
+     * @param z
+     *            position z
+     * @return this writer
+     */
+    public VertexWriter position(float x, float y, float z) {
+        return attrib(Attrib.Position, x, y, z, 1.0f);
+    }
+
+    /**
+     * @param x
+     *            position x
+     * @param y
+     *            position y
+     * @return this writer
+     */
+    public VertexWriter position(float x, float y) {
+        return attrib(Attrib.Position, x, y, 0.0f, 1.0f);
+    }
+
+    /**
+     * @param x
+     *            normal x
+     * @param y
+     *            normal y
+     * @param z
+     *            normal z
+     * @return this writer
+     */
+    public VertexWriter normal(float x, float y, float z) {
+        return attrib(Attrib.Normal, x, y, z, 0.0f);
+    }
+
+    /**
+     * <p>
+     * Writes Color0 from a packed color with red in the lowest byte, the
+     * layout of a bgfx ABGR color.
+     * </p>
+     *
+     * @param abgr
+     *            the packed color
+     * @return this writer
+     */
+    public VertexWriter color(int abgr) {
+        return color(Attrib.Color0, abgr);
+    }
+
+    /**
+     * @param r
+     *            red, 0 to 1
+     * @param g
+     *            green, 0 to 1
+     * @param b
+     *            blue, 0 to 1
+     * @param a
+     *            alpha, 0 to 1
+     * @return this writer
+     */
+    public VertexWriter color(float r, float g, float b, float a) {
+        return attrib(Attrib.Color0, r, g, b, a);
+    }
+
+    /**
+     * <p>
+     * Writes a color attribute from a packed color with red in the lowest
+     * byte. The bytes are copied without conversion to Uint8 colors whether
+     * or not they are normalized, other types receive the bytes scaled to 0
+     * to 1.
+     * </p>
+     *
+     * @param attrib
+     *            the color attribute
+     * @param abgr
+     *            the packed color
+     * @return this writer
+     */
+    public VertexWriter color(Attrib attrib, int abgr) {
+        int index = attrib.ordinal();
+        int offset = offsets[index];
+
+        if (offset < 0) {
+            return this;
+        }
+
+        if (types[index] == AttribType.Uint8) {
+            int at = vertexOffset + offset;
+            int num = nums[index];
+
+            buffer.put(at, (byte) abgr);
+            if (num > 1) {
+                buffer.put(at + 1, (byte) (abgr >>> 8));
+            }
+            if (num > 2) {
+                buffer.put(at + 2, (byte) (abgr >>> 16));
+            }
+            if (num > 3) {
+                buffer.put(at + 3, (byte) (abgr >>> 24));
+            }
+
+            return this;
+        }
+
+        float scale = 1.0f / 255.0f;
+
+        return attrib(attrib, (abgr & 0xff) * scale, ((abgr >>> 8) & 0xff) * scale, ((abgr >>> 16) & 0xff) * scale,
+                (abgr >>> 24) * scale);
+    }
+
+    /**
+     * @param u
+     *            texture coordinate u
+     * @param v
+     *            texture coordinate v
+     * @return this writer
+     */
+    public VertexWriter texCoord(float u, float v) {
+        return attrib(Attrib.TexCoord0, u, v, 0.0f, 0.0f);
+    }
+
+    /**
+     * @param attrib
+     *            the texture coordinate attribute
+     * @param u
+     *            texture coordinate u
+     * @param v
+     *            texture coordinate v
+     * @return this writer
+     */
+    public VertexWriter texCoord(Attrib attrib, float u, float v) {
+        return attrib(attrib, u, v, 0.0f, 0.0f);
+    }
+
+    /**
+     * @param attrib
+     *            the attribute
+     * @param x
+     *            the first element
+     * @return this writer
+     */
+    public VertexWriter attrib(Attrib attrib, float x) {
+        return attrib(attrib, x, 0.0f, 0.0f, 0.0f);
+    }
+
+    /**
+     * <p>
+     * Writes an attribute of the current vertex, only the declared number of
+     * elements are written.
+     * </p>
+     *
+     * @param attrib
+     *            the attribute
+     * @param x
+     *            the first element
+     * @param y
+     *            the second element
+     * @param z
+     *            the third element
+     * @param w
+     *            the fourth element
+     * @return this writer
+     */
+    public VertexWriter attrib(Attrib attrib, float x, float y, float z, float w) {
+        int index = attrib.ordinal();
+        int offset = offsets[index];
+
+        if (offset < 0) {
+            return this;
+        }
+
+        VertexCodec.pack(buffer, vertexOffset + offset, types[index], nums[index], normalized[index], asInt[index], x,
+                y, z, w);
+
+        return this;
+    }
+
+    private void checkBound() {
+        if (buffer == null) {
+            throw new BGFXException("VertexWriter#begin must be called before writing vertices.");
+        }
+    }
+
+}
@@ -1,5 +1,21 @@
 package twilight.bgfx.buffers;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * An instance data buffer, valid until the next frame.
+ * </p>
+ *
+ * <p>
+ * Per instance data such as transforms is written into {@link #getData()}
+ * before the buffer is passed to BGFX.setInstanceDataBuffer.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
 public class InstanceDataBuffer {
     long data;
     long size;
@@ -9,4 +25,40 @@ public class InstanceDataBuffer {
     int handleId;
 
     public long pointer;
+
+    /**
+     * @return the size of the allocation in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the stride between instances in bytes
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * @return the number of instances allocated
+     */
+    public int getNum() {
+        return num;
+    }
+
+    /**
+     * <p>
+     * Returns the instance data of the allocation, one stride sized block per
+     * instance.
+     * </p>
+     *
+     * @return the instance data in native byte order
+     */
+    public ByteBuffer getData() {
+        return nGetData().order(ByteOrder.nativeOrder());
+    }
+
+    private native ByteBuffer nGetData();
+
 }
@@ -0,0 +1,289 @@
+package twilight.bgfx.buffers;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+
+/**
+ * <p>
+ * Common implementation of the streaming vertex and index buffers.
+ * </p>
+ *
+ * <p>
+ * The contents are kept in a direct shadow buffer in Java and mirrored into
+ * a ring of dynamic buffers, one per frame in flight. Every write marks an
+ * element range dirty in all ring slots, and {@link #flush()} moves to the
+ * next slot and uploads what that slot has missed since it was last used,
+ * so the buffer being drawn by the renderer is never updated.
+ * </p>
+ *
+ * <p>
+ * bgfx can only update a dynamic buffer from its start, so an upload covers
+ * the bytes from the start of the buffer to the end of the highest dirty
+ * element. Keep frequently rewritten elements at the front of the buffer.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+abstract class StreamingBuffer {
+
+    /** The context the dynamic buffers belong to. */
+    protected final BGFX bgfx;
+
+    /** The size of one element in bytes. */
+    private final int stride;
+
+    /** The number of dynamic buffers in the ring. */
+    private final int ringSize;
+
+    /** The number of bytes each ring slot is missing, from the start. */
+    private final int[] dirtyEnds;
+
+    /** The contents of the buffer. */
+    private ByteBuffer shadow;
+
+    /** The capacity in elements. */
+    private int capacity;
+
+    /** The number of elements in use. */
+    private int count;
+
+    /** The slot used for drawing. */
+    private int current;
+
+    private int lastUploadSize;
+    private long uploadedBytes;
+
+    StreamingBuffer(BGFX bgfx, int stride, int capacity, int ringSize) {
+        if (ringSize < 1) {
+            throw new BGFXException("Streaming buffers need at least one ring slot: " + ringSize);
+        }
+
+        this.bgfx = bgfx;
+        this.stride = stride;
+        this.ringSize = ringSize;
+        this.dirtyEnds = new int[ringSize];
+        this.capacity = Math.max(capacity, 1);
+        this.current = ringSize - 1;
+
+        shadow = ByteBuffer.allocateDirect(this.capacity * stride).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * <p>
+     * Creates the dynamic buffers, called by subclass constructors once
+     * their fields are set.
+     * </p>
+     */
+    final void createSlots() {
+        for (int i = 0; i < ringSize; i++) {
+            createSlot(i, capacity);
+        }
+    }
+
+    abstract void createSlot(int slot, int capacity);
+
+    abstract void destroySlot(int slot);
+
+    abstract void uploadSlot(int slot, ByteBuffer data);
+
+    /**
+     * @return the slot used for drawing
+     */
+    final int getCurrentSlot() {
+        return current;
+    }
+
+    /**
+     * <p>
+     * Returns the contents of the buffer in native byte order. Elements
+     * written directly must be marked with {@link #markDirty(int, int)}. The
+     * returned buffer is replaced when the capacity grows.
+     * </p>
+     *
+     * @return the shadow copy of the buffer
+     */
+    public ByteBuffer getData() {
+        return shadow;
+    }
+
+    /**
+     * <p>
+     * Copies the remaining bytes of src to the buffer, starting at the
+     * supplied element. The buffer grows if needed.
+     * </p>
+     *
+     * @param start
+     *            the first element to write
+     * @param src
+     *            the data, a whole number of elements
+     */
+    public void update(int start, ByteBuffer src) {
+        int num = src.remaining() / stride;
+
+        ensureCapacity(start + num);
+
+        ByteBuffer target = shadow.duplicate();
+        target.position(start * stride);
+        target.put(src);
+
+        markDirty(start, num);
+    }
+
+    /**
+     * <p>
+     * Marks elements written through {@link #getData()} for upload and
+     * extends the element count to cover them.
+     * </p>
+     *
+     * @param start
+     *            the first element written
+     * @param num
+     *            the number of elements written
+     */
+    public void markDirty(int start, int num) {
+        int end = start + num;
+
+        if (end > capacity) {
+            throw new IndexOutOfBoundsException("End: " + end + ", Capacity: " + capacity);
+        }
+
+        count = Math.max(count, end);
+
+        int bytes = end * stride;
+
+        for (int i = 0; i < ringSize; i++) {
+            dirtyEnds[i] = Math.max(dirtyEnds[i], bytes);
+        }
+    }
+
+    /**
+     * <p>
+     * Grows the buffer to hold at least num elements. The contents are kept
+     * and uploaded again to every ring slot.
+     * </p>
+     *
+     * @param num
+     *            the required number of elements
+     */
+    public void ensureCapacity(int num) {
+        if (num <= capacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(num, capacity * 2);
+
+        ByteBuffer grown = ByteBuffer.allocateDirect(newCapacity * stride).order(ByteOrder.nativeOrder());
+
+        ByteBuffer old = shadow.duplicate();
+        old.clear();
+        grown.put(old);
+        grown.clear();
+
+        // bgfx defers destruction until the renderer is done with the buffers
+        for (int i = 0; i < ringSize; i++) {
+            destroySlot(i);
+            createSlot(i, newCapacity);
+            dirtyEnds[i] = count * stride;
+        }
+
+        shadow = grown;
+        capacity = newCapacity;
+    }
+
+    /**
+     * <p>
+     * Sets the number of elements in use, for example to drop particles that
+     * died. Elements past the count are kept but not drawn.
+     * </p>
+     *
+     * @param count
+     *            the number of elements to draw
+     */
+    public void setCount(int count) {
+        if (count < 0 || count > capacity) {
+            throw new IndexOutOfBoundsException("Count: " + count + ", Capacity: " + capacity);
+        }
+
+        this.count = count;
+    }
+
+    /**
+     * @return the number of elements in use
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the capacity in elements
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of dynamic buffers in the ring
+     */
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    /**
+     * <p>
+     * Moves to the next ring slot and uploads the changes that slot is
+     * missing. Call once per frame after writing and before drawing.
+     * </p>
+     *
+     * @return the number of bytes uploaded
+     */
+    public int flush() {
+        current = (current + 1) % ringSize;
+
+        int bytes = dirtyEnds[current];
+
+        if (bytes > 0) {
+            ByteBuffer range = shadow.duplicate();
+            range.clear();
+            range.limit(bytes);
+
+            uploadSlot(current, range.slice());
+
+            dirtyEnds[current] = 0;
+            uploadedBytes += bytes;
+        }
+
+        lastUploadSize = bytes;
+
+        return bytes;
+    }
+
+    /**
+     * @return the number of bytes uploaded by the last flush
+     */
+    public int getLastUploadSize() {
+        return lastUploadSize;
+    }
+
+    /**
+     * @return the number of bytes uploaded since the buffer was created
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    /**
+     * <p>
+     * Destroys the dynamic buffers of the ring.
+     * </p>
+     */
+    public void destroy() {
+        for (int i = 0; i < ringSize; i++) {
+            destroySlot(i);
+        }
+    }
+
+}
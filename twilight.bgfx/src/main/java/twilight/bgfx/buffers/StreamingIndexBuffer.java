@@ -0,0 +1,85 @@
+package twilight.bgfx.buffers;
+
+import java.nio.ByteBuffer;
+
+import twilight.bgfx.BGFX;
+
+/**
+ * <p>
+ * A 16 bit index buffer for data that changes every frame, backed by a ring
+ * of {@link DynamicIndexBuffer}s.
+ * </p>
+ *
+ * <p>
+ * Works like {@link StreamingVertexBuffer}, with elements of one index each.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public class StreamingIndexBuffer extends StreamingBuffer {
+
+    /** The default number of dynamic buffers, one per frame in flight. */
+    public static final int DEFAULT_RING_SIZE = 2;
+
+    private final DynamicIndexBuffer[] slots;
+
+    /**
+     * @param bgfx
+     *            the context to create the buffers in
+     * @param numIndices
+     *            the initial capacity in indices
+     */
+    public StreamingIndexBuffer(BGFX bgfx, int numIndices) {
+        this(bgfx, numIndices, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * @param bgfx
+     *            the context to create the buffers in
+     * @param numIndices
+     *            the initial capacity in indices
+     * @param ringSize
+     *            the number of dynamic buffers to rotate through
+     */
+    public StreamingIndexBuffer(BGFX bgfx, int numIndices, int ringSize) {
+        super(bgfx, 2, numIndices, ringSize);
+
+        this.slots = new DynamicIndexBuffer[ringSize];
+
+        createSlots();
+    }
+
+    /**
+     * @return the dynamic index buffer updated by the last flush
+     */
+    public DynamicIndexBuffer getBuffer() {
+        return slots[getCurrentSlot()];
+    }
+
+    /**
+     * <p>
+     * Sets the buffer updated by the last flush as the index buffer of the
+     * next draw, with all indices in use.
+     * </p>
+     */
+    public void bind() {
+        bgfx.setIndexBuffer(getBuffer(), 0, getCount());
+    }
+
+    @Override
+    void createSlot(int slot, int capacity) {
+        slots[slot] = bgfx.createDynamicIndexBuffer(capacity);
+    }
+
+    @Override
+    void destroySlot(int slot) {
+        bgfx.destroyDynamicIndexBuffer(slots[slot]);
+    }
+
+    @Override
+    void uploadSlot(int slot, ByteBuffer data) {
+        bgfx.updateDynamicIndexBuffer(slots[slot], data);
+    }
+
+}
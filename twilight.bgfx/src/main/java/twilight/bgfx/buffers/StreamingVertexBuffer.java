@@ -0,0 +1,104 @@
+package twilight.bgfx.buffers;
+
+import java.nio.ByteBuffer;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.VertexDecl;
+
+/**
+ * <p>
+ * A vertex buffer for data that changes every frame, such as particles or
+ * chart series, backed by a ring of {@link DynamicVertexBuffer}s.
+ * </p>
+ *
+ * <p>
+ * Write vertices with {@link #update(int, ByteBuffer)}, or directly into
+ * {@link #getData()} followed by {@link #markDirty(int, int)}, then call
+ * {@link #flush()} once per frame and {@link #bind()} for every draw. Only
+ * the vertices up to the highest changed vertex are uploaded, and the buffer
+ * grows automatically when vertices are written past its capacity.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public class StreamingVertexBuffer extends StreamingBuffer {
+
+    /** The default number of dynamic buffers, one per frame in flight. */
+    public static final int DEFAULT_RING_SIZE = 2;
+
+    private final VertexDecl decl;
+
+    private final DynamicVertexBuffer[] slots;
+
+    /**
+     * @param bgfx
+     *            the context to create the buffers in
+     * @param decl
+     *            the vertex declaration
+     * @param numVertices
+     *            the initial capacity in vertices
+     */
+    public StreamingVertexBuffer(BGFX bgfx, VertexDecl decl, int numVertices) {
+        this(bgfx, decl, numVertices, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * @param bgfx
+     *            the context to create the buffers in
+     * @param decl
+     *            the vertex declaration
+     * @param numVertices
+     *            the initial capacity in vertices
+     * @param ringSize
+     *            the number of dynamic buffers to rotate through
+     */
+    public StreamingVertexBuffer(BGFX bgfx, VertexDecl decl, int numVertices, int ringSize) {
+        super(bgfx, decl.getStride(), numVertices, ringSize);
+
+        this.decl = decl;
+        this.slots = new DynamicVertexBuffer[ringSize];
+
+        createSlots();
+    }
+
+    /**
+     * @return the vertex declaration
+     */
+    public VertexDecl getDecl() {
+        return decl;
+    }
+
+    /**
+     * @return the dynamic vertex buffer updated by the last flush
+     */
+    public DynamicVertexBuffer getBuffer() {
+        return slots[getCurrentSlot()];
+    }
+
+    /**
+     * <p>
+     * Sets the buffer updated by the last flush as the vertex buffer of the
+     * next draw, with all vertices in use.
+     * </p>
+     */
+    public void bind() {
+        bgfx.setVertexBuffer(getBuffer(), getCount());
+    }
+
+    @Override
+    void createSlot(int slot, int capacity) {
+        slots[slot] = bgfx.createDynamicVertexBuffer(capacity, decl);
+    }
+
+    @Override
+    void destroySlot(int slot) {
+        bgfx.destroyDynamicVertexBuffer((int) slots[slot].getHandle());
+    }
+
+    @Override
+    void uploadSlot(int slot, ByteBuffer data) {
+        bgfx.updateDynamicVertexBuffer((int) slots[slot].getHandle(), data);
+    }
+
+}
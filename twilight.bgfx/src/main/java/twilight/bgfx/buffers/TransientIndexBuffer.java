@@ -5,7 +5,18 @@ import java.nio.ByteOrder;
 import java.nio.ShortBuffer;
 
 /**
- * 
+ * <p>
+ * A transient index buffer, valid until the next frame. Only 16-bit indices
+ * are supported.
+ * </p>
+ *
+ * <p>
+ * Instances returned by BGFX.allocTransientIndexBuffer(long) are single use.
+ * Instances created by the application can instead be passed to
+ * BGFX.allocTransientIndexBuffer(TransientIndexBuffer, long) and reused for
+ * any number of allocations, see {@link TransientVertexBuffer} for details.
+ * </p>
+ *
  * @author tmccrary
  *
  */
@@ -15,22 +26,146 @@ public class TransientIndexBuffer {
     int handleId;
     long startIndex;
 
+    /** The start of the transient region this buffer was allocated from. */
+    long regionBase;
+
+    /** True when the native struct is owned by this instance. */
+    boolean reusable;
+
+    /** Region views of a reusable buffer, one per in flight frame. */
+    private final ByteBuffer[] views = new ByteBuffer[2];
+
+    /** The region base of each view. */
+    private final long[] viewBases = new long[2];
+
+    /** The end of the allocation each view was mapped for, in bytes from the region base. */
+    private final long[] viewEnds = new long[2];
+
+    /** The index of the most recently used view. */
+    private int lastView;
+
     public long pointer;
 
     /**
-     * 
-     * @return
+     * <p>
+     * Creates an unallocated buffer which can be filled by
+     * BGFX.allocTransientIndexBuffer(TransientIndexBuffer, long).
+     * </p>
+     */
+    public TransientIndexBuffer() {
+
+    }
+
+    /**
+     * @return the size of the allocation in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the first index of the allocation
+     */
+    public long getStartIndex() {
+        return startIndex;
+    }
+
+    /**
+     * @return true if this buffer owns its native struct and can be reused
+     */
+    public boolean isReusable() {
+        return reusable;
+    }
+
+    /**
+     * <p>
+     * Returns the index data of the allocation. For a reusable buffer the
+     * same ByteBuffer instance is returned for allocations from the same frame
+     * region unless an allocation ends past the mapped part of the region. It
+     * is positioned at the start of the allocation, so it must not
+     * be rewound or flipped.
+     * </p>
+     *
+     * @return the index data in native byte order
      */
     public ByteBuffer getData() {
-        ByteBuffer buffer = nGetData();
-        buffer = buffer.order(ByteOrder.nativeOrder());
-        return buffer;
+        if (!reusable) {
+            ByteBuffer buffer = nGetData();
+            buffer = buffer.order(ByteOrder.nativeOrder());
+            return buffer;
+        }
+
+        long end = startIndex * 2 + size;
+        ByteBuffer view = getView(end);
+
+        int offset = (int) (startIndex * 2);
+
+        view.clear();
+        view.position(offset);
+        view.limit(offset + (int) size);
+
+        return view;
     }
 
+    /**
+     * <p>
+     * Note: this creates a new ShortBuffer for every call, reusable buffers
+     * should write through {@link #getData()} to avoid the allocation.
+     * </p>
+     *
+     * @return the index data as a ShortBuffer
+     */
     public ShortBuffer getShortData() {
         return getData().asShortBuffer();
     }
-    
+
+    /**
+     * <p>
+     * Releases the native struct owned by a reusable buffer. Buffers that are
+     * not reusable are released by BGFX.frame().
+     * </p>
+     */
+    public void destroy() {
+        if (reusable && pointer != 0) {
+            nfree(pointer);
+        }
+
+        pointer = 0;
+        reusable = false;
+        views[0] = views[1] = null;
+        viewBases[0] = viewBases[1] = 0;
+        viewEnds[0] = viewEnds[1] = 0;
+        lastView = 0;
+    }
+
+    /**
+     * Returns a view of the region that covers at least end bytes. Only memory
+     * bgfx has handed out is mapped, so a later allocation that ends past the
+     * view maps the region again.
+     */
+    private ByteBuffer getView(long end) {
+        if (views[lastView] != null && viewBases[lastView] == regionBase && viewEnds[lastView] >= end) {
+            return views[lastView];
+        }
+
+        // Map the region into the view that was not used most recently
+        int other = lastView ^ 1;
+
+        if (views[other] == null || viewBases[other] != regionBase || viewEnds[other] < end) {
+            views[other] = nGetRegion(regionBase, end).order(ByteOrder.nativeOrder());
+            viewBases[other] = regionBase;
+            viewEnds[other] = end;
+        }
+
+        lastView = other;
+
+        return views[other];
+    }
+
     public native ByteBuffer nGetData();
 
-}
\ No newline at end of file
+    private static native ByteBuffer nGetRegion(long base, long size);
+
+    private static native void nfree(long pointer);
+
+}
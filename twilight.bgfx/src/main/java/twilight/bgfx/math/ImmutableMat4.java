@@ -0,0 +1,32 @@
+package twilight.bgfx.math;
+
+/**
+ * <p>
+ * A matrix that never changes, safe to share as a constant.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class ImmutableMat4 extends ReadableMat4 {
+
+    /** The identity matrix. */
+    public static final ImmutableMat4 IDENTITY = new ImmutableMat4(new Mat4());
+
+    /**
+     * @param matrix
+     *            the matrix to copy
+     */
+    public ImmutableMat4(ReadableMat4 matrix) {
+        System.arraycopy(matrix.m, 0, m, 0, SIZE);
+    }
+
+    /**
+     * @param elements
+     *            the 16 elements, see {@link ReadableMat4}
+     */
+    public ImmutableMat4(float[] elements) {
+        System.arraycopy(elements, 0, m, 0, SIZE);
+    }
+
+}
@@ -0,0 +1,28 @@
+package twilight.bgfx.math;
+
+/**
+ * <p>
+ * A quaternion that never changes, safe to share as a constant.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class ImmutableQuat extends ReadableQuat {
+
+    /** No rotation. */
+    public static final ImmutableQuat IDENTITY = new ImmutableQuat(0, 0, 0, 1);
+
+    public ImmutableQuat(float x, float y, float z, float w) {
+        super(x, y, z, w);
+    }
+
+    /**
+     * @param q
+     *            the quaternion to copy
+     */
+    public ImmutableQuat(ReadableQuat q) {
+        super(q.x, q.y, q.z, q.w);
+    }
+
+}
@@ -0,0 +1,30 @@
+package twilight.bgfx.math;
+
+/**
+ * <p>
+ * A vector that never changes, safe to share as a constant.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class ImmutableVec3 extends ReadableVec3 {
+
+    public static final ImmutableVec3 ZERO = new ImmutableVec3(0, 0, 0);
+    public static final ImmutableVec3 UNIT_X = new ImmutableVec3(1, 0, 0);
+    public static final ImmutableVec3 UNIT_Y = new ImmutableVec3(0, 1, 0);
+    public static final ImmutableVec3 UNIT_Z = new ImmutableVec3(0, 0, 1);
+
+    public ImmutableVec3(float x, float y, float z) {
+        super(x, y, z);
+    }
+
+    /**
+     * @param v
+     *            the vector to copy
+     */
+    public ImmutableVec3(ReadableVec3 v) {
+        super(v.x, v.y, v.z);
+    }
+
+}
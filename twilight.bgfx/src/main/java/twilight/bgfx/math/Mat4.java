@@ -0,0 +1,514 @@
+package twilight.bgfx.math;
+
+import java.nio.FloatBuffer;
+
+import twilight.bgfx.Caps;
+
+/**
+ * <p>
+ * A mutable 4x4 matrix. Operations change the matrix they are called on and
+ * return it for chaining, so a matrix can be kept and rebuilt every frame
+ * without allocating.
+ * </p>
+ *
+ * <pre>
+ * Mat4 model = new Mat4();
+ * float[] transform = new float[16];
+ *
+ * model.translation(x, y, 0).get(transform, 0);
+ * bgfx.setTransform(transform, 1);
+ * </pre>
+ *
+ * <p>
+ * The layout and multiplication order follow bx, see
+ * {@link ReadableMat4}. A model view projection matrix is
+ * model.mul(view).mul(proj). The projections are left handed like the bx
+ * ones, the depth range they map to depends on the renderer and is taken
+ * from {@link Caps#isHomogeneousDepth()}.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class Mat4 extends ReadableMat4 {
+
+    /**
+     * Creates an identity matrix.
+     */
+    public Mat4() {
+        identity();
+    }
+
+    /**
+     * @param matrix
+     *            the matrix to copy
+     */
+    public Mat4(ReadableMat4 matrix) {
+        set(matrix);
+    }
+
+    public Mat4 identity() {
+        for (int i = 0; i < SIZE; i++) {
+            m[i] = (i % 5) == 0 ? 1 : 0;
+        }
+
+        return this;
+    }
+
+    public Mat4 set(ReadableMat4 matrix) {
+        System.arraycopy(matrix.m, 0, m, 0, SIZE);
+        return this;
+    }
+
+    /**
+     * @param src
+     *            the array holding the elements
+     * @param offset
+     *            the index of the first element
+     */
+    public Mat4 set(float[] src, int offset) {
+        System.arraycopy(src, offset, m, 0, SIZE);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Reads the elements from a buffer at its position, the position is not
+     * changed.
+     * </p>
+     */
+    public Mat4 set(FloatBuffer src) {
+        int at = src.position();
+
+        for (int i = 0; i < SIZE; i++) {
+            m[i] = src.get(at + i);
+        }
+
+        return this;
+    }
+
+    /**
+     * @param index
+     *            the element index, 0 to 15
+     * @param value
+     *            the element
+     */
+    public Mat4 set(int index, float value) {
+        m[index] = value;
+        return this;
+    }
+
+    /**
+     * <p>
+     * Sets a translation matrix.
+     * </p>
+     */
+    public Mat4 translation(float x, float y, float z) {
+        identity();
+        return setTranslation(x, y, z);
+    }
+
+    /**
+     * <p>
+     * Replaces the translation of the matrix, keeping the rest.
+     * </p>
+     */
+    public Mat4 setTranslation(float x, float y, float z) {
+        m[12] = x;
+        m[13] = y;
+        m[14] = z;
+
+        return this;
+    }
+
+    public Mat4 setTranslation(ReadableVec3 v) {
+        return setTranslation(v.x, v.y, v.z);
+    }
+
+    /**
+     * <p>
+     * Sets a scaling matrix.
+     * </p>
+     */
+    public Mat4 scaling(float x, float y, float z) {
+        identity();
+
+        m[0] = x;
+        m[5] = y;
+        m[10] = z;
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Sets a rotation matrix that rotates points like the quaternion, which
+     * must be normalized.
+     * </p>
+     */
+    public Mat4 rotation(ReadableQuat q) {
+        identity();
+        setRotation(q);
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Sets a matrix that scales, then rotates and then translates, the usual
+     * model matrix.
+     * </p>
+     */
+    public Mat4 translationRotationScale(ReadableVec3 translation, ReadableQuat rotation, ReadableVec3 scale) {
+        rotation(rotation);
+
+        for (int i = 0; i < 3; i++) {
+            m[i] *= scale.x;
+            m[4 + i] *= scale.y;
+            m[8 + i] *= scale.z;
+        }
+
+        return setTranslation(translation);
+    }
+
+    /**
+     * <p>
+     * Applies a translation after this transform.
+     * </p>
+     */
+    public Mat4 translate(float x, float y, float z) {
+        for (int row = 0; row < 16; row += 4) {
+            float w = m[row + 3];
+
+            m[row] += w * x;
+            m[row + 1] += w * y;
+            m[row + 2] += w * z;
+        }
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Applies a scale after this transform.
+     * </p>
+     */
+    public Mat4 scale(float x, float y, float z) {
+        for (int row = 0; row < 16; row += 4) {
+            m[row] *= x;
+            m[row + 1] *= y;
+            m[row + 2] *= z;
+        }
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Applies a rotation after this transform.
+     * </p>
+     */
+    public Mat4 rotate(ReadableQuat q) {
+        float x2 = q.x + q.x, y2 = q.y + q.y, z2 = q.z + q.z;
+        float xx = q.x * x2, xy = q.x * y2, xz = q.x * z2;
+        float yy = q.y * y2, yz = q.y * z2, zz = q.z * z2;
+        float wx = q.w * x2, wy = q.w * y2, wz = q.w * z2;
+
+        float r0 = 1 - (yy + zz), r1 = xy + wz, r2 = xz - wy;
+        float r4 = xy - wz, r5 = 1 - (xx + zz), r6 = yz + wx;
+        float r8 = xz + wy, r9 = yz - wx, r10 = 1 - (xx + yy);
+
+        for (int row = 0; row < 16; row += 4) {
+            float a = m[row];
+            float b = m[row + 1];
+            float c = m[row + 2];
+
+            m[row] = a * r0 + b * r4 + c * r8;
+            m[row + 1] = a * r1 + b * r5 + c * r9;
+            m[row + 2] = a * r2 + b * r6 + c * r10;
+        }
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Sets this matrix to the product of this matrix and b, which applies
+     * this transform first and then b.
+     * </p>
+     */
+    public Mat4 mul(ReadableMat4 b) {
+        return mul(this, b);
+    }
+
+    /**
+     * <p>
+     * Sets this matrix to the product of a and b, which applies a first and
+     * then b. Either may be this matrix.
+     * </p>
+     */
+    public Mat4 mul(ReadableMat4 a, ReadableMat4 b) {
+        float[] bm = b.m;
+
+        float b0 = bm[0], b1 = bm[1], b2 = bm[2], b3 = bm[3];
+        float b4 = bm[4], b5 = bm[5], b6 = bm[6], b7 = bm[7];
+        float b8 = bm[8], b9 = bm[9], b10 = bm[10], b11 = bm[11];
+        float b12 = bm[12], b13 = bm[13], b14 = bm[14], b15 = bm[15];
+
+        float[] am = a.m;
+
+        for (int row = 0; row < 16; row += 4) {
+            float x = am[row];
+            float y = am[row + 1];
+            float z = am[row + 2];
+            float w = am[row + 3];
+
+            m[row] = x * b0 + y * b4 + z * b8 + w * b12;
+            m[row + 1] = x * b1 + y * b5 + z * b9 + w * b13;
+            m[row + 2] = x * b2 + y * b6 + z * b10 + w * b14;
+            m[row + 3] = x * b3 + y * b7 + z * b11 + w * b15;
+        }
+
+        return this;
+    }
+
+    public Mat4 transpose() {
+        swap(1, 4);
+        swap(2, 8);
+        swap(3, 12);
+        swap(6, 9);
+        swap(7, 13);
+        swap(11, 14);
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Inverts the matrix. A matrix that can't be inverted is left unchanged.
+     * </p>
+     *
+     * @return true if the matrix was inverted
+     */
+    public boolean invert() {
+        float a00 = m[0], a01 = m[1], a02 = m[2], a03 = m[3];
+        float a10 = m[4], a11 = m[5], a12 = m[6], a13 = m[7];
+        float a20 = m[8], a21 = m[9], a22 = m[10], a23 = m[11];
+        float a30 = m[12], a31 = m[13], a32 = m[14], a33 = m[15];
+
+        float b00 = a00 * a11 - a01 * a10;
+        float b01 = a00 * a12 - a02 * a10;
+        float b02 = a00 * a13 - a03 * a10;
+        float b03 = a01 * a12 - a02 * a11;
+        float b04 = a01 * a13 - a03 * a11;
+        float b05 = a02 * a13 - a03 * a12;
+        float b06 = a20 * a31 - a21 * a30;
+        float b07 = a20 * a32 - a22 * a30;
+        float b08 = a20 * a33 - a23 * a30;
+        float b09 = a21 * a32 - a22 * a31;
+        float b10 = a21 * a33 - a23 * a31;
+        float b11 = a22 * a33 - a23 * a32;
+
+        float det = b00 * b11 - b01 * b10 + b02 * b09 + b03 * b08 - b04 * b07 + b05 * b06;
+
+        if (det == 0) {
+            return false;
+        }
+
+        float inv = 1 / det;
+
+        m[0] = (a11 * b11 - a12 * b10 + a13 * b09) * inv;
+        m[1] = (a02 * b10 - a01 * b11 - a03 * b09) * inv;
+        m[2] = (a31 * b05 - a32 * b04 + a33 * b03) * inv;
+        m[3] = (a22 * b04 - a21 * b05 - a23 * b03) * inv;
+        m[4] = (a12 * b08 - a10 * b11 - a13 * b07) * inv;
+        m[5] = (a00 * b11 - a02 * b08 + a03 * b07) * inv;
+        m[6] = (a32 * b02 - a30 * b05 - a33 * b01) * inv;
+        m[7] = (a20 * b05 - a22 * b02 + a23 * b01) * inv;
+        m[8] = (a10 * b10 - a11 * b08 + a13 * b06) * inv;
+        m[9] = (a01 * b08 - a00 * b10 - a03 * b06) * inv;
+        m[10] = (a30 * b04 - a31 * b02 + a33 * b00) * inv;
+        m[11] = (a21 * b02 - a20 * b04 - a23 * b00) * inv;
+        m[12] = (a11 * b07 - a10 * b09 - a12 * b06) * inv;
+        m[13] = (a00 * b09 - a01 * b07 + a02 * b06) * inv;
+        m[14] = (a31 * b01 - a30 * b03 - a32 * b00) * inv;
+        m[15] = (a20 * b03 - a21 * b01 + a22 * b00) * inv;
+
+        return true;
+    }
+
+    /**
+     * <p>
+     * Sets a left handed view matrix looking from eye at a point, like
+     * bx::mtxLookAt.
+     * </p>
+     *
+     * @param eye
+     *            the camera position
+     * @param at
+     *            the point looked at
+     * @param up
+     *            the up direction
+     */
+    public Mat4 lookAt(ReadableVec3 eye, ReadableVec3 at, ReadableVec3 up) {
+        float vx = at.x - eye.x;
+        float vy = at.y - eye.y;
+        float vz = at.z - eye.z;
+        float vl = 1 / (float) Math.sqrt(vx * vx + vy * vy + vz * vz);
+        vx *= vl;
+        vy *= vl;
+        vz *= vl;
+
+        // right = up x view
+        float rx = up.y * vz - up.z * vy;
+        float ry = up.z * vx - up.x * vz;
+        float rz = up.x * vy - up.y * vx;
+        float rl = 1 / (float) Math.sqrt(rx * rx + ry * ry + rz * rz);
+        rx *= rl;
+        ry *= rl;
+        rz *= rl;
+
+        // up = view x right
+        float ux = vy * rz - vz * ry;
+        float uy = vz * rx - vx * rz;
+        float uz = vx * ry - vy * rx;
+
+        m[0] = rx;
+        m[1] = ux;
+        m[2] = vx;
+        m[3] = 0;
+        m[4] = ry;
+        m[5] = uy;
+        m[6] = vy;
+        m[7] = 0;
+        m[8] = rz;
+        m[9] = uz;
+        m[10] = vz;
+        m[11] = 0;
+        m[12] = -(rx * eye.x + ry * eye.y + rz * eye.z);
+        m[13] = -(ux * eye.x + uy * eye.y + uz * eye.z);
+        m[14] = -(vx * eye.x + vy * eye.y + vz * eye.z);
+        m[15] = 1;
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Sets a left handed orthographic projection for the depth range of the
+     * renderer.
+     * </p>
+     *
+     * @param caps
+     *            the renderer capabilities, see BGFX.getCaps
+     */
+    public Mat4 ortho(float left, float right, float bottom, float top, float near, float far, Caps caps) {
+        return ortho(left, right, bottom, top, near, far, caps.isHomogeneousDepth());
+    }
+
+    /**
+     * <p>
+     * Sets a left handed orthographic projection, like bx::mtxOrtho.
+     * </p>
+     *
+     * @param homogeneousDepth
+     *            true to map depth to -1 to 1 as OpenGL does, false to map it
+     *            to 0 to 1
+     */
+    public Mat4 ortho(float left, float right, float bottom, float top, float near, float far, boolean homogeneousDepth) {
+        for (int i = 0; i < SIZE; i++) {
+            m[i] = 0;
+        }
+
+        m[0] = 2 / (right - left);
+        m[5] = 2 / (top - bottom);
+        m[10] = (homogeneousDepth ? 2 : 1) / (far - near);
+        m[12] = (left + right) / (left - right);
+        m[13] = (top + bottom) / (bottom - top);
+        m[14] = homogeneousDepth ? (near + far) / (near - far) : near / (near - far);
+        m[15] = 1;
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Sets a left handed perspective projection for the depth range of the
+     * renderer.
+     * </p>
+     *
+     * @param caps
+     *            the renderer capabilities, see BGFX.getCaps
+     */
+    public Mat4 perspective(float fovy, float aspect, float near, float far, Caps caps) {
+        return perspective(fovy, aspect, near, far, caps.isHomogeneousDepth());
+    }
+
+    /**
+     * <p>
+     * Sets a left handed perspective projection, like bx::mtxProj.
+     * </p>
+     *
+     * @param fovy
+     *            the vertical field of view in degrees
+     * @param aspect
+     *            the width divided by the height
+     * @param near
+     *            the distance of the near plane
+     * @param far
+     *            the distance of the far plane
+     * @param homogeneousDepth
+     *            true to map depth to -1 to 1 as OpenGL does, false to map it
+     *            to 0 to 1
+     */
+    public Mat4 perspective(float fovy, float aspect, float near, float far, boolean homogeneousDepth) {
+        float height = 1 / (float) Math.tan(Math.toRadians(fovy) * 0.5);
+        float width = height / aspect;
+        float diff = far - near;
+        float aa = homogeneousDepth ? (far + near) / diff : far / diff;
+        float bb = homogeneousDepth ? -(2 * far * near) / diff : -near * aa;
+
+        for (int i = 0; i < SIZE; i++) {
+            m[i] = 0;
+        }
+
+        m[0] = width;
+        m[5] = height;
+        m[10] = aa;
+        m[11] = 1;
+        m[14] = bb;
+
+        return this;
+    }
+
+    /**
+     * @return an immutable copy of this matrix
+     */
+    public ImmutableMat4 toImmutable() {
+        return new ImmutableMat4(this);
+    }
+
+    private void swap(int a, int b) {
+        float t = m[a];
+        m[a] = m[b];
+        m[b] = t;
+    }
+
+    private void setRotation(ReadableQuat q) {
+        float x2 = q.x + q.x, y2 = q.y + q.y, z2 = q.z + q.z;
+        float xx = q.x * x2, xy = q.x * y2, xz = q.x * z2;
+        float yy = q.y * y2, yz = q.y * z2, zz = q.z * z2;
+        float wx = q.w * x2, wy = q.w * y2, wz = q.w * z2;
+
+        m[0] = 1 - (yy + zz);
+        m[1] = xy + wz;
+        m[2] = xz - wy;
+        m[4] = xy - wz;
+        m[5] = 1 - (xx + zz);
+        m[6] = yz + wx;
+        m[8] = xz + wy;
+        m[9] = yz - wx;
+        m[10] = 1 - (xx + yy);
+    }
+
+}
@@ -0,0 +1,164 @@
+package twilight.bgfx.math;
+
+/**
+ * <p>
+ * A mutable rotation quaternion. Operations change the quaternion they are
+ * called on and return it for chaining, so nothing is allocated per call.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class Quat extends ReadableQuat {
+
+    /**
+     * Creates the identity rotation.
+     */
+    public Quat() {
+        super(0, 0, 0, 1);
+    }
+
+    public Quat(float x, float y, float z, float w) {
+        super(x, y, z, w);
+    }
+
+    /**
+     * @param q
+     *            the quaternion to copy
+     */
+    public Quat(ReadableQuat q) {
+        super(q.x, q.y, q.z, q.w);
+    }
+
+    public Quat set(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+
+        return this;
+    }
+
+    public Quat set(ReadableQuat q) {
+        return set(q.x, q.y, q.z, q.w);
+    }
+
+    public Quat identity() {
+        return set(0, 0, 0, 1);
+    }
+
+    /**
+     * <p>
+     * Sets the rotation around an axis.
+     * </p>
+     *
+     * @param ax
+     *            the x component of the normalized axis
+     * @param ay
+     *            the y component of the normalized axis
+     * @param az
+     *            the z component of the normalized axis
+     * @param radians
+     *            the angle
+     */
+    public Quat axisAngle(float ax, float ay, float az, float radians) {
+        float half = radians * 0.5f;
+        float s = (float) Math.sin(half);
+
+        return set(ax * s, ay * s, az * s, (float) Math.cos(half));
+    }
+
+    /**
+     * <p>
+     * Sets the rotation around an axis.
+     * </p>
+     */
+    public Quat axisAngle(ReadableVec3 axis, float radians) {
+        return axisAngle(axis.x, axis.y, axis.z, radians);
+    }
+
+    /**
+     * <p>
+     * Sets this quaternion to the rotation by this quaternion followed by q,
+     * the same order as {@link Mat4#mul(ReadableMat4)} and bx::quatMul.
+     * </p>
+     */
+    public Quat mul(ReadableQuat q) {
+        return set(q.w * x + q.x * w + q.y * z - q.z * y, q.w * y - q.x * z + q.y * w + q.z * x, q.w * z + q.x * y - q.y
+                * x + q.z * w, q.w * w - q.x * x - q.y * y - q.z * z);
+    }
+
+    /**
+     * <p>
+     * Sets this quaternion to the inverse rotation, assuming it is
+     * normalized.
+     * </p>
+     */
+    public Quat conjugate() {
+        return set(-x, -y, -z, w);
+    }
+
+    /**
+     * <p>
+     * Scales the quaternion to a length of 1, so rounding errors of repeated
+     * multiplications don't accumulate.
+     * </p>
+     */
+    public Quat normalize() {
+        float length = length();
+
+        if (length == 0) {
+            return identity();
+        }
+
+        float inv = 1 / length;
+
+        return set(x * inv, y * inv, z * inv, w * inv);
+    }
+
+    /**
+     * <p>
+     * Sets this quaternion to the spherical interpolation between this
+     * quaternion and q along the shorter arc.
+     * </p>
+     *
+     * @param t
+     *            0 for this quaternion, 1 for q
+     */
+    public Quat slerp(ReadableQuat q, float t) {
+        float cos = dot(q);
+        float sign = 1;
+
+        if (cos < 0) {
+            cos = -cos;
+            sign = -1;
+        }
+
+        float a;
+        float b;
+
+        if (cos > 0.9995f) {
+            // Nearly parallel, the sine below would divide by almost zero
+            a = 1 - t;
+            b = t * sign;
+        } else {
+            float angle = (float) Math.acos(cos);
+            float inv = 1 / (float) Math.sin(angle);
+
+            a = (float) Math.sin((1 - t) * angle) * inv;
+            b = (float) Math.sin(t * angle) * inv * sign;
+        }
+
+        set(x * a + q.x * b, y * a + q.y * b, z * a + q.z * b, w * a + q.w * b);
+
+        return normalize();
+    }
+
+    /**
+     * @return an immutable copy of this quaternion
+     */
+    public ImmutableQuat toImmutable() {
+        return new ImmutableQuat(this);
+    }
+
+}
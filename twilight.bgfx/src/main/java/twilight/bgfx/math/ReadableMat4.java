@@ -0,0 +1,251 @@
+package twilight.bgfx.math;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The read only operations of a 4x4 matrix, shared by the mutable
+ * {@link Mat4} and the {@link ImmutableMat4}.
+ * </p>
+ *
+ * <p>
+ * Matrices follow the conventions of the bx math used by BGFX: the 16
+ * elements are stored in the order BGFX.setTransform and
+ * BGFX.setViewTransform read them, with the translation in elements 12 to
+ * 14, and points are transformed as row vectors, so a matrix product
+ * applies its left operand first.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public abstract class ReadableMat4 {
+
+    /** The number of floats in a matrix. */
+    public static final int SIZE = 16;
+
+    final float[] m = new float[SIZE];
+
+    ReadableMat4() {
+    }
+
+    /**
+     * @param index
+     *            the element index, 0 to 15
+     * @return the element
+     */
+    public float get(int index) {
+        return m[index];
+    }
+
+    /**
+     * <p>
+     * Writes the elements to an array, for example one that is reused for
+     * every call to BGFX.setTransform.
+     * </p>
+     *
+     * @param dst
+     *            the destination
+     * @param offset
+     *            the index of the first element
+     * @return dst
+     */
+    public float[] get(float[] dst, int offset) {
+        System.arraycopy(m, 0, dst, offset, SIZE);
+        return dst;
+    }
+
+    /**
+     * <p>
+     * Writes the elements to a buffer at its position, the position is not
+     * changed.
+     * </p>
+     *
+     * @param dst
+     *            the destination
+     * @return dst
+     */
+    public FloatBuffer get(FloatBuffer dst) {
+        int at = dst.position();
+
+        for (int i = 0; i < SIZE; i++) {
+            dst.put(at + i, m[i]);
+        }
+
+        return dst;
+    }
+
+    /**
+     * <p>
+     * Transforms a point, including the translation of the matrix. src and
+     * dst may be the same vector.
+     * </p>
+     *
+     * @param src
+     *            the point to transform
+     * @param dst
+     *            receives the transformed point
+     * @return dst
+     */
+    public Vec3 transformPoint(ReadableVec3 src, Vec3 dst) {
+        float x = src.x;
+        float y = src.y;
+        float z = src.z;
+
+        return dst.set(x * m[0] + y * m[4] + z * m[8] + m[12], x * m[1] + y * m[5] + z * m[9] + m[13], x * m[2] + y
+                * m[6] + z * m[10] + m[14]);
+    }
+
+    /**
+     * <p>
+     * Transforms a direction, ignoring the translation of the matrix. src and
+     * dst may be the same vector.
+     * </p>
+     *
+     * @param src
+     *            the direction to transform
+     * @param dst
+     *            receives the transformed direction
+     * @return dst
+     */
+    public Vec3 transformDirection(ReadableVec3 src, Vec3 dst) {
+        float x = src.x;
+        float y = src.y;
+        float z = src.z;
+
+        return dst.set(x * m[0] + y * m[4] + z * m[8], x * m[1] + y * m[5] + z * m[9], x * m[2] + y * m[6] + z * m[10]);
+    }
+
+    /**
+     * <p>
+     * Transforms packed points, 3 floats each, including the translation of
+     * the matrix. The elements are loaded once for the whole batch and the
+     * loop body has no calls or bounds dependent branches, which lets the
+     * JIT compile it to a tight loop. src and dst may be the same array if
+     * the offsets are equal.
+     * </p>
+     *
+     * @param src
+     *            the points to transform
+     * @param srcOffset
+     *            the index of the first float to read
+     * @param dst
+     *            receives the transformed points
+     * @param dstOffset
+     *            the index of the first float to write
+     * @param count
+     *            the number of points
+     */
+    public void transformPoints(float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        if (count < 0 || srcOffset + count * 3 > src.length || dstOffset + count * 3 > dst.length) {
+            throw new ArrayIndexOutOfBoundsException("Invalid range of " + count + " points.");
+        }
+
+        float m0 = m[0], m1 = m[1], m2 = m[2];
+        float m4 = m[4], m5 = m[5], m6 = m[6];
+        float m8 = m[8], m9 = m[9], m10 = m[10];
+        float m12 = m[12], m13 = m[13], m14 = m[14];
+
+        int end = srcOffset + count * 3;
+
+        for (int s = srcOffset, d = dstOffset; s < end; s += 3, d += 3) {
+            float x = src[s];
+            float y = src[s + 1];
+            float z = src[s + 2];
+
+            dst[d] = x * m0 + y * m4 + z * m8 + m12;
+            dst[d + 1] = x * m1 + y * m5 + z * m9 + m13;
+            dst[d + 2] = x * m2 + y * m6 + z * m10 + m14;
+        }
+    }
+
+    /**
+     * <p>
+     * Transforms packed points, 3 floats each, read from the position of src
+     * and written at the position of dst. The positions are not changed. src
+     * and dst may be the same buffer if the positions are equal.
+     * </p>
+     *
+     * @param src
+     *            the points to transform
+     * @param dst
+     *            receives the transformed points
+     * @param count
+     *            the number of points
+     */
+    public void transformPoints(FloatBuffer src, FloatBuffer dst, int count) {
+        if (count < 0 || src.remaining() < count * 3 || dst.remaining() < count * 3) {
+            throw new IndexOutOfBoundsException("Invalid range of " + count + " points.");
+        }
+
+        float m0 = m[0], m1 = m[1], m2 = m[2];
+        float m4 = m[4], m5 = m[5], m6 = m[6];
+        float m8 = m[8], m9 = m[9], m10 = m[10];
+        float m12 = m[12], m13 = m[13], m14 = m[14];
+
+        int end = src.position() + count * 3;
+
+        for (int s = src.position(), d = dst.position(); s < end; s += 3, d += 3) {
+            float x = src.get(s);
+            float y = src.get(s + 1);
+            float z = src.get(s + 2);
+
+            dst.put(d, x * m0 + y * m4 + z * m8 + m12);
+            dst.put(d + 1, x * m1 + y * m5 + z * m9 + m13);
+            dst.put(d + 2, x * m2 + y * m6 + z * m10 + m14);
+        }
+    }
+
+    /**
+     * @return the determinant of the matrix
+     */
+    public float determinant() {
+        float b00 = m[0] * m[5] - m[1] * m[4];
+        float b01 = m[0] * m[6] - m[2] * m[4];
+        float b02 = m[0] * m[7] - m[3] * m[4];
+        float b03 = m[1] * m[6] - m[2] * m[5];
+        float b04 = m[1] * m[7] - m[3] * m[5];
+        float b05 = m[2] * m[7] - m[3] * m[6];
+        float b06 = m[8] * m[13] - m[9] * m[12];
+        float b07 = m[8] * m[14] - m[10] * m[12];
+        float b08 = m[8] * m[15] - m[11] * m[12];
+        float b09 = m[9] * m[14] - m[10] * m[13];
+        float b10 = m[9] * m[15] - m[11] * m[13];
+        float b11 = m[10] * m[15] - m[11] * m[14];
+
+        return b00 * b11 - b01 * b10 + b02 * b09 + b03 * b08 - b04 * b07 + b05 * b06;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ReadableMat4)) {
+            return false;
+        }
+
+        return Arrays.equals(m, ((ReadableMat4) obj).m);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(m);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int row = 0; row < 4; row++) {
+            builder.append(row == 0 ? "[" : " ");
+
+            for (int col = 0; col < 4; col++) {
+                builder.append(m[row * 4 + col]).append(col == 3 ? "" : ", ");
+            }
+
+            builder.append(row == 3 ? "]" : "\n");
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,103 @@
+package twilight.bgfx.math;
+
+/**
+ * <p>
+ * The read only operations of a rotation quaternion, shared by the mutable
+ * {@link Quat} and the {@link ImmutableQuat}.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public abstract class ReadableQuat {
+
+    float x;
+    float y;
+    float z;
+    float w;
+
+    ReadableQuat(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getZ() {
+        return z;
+    }
+
+    public float getW() {
+        return w;
+    }
+
+    /**
+     * @param q
+     *            the other quaternion
+     * @return the 4 component dot product of both quaternions
+     */
+    public float dot(ReadableQuat q) {
+        return x * q.x + y * q.y + z * q.z + w * q.w;
+    }
+
+    /**
+     * @return the length of the quaternion, 1 for a rotation
+     */
+    public float length() {
+        return (float) Math.sqrt(x * x + y * y + z * z + w * w);
+    }
+
+    /**
+     * <p>
+     * Rotates a vector by this quaternion, which must be normalized. src and
+     * dst may be the same vector.
+     * </p>
+     *
+     * @param src
+     *            the vector to rotate
+     * @param dst
+     *            receives the rotated vector
+     * @return dst
+     */
+    public Vec3 rotate(ReadableVec3 src, Vec3 dst) {
+        // v + 2w(q x v) + 2q x (q x v)
+        float tx = 2 * (y * src.z - z * src.y);
+        float ty = 2 * (z * src.x - x * src.z);
+        float tz = 2 * (x * src.y - y * src.x);
+
+        return dst.set(src.x + w * tx + (y * tz - z * ty), src.y + w * ty + (z * tx - x * tz), src.z + w * tz
+                + (x * ty - y * tx));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ReadableQuat)) {
+            return false;
+        }
+
+        ReadableQuat q = (ReadableQuat) obj;
+
+        return Float.floatToIntBits(x) == Float.floatToIntBits(q.x) && Float.floatToIntBits(y) == Float.floatToIntBits(q.y)
+                && Float.floatToIntBits(z) == Float.floatToIntBits(q.z) && Float.floatToIntBits(w) == Float.floatToIntBits(q.w);
+    }
+
+    @Override
+    public int hashCode() {
+        return ((Float.floatToIntBits(x) * 31 + Float.floatToIntBits(y)) * 31 + Float.floatToIntBits(z)) * 31
+                + Float.floatToIntBits(w);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + ", " + y + ", " + z + ", " + w + ")";
+    }
+
+}
@@ -0,0 +1,130 @@
+package twilight.bgfx.math;
+
+import java.nio.FloatBuffer;
+
+/**
+ * <p>
+ * The read only operations of a 3 component vector, shared by the mutable
+ * {@link Vec3} and the {@link ImmutableVec3}. Methods taking a readable
+ * vector accept either.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public abstract class ReadableVec3 {
+
+    float x;
+    float y;
+    float z;
+
+    ReadableVec3(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getZ() {
+        return z;
+    }
+
+    /**
+     * @param v
+     *            the other vector
+     * @return the dot product of both vectors
+     */
+    public float dot(ReadableVec3 v) {
+        return x * v.x + y * v.y + z * v.z;
+    }
+
+    /**
+     * @return the length of the vector
+     */
+    public float length() {
+        return (float) Math.sqrt(lengthSquared());
+    }
+
+    /**
+     * @return the squared length of the vector, cheaper than length
+     */
+    public float lengthSquared() {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * @param v
+     *            the other vector
+     * @return the distance between both points
+     */
+    public float distance(ReadableVec3 v) {
+        float dx = x - v.x;
+        float dy = y - v.y;
+        float dz = z - v.z;
+
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * <p>
+     * Writes the components to an array.
+     * </p>
+     *
+     * @param dst
+     *            the destination
+     * @param offset
+     *            the index of the x component
+     */
+    public void get(float[] dst, int offset) {
+        dst[offset] = x;
+        dst[offset + 1] = y;
+        dst[offset + 2] = z;
+    }
+
+    /**
+     * <p>
+     * Writes the components to a buffer at its position, the position is not
+     * changed.
+     * </p>
+     *
+     * @param dst
+     *            the destination
+     */
+    public void get(FloatBuffer dst) {
+        int at = dst.position();
+
+        dst.put(at, x);
+        dst.put(at + 1, y);
+        dst.put(at + 2, z);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ReadableVec3)) {
+            return false;
+        }
+
+        ReadableVec3 v = (ReadableVec3) obj;
+
+        return Float.floatToIntBits(x) == Float.floatToIntBits(v.x) && Float.floatToIntBits(y) == Float.floatToIntBits(v.y)
+                && Float.floatToIntBits(z) == Float.floatToIntBits(v.z);
+    }
+
+    @Override
+    public int hashCode() {
+        return (Float.floatToIntBits(x) * 31 + Float.floatToIntBits(y)) * 31 + Float.floatToIntBits(z);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + ", " + y + ", " + z + ")";
+    }
+
+}
@@ -0,0 +1,140 @@
+package twilight.bgfx.math;
+
+/**
+ * <p>
+ * A mutable 3 component vector. Operations change the vector they are
+ * called on and return it for chaining, so nothing is allocated per call.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class Vec3 extends ReadableVec3 {
+
+    /**
+     * Creates a zero vector.
+     */
+    public Vec3() {
+        super(0, 0, 0);
+    }
+
+    public Vec3(float x, float y, float z) {
+        super(x, y, z);
+    }
+
+    /**
+     * @param v
+     *            the vector to copy
+     */
+    public Vec3(ReadableVec3 v) {
+        super(v.x, v.y, v.z);
+    }
+
+    public Vec3 set(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+
+        return this;
+    }
+
+    public Vec3 set(ReadableVec3 v) {
+        return set(v.x, v.y, v.z);
+    }
+
+    public Vec3 setX(float x) {
+        this.x = x;
+        return this;
+    }
+
+    public Vec3 setY(float y) {
+        this.y = y;
+        return this;
+    }
+
+    public Vec3 setZ(float z) {
+        this.z = z;
+        return this;
+    }
+
+    public Vec3 add(float x, float y, float z) {
+        return set(this.x + x, this.y + y, this.z + z);
+    }
+
+    public Vec3 add(ReadableVec3 v) {
+        return add(v.x, v.y, v.z);
+    }
+
+    public Vec3 sub(ReadableVec3 v) {
+        return set(x - v.x, y - v.y, z - v.z);
+    }
+
+    public Vec3 scale(float s) {
+        return set(x * s, y * s, z * s);
+    }
+
+    /**
+     * <p>
+     * Sets this vector to the cross product of this vector and v.
+     * </p>
+     */
+    public Vec3 cross(ReadableVec3 v) {
+        return set(y * v.z - z * v.y, z * v.x - x * v.z, x * v.y - y * v.x);
+    }
+
+    /**
+     * <p>
+     * Scales the vector to a length of 1, a zero vector is left unchanged.
+     * </p>
+     */
+    public Vec3 normalize() {
+        float length = length();
+
+        if (length == 0) {
+            return this;
+        }
+
+        return scale(1 / length);
+    }
+
+    /**
+     * <p>
+     * Sets this vector to the linear interpolation between this vector and v.
+     * </p>
+     *
+     * @param t
+     *            0 for this vector, 1 for v
+     */
+    public Vec3 lerp(ReadableVec3 v, float t) {
+        return set(x + (v.x - x) * t, y + (v.y - y) * t, z + (v.z - z) * t);
+    }
+
+    /**
+     * <p>
+     * Rotates this vector by a quaternion.
+     * </p>
+     */
+    public Vec3 rotate(ReadableQuat q) {
+        q.rotate(this, this);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Transforms this vector as a point, including the translation of the
+     * matrix.
+     * </p>
+     */
+    public Vec3 transform(ReadableMat4 m) {
+        m.transformPoint(this, this);
+        return this;
+    }
+
+    /**
+     * @return an immutable copy of this vector
+     */
+    public ImmutableVec3 toImmutable() {
+        return new ImmutableVec3(this);
+    }
+
+}
@@ -0,0 +1,112 @@
+package twilight.bgfx.mesh;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.buffers.IndexBuffer;
+import twilight.bgfx.buffers.VertexBuffer;
+
+/**
+ * <p>
+ * A static vertex buffer and its optional index buffer, created by
+ * {@link MeshBuilder#build(BGFX)}.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class Mesh {
+
+    private final VertexBuffer vertexBuffer;
+    private final IndexBuffer indexBuffer;
+    private final int numVertices;
+    private final int numIndices;
+    private final boolean index32;
+
+    /**
+     * @param vertexBuffer
+     *            the vertex buffer
+     * @param indexBuffer
+     *            the index buffer, or null for a non indexed mesh
+     * @param numVertices
+     *            the number of vertices
+     * @param numIndices
+     *            the number of indices
+     * @param index32
+     *            true if the index buffer holds 32 bit indices
+     */
+    public Mesh(VertexBuffer vertexBuffer, IndexBuffer indexBuffer, int numVertices, int numIndices,
+            boolean index32) {
+        this.vertexBuffer = vertexBuffer;
+        this.indexBuffer = indexBuffer;
+        this.numVertices = numVertices;
+        this.numIndices = numIndices;
+        this.index32 = index32;
+    }
+
+    /**
+     * @return the vertex buffer
+     */
+    public VertexBuffer getVertexBuffer() {
+        return vertexBuffer;
+    }
+
+    /**
+     * @return the index buffer, or null for a non indexed mesh
+     */
+    public IndexBuffer getIndexBuffer() {
+        return indexBuffer;
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+    /**
+     * @return the number of indices
+     */
+    public int getNumIndices() {
+        return numIndices;
+    }
+
+    /**
+     * @return true if the index buffer holds 32 bit indices
+     */
+    public boolean isIndex32() {
+        return index32;
+    }
+
+    /**
+     * <p>
+     * Sets the vertex and index buffer of the next draw.
+     * </p>
+     *
+     * @param bgfx
+     *            the context to draw with
+     */
+    public void bind(BGFX bgfx) {
+        bgfx.setVertexBuffer(vertexBuffer);
+
+        if (indexBuffer != null) {
+            bgfx.setIndexBuffer(indexBuffer, 0, numIndices);
+        }
+    }
+
+    /**
+     * <p>
+     * Destroys the buffers of the mesh.
+     * </p>
+     *
+     * @param bgfx
+     *            the context the mesh was created in
+     */
+    public void destroy(BGFX bgfx) {
+        bgfx.destroyVertexBuffer(vertexBuffer);
+
+        if (indexBuffer != null) {
+            bgfx.destroyIndexBuffer(indexBuffer);
+        }
+    }
+
+}
@@ -0,0 +1,287 @@
+package twilight.bgfx.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.Capability;
+import twilight.bgfx.VertexDecl;
+import twilight.bgfx.VertexWriter;
+import twilight.bgfx.buffers.IndexBuffer;
+import twilight.bgfx.buffers.VertexBuffer;
+import twilight.bgfx.util.FrameArena;
+
+/**
+ * <p>
+ * Collects the vertices and indices of a mesh and creates its static buffers,
+ * using 16 bit indices when every index fits and 32 bit indices otherwise,
+ * so meshes with more than 65536 vertices don't have to be split.
+ * </p>
+ *
+ * <p>
+ * Vertices are appended as raw data with {@link #vertices(ByteBuffer)} or
+ * written with the {@link VertexWriter} returned by
+ * {@link #writeVertices(int)}. Indices are absolute vertex indices. A builder
+ * can be reused after {@link #clear()}.
+ * </p>
+ *
+ * <pre>
+ * VertexWriter writer = builder.writeVertices(3);
+ * writer.position(0, 0, 0).next();
+ * writer.position(1, 0, 0).next();
+ * writer.position(0, 1, 0).next();
+ * writer.end();
+ * builder.triangle(0, 1, 2);
+ * Mesh mesh = builder.build(bgfx);
+ * </pre>
+ *
+ * @author tmccrary
+ *
+ */
+public final class MeshBuilder {
+
+    /** The largest index a 16 bit index buffer can hold. */
+    public static final int MAX_INDEX16 = 0xffff;
+
+    private final VertexDecl decl;
+    private final int stride;
+    private final VertexWriter writer;
+
+    /** Vertex data, the position marks the end of the written vertices. */
+    private ByteBuffer vertexData;
+
+    private int[] indices;
+    private int numIndices;
+    private int maxIndex = -1;
+
+    /**
+     * @param decl
+     *            the vertex declaration, VertexDecl#end must have been called
+     */
+    public MeshBuilder(VertexDecl decl) {
+        this(decl, 1024, 1024);
+    }
+
+    /**
+     * @param decl
+     *            the vertex declaration, VertexDecl#end must have been called
+     * @param vertexCapacity
+     *            the initial number of vertices
+     * @param indexCapacity
+     *            the initial number of indices
+     */
+    public MeshBuilder(VertexDecl decl, int vertexCapacity, int indexCapacity) {
+        this.decl = decl;
+        this.stride = decl.getStride();
+        this.writer = new VertexWriter(decl);
+        this.vertexData = ByteBuffer.allocateDirect(Math.max(vertexCapacity, 1) * stride).order(
+                ByteOrder.nativeOrder());
+        this.indices = new int[Math.max(indexCapacity, 1)];
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int getVertexCount() {
+        return vertexData.position() / stride;
+    }
+
+    /**
+     * @return the number of indices
+     */
+    public int getIndexCount() {
+        return numIndices;
+    }
+
+    /**
+     * @return true if the indices don't fit into 16 bits
+     */
+    public boolean needsIndex32() {
+        return maxIndex > MAX_INDEX16;
+    }
+
+    /**
+     * <p>
+     * Appends the remaining bytes of data as whole vertices.
+     * </p>
+     *
+     * @param data
+     *            vertex data in the layout of the declaration
+     * @return this builder
+     */
+    public MeshBuilder vertices(ByteBuffer data) {
+        if (data.remaining() % stride != 0) {
+            throw new BGFXException("Vertex data is not a whole number of vertices: " + data.remaining());
+        }
+
+        ensureVertexCapacity(data.remaining() / stride);
+        vertexData.put(data.duplicate());
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Returns a writer bound after the last vertex, with room for num more
+     * vertices. Call VertexWriter#end when done, the vertices it completed
+     * are added to the mesh.
+     * </p>
+     *
+     * @param num
+     *            the number of vertices that will be written
+     * @return the writer
+     */
+    public VertexWriter writeVertices(int num) {
+        ensureVertexCapacity(num);
+
+        return writer.begin(vertexData);
+    }
+
+    /**
+     * @param index
+     *            a vertex index, not negative
+     * @return this builder
+     */
+    public MeshBuilder index(int index) {
+        if (index < 0) {
+            throw new BGFXException("Negative vertex index: " + index);
+        }
+
+        if (numIndices == indices.length) {
+            indices = Arrays.copyOf(indices, numIndices * 2);
+        }
+
+        indices[numIndices++] = index;
+        maxIndex = Math.max(maxIndex, index);
+
+        return this;
+    }
+
+    /**
+     * @param a
+     *            the first vertex index
+     * @param b
+     *            the second vertex index
+     * @param c
+     *            the third vertex index
+     * @return this builder
+     */
+    public MeshBuilder triangle(int a, int b, int c) {
+        return index(a).index(b).index(c);
+    }
+
+    /**
+     * @param values
+     *            vertex indices
+     * @return this builder
+     */
+    public MeshBuilder indices(int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            index(values[i]);
+        }
+
+        return this;
+    }
+
+    /**
+     * @param values
+     *            16 bit vertex indices, read as unsigned values
+     * @return this builder
+     */
+    public MeshBuilder indices(short[] values) {
+        for (int i = 0; i < values.length; i++) {
+            index(values[i] & 0xffff);
+        }
+
+        return this;
+    }
+
+    /**
+     * <p>
+     * Removes all vertices and indices, the backing storage is kept.
+     * </p>
+     */
+    public void clear() {
+        vertexData.clear();
+        numIndices = 0;
+        maxIndex = -1;
+    }
+
+    /**
+     * <p>
+     * Creates the static buffers of the mesh. Indices are stored as 16 bit
+     * values when the largest index fits, otherwise as 32 bit values, which
+     * requires {@link Capability#BGFX_CAPS_INDEX32}. Data is staged in the
+     * frame arena of the context.
+     * </p>
+     *
+     * @param bgfx
+     *            the context to create the buffers in
+     * @return the mesh
+     */
+    public Mesh build(BGFX bgfx) {
+        int numVertices = getVertexCount();
+
+        if (numVertices == 0) {
+            throw new BGFXException("Cannot build a mesh without vertices.");
+        }
+
+        if (maxIndex >= numVertices) {
+            throw new BGFXException("Index " + maxIndex + " is out of range for " + numVertices + " vertices.");
+        }
+
+        boolean index32 = needsIndex32();
+
+        if (index32 && !bgfx.getCaps().isSupported(Capability.BGFX_CAPS_INDEX32)) {
+            throw new BGFXException("The renderer doesn't support 32 bit indices, the mesh has " + numVertices
+                    + " vertices.");
+        }
+
+        ByteBuffer vertices = vertexData.duplicate();
+        vertices.flip();
+
+        VertexBuffer vertexBuffer = bgfx.createVertexBuffer(vertices.slice(), decl);
+        IndexBuffer indexBuffer = null;
+
+        if (numIndices > 0) {
+            FrameArena arena = bgfx.getFrameArena();
+
+            if (index32) {
+                ByteBuffer indexData = arena.allocate(numIndices * 4);
+                indexData.asIntBuffer().put(indices, 0, numIndices);
+
+                indexBuffer = bgfx.createIndexBuffer(indexData, BGFX.BGFX_BUFFER_INDEX32);
+            } else {
+                ByteBuffer indexData = arena.allocate(numIndices * 2);
+
+                for (int i = 0; i < numIndices; i++) {
+                    indexData.putShort(i * 2, (short) indices[i]);
+                }
+
+                indexBuffer = bgfx.createIndexBuffer(indexData, BGFX.BGFX_BUFFER_NONE);
+            }
+        }
+
+        return new Mesh(vertexBuffer, indexBuffer, numVertices, numIndices, index32);
+    }
+
+    private void ensureVertexCapacity(int num) {
+        long required = vertexData.position() + (long) num * stride;
+
+        if (required <= vertexData.capacity()) {
+            return;
+        }
+
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(required, vertexData.capacity() * 2L));
+
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+
+        vertexData.flip();
+        grown.put(vertexData);
+
+        vertexData = grown;
+    }
+
+}
@@ -0,0 +1,592 @@
+package twilight.bgfx.mesh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import twilight.bgfx.Attrib;
+import twilight.bgfx.AttribType;
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.Capability;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.VertexDecl;
+import twilight.bgfx.VertexLayout;
+import twilight.bgfx.buffers.IndexBuffer;
+import twilight.bgfx.buffers.VertexBuffer;
+import twilight.bgfx.util.ResourceUtil;
+
+/**
+ * <p>
+ * A binary mesh container holding the vertex layout, the vertex and index
+ * blocks and the bounds of a mesh, laid out so it can be loaded without
+ * parsing.
+ * </p>
+ *
+ * <p>
+ * {@link #load(File)} memory maps the file and the vertex and index blocks
+ * are slices of the mapping, so {@link #createMesh(BGFX)} passes them to
+ * createVertexBuffer and createIndexBuffer without copying them into the
+ * Java heap. Files are written with
+ * {@link #write(File, VertexDecl, ByteBuffer, int, int[], int)}.
+ * </p>
+ *
+ * <p>
+ * All values are little endian. The file starts with a fixed size header,
+ * followed by one 8 byte record per vertex attribute and the vertex and index
+ * blocks, each aligned to {@link #BLOCK_ALIGNMENT} bytes:
+ * </p>
+ *
+ * <pre>
+ * int     magic 'TBMS'
+ * int     version
+ * int     flags, FLAG_INDEX32
+ * int     renderer type ordinal the layout was computed for
+ * int     stride
+ * int     number of attributes
+ * int     number of vertices
+ * int     number of indices
+ * float   bounds min x, y, z, max x, y, z
+ * float   bounding sphere center x, y, z, radius
+ * long    vertex block offset, size
+ * long    index block offset, size
+ * per attribute:
+ * byte    attribute ordinal
+ * byte    number of elements
+ * byte    attribute type ordinal
+ * byte    1 if normalized | 2 if as int
+ * short   offset
+ * short   reserved
+ * </pre>
+ *
+ * @author tmccrary
+ *
+ */
+public final class MeshFile {
+
+    /** The magic number at the start of every file, 'TBMS' in file order. */
+    public static final int MAGIC = 0x534d4254;
+
+    /** The current format version. */
+    public static final int VERSION = 1;
+
+    /** Set if the index block holds 32 bit indices. */
+    public static final int FLAG_INDEX32 = 1;
+
+    /** The alignment of the vertex and index blocks in bytes. */
+    public static final int BLOCK_ALIGNMENT = 16;
+
+    private static final int HEADER_SIZE = 104;
+    private static final int ATTRIB_SIZE = 8;
+
+    private static final int ATTRIB_NORMALIZED = 1;
+    private static final int ATTRIB_AS_INT = 2;
+
+    private final VertexDecl decl;
+    private final boolean ownsDecl;
+    private final ByteBuffer vertexData;
+    private final ByteBuffer indexData;
+    private final int numVertices;
+    private final int numIndices;
+    private final boolean index32;
+    private final float[] bounds;
+    private final float[] sphere;
+
+    private MeshFile(VertexDecl decl, boolean ownsDecl, ByteBuffer vertexData, ByteBuffer indexData,
+            int numVertices, int numIndices, boolean index32, float[] bounds, float[] sphere) {
+        this.decl = decl;
+        this.ownsDecl = ownsDecl;
+        this.vertexData = vertexData;
+        this.indexData = indexData;
+        this.numVertices = numVertices;
+        this.numIndices = numIndices;
+        this.index32 = index32;
+        this.bounds = bounds;
+        this.sphere = sphere;
+    }
+
+    /**
+     * <p>
+     * Maps a mesh file and creates a vertex declaration for its layout, which
+     * is destroyed by {@link #destroy()}.
+     * </p>
+     *
+     * @param file
+     *            the file to load
+     * @return the mapped mesh
+     */
+    public static MeshFile load(File file) {
+        return load(file, null);
+    }
+
+    /**
+     * <p>
+     * Maps a mesh file whose layout is expected to match an existing vertex
+     * declaration, so many files can share one declaration.
+     * </p>
+     *
+     * @param file
+     *            the file to load
+     * @param decl
+     *            the declaration the layout must match, or null to create
+     *            one
+     * @return the mapped mesh
+     */
+    public static MeshFile load(File file, VertexDecl decl) {
+        checkByteOrder();
+
+        return read(ResourceUtil.mapFile(file), decl, file.getPath());
+    }
+
+    private static MeshFile read(ByteBuffer data, VertexDecl decl, String name) {
+        data.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new BGFXException("Not a mesh file: " + name);
+        }
+
+        if (data.getInt(4) != VERSION) {
+            throw new BGFXException("Unsupported mesh file version " + data.getInt(4) + ": " + name);
+        }
+
+        int flags = data.getInt(8);
+        int rendererOrdinal = data.getInt(12);
+        int stride = data.getInt(16);
+        int numAttribs = data.getInt(20);
+        int numVertices = data.getInt(24);
+        int numIndices = data.getInt(28);
+
+        float[] bounds = new float[6];
+        float[] sphere = new float[4];
+
+        for (int i = 0; i < 6; i++) {
+            bounds[i] = data.getFloat(32 + i * 4);
+        }
+
+        for (int i = 0; i < 4; i++) {
+            sphere[i] = data.getFloat(56 + i * 4);
+        }
+
+        long vertexOffset = data.getLong(72);
+        long vertexSize = data.getLong(80);
+        long indexOffset = data.getLong(88);
+        long indexSize = data.getLong(96);
+
+        boolean index32 = (flags & FLAG_INDEX32) != 0;
+
+        if (rendererOrdinal < 0 || rendererOrdinal >= RendererType.Count.ordinal() || numAttribs < 1
+                || numAttribs > Attrib.Count.ordinal() || numVertices < 0 || numIndices < 0
+                || vertexSize != (long) numVertices * stride || indexSize != (long) numIndices * (index32 ? 4 : 2)
+                || !inRange(vertexOffset, vertexSize, data.capacity())
+                || !inRange(indexOffset, indexSize, data.capacity())
+                || HEADER_SIZE + numAttribs * ATTRIB_SIZE > data.capacity()) {
+            throw new BGFXException("Corrupt mesh file header: " + name);
+        }
+
+        boolean ownsDecl = decl == null;
+
+        if (ownsDecl) {
+            decl = createDecl(data, RendererType.values()[rendererOrdinal], numAttribs);
+        }
+
+        if (!matchesLayout(data, decl.getLayout(), stride, numAttribs)) {
+            if (ownsDecl) {
+                decl.destroy();
+            }
+
+            throw new BGFXException("Vertex layout of the mesh file doesn't match the declaration: " + name);
+        }
+
+        return new MeshFile(decl, ownsDecl, slice(data, vertexOffset, vertexSize), slice(data, indexOffset,
+                indexSize), numVertices, numIndices, index32, bounds, sphere);
+    }
+
+    /**
+     * <p>
+     * Writes a mesh file. Indices are stored as 16 bit values when the
+     * largest index fits, otherwise as 32 bit values. Every index must refer
+     * to one of the vertices.
+     * </p>
+     *
+     * @param file
+     *            the file to write
+     * @param decl
+     *            the vertex declaration of the vertex data
+     * @param vertices
+     *            vertex data, vertex 0 starts at the buffer position
+     * @param numVertices
+     *            the number of vertices
+     * @param indices
+     *            the triangle list, or null for a non indexed mesh
+     * @param numIndices
+     *            the number of indices
+     */
+    public static void write(File file, VertexDecl decl, ByteBuffer vertices, int numVertices, int[] indices,
+            int numIndices) {
+        checkByteOrder();
+
+        VertexLayout layout = decl.getLayout();
+        int stride = layout.getStride();
+
+        if ((long) numVertices * stride > vertices.remaining()) {
+            throw new BGFXException("Vertex data holds less than " + numVertices + " vertices.");
+        }
+
+        if (numIndices < 0 || numIndices > 0 && (indices == null || indices.length < numIndices)) {
+            throw new BGFXException("Index array holds less than " + numIndices + " indices.");
+        }
+
+        int maxIndex = -1;
+
+        for (int i = 0; i < numIndices; i++) {
+            if (indices[i] < 0 || indices[i] >= numVertices) {
+                throw new BGFXException("Index " + indices[i] + " is out of range for " + numVertices + " vertices.");
+            }
+
+            maxIndex = Math.max(maxIndex, indices[i]);
+        }
+
+        boolean index32 = maxIndex > MeshBuilder.MAX_INDEX16;
+        Attrib[] attribs = sortedAttribs(layout);
+        int numAttribs = attribs.length;
+
+        long vertexOffset = align(HEADER_SIZE + numAttribs * ATTRIB_SIZE);
+        long vertexSize = (long) numVertices * stride;
+        long indexOffset = align(vertexOffset + vertexSize);
+        long indexSize = (long) numIndices * (index32 ? 4 : 2);
+
+        float[] bounds = new float[6];
+        float[] sphere = new float[4];
+        computeBounds(decl, vertices, numVertices, bounds, sphere);
+
+        // VertexDecl.begin() computes the layout for Count, which has the same
+        // attribute sizes as Null and isn't a valid renderer in the file
+        RendererType rendererType = layout.getRendererType();
+
+        if (rendererType == RendererType.Count) {
+            rendererType = RendererType.Null;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate((int) vertexOffset).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(index32 ? FLAG_INDEX32 : 0);
+        header.putInt(rendererType.ordinal()).putInt(stride).putInt(numAttribs);
+        header.putInt(numVertices).putInt(numIndices);
+
+        for (int i = 0; i < 6; i++) {
+            header.putFloat(bounds[i]);
+        }
+
+        for (int i = 0; i < 4; i++) {
+            header.putFloat(sphere[i]);
+        }
+
+        header.putLong(vertexOffset).putLong(vertexSize).putLong(indexOffset).putLong(indexSize);
+
+        for (Attrib attrib : attribs) {
+            int attribFlags = (layout.isNormalized(attrib) ? ATTRIB_NORMALIZED : 0)
+                    | (layout.isAsInt(attrib) ? ATTRIB_AS_INT : 0);
+
+            header.put((byte) attrib.ordinal()).put((byte) layout.getNum(attrib));
+            header.put((byte) layout.getType(attrib).ordinal()).put((byte) attribFlags);
+            header.putShort((short) layout.getOffset(attrib)).putShort((short) 0);
+        }
+
+        header.clear();
+
+        ByteBuffer vertexBlock = vertices.duplicate();
+        vertexBlock.limit(vertexBlock.position() + (int) vertexSize);
+
+        ByteBuffer indexBlock = ByteBuffer.allocateDirect((int) Math.max(indexSize, 1)).order(
+                ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < numIndices; i++) {
+            if (index32) {
+                indexBlock.putInt(indices[i]);
+            } else {
+                indexBlock.putShort((short) indices[i]);
+            }
+        }
+
+        indexBlock.flip();
+
+        try {
+            RandomAccessFile output = new RandomAccessFile(file, "rw");
+
+            try {
+                FileChannel channel = output.getChannel();
+                channel.truncate(0);
+
+                writeFully(channel, header, 0);
+                writeFully(channel, vertexBlock, vertexOffset);
+                writeFully(channel, indexBlock, indexOffset);
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            throw new BGFXException("Error writing mesh file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * <p>
+     * Writes a processed mesh to a mesh file.
+     * </p>
+     *
+     * @param file
+     *            the file to write
+     * @param mesh
+     *            the processed mesh
+     */
+    public static void write(File file, ProcessedMesh mesh) {
+        write(file, mesh.getDecl(), mesh.getVertexData(), mesh.getVertexCount(), mesh.getIndices(),
+                mesh.getIndexCount());
+    }
+
+    /**
+     * <p>
+     * Creates the static buffers of the mesh straight from the mapped file.
+     * Must be called on the BGFX thread.
+     * </p>
+     *
+     * @param bgfx
+     *            the context to create the buffers in
+     * @return the mesh
+     */
+    public Mesh createMesh(BGFX bgfx) {
+        if (index32 && !bgfx.getCaps().isSupported(Capability.BGFX_CAPS_INDEX32)) {
+            throw new BGFXException("The renderer doesn't support 32 bit indices, the mesh has " + numVertices
+                    + " vertices.");
+        }
+
+        VertexBuffer vertexBuffer = bgfx.createVertexBuffer(vertexData, decl);
+        IndexBuffer indexBuffer = null;
+
+        if (numIndices > 0) {
+            indexBuffer = bgfx.createIndexBuffer(indexData, index32 ? BGFX.BGFX_BUFFER_INDEX32
+                    : BGFX.BGFX_BUFFER_NONE);
+        }
+
+        return new Mesh(vertexBuffer, indexBuffer, numVertices, numIndices, index32);
+    }
+
+    /**
+     * @return the vertex declaration of the vertex block
+     */
+    public VertexDecl getDecl() {
+        return decl;
+    }
+
+    /**
+     * @return the vertex block, a read only slice of the mapped file
+     */
+    public ByteBuffer getVertexData() {
+        return vertexData.duplicate().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @return the index block, a read only slice of the mapped file
+     */
+    public ByteBuffer getIndexData() {
+        return indexData.duplicate().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int getVertexCount() {
+        return numVertices;
+    }
+
+    /**
+     * @return the number of indices, 0 for a non indexed mesh
+     */
+    public int getIndexCount() {
+        return numIndices;
+    }
+
+    /**
+     * @return true if the index block holds 32 bit indices
+     */
+    public boolean isIndex32() {
+        return index32;
+    }
+
+    /**
+     * @return the axis aligned bounds, min x, y, z followed by max x, y, z
+     */
+    public float[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * @return the bounding sphere, center x, y, z followed by the radius
+     */
+    public float[] getBoundingSphere() {
+        return sphere.clone();
+    }
+
+    /**
+     * <p>
+     * Destroys the vertex declaration if it was created by
+     * {@link #load(File)}. The mapping is released once the mesh file and
+     * its buffers are no longer reachable.
+     * </p>
+     */
+    public void destroy() {
+        if (ownsDecl) {
+            decl.destroy();
+        }
+    }
+
+    private static VertexDecl createDecl(ByteBuffer data, RendererType rendererType, int numAttribs) {
+        VertexDecl decl = VertexDecl.begin(rendererType);
+
+        // Attributes are written in offset order, so adding them in file
+        // order reproduces the offsets
+        for (int i = 0; i < numAttribs; i++) {
+            int record = HEADER_SIZE + i * ATTRIB_SIZE;
+
+            int attrib = data.get(record);
+            int num = data.get(record + 1);
+            int type = data.get(record + 2);
+            int flags = data.get(record + 3);
+
+            if (attrib < 0 || attrib >= Attrib.Count.ordinal() || type < 0 || type >= AttribType.Count.ordinal()
+                    || num < 1 || num > 4) {
+                decl.destroy();
+                throw new BGFXException("Corrupt mesh file attribute " + i + ".");
+            }
+
+            decl.add(Attrib.values()[attrib], num, AttribType.values()[type], (flags & ATTRIB_NORMALIZED) != 0,
+                    (flags & ATTRIB_AS_INT) != 0);
+        }
+
+        decl.end();
+
+        return decl;
+    }
+
+    /**
+     * @return the attributes of the layout in offset order
+     */
+    private static Attrib[] sortedAttribs(VertexLayout layout) {
+        Attrib[] attribs = new Attrib[Attrib.Count.ordinal()];
+        int count = 0;
+
+        for (Attrib attrib : Attrib.values()) {
+            if (attrib == Attrib.Count || !layout.has(attrib)) {
+                continue;
+            }
+
+            int i = count++;
+
+            while (i > 0 && layout.getOffset(attribs[i - 1]) > layout.getOffset(attrib)) {
+                attribs[i] = attribs[i - 1];
+                i--;
+            }
+
+            attribs[i] = attrib;
+        }
+
+        return Arrays.copyOf(attribs, count);
+    }
+
+    private static boolean matchesLayout(ByteBuffer data, VertexLayout layout, int stride, int numAttribs) {
+        boolean matches = layout.getStride() == stride && sortedAttribs(layout).length == numAttribs;
+
+        for (int i = 0; i < numAttribs && matches; i++) {
+            int record = HEADER_SIZE + i * ATTRIB_SIZE;
+            int attrib = data.get(record);
+
+            if (attrib < 0 || attrib >= Attrib.Count.ordinal()) {
+                matches = false;
+                break;
+            }
+
+            Attrib key = Attrib.values()[attrib];
+            int flags = data.get(record + 3);
+
+            matches = layout.has(key) && layout.getNum(key) == data.get(record + 1)
+                    && layout.getType(key).ordinal() == data.get(record + 2)
+                    && layout.isNormalized(key) == ((flags & ATTRIB_NORMALIZED) != 0)
+                    && layout.isAsInt(key) == ((flags & ATTRIB_AS_INT) != 0)
+                    && layout.getOffset(key) == (data.getShort(record + 4) & 0xffff);
+        }
+
+        return matches;
+    }
+
+    private static void computeBounds(VertexDecl decl, ByteBuffer vertices, int numVertices, float[] bounds,
+            float[] sphere) {
+        if (numVertices == 0 || !decl.getLayout().has(Attrib.Position)) {
+            return;
+        }
+
+        ByteBuffer data = vertices.duplicate();
+        float[] position = new float[4];
+
+        bounds[0] = bounds[1] = bounds[2] = Float.MAX_VALUE;
+        bounds[3] = bounds[4] = bounds[5] = -Float.MAX_VALUE;
+
+        for (int i = 0; i < numVertices; i++) {
+            BGFX.vertexUnpack(position, Attrib.Position, decl, data, i);
+
+            for (int k = 0; k < 3; k++) {
+                bounds[k] = Math.min(bounds[k], position[k]);
+                bounds[k + 3] = Math.max(bounds[k + 3], position[k]);
+            }
+        }
+
+        for (int k = 0; k < 3; k++) {
+            sphere[k] = (bounds[k] + bounds[k + 3]) * 0.5f;
+        }
+
+        // Centered on the box, tighter than the box's half diagonal
+        float radiusSq = 0;
+
+        for (int i = 0; i < numVertices; i++) {
+            BGFX.vertexUnpack(position, Attrib.Position, decl, data, i);
+
+            float dx = position[0] - sphere[0];
+            float dy = position[1] - sphere[1];
+            float dz = position[2] - sphere[2];
+
+            radiusSq = Math.max(radiusSq, dx * dx + dy * dy + dz * dz);
+        }
+
+        sphere[3] = (float) Math.sqrt(radiusSq);
+    }
+
+    private static ByteBuffer slice(ByteBuffer data, long offset, long size) {
+        ByteBuffer view = data.duplicate();
+        view.limit((int) (offset + size));
+        view.position((int) offset);
+
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private static boolean inRange(long offset, long size, int capacity) {
+        return offset >= 0 && size >= 0 && offset + size <= capacity;
+    }
+
+    private static long align(long offset) {
+        return (offset + BLOCK_ALIGNMENT - 1) & ~(long) (BLOCK_ALIGNMENT - 1);
+    }
+
+    private static void checkByteOrder() {
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+            throw new BGFXException("Mesh files can only be mapped on little endian platforms.");
+        }
+    }
+
+}
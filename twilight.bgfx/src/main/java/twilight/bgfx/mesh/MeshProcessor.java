@@ -0,0 +1,929 @@
+package twilight.bgfx.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import twilight.bgfx.Attrib;
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.VertexDecl;
+import twilight.bgfx.VertexLayout;
+
+/**
+ * <p>
+ * Prepares triangle list meshes for rendering: welds duplicate vertices,
+ * reorders triangles for the post transform vertex cache, reorders clusters
+ * of triangles to reduce overdraw and compacts the vertices into first use
+ * order, see {@link #process(ByteBuffer, int, int[], int)}.
+ * </p>
+ *
+ * <p>
+ * Everything runs in Java on the calling thread against the
+ * {@link VertexLayout} of the declaration, without touching the BGFX
+ * context, so meshes can be processed on worker threads while loading.
+ * Unlike BGFX#weldVertices the vertex count isn't limited to 16 bits. The
+ * settings must not be changed while other threads are processing, the
+ * processing methods themselves only use local state.
+ * </p>
+ *
+ * <p>
+ * Vertex cache optimization uses Tom Forsyth's linear speed algorithm,
+ * overdraw optimization follows Sander, Nehab and Barczak's "Fast Triangle
+ * Reordering for Vertex Locality and Reduced Overdraw": the cache optimized
+ * triangle list is split into clusters that can be moved without losing much
+ * cache efficiency, and clusters facing away from the mesh center are drawn
+ * first. {@link #countCacheMisses(int[], int, int)} simulates a FIFO vertex
+ * cache to measure the result.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class MeshProcessor {
+
+    /** The default welding tolerance, the same as the native weldVertices. */
+    public static final float DEFAULT_WELD_EPSILON = 0.001f;
+
+    /** The default size of the modelled vertex cache. */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    /** The default cache efficiency clusters may lose for overdraw, 5%. */
+    public static final float DEFAULT_OVERDRAW_THRESHOLD = 1.05f;
+
+    /** The largest cache size the vertex cache optimizer models. */
+    public static final int MAX_CACHE_SIZE = 64;
+
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    /** Valence scores are looked up below this many remaining triangles. */
+    private static final int VALENCE_TABLE_SIZE = 64;
+
+    private final VertexDecl decl;
+    private final VertexLayout layout;
+    private final int stride;
+
+    private float weldEpsilon = DEFAULT_WELD_EPSILON;
+    private boolean weldPositionOnly;
+    private int cacheSize = DEFAULT_CACHE_SIZE;
+    private float overdrawThreshold = DEFAULT_OVERDRAW_THRESHOLD;
+
+    /**
+     * @param decl
+     *            the vertex declaration, must contain a position attribute
+     */
+    public MeshProcessor(VertexDecl decl) {
+        this.decl = decl;
+        this.layout = decl.getLayout();
+        this.stride = layout.getStride();
+
+        if (!layout.has(Attrib.Position)) {
+            throw new BGFXException("Mesh processing requires a position attribute.");
+        }
+    }
+
+    /**
+     * <p>
+     * Sets the tolerance for position comparison while welding, 0 welds only
+     * identical positions and a negative value disables welding.
+     * </p>
+     *
+     * @param weldEpsilon
+     *            the largest distance between welded positions
+     */
+    public void setWeldEpsilon(float weldEpsilon) {
+        this.weldEpsilon = weldEpsilon;
+    }
+
+    /**
+     * @return the largest distance between welded positions, negative if
+     *         welding is disabled
+     */
+    public float getWeldEpsilon() {
+        return weldEpsilon;
+    }
+
+    /**
+     * <p>
+     * By default vertices are only welded when all other attributes are
+     * identical, so texture and normal seams are kept. When set, vertices are
+     * welded on position alone like the native weldVertices.
+     * </p>
+     *
+     * @param weldPositionOnly
+     *            true to ignore the other attributes
+     */
+    public void setWeldPositionOnly(boolean weldPositionOnly) {
+        this.weldPositionOnly = weldPositionOnly;
+    }
+
+    /**
+     * @return true if vertices are welded on position alone
+     */
+    public boolean isWeldPositionOnly() {
+        return weldPositionOnly;
+    }
+
+    /**
+     * @param cacheSize
+     *            the number of vertices in the modelled vertex cache, 4 to
+     *            {@link #MAX_CACHE_SIZE}
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 4 || cacheSize > MAX_CACHE_SIZE) {
+            throw new IllegalArgumentException("Cache size out of range: " + cacheSize);
+        }
+
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * @return the number of vertices in the modelled vertex cache
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * <p>
+     * Sets how much the cache miss ratio of a cluster may grow when it is
+     * split for overdraw reordering, 1.05 allows 5% more misses. Values below
+     * 1 disable overdraw optimization.
+     * </p>
+     *
+     * @param overdrawThreshold
+     *            the allowed cache miss ratio growth
+     */
+    public void setOverdrawThreshold(float overdrawThreshold) {
+        this.overdrawThreshold = overdrawThreshold;
+    }
+
+    /**
+     * @return the allowed cache miss ratio growth
+     */
+    public float getOverdrawThreshold() {
+        return overdrawThreshold;
+    }
+
+    /**
+     * <p>
+     * Processes a non indexed triangle list.
+     * </p>
+     *
+     * @param vertices
+     *            vertex data, vertex 0 starts at the buffer position
+     * @param numVertices
+     *            the number of vertices, a multiple of 3
+     * @return the processed mesh
+     * @see #process(ByteBuffer, int, int[], int)
+     */
+    public ProcessedMesh process(ByteBuffer vertices, int numVertices) {
+        int[] indices = new int[numVertices];
+
+        for (int i = 0; i < numVertices; i++) {
+            indices[i] = i;
+        }
+
+        return process(vertices, numVertices, indices, numVertices);
+    }
+
+    /**
+     * <p>
+     * Welds, optimizes and compacts an indexed triangle list. Triangles that
+     * become degenerate through welding are removed and vertices no triangle
+     * references are dropped. Neither the vertices nor the indices are
+     * modified.
+     * </p>
+     *
+     * @param vertices
+     *            vertex data, vertex 0 starts at the buffer position
+     * @param numVertices
+     *            the number of vertices
+     * @param indices
+     *            the triangle list
+     * @param numIndices
+     *            the number of indices to use, a multiple of 3
+     * @return the processed mesh
+     */
+    public ProcessedMesh process(ByteBuffer vertices, int numVertices, int[] indices, int numIndices) {
+        checkVertices(vertices, numVertices);
+
+        if (numIndices % 3 != 0) {
+            throw new BGFXException("Index count is not a whole number of triangles: " + numIndices);
+        }
+
+        int[] output = Arrays.copyOf(indices, numIndices);
+
+        for (int i = 0; i < numIndices; i++) {
+            if (output[i] < 0 || output[i] >= numVertices) {
+                throw new BGFXException("Index " + output[i] + " is out of range for " + numVertices + " vertices.");
+            }
+        }
+
+        float[] positions = readPositions(vertices, numVertices);
+
+        if (weldEpsilon >= 0) {
+            int[] remap = new int[numVertices];
+            weld(remap, vertices, positions, numVertices);
+
+            for (int i = 0; i < numIndices; i++) {
+                output[i] = remap[output[i]];
+            }
+        }
+
+        numIndices = removeDegenerates(output, numIndices);
+
+        optimizeVertexCache(output, numIndices, numVertices, cacheSize);
+
+        if (overdrawThreshold >= 1) {
+            optimizeOverdraw(output, numIndices, positions, cacheSize, overdrawThreshold);
+        }
+
+        return compact(vertices, numVertices, output, numIndices);
+    }
+
+    /**
+     * <p>
+     * Welds vertices whose positions are within the weld epsilon of each
+     * other, see {@link #setWeldPositionOnly(boolean)}. Every entry of remap
+     * receives the index of the first vertex it was welded to, which is its
+     * own index for unique vertices.
+     * </p>
+     *
+     * @param remap
+     *            receives the remapping table, at least numVertices long
+     * @param vertices
+     *            vertex data, vertex 0 starts at the buffer position
+     * @param numVertices
+     *            the number of vertices
+     * @return the number of unique vertices
+     */
+    public int weld(int[] remap, ByteBuffer vertices, int numVertices) {
+        checkVertices(vertices, numVertices);
+
+        return weld(remap, vertices, readPositions(vertices, numVertices), numVertices);
+    }
+
+    /**
+     * <p>
+     * Reorders clusters of a triangle list in place to reduce overdraw, see
+     * {@link #setOverdrawThreshold(float)}. The list should have been
+     * optimized for the vertex cache first.
+     * </p>
+     *
+     * @param indices
+     *            the triangle list
+     * @param numIndices
+     *            the number of indices, a multiple of 3
+     * @param vertices
+     *            vertex data, vertex 0 starts at the buffer position
+     * @param numVertices
+     *            the number of vertices
+     */
+    public void optimizeOverdraw(int[] indices, int numIndices, ByteBuffer vertices, int numVertices) {
+        checkVertices(vertices, numVertices);
+
+        optimizeOverdraw(indices, numIndices, readPositions(vertices, numVertices), cacheSize,
+                Math.max(overdrawThreshold, 1));
+    }
+
+    /**
+     * <p>
+     * Reorders the triangles of a triangle list in place for a post transform
+     * vertex cache of the supplied size, using Tom Forsyth's linear speed
+     * vertex cache optimization.
+     * </p>
+     *
+     * @param indices
+     *            the triangle list
+     * @param numIndices
+     *            the number of indices, a multiple of 3
+     * @param numVertices
+     *            the number of vertices the indices refer to
+     * @param cacheSize
+     *            the number of vertices in the modelled cache, 4 to
+     *            {@link #MAX_CACHE_SIZE}
+     */
+    public static void optimizeVertexCache(int[] indices, int numIndices, int numVertices, int cacheSize) {
+        int numTriangles = numIndices / 3;
+
+        if (numTriangles < 2) {
+            return;
+        }
+
+        cacheSize = Math.max(4, Math.min(cacheSize, MAX_CACHE_SIZE));
+
+        float[] cacheScores = new float[cacheSize];
+
+        for (int i = 0; i < cacheSize; i++) {
+            if (i < 3) {
+                cacheScores[i] = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaled = 1.0f - (i - 3) / (float) (cacheSize - 3);
+                cacheScores[i] = (float) Math.pow(scaled, CACHE_DECAY_POWER);
+            }
+        }
+
+        float[] valenceScores = new float[VALENCE_TABLE_SIZE];
+
+        for (int i = 1; i < VALENCE_TABLE_SIZE; i++) {
+            valenceScores[i] = VALENCE_BOOST_SCALE * (float) Math.pow(i, -VALENCE_BOOST_POWER);
+        }
+
+        // Triangles adjacent to every vertex, the live ones first
+        int[] remaining = new int[numVertices];
+
+        for (int i = 0; i < numIndices; i++) {
+            remaining[indices[i]]++;
+        }
+
+        int[] offsets = new int[numVertices + 1];
+
+        for (int v = 0; v < numVertices; v++) {
+            offsets[v + 1] = offsets[v] + remaining[v];
+        }
+
+        int[] adjacency = new int[numIndices];
+        int[] fill = Arrays.copyOf(offsets, numVertices);
+
+        for (int i = 0; i < numIndices; i++) {
+            adjacency[fill[indices[i]]++] = i / 3;
+        }
+
+        int[] cachePositions = new int[numVertices];
+        Arrays.fill(cachePositions, -1);
+
+        float[] vertexScores = new float[numVertices];
+
+        for (int v = 0; v < numVertices; v++) {
+            vertexScores[v] = vertexScore(-1, remaining[v], cacheScores, valenceScores);
+        }
+
+        float[] triangleScores = new float[numTriangles];
+        boolean[] emitted = new boolean[numTriangles];
+
+        int best = 0;
+
+        for (int t = 0; t < numTriangles; t++) {
+            int base = t * 3;
+            triangleScores[t] = vertexScores[indices[base]] + vertexScores[indices[base + 1]]
+                    + vertexScores[indices[base + 2]];
+
+            if (triangleScores[t] > triangleScores[best]) {
+                best = t;
+            }
+        }
+
+        int[] output = new int[numTriangles * 3];
+        int[] cache = new int[cacheSize + 3];
+        int[] newCache = new int[cacheSize + 3];
+        int cacheCount = 0;
+        int nextUnemitted = 0;
+
+        for (int emittedCount = 0; emittedCount < numTriangles; emittedCount++) {
+            if (best < 0) {
+                // Dead end, nothing in the cache has triangles left
+                while (emitted[nextUnemitted]) {
+                    nextUnemitted++;
+                }
+
+                best = nextUnemitted;
+            }
+
+            int base = best * 3;
+            int a = indices[base];
+            int b = indices[base + 1];
+            int c = indices[base + 2];
+
+            emitted[best] = true;
+            output[emittedCount * 3] = a;
+            output[emittedCount * 3 + 1] = b;
+            output[emittedCount * 3 + 2] = c;
+
+            removeAdjacency(adjacency, offsets, remaining, a, best);
+            removeAdjacency(adjacency, offsets, remaining, b, best);
+            removeAdjacency(adjacency, offsets, remaining, c, best);
+
+            // The triangle's vertices move to the front, the rest shift back
+            int newCount = 0;
+            newCache[newCount++] = a;
+            newCache[newCount++] = b;
+            newCache[newCount++] = c;
+
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+
+                if (v != a && v != b && v != c) {
+                    newCache[newCount++] = v;
+                }
+            }
+
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+            cacheCount = Math.min(newCount, cacheSize);
+
+            // Update the scores of the evicted and the cached vertices
+            for (int i = 0; i < newCount; i++) {
+                int v = cache[i];
+                int position = i < cacheSize ? i : -1;
+
+                cachePositions[v] = position;
+
+                float score = vertexScore(position, remaining[v], cacheScores, valenceScores);
+                float delta = score - vertexScores[v];
+                vertexScores[v] = score;
+
+                for (int j = offsets[v], end = offsets[v] + remaining[v]; j < end; j++) {
+                    triangleScores[adjacency[j]] += delta;
+                }
+            }
+
+            best = -1;
+            float bestScore = -Float.MAX_VALUE;
+
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+
+                for (int j = offsets[v], end = offsets[v] + remaining[v]; j < end; j++) {
+                    int t = adjacency[j];
+
+                    if (triangleScores[t] > bestScore) {
+                        bestScore = triangleScores[t];
+                        best = t;
+                    }
+                }
+            }
+        }
+
+        System.arraycopy(output, 0, indices, 0, numTriangles * 3);
+    }
+
+    /**
+     * <p>
+     * Counts the vertices a FIFO post transform cache of the supplied size
+     * has to transform to draw the triangle list, the way most GPUs cache
+     * vertex shader results.
+     * </p>
+     *
+     * @param indices
+     *            the triangle list
+     * @param numIndices
+     *            the number of indices
+     * @param cacheSize
+     *            the number of vertices in the cache
+     * @return the number of cache misses
+     */
+    public static int countCacheMisses(int[] indices, int numIndices, int cacheSize) {
+        CacheSimulator cache = new CacheSimulator(maxIndex(indices, numIndices) + 1, cacheSize);
+
+        int misses = 0;
+
+        for (int i = 0; i < numIndices; i++) {
+            misses += cache.access(indices[i]);
+        }
+
+        return misses;
+    }
+
+    /**
+     * <p>
+     * Returns the average cache miss ratio, the number of transformed
+     * vertices per triangle. 3 is the worst case, 0.5 the best case for
+     * large regular grids.
+     * </p>
+     *
+     * @param indices
+     *            the triangle list
+     * @param numIndices
+     *            the number of indices
+     * @param cacheSize
+     *            the number of vertices in the cache
+     * @return the average cache miss ratio
+     */
+    public static float getAcmr(int[] indices, int numIndices, int cacheSize) {
+        if (numIndices < 3) {
+            return 0;
+        }
+
+        return countCacheMisses(indices, numIndices, cacheSize) / (float) (numIndices / 3);
+    }
+
+    private int weld(int[] remap, ByteBuffer vertices, float[] positions, int numVertices) {
+        ByteBuffer data = vertices.duplicate();
+        int base = data.position();
+        int positionStart = layout.getOffset(Attrib.Position);
+        int positionEnd = positionStart + layout.getAttribSize(Attrib.Position);
+
+        float epsilon = Math.max(weldEpsilon, 0);
+        float epsilonSq = epsilon * epsilon;
+        boolean exact = epsilon == 0;
+
+        int tableSize = Integer.highestOneBit(Math.max(numVertices, 1) * 2 - 1) << 1;
+        int mask = tableSize - 1;
+        int[] heads = new int[tableSize];
+        int[] next = new int[numVertices];
+        Arrays.fill(heads, -1);
+
+        int unique = 0;
+
+        for (int i = 0; i < numVertices; i++) {
+            float x = positions[i * 3];
+            float y = positions[i * 3 + 1];
+            float z = positions[i * 3 + 2];
+
+            int found = -1;
+            int cx;
+            int cy;
+            int cz;
+
+            if (exact) {
+                // Adding 0 folds -0 into 0 so both hash alike
+                cx = Float.floatToIntBits(x + 0.0f);
+                cy = Float.floatToIntBits(y + 0.0f);
+                cz = Float.floatToIntBits(z + 0.0f);
+            } else {
+                cx = (int) Math.floor(x / epsilon);
+                cy = (int) Math.floor(y / epsilon);
+                cz = (int) Math.floor(z / epsilon);
+            }
+
+            int range = exact ? 0 : 1;
+
+            search: for (int dx = -range; dx <= range; dx++) {
+                for (int dy = -range; dy <= range; dy++) {
+                    for (int dz = -range; dz <= range; dz++) {
+                        for (int j = heads[hashCell(cx + dx, cy + dy, cz + dz) & mask]; j >= 0; j = next[j]) {
+                            float ex = positions[j * 3] - x;
+                            float ey = positions[j * 3 + 1] - y;
+                            float ez = positions[j * 3 + 2] - z;
+
+                            if (ex * ex + ey * ey + ez * ez <= epsilonSq
+                                    && (weldPositionOnly || sameAttributes(data, base, i, j, positionStart,
+                                            positionEnd))) {
+                                found = j;
+                                break search;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (found >= 0) {
+                remap[i] = found;
+            } else {
+                int bucket = hashCell(cx, cy, cz) & mask;
+                next[i] = heads[bucket];
+                heads[bucket] = i;
+
+                remap[i] = i;
+                unique++;
+            }
+        }
+
+        return unique;
+    }
+
+    /**
+     * @return true if the vertices are identical outside of the position
+     *         attribute
+     */
+    private boolean sameAttributes(ByteBuffer data, int base, int a, int b, int positionStart, int positionEnd) {
+        int offsetA = base + a * stride;
+        int offsetB = base + b * stride;
+
+        for (int i = 0; i < stride; i++) {
+            if (i == positionStart) {
+                i = positionEnd - 1;
+                continue;
+            }
+
+            if (data.get(offsetA + i) != data.get(offsetB + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void optimizeOverdraw(int[] indices, int numIndices, float[] positions, int cacheSize,
+            float threshold) {
+        int numTriangles = numIndices / 3;
+
+        if (numTriangles < 2) {
+            return;
+        }
+
+        int maxVertex = maxIndex(indices, numIndices);
+        CacheSimulator cache = new CacheSimulator(maxVertex + 1, cacheSize);
+
+        // Hard boundaries, triangles that miss the cache with every vertex
+        int[] hardStarts = new int[numTriangles + 1];
+        int[] hardMisses = new int[numTriangles];
+        int numHard = 0;
+
+        for (int t = 0; t < numTriangles; t++) {
+            int misses = cache.access(indices[t * 3]) + cache.access(indices[t * 3 + 1])
+                    + cache.access(indices[t * 3 + 2]);
+
+            if (t == 0 || misses == 3) {
+                hardStarts[numHard++] = t;
+            }
+
+            hardMisses[numHard - 1] += misses;
+        }
+
+        hardStarts[numHard] = numTriangles;
+
+        // Soft boundaries, split as soon as the cluster so far is within the
+        // threshold of the miss ratio of the hard cluster it belongs to
+        int[] clusterStarts = new int[numTriangles + 1];
+        int numClusters = 0;
+
+        for (int h = 0; h < numHard; h++) {
+            int start = hardStarts[h];
+            int end = hardStarts[h + 1];
+            float limit = threshold * hardMisses[h] / (end - start);
+
+            cache.reset();
+            clusterStarts[numClusters++] = start;
+
+            int misses = 0;
+
+            for (int t = start; t < end - 1; t++) {
+                misses += cache.access(indices[t * 3]) + cache.access(indices[t * 3 + 1])
+                        + cache.access(indices[t * 3 + 2]);
+
+                if (misses <= limit * (t - clusterStarts[numClusters - 1] + 1)) {
+                    clusterStarts[numClusters++] = t + 1;
+                    misses = 0;
+                    cache.reset();
+                }
+            }
+        }
+
+        clusterStarts[numClusters] = numTriangles;
+
+        // Area weighted centroids and normals of the clusters and the mesh
+        float[] centroids = new float[numClusters * 3];
+        float[] normals = new float[numClusters * 3];
+        float meshX = 0;
+        float meshY = 0;
+        float meshZ = 0;
+        float meshArea = 0;
+
+        for (int k = 0; k < numClusters; k++) {
+            float area = 0;
+
+            for (int t = clusterStarts[k]; t < clusterStarts[k + 1]; t++) {
+                int a = indices[t * 3] * 3;
+                int b = indices[t * 3 + 1] * 3;
+                int c = indices[t * 3 + 2] * 3;
+
+                float e1x = positions[b] - positions[a];
+                float e1y = positions[b + 1] - positions[a + 1];
+                float e1z = positions[b + 2] - positions[a + 2];
+                float e2x = positions[c] - positions[a];
+                float e2y = positions[c + 1] - positions[a + 1];
+                float e2z = positions[c + 2] - positions[a + 2];
+
+                float nx = e1y * e2z - e1z * e2y;
+                float ny = e1z * e2x - e1x * e2z;
+                float nz = e1x * e2y - e1y * e2x;
+                float weight = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+                normals[k * 3] += nx;
+                normals[k * 3 + 1] += ny;
+                normals[k * 3 + 2] += nz;
+
+                centroids[k * 3] += (positions[a] + positions[b] + positions[c]) * weight;
+                centroids[k * 3 + 1] += (positions[a + 1] + positions[b + 1] + positions[c + 1]) * weight;
+                centroids[k * 3 + 2] += (positions[a + 2] + positions[b + 2] + positions[c + 2]) * weight;
+                area += weight;
+            }
+
+            meshX += centroids[k * 3];
+            meshY += centroids[k * 3 + 1];
+            meshZ += centroids[k * 3 + 2];
+            meshArea += area;
+
+            float scale = area > 0 ? 1.0f / (area * 3) : 0;
+            centroids[k * 3] *= scale;
+            centroids[k * 3 + 1] *= scale;
+            centroids[k * 3 + 2] *= scale;
+        }
+
+        float meshScale = meshArea > 0 ? 1.0f / (meshArea * 3) : 0;
+        meshX *= meshScale;
+        meshY *= meshScale;
+        meshZ *= meshScale;
+
+        final float[] sortKeys = new float[numClusters];
+        Integer[] order = new Integer[numClusters];
+
+        for (int k = 0; k < numClusters; k++) {
+            float nx = normals[k * 3];
+            float ny = normals[k * 3 + 1];
+            float nz = normals[k * 3 + 2];
+            float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+            if (length > 0) {
+                sortKeys[k] = ((centroids[k * 3] - meshX) * nx + (centroids[k * 3 + 1] - meshY) * ny
+                        + (centroids[k * 3 + 2] - meshZ) * nz) / length;
+            }
+
+            order[k] = k;
+        }
+
+        // Outward facing clusters occlude the rest of the mesh, draw them first
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Float.compare(sortKeys[b], sortKeys[a]);
+            }
+        });
+
+        int[] source = Arrays.copyOf(indices, numTriangles * 3);
+        int write = 0;
+
+        for (int k = 0; k < numClusters; k++) {
+            int cluster = order[k];
+            int start = clusterStarts[cluster] * 3;
+            int length = clusterStarts[cluster + 1] * 3 - start;
+
+            System.arraycopy(source, start, indices, write, length);
+            write += length;
+        }
+    }
+
+    /**
+     * <p>
+     * Copies the referenced vertices in first use order and rewrites the
+     * indices accordingly.
+     * </p>
+     */
+    private ProcessedMesh compact(ByteBuffer vertices, int numVertices, int[] indices, int numIndices) {
+        int[] newIndices = new int[numVertices];
+        Arrays.fill(newIndices, -1);
+
+        int[] sourceVertices = new int[numVertices];
+        int count = 0;
+
+        for (int i = 0; i < numIndices; i++) {
+            int v = indices[i];
+
+            if (newIndices[v] < 0) {
+                sourceVertices[count] = v;
+                newIndices[v] = count++;
+            }
+
+            indices[i] = newIndices[v];
+        }
+
+        ByteBuffer source = vertices.duplicate();
+        int base = source.position();
+        ByteBuffer output = ByteBuffer.allocateDirect(Math.max(count * stride, 1)).order(ByteOrder.nativeOrder());
+
+        for (int i = 0; i < count; i++) {
+            int offset = base + sourceVertices[i] * stride;
+
+            source.limit(offset + stride);
+            source.position(offset);
+            output.put(source);
+            source.clear();
+        }
+
+        output.clear();
+
+        return new ProcessedMesh(decl, output, count, Arrays.copyOf(indices, numIndices));
+    }
+
+    private void checkVertices(ByteBuffer vertices, int numVertices) {
+        if ((long) numVertices * stride > vertices.remaining()) {
+            throw new BGFXException("Vertex data holds less than " + numVertices + " vertices.");
+        }
+    }
+
+    private float[] readPositions(ByteBuffer vertices, int numVertices) {
+        ByteBuffer data = vertices.duplicate();
+        float[] positions = new float[numVertices * 3];
+        float[] value = new float[4];
+
+        for (int i = 0; i < numVertices; i++) {
+            BGFX.vertexUnpack(value, Attrib.Position, decl, data, i);
+
+            positions[i * 3] = value[0];
+            positions[i * 3 + 1] = value[1];
+            positions[i * 3 + 2] = value[2];
+        }
+
+        return positions;
+    }
+
+    private static int removeDegenerates(int[] indices, int numIndices) {
+        int write = 0;
+
+        for (int i = 0; i < numIndices; i += 3) {
+            int a = indices[i];
+            int b = indices[i + 1];
+            int c = indices[i + 2];
+
+            if (a != b && b != c && a != c) {
+                indices[write++] = a;
+                indices[write++] = b;
+                indices[write++] = c;
+            }
+        }
+
+        return write;
+    }
+
+    private static void removeAdjacency(int[] adjacency, int[] offsets, int[] remaining, int vertex, int triangle) {
+        int start = offsets[vertex];
+        int last = start + remaining[vertex] - 1;
+
+        for (int j = start; j <= last; j++) {
+            if (adjacency[j] == triangle) {
+                adjacency[j] = adjacency[last];
+                adjacency[last] = triangle;
+                remaining[vertex]--;
+                return;
+            }
+        }
+    }
+
+    private static float vertexScore(int cachePosition, int remaining, float[] cacheScores, float[] valenceScores) {
+        if (remaining == 0) {
+            // No triangles left, the vertex doesn't matter anymore
+            return -1.0f;
+        }
+
+        float score = cachePosition < 0 ? 0 : cacheScores[cachePosition];
+
+        if (remaining < VALENCE_TABLE_SIZE) {
+            return score + valenceScores[remaining];
+        }
+
+        return score + VALENCE_BOOST_SCALE * (float) Math.pow(remaining, -VALENCE_BOOST_POWER);
+    }
+
+    private static int hashCell(int x, int y, int z) {
+        int h = x * 73856093 ^ y * 19349663 ^ z * 83492791;
+
+        return h ^ (h >>> 16);
+    }
+
+    private static int maxIndex(int[] indices, int numIndices) {
+        int max = -1;
+
+        for (int i = 0; i < numIndices; i++) {
+            max = Math.max(max, indices[i]);
+        }
+
+        return max;
+    }
+
+    /**
+     * A FIFO post transform cache. A vertex is cached if at most size - 1
+     * misses happened after it was inserted and it was inserted after the
+     * last reset.
+     */
+    private static final class CacheSimulator {
+        private final int size;
+
+        /** The miss count when each vertex was inserted, plus 1, 0 if never. */
+        private final int[] inserted;
+
+        private int misses;
+        private int resetMark;
+
+        CacheSimulator(int numVertices, int size) {
+            this.size = size;
+            this.inserted = new int[Math.max(numVertices, 0)];
+        }
+
+        /**
+         * @return 1 on a cache miss, 0 on a hit
+         */
+        int access(int vertex) {
+            int stamp = inserted[vertex] - 1;
+
+            if (stamp >= resetMark && misses - stamp <= size) {
+                return 0;
+            }
+
+            inserted[vertex] = ++misses;
+
+            return 1;
+        }
+
+        void reset() {
+            resetMark = misses;
+        }
+    }
+
+}
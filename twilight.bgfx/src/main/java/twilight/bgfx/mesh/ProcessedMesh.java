@@ -0,0 +1,100 @@
+package twilight.bgfx.mesh;
+
+import java.nio.ByteBuffer;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.VertexDecl;
+
+/**
+ * <p>
+ * The output of {@link MeshProcessor#process(ByteBuffer, int, int[], int)}:
+ * compacted vertex data in first use order and a triangle list indexing it.
+ * </p>
+ *
+ * <p>
+ * The vertex data can be passed to BGFX.createVertexBuffer and the indices to
+ * BGFX.createIndexBuffer(int[]) directly, or both can be uploaded with
+ * {@link #build(BGFX)}, which picks 16 or 32 bit indices like
+ * {@link MeshBuilder}.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class ProcessedMesh {
+
+    private final VertexDecl decl;
+    private final ByteBuffer vertexData;
+    private final int numVertices;
+    private final int[] indices;
+
+    ProcessedMesh(VertexDecl decl, ByteBuffer vertexData, int numVertices, int[] indices) {
+        this.decl = decl;
+        this.vertexData = vertexData;
+        this.numVertices = numVertices;
+        this.indices = indices;
+    }
+
+    /**
+     * @return the vertex declaration of the vertex data
+     */
+    public VertexDecl getDecl() {
+        return decl;
+    }
+
+    /**
+     * @return the vertex data, a direct buffer in native byte order whose
+     *         capacity is exactly the size of the vertices
+     */
+    public ByteBuffer getVertexData() {
+        return vertexData.duplicate().order(vertexData.order());
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int getVertexCount() {
+        return numVertices;
+    }
+
+    /**
+     * @return the triangle list, the array length is the number of indices
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * @return the number of indices
+     */
+    public int getIndexCount() {
+        return indices.length;
+    }
+
+    /**
+     * @return true if the indices don't fit into 16 bits
+     */
+    public boolean needsIndex32() {
+        return numVertices - 1 > MeshBuilder.MAX_INDEX16;
+    }
+
+    /**
+     * <p>
+     * Creates the static buffers of the mesh, must be called on the BGFX
+     * thread.
+     * </p>
+     *
+     * @param bgfx
+     *            the context to create the buffers in
+     * @return the mesh
+     * @see MeshBuilder#build(BGFX)
+     */
+    public Mesh build(BGFX bgfx) {
+        MeshBuilder builder = new MeshBuilder(decl, numVertices, indices.length);
+        builder.vertices(getVertexData());
+        builder.indices(indices);
+
+        return builder.build(bgfx);
+    }
+
+}
@@ -0,0 +1,525 @@
+package twilight.bgfx.render;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.Capability;
+import twilight.bgfx.buffers.IndexBuffer;
+import twilight.bgfx.buffers.InstanceDataBuffer;
+import twilight.bgfx.buffers.VertexBuffer;
+
+/**
+ * <p>
+ * Collects draws for a frame, orders them by a 64 bit sort key and merges
+ * runs of draws that only differ in their transform into instanced draws.
+ * </p>
+ *
+ * <p>
+ * Each draw is queued with {@link #add} and the queue is submitted with
+ * {@link #flush()}. Draws are ordered by view, program and texture, then
+ * grouped by vertex buffer, index buffer and render state, and finally
+ * ordered by depth. A run of consecutive draws sharing the same view,
+ * program, texture, buffers and state is submitted as a single draw when an
+ * instanced variant of its program was registered with
+ * {@link #setInstancedProgram(int, int)}. The transforms of the run are
+ * written to an {@link InstanceDataBuffer} as one 4x4 matrix per instance,
+ * read by the instanced shader as i_data0 to i_data3, and the depth of the
+ * first draw of the run is used for the instanced draw.
+ * </p>
+ *
+ * <p>
+ * Runs are submitted one draw at a time with setTransform when the renderer
+ * doesn't support instancing, when the program has no instanced variant,
+ * when the run is shorter than {@link #getMinInstances()} or when the
+ * instance data buffer is full.
+ * </p>
+ *
+ * <p>
+ * A queue is not thread safe and must be flushed on the BGFX submission
+ * thread. The backing arrays only grow, so once a queue has reached its
+ * steady state size adding draws does not allocate.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class RenderQueue {
+
+    /** The stride of one instance, a 4x4 float matrix. */
+    public static final int INSTANCE_STRIDE = 64;
+
+    /** The number of programs and textures that can be told apart by the sort key. */
+    public static final int MAX_KEY_HANDLES = 1 << 12;
+
+    /** The default minimum run length merged into an instanced draw. */
+    public static final int DEFAULT_MIN_INSTANCES = 2;
+
+    private static final int MATRIX_SIZE = 16;
+
+    private final BGFX bgfx;
+
+    /** Instanced program by program handle, INVALID_HANDLE if there is none. */
+    private final int[] instancedPrograms = new int[MAX_KEY_HANDLES];
+
+    /** 0 until the caps were checked, then 1 if instancing is supported, -1 if not. */
+    private int instancingSupport;
+
+    private boolean instancingEnabled = true;
+    private int minInstances = DEFAULT_MIN_INSTANCES;
+
+    // Queued draws, one entry per draw in every array
+    private int count;
+    private long[] keys;
+    private int[] views;
+    private int[] programs;
+    private VertexBuffer[] vertexBuffers;
+    private IndexBuffer[] indexBuffers;
+    private long[] states;
+    private int[] samplers;
+    private int[] textures;
+    private float[] transforms;
+
+    /** Draw indices in submission order, sorted by flush. */
+    private int[] order;
+
+    /** Merge sort scratch space. */
+    private int[] sortScratch;
+
+    /** A single transform passed to setTransform. */
+    private final float[] transform = new float[MATRIX_SIZE];
+
+    private int lastDrawCount;
+    private int lastSubmitCount;
+    private int lastInstancedCount;
+
+    /**
+     * @param bgfx
+     *            the context draws are submitted to
+     */
+    public RenderQueue(BGFX bgfx) {
+        this(bgfx, 256);
+    }
+
+    /**
+     * @param bgfx
+     *            the context draws are submitted to
+     * @param capacity
+     *            the initial number of draws
+     */
+    public RenderQueue(BGFX bgfx, int capacity) {
+        this.bgfx = bgfx;
+
+        Arrays.fill(instancedPrograms, BGFX.INVALID_HANDLE);
+        allocate(Math.max(capacity, 1));
+    }
+
+    /**
+     * <p>
+     * Builds a sort key. Views are ordered first, then programs, then
+     * textures, then depth. Only the lowest 8 bits of the view and the
+     * lowest 12 bits of the program and texture handles are used.
+     * </p>
+     *
+     * @param view
+     *            the view id
+     * @param program
+     *            the program handle
+     * @param texture
+     *            the texture handle, or BGFX.INVALID_HANDLE
+     * @param depth
+     *            the depth, compared as an unsigned value
+     * @return the sort key
+     */
+    public static long makeKey(int view, int program, int texture, int depth) {
+        return ((long) (view & 0xff) << 56) | ((long) (program & 0xfff) << 44) | ((long) (texture & 0xfff) << 32)
+                | (depth & 0xffffffffL);
+    }
+
+    /**
+     * <p>
+     * Registers the instanced variant of a program. Runs of draws using the
+     * program are submitted once with the instanced program, which must read
+     * the model matrix from the instance data instead of u_model.
+     * </p>
+     *
+     * @param program
+     *            the program draws are queued with
+     * @param instancedProgram
+     *            the instanced variant, or BGFX.INVALID_HANDLE to remove it
+     */
+    public void setInstancedProgram(int program, int instancedProgram) {
+        checkKeyHandle(program);
+
+        instancedPrograms[program] = instancedProgram;
+    }
+
+    /**
+     * @param enabled
+     *            false to submit every draw on its own
+     */
+    public void setInstancingEnabled(boolean enabled) {
+        this.instancingEnabled = enabled;
+    }
+
+    /**
+     * @return true if runs of draws are merged into instanced draws
+     */
+    public boolean isInstancingEnabled() {
+        return instancingEnabled;
+    }
+
+    /**
+     * @param minInstances
+     *            the shortest run that is merged into an instanced draw
+     */
+    public void setMinInstances(int minInstances) {
+        this.minInstances = Math.max(minInstances, 2);
+    }
+
+    /**
+     * @return the shortest run that is merged into an instanced draw
+     */
+    public int getMinInstances() {
+        return minInstances;
+    }
+
+    /**
+     * <p>
+     * Queues an untextured draw.
+     * </p>
+     *
+     * @see #add(int, int, VertexBuffer, IndexBuffer, long, int, int, int,
+     *      float[], int)
+     */
+    public void add(int view, int program, VertexBuffer vertexBuffer, IndexBuffer indexBuffer, long state,
+            int depth, float[] mtx, int mtxOffset) {
+        add(view, program, vertexBuffer, indexBuffer, state, BGFX.INVALID_HANDLE, BGFX.INVALID_HANDLE, depth, mtx,
+                mtxOffset);
+    }
+
+    /**
+     * <p>
+     * Queues a draw of the whole vertex and index buffer. The transform is
+     * copied, so the array can be reused right away.
+     * </p>
+     *
+     * @param view
+     *            the view id
+     * @param program
+     *            the program handle
+     * @param vertexBuffer
+     *            the vertex buffer
+     * @param indexBuffer
+     *            the index buffer, or null for a non indexed draw
+     * @param state
+     *            the render state, BGFX_STATE_*
+     * @param sampler
+     *            the sampler uniform of texture stage 0
+     * @param texture
+     *            the texture bound to stage 0, or BGFX.INVALID_HANDLE
+     * @param depth
+     *            the depth used for sorting
+     * @param mtx
+     *            the model matrix
+     * @param mtxOffset
+     *            the index of the first matrix element in mtx
+     */
+    public void add(int view, int program, VertexBuffer vertexBuffer, IndexBuffer indexBuffer, long state,
+            int sampler, int texture, int depth, float[] mtx, int mtxOffset) {
+        checkKeyHandle(program);
+
+        if (vertexBuffer == null) {
+            throw new NullPointerException("The vertex buffer must not be null.");
+        }
+
+        if (count == keys.length) {
+            grow();
+        }
+
+        int index = count++;
+
+        keys[index] = makeKey(view, program, texture, depth);
+        views[index] = view;
+        programs[index] = program;
+        vertexBuffers[index] = vertexBuffer;
+        indexBuffers[index] = indexBuffer;
+        states[index] = state;
+        samplers[index] = sampler;
+        textures[index] = texture;
+
+        System.arraycopy(mtx, mtxOffset, transforms, index * MATRIX_SIZE, MATRIX_SIZE);
+    }
+
+    /**
+     * @return the number of queued draws
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * <p>
+     * Drops all queued draws without submitting them.
+     * </p>
+     */
+    public void clear() {
+        Arrays.fill(vertexBuffers, 0, count, null);
+        Arrays.fill(indexBuffers, 0, count, null);
+
+        count = 0;
+    }
+
+    /**
+     * <p>
+     * Sorts and submits all queued draws, then clears the queue.
+     * </p>
+     */
+    public void flush() {
+        BGFX.checkValidContext(bgfx);
+
+        boolean instancing = instancingEnabled && isInstancingSupported();
+
+        sort();
+
+        int submits = 0;
+        int instanced = 0;
+        int start = 0;
+
+        while (start < count) {
+            int first = order[start];
+            int end = start + 1;
+
+            while (end < count && isCompatible(first, order[end])) {
+                end++;
+            }
+
+            int run = end - start;
+            int instancedProgram = instancedPrograms[programs[first]];
+
+            if (instancing && run >= minInstances && instancedProgram != BGFX.INVALID_HANDLE
+                    && bgfx.checkAvailInstanceDataBuffer(run, INSTANCE_STRIDE)) {
+                submitInstanced(start, end, instancedProgram);
+
+                submits++;
+                instanced += run;
+            } else {
+                for (int i = start; i < end; i++) {
+                    submitSingle(order[i]);
+                }
+
+                submits += run;
+            }
+
+            start = end;
+        }
+
+        lastDrawCount = count;
+        lastSubmitCount = submits;
+        lastInstancedCount = instanced;
+
+        clear();
+    }
+
+    /**
+     * @return the number of draws queued before the last flush
+     */
+    public int getLastDrawCount() {
+        return lastDrawCount;
+    }
+
+    /**
+     * @return the number of submit calls made by the last flush
+     */
+    public int getLastSubmitCount() {
+        return lastSubmitCount;
+    }
+
+    /**
+     * @return the number of draws merged into instanced draws by the last
+     *         flush
+     */
+    public int getLastInstancedCount() {
+        return lastInstancedCount;
+    }
+
+    private boolean isInstancingSupported() {
+        if (instancingSupport == 0) {
+            instancingSupport = bgfx.getCaps().isSupported(Capability.BGFX_CAPS_INSTANCING) ? 1 : -1;
+        }
+
+        return instancingSupport > 0;
+    }
+
+    private void submitInstanced(int start, int end, int instancedProgram) {
+        int first = order[start];
+        int run = end - start;
+
+        InstanceDataBuffer idb = bgfx.allocInstanceDataBuffer(run, INSTANCE_STRIDE);
+        FloatBuffer data = idb.getData().asFloatBuffer();
+
+        for (int i = start; i < end; i++) {
+            data.put(transforms, order[i] * MATRIX_SIZE, MATRIX_SIZE);
+        }
+
+        setDrawState(first, instancedProgram);
+        bgfx.setInstanceDataBuffer(idb, run);
+        bgfx.submit(views[first], (int) keys[first]);
+    }
+
+    private void submitSingle(int index) {
+        System.arraycopy(transforms, index * MATRIX_SIZE, transform, 0, MATRIX_SIZE);
+
+        bgfx.setTransform(transform, 1);
+        setDrawState(index, programs[index]);
+        bgfx.submit(views[index], (int) keys[index]);
+    }
+
+    private void setDrawState(int index, int program) {
+        bgfx.setVertexBuffer(vertexBuffers[index]);
+
+        if (indexBuffers[index] != null) {
+            bgfx.setIndexBuffer(indexBuffers[index], 0, 0xffffffffL);
+        }
+
+        if (textures[index] != BGFX.INVALID_HANDLE) {
+            bgfx.setTexture(0, samplers[index], textures[index], 0xffffffffL);
+        }
+
+        bgfx.setState(states[index], 0);
+        bgfx.setProgram(program);
+    }
+
+    /**
+     * @return true if both draws can be part of the same instanced draw
+     */
+    private boolean isCompatible(int a, int b) {
+        return views[a] == views[b] && programs[a] == programs[b] && textures[a] == textures[b]
+                && samplers[a] == samplers[b] && states[a] == states[b]
+                && vertexBuffers[a].getHandle() == vertexBuffers[b].getHandle()
+                && handleOf(indexBuffers[a]) == handleOf(indexBuffers[b]);
+    }
+
+    /**
+     * <p>
+     * Orders the draws with a stable merge sort, so draws that compare equal
+     * keep their submission order.
+     * </p>
+     */
+    private void sort() {
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count - width; low += width * 2) {
+                merge(low, low + width, Math.min(low + width * 2, count));
+            }
+        }
+    }
+
+    private void merge(int low, int middle, int high) {
+        if (compare(order[middle - 1], order[middle]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(order, low, sortScratch, low, high - low);
+
+        int left = low;
+        int right = middle;
+
+        for (int i = low; i < high; i++) {
+            if (left < middle && (right >= high || compare(sortScratch[left], sortScratch[right]) <= 0)) {
+                order[i] = sortScratch[left++];
+            } else {
+                order[i] = sortScratch[right++];
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Compares view, program and texture first, then the buffers and state
+     * so runs of the same mesh are adjacent, then depth.
+     * </p>
+     */
+    private int compare(int a, int b) {
+        long keyA = keys[a];
+        long keyB = keys[b];
+
+        int result = compareUnsigned(keyA >>> 32, keyB >>> 32);
+
+        if (result != 0) {
+            return result;
+        }
+
+        result = compareUnsigned(vertexBuffers[a].getHandle(), vertexBuffers[b].getHandle());
+
+        if (result != 0) {
+            return result;
+        }
+
+        result = compareUnsigned(handleOf(indexBuffers[a]), handleOf(indexBuffers[b]));
+
+        if (result != 0) {
+            return result;
+        }
+
+        result = compareUnsigned(states[a], states[b]);
+
+        if (result != 0) {
+            return result;
+        }
+
+        return compareUnsigned(keyA & 0xffffffffL, keyB & 0xffffffffL);
+    }
+
+    private static long handleOf(IndexBuffer buffer) {
+        return buffer == null ? -1 : buffer.getHandle();
+    }
+
+    private static int compareUnsigned(long a, long b) {
+        a += Long.MIN_VALUE;
+        b += Long.MIN_VALUE;
+
+        return a < b ? -1 : (a == b ? 0 : 1);
+    }
+
+    private static void checkKeyHandle(int handle) {
+        if (handle < 0 || handle >= MAX_KEY_HANDLES) {
+            throw new BGFXException("Program handle out of range for the sort key: " + handle);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        views = new int[capacity];
+        programs = new int[capacity];
+        vertexBuffers = new VertexBuffer[capacity];
+        indexBuffers = new IndexBuffer[capacity];
+        states = new long[capacity];
+        samplers = new int[capacity];
+        textures = new int[capacity];
+        transforms = new float[capacity * MATRIX_SIZE];
+        order = new int[capacity];
+        sortScratch = new int[capacity];
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+
+        keys = Arrays.copyOf(keys, capacity);
+        views = Arrays.copyOf(views, capacity);
+        programs = Arrays.copyOf(programs, capacity);
+        vertexBuffers = Arrays.copyOf(vertexBuffers, capacity);
+        indexBuffers = Arrays.copyOf(indexBuffers, capacity);
+        states = Arrays.copyOf(states, capacity);
+        samplers = Arrays.copyOf(samplers, capacity);
+        textures = Arrays.copyOf(textures, capacity);
+        transforms = Arrays.copyOf(transforms, capacity * MATRIX_SIZE);
+        order = new int[capacity];
+        sortScratch = new int[capacity];
+    }
+
+}
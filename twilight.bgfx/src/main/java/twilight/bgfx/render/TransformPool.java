@@ -0,0 +1,307 @@
+package twilight.bgfx.render;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.CommandBuffer;
+
+/**
+ * <p>
+ * Collects the model matrices of a frame and copies them into the matrix
+ * cache of BGFX with one {@link BGFX#allocTransform(FloatBuffer, int)} call,
+ * so a matrix used by several draws, such as a shadow, depth prepass and
+ * color pass of the same mesh, is only copied once.
+ * </p>
+ *
+ * <pre>
+ * int model = pool.add(matrix);
+ * ...
+ * pool.setTransform(model);
+ * bgfx.submit(SHADOW_VIEW, shadowProgram);
+ * pool.setTransform(model);
+ * bgfx.submit(SCENE_VIEW, program);
+ * </pre>
+ *
+ * <p>
+ * Matrices added since the last upload are uploaded by {@link #upload()},
+ * or by the first setTransform call that needs them, so adding every matrix
+ * before the first draw uploads the frame with a single call. The cache
+ * indices are only valid in the frame they were uploaded in, the pool is
+ * reset by BGFX.frame() and the indices returned by add must not be used
+ * afterwards.
+ * </p>
+ *
+ * <p>
+ * A pool is not thread safe, it must be used on the submission thread. The
+ * staging buffer only grows, so once a pool has reached its steady state
+ * size adding matrices does not allocate.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class TransformPool {
+
+    /** The default initial number of matrices. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** The largest number of matrices uploaded with one call. */
+    private static final int MAX_UPLOAD = 0xffff;
+
+    private static final int MATRIX_SIZE = 16;
+
+    private final BGFX bgfx;
+
+    /** The matrices added this frame. */
+    private FloatBuffer matrices;
+
+    /** The cache index of every uploaded matrix. */
+    private int[] cacheIndices;
+
+    private int count;
+    private int uploadedCount;
+    private int uploadCalls;
+    private boolean destroyed;
+
+    /**
+     * Creates a pool with the default initial capacity.
+     *
+     * @param bgfx
+     *            the context the matrices are cached in
+     */
+    public TransformPool(BGFX bgfx) {
+        this(bgfx, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param bgfx
+     *            the context the matrices are cached in
+     * @param capacity
+     *            the initial number of matrices
+     */
+    public TransformPool(BGFX bgfx, int capacity) {
+        this.bgfx = bgfx;
+
+        allocate(Math.max(capacity, 1));
+
+        bgfx.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (destroyed) {
+                    return;
+                }
+
+                reset();
+                TransformPool.this.bgfx.invokeLater(this);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Adds a matrix.
+     * </p>
+     *
+     * @param mtx
+     *            the 4x4 matrix, 16 floats
+     * @return the index of the matrix in the pool
+     */
+    public int add(float[] mtx) {
+        return add(mtx, 0);
+    }
+
+    /**
+     * <p>
+     * Adds a matrix stored in part of an array.
+     * </p>
+     *
+     * @param mtx
+     *            the array holding the matrix
+     * @param offset
+     *            the index of the first float of the matrix
+     * @return the index of the matrix in the pool
+     */
+    public int add(float[] mtx, int offset) {
+        checkDestroyed();
+        ensureCapacity(count + 1);
+
+        matrices.position(count * MATRIX_SIZE);
+        matrices.put(mtx, offset, MATRIX_SIZE);
+
+        return count++;
+    }
+
+    /**
+     * <p>
+     * Adds a matrix read from the position of a buffer, the position of the
+     * buffer is not changed.
+     * </p>
+     *
+     * @param mtx
+     *            the buffer holding the matrix
+     * @return the index of the matrix in the pool
+     */
+    public int add(FloatBuffer mtx) {
+        checkDestroyed();
+
+        if (mtx.remaining() < MATRIX_SIZE) {
+            throw new BGFXException("Matrix buffer is too small: " + mtx.remaining());
+        }
+
+        ensureCapacity(count + 1);
+
+        FloatBuffer source = mtx.duplicate();
+        source.limit(source.position() + MATRIX_SIZE);
+
+        matrices.position(count * MATRIX_SIZE);
+        matrices.put(source);
+
+        return count++;
+    }
+
+    /**
+     * <p>
+     * Copies the matrices added since the last upload into the matrix cache.
+     * </p>
+     */
+    public void upload() {
+        checkDestroyed();
+
+        while (uploadedCount < count) {
+            int num = Math.min(count - uploadedCount, MAX_UPLOAD);
+
+            matrices.limit((uploadedCount + num) * MATRIX_SIZE);
+            matrices.position(uploadedCount * MATRIX_SIZE);
+
+            long cache = bgfx.allocTransform(matrices, num);
+
+            for (int i = 0; i < num; i++) {
+                cacheIndices[uploadedCount + i] = (int) cache + i;
+            }
+
+            matrices.clear();
+            uploadedCount += num;
+            uploadCalls++;
+        }
+    }
+
+    /**
+     * <p>
+     * Sets a matrix of the pool as the model matrix of the next draw,
+     * uploading the pending matrices first if needed.
+     * </p>
+     *
+     * @param index
+     *            the index returned by add
+     */
+    public void setTransform(int index) {
+        bgfx.setTransform(getCacheIndex(index), 1);
+    }
+
+    /**
+     * <p>
+     * Records a matrix of the pool as the model matrix of the next draw,
+     * uploading the pending matrices first if needed. The command buffer must
+     * be submitted in the current frame.
+     * </p>
+     *
+     * @param commands
+     *            the command buffer to record into
+     * @param index
+     *            the index returned by add
+     */
+    public void setTransform(CommandBuffer commands, int index) {
+        commands.setTransform(getCacheIndex(index), 1);
+    }
+
+    /**
+     * @param index
+     *            the index returned by add
+     * @return the index of the matrix in the matrix cache of BGFX
+     */
+    public long getCacheIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new BGFXException("Invalid transform index: " + index);
+        }
+
+        if (index >= uploadedCount) {
+            upload();
+        }
+
+        return cacheIndices[index] & 0xffffffffL;
+    }
+
+    /**
+     * <p>
+     * Forgets every matrix. Called by BGFX.frame(), the matrix cache of BGFX
+     * is cleared every frame.
+     * </p>
+     */
+    public void reset() {
+        count = 0;
+        uploadedCount = 0;
+        uploadCalls = 0;
+        matrices.clear();
+    }
+
+    /**
+     * @return the number of matrices added this frame
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the number of allocTransform calls made this frame
+     */
+    public int getUploadCalls() {
+        return uploadCalls;
+    }
+
+    /**
+     * <p>
+     * Stops resetting the pool every frame, the pool can't be used
+     * afterwards.
+     * </p>
+     */
+    public void destroy() {
+        destroyed = true;
+    }
+
+    private void checkDestroyed() {
+        if (destroyed) {
+            throw new BGFXException("Transform pool has been destroyed.");
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= cacheIndices.length) {
+            return;
+        }
+
+        int capacity = cacheIndices.length;
+
+        while (capacity < required) {
+            capacity *= 2;
+        }
+
+        FloatBuffer old = matrices;
+        int[] oldIndices = cacheIndices;
+
+        allocate(capacity);
+
+        old.clear().limit(count * MATRIX_SIZE);
+        matrices.put(old).clear();
+        System.arraycopy(oldIndices, 0, cacheIndices, 0, uploadedCount);
+    }
+
+    private void allocate(int capacity) {
+        matrices = ByteBuffer.allocateDirect(capacity * MATRIX_SIZE * 4).order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        cacheIndices = new int[capacity];
+    }
+
+}
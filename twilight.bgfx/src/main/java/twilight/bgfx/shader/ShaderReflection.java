@@ -0,0 +1,130 @@
+package twilight.bgfx.shader;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.UniformType;
+
+/**
+ * <p>
+ * Reads the uniform table from the header of a shader compiled by shaderc.
+ * BGFX.getShaderUniforms only returns uniform handles, the names, types and
+ * array sizes are only available from the shader binary.
+ * </p>
+ *
+ * <p>
+ * The header starts with a magic of VSH, FSH or CSH followed by a version
+ * byte, the hash of the shader inputs and the uniform count. Every uniform
+ * is stored as its name, type, number of elements and register range.
+ * Versions 2 to 5 share this layout. Binaries before version 4 use the old
+ * list of uniform types, Uniform1i to Uniform4x4fv, which is mapped to the
+ * nearest current type as a whole, since the old codes overlap the current
+ * ones.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class ShaderReflection {
+
+    private static final int MIN_VERSION = 2;
+    private static final int MAX_VERSION = 5;
+
+    /** Set in the type of uniforms used by the fragment stage. */
+    private static final int FRAGMENT_BIT = 0x10;
+    private static final int TYPE_MASK = 0x0f;
+
+    /** The first version using the current uniform types. */
+    private static final int CURRENT_TYPES_VERSION = 4;
+
+    /**
+     * The current types of Uniform1i, Uniform1f, End, Uniform1iv,
+     * Uniform1fv, Uniform2fv, Uniform3fv, Uniform4fv, Uniform3x3fv and
+     * Uniform4x4fv, indexed by the old type code.
+     */
+    private static final UniformType[] LEGACY_TYPES = { UniformType.Int1, UniformType.Vec4, UniformType.End,
+            UniformType.Int1, UniformType.Vec4, UniformType.Vec4, UniformType.Vec4, UniformType.Vec4,
+            UniformType.Mat3, UniformType.Mat4 };
+
+    private ShaderReflection() {
+    }
+
+    /**
+     * @param data
+     *            the contents of a compiled shader file
+     * @return the uniforms declared by the shader
+     */
+    public static List<UniformInfo> getUniforms(byte[] data) {
+        return getUniforms(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * @param data
+     *            the contents of a compiled shader file, starting at the
+     *            buffer position, which is left unchanged
+     * @return the uniforms declared by the shader
+     * @throws BGFXException
+     *             if the data isn't a supported shader binary
+     */
+    public static List<UniformInfo> getUniforms(ByteBuffer data) {
+        ByteBuffer header = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            byte stage0 = header.get();
+            byte stage1 = header.get();
+            byte stage2 = header.get();
+            int version = header.get() & 0xff;
+
+            if ((stage0 != 'V' && stage0 != 'F' && stage0 != 'C') || stage1 != 'S' || stage2 != 'H') {
+                throw new BGFXException("Not a compiled shader.");
+            }
+
+            if (version < MIN_VERSION || version > MAX_VERSION) {
+                throw new BGFXException("Unsupported shader binary version " + version + ".");
+            }
+
+            header.getInt(); // input hash
+
+            int count = header.getShort() & 0xffff;
+            List<UniformInfo> uniforms = new ArrayList<UniformInfo>(count);
+
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[header.get() & 0xff];
+                header.get(name);
+
+                int type = header.get() & 0xff;
+                int num = header.get() & 0xff;
+
+                header.getShort(); // register index
+                header.getShort(); // register count
+
+                uniforms.add(new UniformInfo(new String(name, "UTF-8"), getType(version, type & TYPE_MASK),
+                        Math.max(num, 1), (type & FRAGMENT_BIT) != 0));
+            }
+
+            return Collections.unmodifiableList(uniforms);
+        } catch (BufferUnderflowException e) {
+            throw new BGFXException("Compiled shader is truncated.", e);
+        } catch (UnsupportedEncodingException e) {
+            throw new BGFXException(e.getMessage(), e);
+        }
+    }
+
+    private static UniformType getType(int version, int type) {
+        UniformType[] types = version < CURRENT_TYPES_VERSION ? LEGACY_TYPES : UniformType.values();
+
+        // Count is not a type
+        if (type < types.length && types[type] != UniformType.Count) {
+            return types[type];
+        }
+
+        throw new BGFXException("Unknown uniform type " + type + " in shader binary version " + version + ".");
+    }
+
+}
@@ -0,0 +1,698 @@
+package twilight.bgfx.shader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.RendererType;
+import twilight.bgfx.util.ResourceUtil;
+
+/**
+ * <p>
+ * Creates each distinct shader and program once and shares the handles
+ * between everything that loads them. Shaders are keyed by the renderer
+ * type and a SHA-1 hash of their compiled bytes, so identical shaders loaded
+ * from different files or streams share one handle. Programs are keyed by
+ * their pair of shaders.
+ * </p>
+ *
+ * <p>
+ * Every load takes a reference that is returned with
+ * {@link #releaseShader(int)} or {@link #releaseProgram(int)}, the handle is
+ * destroyed when the last reference is released. A program holds a
+ * reference to both of its shaders, so they can be released as soon as the
+ * program is created.
+ * </p>
+ *
+ * <p>
+ * Programs loaded from files are recorded so {@link #saveManifest(File)}
+ * can list them. On the next start {@link #preload(File, ExecutorService)}
+ * reads every listed shader file in parallel and creates the programs
+ * before they are requested.
+ * </p>
+ *
+ * <p>
+ * The registry is not thread safe, it must be used on the submission
+ * thread.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class ShaderRegistry {
+
+    private static final String MANIFEST_HEADER = "# twilight-bgfx shader manifest";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final BGFX bgfx;
+    private final RendererType rendererType;
+
+    private final Map<String, Shader> shadersByKey = new HashMap<String, Shader>();
+    private final Map<Integer, Shader> shaders = new HashMap<Integer, Shader>();
+    private final Map<Integer, Program> programsByShaders = new HashMap<Integer, Program>();
+    private final Map<Integer, Program> programs = new LinkedHashMap<Integer, Program>();
+
+    /** The content keys of files that have been read, by path. */
+    private final Map<String, FileKey> fileKeys = new HashMap<String, FileKey>();
+
+    private final List<Integer> preloaded = new ArrayList<Integer>();
+
+    private int hitCount;
+
+    /**
+     * @param bgfx
+     *            the initialized context to create shaders in, its renderer
+     *            type is part of every shader key
+     */
+    public ShaderRegistry(BGFX bgfx) {
+        this.bgfx = bgfx;
+        this.rendererType = bgfx.getRendererType();
+    }
+
+    /**
+     * <p>
+     * Loads a compiled shader file. A file that is unchanged since it was
+     * last read isn't read again.
+     * </p>
+     *
+     * @param file
+     *            the compiled shader
+     * @return the shader handle, released with {@link #releaseShader(int)}
+     */
+    public int loadShader(File file) {
+        FileKey fileKey = fileKeys.get(file.getAbsolutePath());
+
+        if (fileKey != null && fileKey.matches(file)) {
+            Shader shader = shadersByKey.get(fileKey.key);
+
+            if (shader != null) {
+                shader.refs++;
+                hitCount++;
+
+                return shader.handle;
+            }
+        }
+
+        byte[] data = readFile(file);
+        String key = createKey(data);
+
+        fileKeys.put(file.getAbsolutePath(), new FileKey(file, key));
+
+        return acquireShader(key, data);
+    }
+
+    /**
+     * <p>
+     * Loads a compiled shader from a stream, the stream is read to the end
+     * but not closed.
+     * </p>
+     *
+     * @param stream
+     *            the compiled shader
+     * @return the shader handle, released with {@link #releaseShader(int)}
+     */
+    public int loadShader(InputStream stream) {
+        return loadShader(ResourceUtil.inputStreamToByteArray(stream));
+    }
+
+    /**
+     * <p>
+     * Loads a compiled shader.
+     * </p>
+     *
+     * @param data
+     *            the contents of a compiled shader file
+     * @return the shader handle, released with {@link #releaseShader(int)}
+     */
+    public int loadShader(byte[] data) {
+        return acquireShader(createKey(data), data);
+    }
+
+    /**
+     * <p>
+     * Creates a program from two shaders of this registry, or returns the
+     * existing program for the pair.
+     * </p>
+     *
+     * @param vsh
+     *            a vertex shader returned by this registry
+     * @param fsh
+     *            a fragment shader returned by this registry
+     * @return the program handle, released with {@link #releaseProgram(int)}
+     */
+    public int createProgram(int vsh, int fsh) {
+        Shader vertex = shaders.get(vsh);
+        Shader fragment = shaders.get(fsh);
+
+        if (vertex == null || fragment == null) {
+            throw new BGFXException("Programs can only be created from shaders loaded by the registry.");
+        }
+
+        int pairKey = vsh << 16 | fsh;
+        Program program = programsByShaders.get(pairKey);
+
+        if (program != null) {
+            program.refs++;
+            hitCount++;
+
+            return program.handle;
+        }
+
+        int handle = bgfx.createProgram(vsh, fsh, false);
+
+        if (handle == BGFX.INVALID_HANDLE) {
+            throw new BGFXException("Could not create program.");
+        }
+
+        vertex.refs++;
+        fragment.refs++;
+
+        program = new Program(handle, pairKey, vertex, fragment);
+        programsByShaders.put(pairKey, program);
+        programs.put(handle, program);
+
+        return handle;
+    }
+
+    /**
+     * <p>
+     * Loads a program from two compiled shader files.
+     * </p>
+     *
+     * @param vertexFile
+     *            the compiled vertex shader
+     * @param fragmentFile
+     *            the compiled fragment shader
+     * @return the program handle, released with {@link #releaseProgram(int)}
+     */
+    public int loadProgram(File vertexFile, File fragmentFile) {
+        int vsh = loadShader(vertexFile);
+        int fsh;
+
+        try {
+            fsh = loadShader(fragmentFile);
+        } catch (RuntimeException e) {
+            releaseShader(vsh);
+            throw e;
+        }
+
+        try {
+            int handle = createProgram(vsh, fsh);
+            Program program = programs.get(handle);
+
+            if (program.vertexFile == null) {
+                program.vertexFile = vertexFile.getAbsoluteFile();
+                program.fragmentFile = fragmentFile.getAbsoluteFile();
+            }
+
+            return handle;
+        } finally {
+            releaseShader(vsh);
+            releaseShader(fsh);
+        }
+    }
+
+    /**
+     * <p>
+     * Returns a reference to a shader, destroying it when it was the last.
+     * </p>
+     *
+     * @param handle
+     *            a shader handle returned by this registry
+     */
+    public void releaseShader(int handle) {
+        Shader shader = shaders.get(handle);
+
+        if (shader == null) {
+            throw new BGFXException("Shader " + handle + " wasn't loaded by the registry.");
+        }
+
+        release(shader);
+    }
+
+    /**
+     * <p>
+     * Returns a reference to a program, destroying it and releasing its
+     * shaders when it was the last.
+     * </p>
+     *
+     * @param handle
+     *            a program handle returned by this registry
+     */
+    public void releaseProgram(int handle) {
+        Program program = programs.get(handle);
+
+        if (program == null) {
+            throw new BGFXException("Program " + handle + " wasn't created by the registry.");
+        }
+
+        if (--program.refs > 0) {
+            return;
+        }
+
+        programs.remove(handle);
+        programsByShaders.remove(program.pairKey);
+        bgfx.destroyProgram(handle);
+
+        release(program.vertex);
+        release(program.fragment);
+    }
+
+    /**
+     * <p>
+     * Returns the uniforms declared by a shader, read from its compiled
+     * bytes with {@link ShaderReflection}.
+     * </p>
+     *
+     * @param handle
+     *            a shader handle returned by this registry
+     * @return the uniforms of the shader
+     */
+    public List<UniformInfo> getUniforms(int handle) {
+        Shader shader = shaders.get(handle);
+
+        if (shader == null) {
+            throw new BGFXException("Shader " + handle + " wasn't loaded by the registry.");
+        }
+
+        if (shader.uniforms == null) {
+            throw new BGFXException("Uniforms of shader " + handle + " are not available: "
+                    + shader.reflectionError.getMessage(), shader.reflectionError);
+        }
+
+        return shader.uniforms;
+    }
+
+    /**
+     * <p>
+     * Returns the uniforms declared by both shaders of a program, uniforms
+     * used by both stages are listed once.
+     * </p>
+     *
+     * @param handle
+     *            a program handle returned by this registry
+     * @return the uniforms of the program
+     */
+    public List<UniformInfo> getProgramUniforms(int handle) {
+        Program program = programs.get(handle);
+
+        if (program == null) {
+            throw new BGFXException("Program " + handle + " wasn't created by the registry.");
+        }
+
+        List<UniformInfo> uniforms = new ArrayList<UniformInfo>(getUniforms(program.vertex.handle));
+
+        for (UniformInfo uniform : getUniforms(program.fragment.handle)) {
+            boolean found = false;
+
+            for (int i = 0; i < uniforms.size() && !found; i++) {
+                found = uniforms.get(i).getName().equals(uniform.getName());
+            }
+
+            if (!found) {
+                uniforms.add(uniform);
+            }
+        }
+
+        return uniforms;
+    }
+
+    /**
+     * @return the number of live shaders
+     */
+    public int getShaderCount() {
+        return shaders.size();
+    }
+
+    /**
+     * @return the number of live programs
+     */
+    public int getProgramCount() {
+        return programs.size();
+    }
+
+    /**
+     * @return the number of loads that reused an existing shader or program
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * <p>
+     * Writes the shader files of every live program loaded with
+     * {@link #loadProgram(File, File)} to a manifest.
+     * </p>
+     *
+     * @param manifest
+     *            the file to write
+     */
+    public void saveManifest(File manifest) {
+        BufferedWriter writer = null;
+
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(manifest), UTF8));
+            writer.write(MANIFEST_HEADER);
+            writer.newLine();
+
+            for (Program program : programs.values()) {
+                if (program.vertexFile == null) {
+                    continue;
+                }
+
+                writer.write(program.vertexFile.getPath());
+                writer.write('\t');
+                writer.write(program.fragmentFile.getPath());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new BGFXException("Error writing shader manifest: " + e.getMessage(), e);
+        } finally {
+            close(writer);
+        }
+    }
+
+    /**
+     * <p>
+     * Creates the programs listed in a manifest. The shader files are read
+     * and hashed on the executor, the shaders and programs are created on
+     * the calling thread. Programs whose files are missing are skipped.
+     * </p>
+     *
+     * <p>
+     * The registry keeps a reference to every preloaded program until
+     * {@link #releasePreloaded()} is called, so they survive until the code
+     * that uses them loads them.
+     * </p>
+     *
+     * @param manifest
+     *            a manifest written by {@link #saveManifest(File)}, nothing
+     *            is preloaded if it doesn't exist
+     * @param executor
+     *            reads the shader files
+     * @return the number of programs preloaded
+     */
+    public int preload(File manifest, ExecutorService executor) {
+        if (!manifest.isFile()) {
+            return 0;
+        }
+
+        List<File[]> entries = readManifest(manifest);
+        Map<File, Future<ShaderFile>> reads = new HashMap<File, Future<ShaderFile>>();
+
+        for (int i = 0; i < entries.size(); i++) {
+            for (final File file : entries.get(i)) {
+                if (!reads.containsKey(file)) {
+                    reads.put(file, executor.submit(new Callable<ShaderFile>() {
+                        @Override
+                        public ShaderFile call() {
+                            byte[] data = readFile(file);
+
+                            return new ShaderFile(data, createKey(data));
+                        }
+                    }));
+                }
+            }
+        }
+
+        int count = 0;
+
+        for (int i = 0; i < entries.size(); i++) {
+            File[] entry = entries.get(i);
+            ShaderFile vertex = getRead(reads.get(entry[0]));
+            ShaderFile fragment = getRead(reads.get(entry[1]));
+
+            if (vertex == null || fragment == null) {
+                continue;
+            }
+
+            fileKeys.put(entry[0].getAbsolutePath(), new FileKey(entry[0], vertex.key));
+            fileKeys.put(entry[1].getAbsolutePath(), new FileKey(entry[1], fragment.key));
+
+            int vsh = acquireShader(vertex.key, vertex.data);
+            int fsh = acquireShader(fragment.key, fragment.data);
+
+            try {
+                int handle = createProgram(vsh, fsh);
+                Program program = programs.get(handle);
+
+                if (program.vertexFile == null) {
+                    program.vertexFile = entry[0];
+                    program.fragmentFile = entry[1];
+                }
+
+                preloaded.add(handle);
+                count++;
+            } finally {
+                releaseShader(vsh);
+                releaseShader(fsh);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * <p>
+     * Releases the references held on preloaded programs, programs that
+     * haven't been loaded since are destroyed.
+     * </p>
+     */
+    public void releasePreloaded() {
+        for (int i = 0; i < preloaded.size(); i++) {
+            releaseProgram(preloaded.get(i));
+        }
+
+        preloaded.clear();
+    }
+
+    /**
+     * <p>
+     * Destroys every program and shader regardless of their references.
+     * </p>
+     */
+    public void destroy() {
+        for (Integer handle : programs.keySet()) {
+            bgfx.destroyProgram(handle);
+        }
+
+        for (Integer handle : shaders.keySet()) {
+            bgfx.destroyShader(handle);
+        }
+
+        programs.clear();
+        programsByShaders.clear();
+        shaders.clear();
+        shadersByKey.clear();
+        preloaded.clear();
+    }
+
+    private int acquireShader(String key, byte[] data) {
+        Shader shader = shadersByKey.get(key);
+
+        if (shader != null) {
+            shader.refs++;
+            hitCount++;
+
+            return shader.handle;
+        }
+
+        int handle = ResourceUtil.createShader(bgfx, data);
+
+        if (handle == BGFX.INVALID_HANDLE) {
+            throw new BGFXException("Could not create shader.");
+        }
+
+        shader = new Shader(handle, key);
+
+        try {
+            shader.uniforms = ShaderReflection.getUniforms(data);
+        } catch (BGFXException e) {
+            // Loading doesn't depend on reflection, getUniforms reports it
+            shader.reflectionError = e;
+        }
+
+        shadersByKey.put(key, shader);
+        shaders.put(handle, shader);
+
+        return handle;
+    }
+
+    private void release(Shader shader) {
+        if (--shader.refs > 0) {
+            return;
+        }
+
+        shaders.remove(shader.handle);
+        shadersByKey.remove(shader.key);
+        bgfx.destroyShader(shader.handle);
+    }
+
+    private String createKey(byte[] data) {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new BGFXException("SHA-1 is not available: " + e.getMessage(), e);
+        }
+
+        byte[] hash = digest.digest(data);
+        StringBuilder key = new StringBuilder(rendererType.name()).append('/');
+
+        for (int i = 0; i < hash.length; i++) {
+            key.append(HEX[(hash[i] >> 4) & 0xf]).append(HEX[hash[i] & 0xf]);
+        }
+
+        return key.toString();
+    }
+
+    private static byte[] readFile(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new BGFXException("Error loading shader: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<File[]> readManifest(File manifest) {
+        List<File[]> entries = new ArrayList<File[]>();
+        BufferedReader reader = null;
+
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), UTF8));
+
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                int tab = line.indexOf('\t');
+
+                if (tab < 0) {
+                    throw new BGFXException("Invalid shader manifest line: " + line);
+                }
+
+                entries.add(new File[] { new File(line.substring(0, tab)), new File(line.substring(tab + 1)) });
+            }
+        } catch (IOException e) {
+            throw new BGFXException("Error reading shader manifest: " + e.getMessage(), e);
+        } finally {
+            close(reader);
+        }
+
+        return entries;
+    }
+
+    /**
+     * @return the read shader, or null if it couldn't be read
+     */
+    private static ShaderFile getRead(Future<ShaderFile> read) {
+        try {
+            return read.get();
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BGFXException("Interrupted while preloading shaders.", e);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            throw new BGFXException("Error closing shader manifest: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class Shader {
+        final int handle;
+        final String key;
+        int refs = 1;
+        List<UniformInfo> uniforms;
+        BGFXException reflectionError;
+
+        Shader(int handle, String key) {
+            this.handle = handle;
+            this.key = key;
+        }
+    }
+
+    private static final class Program {
+        final int handle;
+        final int pairKey;
+        final Shader vertex;
+        final Shader fragment;
+        int refs = 1;
+        File vertexFile;
+        File fragmentFile;
+
+        Program(int handle, int pairKey, Shader vertex, Shader fragment) {
+            this.handle = handle;
+            this.pairKey = pairKey;
+            this.vertex = vertex;
+            this.fragment = fragment;
+        }
+    }
+
+    private static final class ShaderFile {
+        final byte[] data;
+        final String key;
+
+        ShaderFile(byte[] data, String key) {
+            this.data = data;
+            this.key = key;
+        }
+    }
+
+    /**
+     * The content key of a file, valid while its size and modification time
+     * don't change.
+     */
+    private static final class FileKey {
+        final long lastModified;
+        final long length;
+        final String key;
+
+        FileKey(File file, String key) {
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.key = key;
+        }
+
+        boolean matches(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+
+}
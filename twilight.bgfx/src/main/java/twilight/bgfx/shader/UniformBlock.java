@@ -0,0 +1,440 @@
+package twilight.bgfx.shader;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.UniformType;
+
+/**
+ * <p>
+ * A set of uniforms backed by one direct buffer. Fields are declared with
+ * {@link #add(String, UniformType, int)}, {@link #end()} creates their
+ * uniforms and the buffer. {@link #apply()} sets every field with a single
+ * native call.
+ * </p>
+ *
+ * <pre>
+ * UniformBlock block = new UniformBlock(bgfx);
+ * int color = block.add("u_color", UniformType.Vec4, 1);
+ * int params = block.add("u_params", UniformType.Vec4, 1);
+ * block.end();
+ *
+ * block.set(color, 1, 0, 0, 1);
+ * block.apply();
+ * bgfx.submit(0, program);
+ * </pre>
+ *
+ * <p>
+ * BGFX stores the uniforms set for a draw with that draw and applies them in
+ * sorted draw order, so a value set for one draw is only seen by the next
+ * draw when the two are rendered one after the other. That holds for draws
+ * submitted to a single view in sequential mode, see BGFX#setViewSeq, when
+ * no other code sets the same uniforms. Only then can
+ * {@link #setChangedOnly(boolean)} be enabled, apply then only sends the
+ * fields whose value changed since the last apply. Call
+ * {@link #invalidate()} to send every field with the next apply.
+ * </p>
+ *
+ * <p>
+ * A block is not thread safe, it is used on the submission thread.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class UniformBlock {
+
+    private static final int INTS_PER_ENTRY = 4;
+
+    private final BGFX bgfx;
+    private final List<Field> fields = new ArrayList<Field>();
+
+    private ByteBuffer data;
+    private FloatBuffer floats;
+    private long[] dirty;
+    private int[] entries;
+    private int sizeInFloats;
+    private boolean ended;
+    private boolean destroyed;
+    private boolean changedOnly;
+
+    /**
+     * @param bgfx
+     *            the context the uniforms are created in
+     */
+    public UniformBlock(BGFX bgfx) {
+        this.bgfx = bgfx;
+    }
+
+    /**
+     * <p>
+     * Creates a block with a field for every uniform of a shader that isn't
+     * a sampler or set by BGFX itself. Field indices follow the order of the
+     * list, use {@link #indexOf(String)} to look them up.
+     * </p>
+     *
+     * @param bgfx
+     *            the context the uniforms are created in
+     * @param uniforms
+     *            the uniforms, see {@link ShaderReflection}
+     * @return the ended block
+     */
+    public static UniformBlock create(BGFX bgfx, List<UniformInfo> uniforms) {
+        UniformBlock block = new UniformBlock(bgfx);
+
+        for (int i = 0; i < uniforms.size(); i++) {
+            UniformInfo uniform = uniforms.get(i);
+
+            if (uniform.getType() != UniformType.Int1 && !uniform.isPredefined()
+                    && block.indexOf(uniform.getName()) < 0) {
+                block.add(uniform.getName(), uniform.getType(), uniform.getNum());
+            }
+        }
+
+        return block.end();
+    }
+
+    /**
+     * <p>
+     * Declares a field.
+     * </p>
+     *
+     * @param name
+     *            the uniform name
+     * @param type
+     *            the uniform type
+     * @param num
+     *            the number of array elements
+     * @return the field index
+     */
+    public int add(String name, UniformType type, int num) {
+        if (ended) {
+            throw new BGFXException("Fields can't be added after the uniform block has been ended.");
+        }
+
+        if (type == UniformType.End || type == UniformType.Count || num < 1) {
+            throw new BGFXException("Invalid uniform " + name + " " + type + "[" + num + "].");
+        }
+
+        Field field = new Field(name, type, num, sizeInFloats);
+        fields.add(field);
+        sizeInFloats += field.size;
+
+        return fields.size() - 1;
+    }
+
+    /**
+     * <p>
+     * Creates the uniforms and the buffer, every field starts out zeroed and
+     * dirty.
+     * </p>
+     *
+     * @return this block
+     */
+    public UniformBlock end() {
+        if (ended) {
+            return this;
+        }
+
+        data = ByteBuffer.allocateDirect(Math.max(sizeInFloats, 1) * 4).order(ByteOrder.nativeOrder());
+        floats = data.asFloatBuffer();
+        dirty = new long[(fields.size() + 63) >>> 6];
+        entries = new int[fields.size() * INTS_PER_ENTRY];
+
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            field.handle = bgfx.createUniform(field.name, field.type, field.num);
+
+            if (field.handle == BGFX.INVALID_HANDLE) {
+                throw new BGFXException("Could not create uniform " + field.name + ".");
+            }
+        }
+
+        ended = true;
+        invalidate();
+
+        return this;
+    }
+
+    /**
+     * @param name
+     *            the uniform name
+     * @return the index of the field, or -1 if there is none
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the number of fields
+     */
+    public int getFieldCount() {
+        return fields.size();
+    }
+
+    /**
+     * @param field
+     *            the field index
+     * @return the uniform handle of the field
+     */
+    public int getHandle(int field) {
+        return fields.get(field).handle;
+    }
+
+    /**
+     * <p>
+     * Sets the first element of a Vec4 field.
+     * </p>
+     */
+    public void set(int field, float x, float y, float z, float w) {
+        Field f = fields.get(field);
+        int at = f.offset;
+
+        boolean changed = put(at, x) | put(at + 1, y) | put(at + 2, z) | put(at + 3, w);
+
+        if (changed) {
+            markDirty(field);
+        }
+    }
+
+    /**
+     * <p>
+     * Sets the value of a field from an array, the number of floats set is
+     * the smaller of the array length and the field size.
+     * </p>
+     *
+     * @param field
+     *            the field index
+     * @param value
+     *            the new value, 9 floats per Mat3 and 16 per Mat4 element
+     */
+    public void set(int field, float[] value) {
+        Field f = fields.get(field);
+        int length = Math.min(value.length, f.size);
+        boolean changed = false;
+
+        for (int i = 0; i < length; i++) {
+            changed |= put(f.offset + i, value[i]);
+        }
+
+        if (changed) {
+            markDirty(field);
+        }
+    }
+
+    /**
+     * <p>
+     * Sets an Int1 field, such as a sampler stage.
+     * </p>
+     */
+    public void set(int field, int value) {
+        if (put(fields.get(field).offset, Float.intBitsToFloat(value))) {
+            markDirty(field);
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the storage of a field for writing it directly, call
+     * {@link #markDirty(int)} afterwards.
+     * </p>
+     *
+     * @param field
+     *            the field index
+     * @return a view of the field data
+     */
+    public FloatBuffer getBuffer(int field) {
+        checkEnded();
+
+        Field f = fields.get(field);
+        FloatBuffer view = floats.duplicate();
+        view.position(f.offset).limit(f.offset + f.size);
+
+        return view.slice();
+    }
+
+    /**
+     * @param field
+     *            the field index to send with the next apply
+     */
+    public void markDirty(int field) {
+        dirty[field >>> 6] |= 1L << field;
+    }
+
+    /**
+     * @param field
+     *            the field index
+     * @return true if the field will be sent with the next apply
+     */
+    public boolean isDirty(int field) {
+        return (dirty[field >>> 6] & (1L << field)) != 0;
+    }
+
+    /**
+     * <p>
+     * Marks every field dirty.
+     * </p>
+     */
+    public void invalidate() {
+        checkEnded();
+
+        for (int i = 0; i < fields.size(); i++) {
+            markDirty(i);
+        }
+    }
+
+    /**
+     * <p>
+     * Selects whether apply only sends fields that changed since the last
+     * apply. Only enable this when every draw using the uniforms is submitted
+     * to one sequential view, see the class description.
+     * </p>
+     *
+     * @param changedOnly
+     *            true to skip unchanged fields, false to send every field
+     *            with every apply, the default
+     */
+    public void setChangedOnly(boolean changedOnly) {
+        this.changedOnly = changedOnly;
+    }
+
+    /**
+     * @return true if apply only sends fields that changed
+     */
+    public boolean isChangedOnly() {
+        return changedOnly;
+    }
+
+    /**
+     * <p>
+     * Sets the uniforms of the block for the next draw with one native call.
+     * Every field is sent unless {@link #setChangedOnly(boolean)} is enabled,
+     * in which case only dirty fields are sent and nothing is called if no
+     * field is dirty.
+     * </p>
+     *
+     * @return the number of uniforms set
+     */
+    public int apply() {
+        checkEnded();
+
+        if (!changedOnly) {
+            invalidate();
+        }
+
+        int count = 0;
+
+        for (int word = 0; word < dirty.length; word++) {
+            long bits = dirty[word];
+
+            while (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                Field field = fields.get(index);
+                int at = count * INTS_PER_ENTRY;
+
+                entries[at] = field.handle;
+                entries[at + 1] = field.offset * 4;
+                entries[at + 2] = field.size * 4;
+                entries[at + 3] = field.num;
+
+                count++;
+                bits &= bits - 1;
+            }
+
+            dirty[word] = 0;
+        }
+
+        if (count > 0) {
+            bgfx.setUniforms(data, entries, count);
+        }
+
+        return count;
+    }
+
+    /**
+     * <p>
+     * Destroys the uniforms of the block.
+     * </p>
+     */
+    public void destroy() {
+        if (!ended || destroyed) {
+            return;
+        }
+
+        for (int i = 0; i < fields.size(); i++) {
+            bgfx.destroyUniform(fields.get(i).handle);
+        }
+
+        destroyed = true;
+    }
+
+    /**
+     * @return true if the stored value changed
+     */
+    private boolean put(int index, float value) {
+        checkEnded();
+
+        if (Float.floatToRawIntBits(floats.get(index)) == Float.floatToRawIntBits(value)) {
+            return false;
+        }
+
+        floats.put(index, value);
+
+        return true;
+    }
+
+    private void checkEnded() {
+        if (!ended) {
+            throw new BGFXException("Uniform block hasn't been ended.");
+        }
+
+        if (destroyed) {
+            throw new BGFXException("Uniform block has been destroyed.");
+        }
+    }
+
+    private static final class Field {
+        final String name;
+        final UniformType type;
+        final int num;
+        final int offset;
+        final int size;
+        int handle = BGFX.INVALID_HANDLE;
+
+        Field(String name, UniformType type, int num, int offset) {
+            this.name = name;
+            this.type = type;
+            this.num = num;
+            this.offset = offset;
+            this.size = getElementSize(type) * num;
+        }
+
+        /**
+         * @return the size of one element in floats, as bgfx reads it
+         */
+        private static int getElementSize(UniformType type) {
+            switch (type) {
+            case Vec4:
+                return 4;
+            case Mat3:
+                return 9;
+            case Mat4:
+                return 16;
+            default:
+                return 1;
+            }
+        }
+    }
+
+}
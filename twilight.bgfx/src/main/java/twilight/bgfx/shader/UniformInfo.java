@@ -0,0 +1,78 @@
+package twilight.bgfx.shader;
+
+import twilight.bgfx.UniformType;
+
+/**
+ * <p>
+ * A uniform declared by a compiled shader, as read by
+ * {@link ShaderReflection}.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class UniformInfo {
+
+    /** The uniforms BGFX sets itself, see BGFX.createUniform. */
+    private static final String[] PREDEFINED = { "u_viewRect", "u_viewTexel", "u_view", "u_invView", "u_proj",
+            "u_invProj", "u_viewProj", "u_invViewProj", "u_model", "u_modelView", "u_modelViewProj", "u_alphaRef" };
+
+    private final String name;
+    private final UniformType type;
+    private final int num;
+    private final boolean fragment;
+
+    UniformInfo(String name, UniformType type, int num, boolean fragment) {
+        this.name = name;
+        this.type = type;
+        this.num = num;
+        this.fragment = fragment;
+    }
+
+    /**
+     * @return the name of the uniform
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the type of the uniform
+     */
+    public UniformType getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of array elements, 1 for uniforms that aren't arrays
+     */
+    public int getNum() {
+        return num;
+    }
+
+    /**
+     * @return true if the uniform is used by the fragment stage
+     */
+    public boolean isFragment() {
+        return fragment;
+    }
+
+    /**
+     * @return true if BGFX sets the uniform itself
+     */
+    public boolean isPredefined() {
+        for (int i = 0; i < PREDEFINED.length; i++) {
+            if (PREDEFINED[i].equals(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + type + (num > 1 ? "[" + num + "]" : "");
+    }
+
+}
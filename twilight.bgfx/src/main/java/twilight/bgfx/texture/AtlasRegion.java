@@ -0,0 +1,113 @@
+package twilight.bgfx.texture;
+
+/**
+ * <p>
+ * An image placed in a {@link TextureAtlas}. The region moves when the
+ * atlas is defragmented, so its texture and texture coordinates should be
+ * read every frame rather than kept.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class AtlasRegion {
+
+    private final TextureAtlas atlas;
+    private final int width;
+    private final int height;
+
+    /** A tightly packed copy of the image, uploaded again when it moves. */
+    final byte[] pixels;
+
+    TextureAtlas.Page page;
+    int x;
+    int y;
+
+    AtlasRegion(TextureAtlas atlas, int width, int height, byte[] pixels) {
+        this.atlas = atlas;
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * @return the atlas page texture holding the image
+     */
+    public int getTexture() {
+        return page.handle;
+    }
+
+    /**
+     * @return the x of the image in the page in texels
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return the y of the image in the page in texels
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return the width of the image in texels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the image in texels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the left texture coordinate
+     */
+    public float getU0() {
+        return x / (float) atlas.getPageSize();
+    }
+
+    /**
+     * @return the top texture coordinate
+     */
+    public float getV0() {
+        return y / (float) atlas.getPageSize();
+    }
+
+    /**
+     * @return the right texture coordinate
+     */
+    public float getU1() {
+        return (x + width) / (float) atlas.getPageSize();
+    }
+
+    /**
+     * @return the bottom texture coordinate
+     */
+    public float getV1() {
+        return (y + height) / (float) atlas.getPageSize();
+    }
+
+    /**
+     * @return true once the region has been removed from its atlas
+     */
+    public boolean isRemoved() {
+        return page == null;
+    }
+
+    /**
+     * <p>
+     * Removes the image from the atlas, must be called on the submission
+     * thread.
+     * </p>
+     */
+    public void remove() {
+        atlas.remove(this);
+    }
+
+}
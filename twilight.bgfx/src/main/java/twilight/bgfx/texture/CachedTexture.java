@@ -0,0 +1,75 @@
+package twilight.bgfx.texture;
+
+import twilight.bgfx.BGFX;
+
+/**
+ * <p>
+ * A texture owned by a {@link TextureCache}. The cache may destroy the
+ * texture when it hasn't been bound for a while, it is created again the
+ * next time it is bound, so handles returned by {@link #get()} must not be
+ * kept across frames.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class CachedTexture {
+
+    private final TextureCache cache;
+    private final TextureSource source;
+
+    int handle = BGFX.INVALID_HANDLE;
+    long size;
+    long lastUsedFrame;
+    boolean destroyed;
+
+    CachedTexture(TextureCache cache, TextureSource source) {
+        this.cache = cache;
+        this.source = source;
+    }
+
+    /**
+     * <p>
+     * Returns the texture, creating it if it isn't resident. Counts as a use
+     * of the texture, must be called on the submission thread.
+     * </p>
+     *
+     * @return the texture handle, valid until the next frame
+     */
+    public int get() {
+        return cache.use(this);
+    }
+
+    /**
+     * @return the source the texture is created from
+     */
+    public TextureSource getSource() {
+        return source;
+    }
+
+    /**
+     * @return true if the texture currently exists
+     */
+    public boolean isResident() {
+        return handle != BGFX.INVALID_HANDLE;
+    }
+
+    /**
+     * @return the storage size of the texture in bytes, 0 until it has been
+     *         created for the first time
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * <p>
+     * Destroys the texture and removes it from the cache, must be called on
+     * the submission thread.
+     * </p>
+     */
+    public void destroy() {
+        cache.remove(this);
+    }
+
+}
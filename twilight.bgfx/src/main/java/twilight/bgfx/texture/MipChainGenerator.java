@@ -0,0 +1,424 @@
+package twilight.bgfx.texture;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.Messages;
+import twilight.bgfx.TextureFormat;
+
+/**
+ * <p>
+ * Generates the full mip chain of an RGBA8 or BGRA8 image in Java, for
+ * images created at runtime that don't come with mips.
+ * </p>
+ *
+ * <p>
+ * Every level is written into a single direct buffer, largest first and
+ * tightly packed, which is the layout BGFX.createTexture2D expects when
+ * numMips is greater than 1. Each level is a 2x2 box filter of the one above
+ * it, like BGFX.imageRgba8Downsample2x2, with the last row and column
+ * repeated for odd sizes. Optionally the color channels are filtered in
+ * linear space and stored as sRGB, and color can be premultiplied by alpha
+ * so transparent texels don't bleed into their neighbours.
+ * </p>
+ *
+ * <p>
+ * A generator only holds its settings, so it can be used from any thread.
+ * Large levels can be split into bands of rows across a ForkJoinPool with
+ * {@link #generate(ByteBuffer, int, int, int, ForkJoinPool)}.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class MipChainGenerator {
+
+    /** The minimum number of texels written by one parallel task. */
+    public static final int PARALLEL_THRESHOLD = 64 * 1024;
+
+    private static final int BYTES_PER_TEXEL = 4;
+
+    /** The resolution of the linear to sRGB table. */
+    private static final int LINEAR_STEPS = 4096;
+
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+    private static final byte[] LINEAR_TO_SRGB = new byte[LINEAR_STEPS + 1];
+
+    static {
+        for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+            double c = i / 255.0;
+            SRGB_TO_LINEAR[i] = (float) (c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4));
+        }
+
+        for (int i = 0; i <= LINEAR_STEPS; i++) {
+            double c = i / (double) LINEAR_STEPS;
+            double srgb = c <= 0.0031308 ? c * 12.92 : 1.055 * Math.pow(c, 1.0 / 2.4) - 0.055;
+            LINEAR_TO_SRGB[i] = (byte) Math.round(srgb * 255.0);
+        }
+    }
+
+    private boolean srgb;
+    private boolean premultiplyAlpha;
+    private boolean swizzle;
+
+    /**
+     * @param srgb
+     *            true to treat the color channels as sRGB, they are filtered
+     *            in linear space and stored as sRGB again
+     */
+    public void setSrgb(boolean srgb) {
+        this.srgb = srgb;
+    }
+
+    /**
+     * @return true if the color channels are treated as sRGB
+     */
+    public boolean isSrgb() {
+        return srgb;
+    }
+
+    /**
+     * @param premultiplyAlpha
+     *            true to multiply color by alpha in every level, including
+     *            the first, the texture must then be drawn with
+     *            premultiplied alpha blending
+     */
+    public void setPremultiplyAlpha(boolean premultiplyAlpha) {
+        this.premultiplyAlpha = premultiplyAlpha;
+    }
+
+    /**
+     * @return true if color is premultiplied by alpha
+     */
+    public boolean isPremultiplyAlpha() {
+        return premultiplyAlpha;
+    }
+
+    /**
+     * @param swizzle
+     *            true to swap the red and blue channels, turning an RGBA8
+     *            image into BGRA8 like BGFX.imageSwizzleBgra8
+     */
+    public void setSwizzle(boolean swizzle) {
+        this.swizzle = swizzle;
+    }
+
+    /**
+     * @return true if the red and blue channels are swapped
+     */
+    public boolean isSwizzle() {
+        return swizzle;
+    }
+
+    /**
+     * @param width
+     *            the width of the top level
+     * @param height
+     *            the height of the top level
+     * @return the number of levels down to 1x1, including the top level
+     */
+    public static int getMipCount(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(Math.max(width, height), 1));
+    }
+
+    /**
+     * @param width
+     *            the width of the top level
+     * @param height
+     *            the height of the top level
+     * @return the size of the whole chain in bytes
+     */
+    public static int calcChainSize(int width, int height) {
+        long size = 0;
+
+        for (int mip = 0; mip < getMipCount(width, height); mip++) {
+            size += (long) Math.max(1, width >> mip) * Math.max(1, height >> mip) * BYTES_PER_TEXEL;
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            throw new BGFXException("Mip chain is too large: " + width + "x" + height);
+        }
+
+        return (int) size;
+    }
+
+    /**
+     * <p>
+     * Generates the mip chain on the calling thread.
+     * </p>
+     *
+     * @see #generate(ByteBuffer, int, int, int, ForkJoinPool)
+     */
+    public ByteBuffer generate(ByteBuffer src, int width, int height, int pitch) {
+        return generate(src, width, height, pitch, null);
+    }
+
+    /**
+     * <p>
+     * Generates the mip chain of an image. The levels are generated one
+     * after another, the rows of levels with more than
+     * {@link #PARALLEL_THRESHOLD} texels are split across the pool.
+     * </p>
+     *
+     * @param src
+     *            the top level, RGBA8 or BGRA8, starting at its position
+     * @param width
+     *            the width of the image
+     * @param height
+     *            the height of the image
+     * @param pitch
+     *            the distance between rows of the source in bytes
+     * @param pool
+     *            the pool to generate on, or null to use the calling thread
+     * @return a direct buffer holding every level, its capacity is
+     *         {@link #calcChainSize(int, int)}
+     */
+    public ByteBuffer generate(ByteBuffer src, int width, int height, int pitch, ForkJoinPool pool) {
+        if (src == null) {
+            throw new NullPointerException(Messages.getString("BGFX.NullByteBuffer")); //$NON-NLS-1$
+        }
+
+        if (width <= 0 || height <= 0 || pitch < width * BYTES_PER_TEXEL
+                || src.remaining() < (long) pitch * (height - 1) + width * BYTES_PER_TEXEL) {
+            throw new BGFXException("Invalid image, " + width + "x" + height + " with a pitch of " + pitch + ".");
+        }
+
+        ByteBuffer chain = ByteBuffer.allocateDirect(calcChainSize(width, height)).order(ByteOrder.nativeOrder());
+        ByteBuffer source = src.slice();
+
+        int srcOffset = 0;
+        int dstOffset = 0;
+        int srcWidth = width;
+        int srcHeight = height;
+
+        for (int mip = 0; mip < getMipCount(width, height); mip++) {
+            int mipWidth = Math.max(1, width >> mip);
+            int mipHeight = Math.max(1, height >> mip);
+
+            Level level = new Level(mip == 0 ? source : chain, mip == 0 ? 0 : srcOffset, mip == 0 ? pitch : srcWidth
+                    * BYTES_PER_TEXEL, srcWidth, srcHeight, chain, dstOffset, mipWidth, mip == 0);
+
+            int rowsPerTask = Math.max(1, PARALLEL_THRESHOLD / mipWidth);
+
+            if (pool == null || mipHeight <= rowsPerTask) {
+                level.run(0, mipHeight);
+            } else {
+                pool.invoke(new LevelTask(level, rowsPerTask, 0, mipHeight));
+            }
+
+            srcOffset = dstOffset;
+            dstOffset += mipWidth * mipHeight * BYTES_PER_TEXEL;
+            srcWidth = mipWidth;
+            srcHeight = mipHeight;
+        }
+
+        return chain;
+    }
+
+    /**
+     * <p>
+     * Generates the mip chain of an image and creates a texture with every
+     * level. Must be called on the submission thread.
+     * </p>
+     *
+     * @param bgfx
+     *            the context to create the texture in
+     * @param src
+     *            the top level, starting at its position
+     * @param width
+     *            the width of the image
+     * @param height
+     *            the height of the image
+     * @param pitch
+     *            the distance between rows of the source in bytes
+     * @param format
+     *            RGBA8 or BGRA8, the format of the generated levels
+     * @param flags
+     *            the texture flags, see BGFX.createTexture2D
+     * @param pool
+     *            the pool to generate on, or null to use the calling thread
+     * @return the texture handle
+     */
+    public int createTexture(BGFX bgfx, ByteBuffer src, int width, int height, int pitch, TextureFormat format,
+            long flags, ForkJoinPool pool) {
+        if (format != TextureFormat.RGBA8 && format != TextureFormat.BGRA8) {
+            throw new BGFXException("Mip chains can only be generated for RGBA8 and BGRA8, not " + format + ".");
+        }
+
+        ByteBuffer chain = generate(src, width, height, pitch, pool);
+
+        return bgfx.createTexture2D(width, height, getMipCount(width, height), format, flags, chain);
+    }
+
+    private static float toLinear(int value, boolean srgb) {
+        return srgb ? SRGB_TO_LINEAR[value] : value * (1.0f / 255.0f);
+    }
+
+    private static byte fromLinear(float value, boolean srgb) {
+        if (srgb) {
+            return LINEAR_TO_SRGB[(int) (Math.min(Math.max(value, 0.0f), 1.0f) * LINEAR_STEPS + 0.5f)];
+        }
+
+        return (byte) (Math.min(Math.max(value, 0.0f), 1.0f) * 255.0f + 0.5f);
+    }
+
+    /**
+     * Writes one level, either by copying the source image or by filtering
+     * the level above it. Rows can be written by several threads at once.
+     */
+    private final class Level {
+        private final ByteBuffer src;
+        private final int srcOffset;
+        private final int srcPitch;
+        private final int srcWidth;
+        private final int srcHeight;
+        private final ByteBuffer dst;
+        private final int dstOffset;
+        private final int width;
+        private final boolean top;
+
+        Level(ByteBuffer src, int srcOffset, int srcPitch, int srcWidth, int srcHeight, ByteBuffer dst, int dstOffset,
+                int width, boolean top) {
+            this.src = src;
+            this.srcOffset = srcOffset;
+            this.srcPitch = srcPitch;
+            this.srcWidth = srcWidth;
+            this.srcHeight = srcHeight;
+            this.dst = dst;
+            this.dstOffset = dstOffset;
+            this.width = width;
+            this.top = top;
+        }
+
+        void run(int firstRow, int lastRow) {
+            for (int y = firstRow; y < lastRow; y++) {
+                int dstRow = dstOffset + y * width * BYTES_PER_TEXEL;
+
+                if (top) {
+                    copyRow(srcOffset + y * srcPitch, dstRow);
+                } else if (srgb || premultiplyAlpha) {
+                    filterRowLinear(y, dstRow);
+                } else {
+                    filterRow(y, dstRow);
+                }
+            }
+        }
+
+        private void copyRow(int srcRow, int dstRow) {
+            int red = swizzle ? 2 : 0;
+            int blue = swizzle ? 0 : 2;
+
+            for (int x = 0; x < width; x++) {
+                int s = srcRow + x * BYTES_PER_TEXEL;
+                int d = dstRow + x * BYTES_PER_TEXEL;
+
+                int r = src.get(s + red) & 0xff;
+                int g = src.get(s + 1) & 0xff;
+                int b = src.get(s + blue) & 0xff;
+                int a = src.get(s + 3) & 0xff;
+
+                if (premultiplyAlpha && a != 255) {
+                    float alpha = a * (1.0f / 255.0f);
+
+                    r = fromLinear(toLinear(r, srgb) * alpha, srgb) & 0xff;
+                    g = fromLinear(toLinear(g, srgb) * alpha, srgb) & 0xff;
+                    b = fromLinear(toLinear(b, srgb) * alpha, srgb) & 0xff;
+                }
+
+                dst.put(d, (byte) r);
+                dst.put(d + 1, (byte) g);
+                dst.put(d + 2, (byte) b);
+                dst.put(d + 3, (byte) a);
+            }
+        }
+
+        /**
+         * Averages in integers, the result matches imageRgba8Downsample2x2.
+         */
+        private void filterRow(int y, int dstRow) {
+            int row0 = srcOffset + Math.min(y * 2, srcHeight - 1) * srcPitch;
+            int row1 = srcOffset + Math.min(y * 2 + 1, srcHeight - 1) * srcPitch;
+
+            for (int x = 0; x < width; x++) {
+                int x0 = Math.min(x * 2, srcWidth - 1) * BYTES_PER_TEXEL;
+                int x1 = Math.min(x * 2 + 1, srcWidth - 1) * BYTES_PER_TEXEL;
+                int d = dstRow + x * BYTES_PER_TEXEL;
+
+                for (int c = 0; c < BYTES_PER_TEXEL; c++) {
+                    int sum = (src.get(row0 + x0 + c) & 0xff) + (src.get(row0 + x1 + c) & 0xff)
+                            + (src.get(row1 + x0 + c) & 0xff) + (src.get(row1 + x1 + c) & 0xff);
+
+                    dst.put(d + c, (byte) ((sum + 2) >> 2));
+                }
+            }
+        }
+
+        /**
+         * Averages the color channels in linear space. Premultiplied color
+         * is already weighted by alpha, so it is averaged the same way.
+         */
+        private void filterRowLinear(int y, int dstRow) {
+            int row0 = srcOffset + Math.min(y * 2, srcHeight - 1) * srcPitch;
+            int row1 = srcOffset + Math.min(y * 2 + 1, srcHeight - 1) * srcPitch;
+
+            for (int x = 0; x < width; x++) {
+                int x0 = Math.min(x * 2, srcWidth - 1) * BYTES_PER_TEXEL;
+                int x1 = Math.min(x * 2 + 1, srcWidth - 1) * BYTES_PER_TEXEL;
+                int d = dstRow + x * BYTES_PER_TEXEL;
+
+                for (int c = 0; c < 3; c++) {
+                    float sum = toLinear(src.get(row0 + x0 + c) & 0xff, srgb)
+                            + toLinear(src.get(row0 + x1 + c) & 0xff, srgb)
+                            + toLinear(src.get(row1 + x0 + c) & 0xff, srgb)
+                            + toLinear(src.get(row1 + x1 + c) & 0xff, srgb);
+
+                    dst.put(d + c, fromLinear(sum * 0.25f, srgb));
+                }
+
+                int alpha = (src.get(row0 + x0 + 3) & 0xff) + (src.get(row0 + x1 + 3) & 0xff)
+                        + (src.get(row1 + x0 + 3) & 0xff) + (src.get(row1 + x1 + 3) & 0xff);
+
+                dst.put(d + 3, (byte) ((alpha + 2) >> 2));
+            }
+        }
+    }
+
+    /**
+     * Splits a level into bands of rows until they are below the threshold.
+     */
+    private static final class LevelTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Level level;
+        private final int rowsPerTask;
+        private final int firstRow;
+        private final int lastRow;
+
+        LevelTask(Level level, int rowsPerTask, int firstRow, int lastRow) {
+            this.level = level;
+            this.rowsPerTask = rowsPerTask;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastRow - firstRow <= rowsPerTask) {
+                level.run(firstRow, lastRow);
+                return;
+            }
+
+            int middle = (firstRow + lastRow) >>> 1;
+
+            invokeAll(new LevelTask(level, rowsPerTask, firstRow, middle),
+                    new LevelTask(level, rowsPerTask, middle, lastRow));
+        }
+
+    }
+
+}
@@ -0,0 +1,179 @@
+package twilight.bgfx.texture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Packs rectangles into a fixed area with the skyline bottom left heuristic,
+ * the same approach as the RectanglePacker of the bgfx font example. The
+ * skyline is the top edge of the packed rectangles, a rectangle is placed
+ * where it ends up lowest, preferring the narrowest segment on ties.
+ * </p>
+ *
+ * <p>
+ * Rectangles can't be removed, the packer can only be cleared and filled
+ * again.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+final class SkylinePacker {
+
+    private final int width;
+    private final int height;
+    private final List<Node> skyline = new ArrayList<Node>();
+
+    private long usedArea;
+
+    SkylinePacker(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        clear();
+    }
+
+    /**
+     * Places a rectangle.
+     *
+     * @param rectWidth
+     *            the width of the rectangle
+     * @param rectHeight
+     *            the height of the rectangle
+     * @param position
+     *            receives the x and y of the rectangle
+     * @return false if the rectangle doesn't fit
+     */
+    boolean add(int rectWidth, int rectHeight, int[] position) {
+        int bestIndex = -1;
+        int bestBottom = Integer.MAX_VALUE;
+        int bestWidth = Integer.MAX_VALUE;
+        int bestY = 0;
+
+        for (int i = 0; i < skyline.size(); i++) {
+            int y = fit(i, rectWidth, rectHeight);
+
+            if (y < 0) {
+                continue;
+            }
+
+            Node node = skyline.get(i);
+
+            if (y + rectHeight < bestBottom || (y + rectHeight == bestBottom && node.width < bestWidth)) {
+                bestIndex = i;
+                bestBottom = y + rectHeight;
+                bestWidth = node.width;
+                bestY = y;
+            }
+        }
+
+        if (bestIndex < 0) {
+            return false;
+        }
+
+        int x = skyline.get(bestIndex).x;
+
+        skyline.add(bestIndex, new Node(x, bestY + rectHeight, rectWidth));
+
+        // Shrink or remove the segments now below the new one
+        for (int i = bestIndex + 1; i < skyline.size();) {
+            Node node = skyline.get(i);
+            Node previous = skyline.get(i - 1);
+            int overlap = previous.x + previous.width - node.x;
+
+            if (overlap <= 0) {
+                break;
+            }
+
+            if (overlap < node.width) {
+                node.x += overlap;
+                node.width -= overlap;
+                break;
+            }
+
+            skyline.remove(i);
+        }
+
+        merge();
+
+        usedArea += (long) rectWidth * rectHeight;
+
+        position[0] = x;
+        position[1] = bestY;
+
+        return true;
+    }
+
+    /**
+     * Removes every rectangle.
+     */
+    void clear() {
+        skyline.clear();
+        skyline.add(new Node(0, 0, width));
+        usedArea = 0;
+    }
+
+    /**
+     * @return the area of the rectangles placed since the packer was cleared
+     */
+    long getUsedArea() {
+        return usedArea;
+    }
+
+    /**
+     * @return the y a rectangle would be placed at on the segment, or -1 if
+     *         it doesn't fit there
+     */
+    private int fit(int index, int rectWidth, int rectHeight) {
+        Node node = skyline.get(index);
+
+        if (node.x + rectWidth > width) {
+            return -1;
+        }
+
+        int y = node.y;
+        int widthLeft = rectWidth;
+
+        for (int i = index; widthLeft > 0; i++) {
+            Node spanned = skyline.get(i);
+
+            y = Math.max(y, spanned.y);
+
+            if (y + rectHeight > height) {
+                return -1;
+            }
+
+            widthLeft -= spanned.width;
+        }
+
+        return y;
+    }
+
+    private void merge() {
+        for (int i = 0; i < skyline.size() - 1;) {
+            Node node = skyline.get(i);
+            Node next = skyline.get(i + 1);
+
+            if (node.y == next.y) {
+                node.width += next.width;
+                skyline.remove(i + 1);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static final class Node {
+        int x;
+        int y;
+        int width;
+
+        Node(int x, int y, int width) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+        }
+    }
+
+}
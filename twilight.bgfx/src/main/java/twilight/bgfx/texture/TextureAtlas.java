@@ -0,0 +1,421 @@
+package twilight.bgfx.texture;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.Messages;
+import twilight.bgfx.TextureFormat;
+
+/**
+ * <p>
+ * Packs many small images into a few large textures, so draws using
+ * different images can share a texture binding. Images are placed with a
+ * {@link SkylinePacker} and uploaded with BGFX.updateTexture2D, a new page
+ * texture is created when no page has room.
+ * </p>
+ *
+ * <p>
+ * Removing an image only marks its space as unused, the skyline can't reuse
+ * it. {@link #defragment()} packs every image again, tallest first, and
+ * destroys pages that are no longer needed. Because images move, it must be
+ * called before anything is drawn in a frame, {@link #defragmentIfNeeded()}
+ * does so only once the unused space exceeds the threshold. The atlas keeps
+ * a copy of every image to upload it again when it moves.
+ * </p>
+ *
+ * <p>
+ * Images are separated by a padding of cleared texels so filtering doesn't
+ * pick up their neighbours. The atlas is not thread safe, it must be used on
+ * the submission thread.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class TextureAtlas {
+
+    /** The default width and height of a page. */
+    public static final int DEFAULT_PAGE_SIZE = 1024;
+
+    /** The default number of texels between images. */
+    public static final int DEFAULT_PADDING = 1;
+
+    /** The default fraction of unused page space that triggers defragmentation. */
+    public static final float DEFAULT_DEFRAGMENT_THRESHOLD = 0.25f;
+
+    private static final Comparator<AtlasRegion> TALLEST_FIRST = new Comparator<AtlasRegion>() {
+        @Override
+        public int compare(AtlasRegion a, AtlasRegion b) {
+            if (a.getHeight() != b.getHeight()) {
+                return b.getHeight() - a.getHeight();
+            }
+
+            return b.getWidth() - a.getWidth();
+        }
+    };
+
+    private final BGFX bgfx;
+    private final TextureFormat format;
+    private final int pageSize;
+    private final long flags;
+    private final int padding;
+    private final int bytesPerTexel;
+    private final List<Page> pages = new ArrayList<Page>();
+    private final int[] position = new int[2];
+
+    /** Zeroed texels for clearing a page, never written. */
+    private ByteBuffer clearBuffer;
+    private ByteBuffer uploadBuffer;
+
+    private float defragmentThreshold = DEFAULT_DEFRAGMENT_THRESHOLD;
+
+    /** The area of the images in the atlas including their padding. */
+    private long liveArea;
+
+    /**
+     * Creates an atlas with the default page size and padding.
+     *
+     * @param bgfx
+     *            the context to create the pages in
+     * @param format
+     *            the format of the pages and images
+     */
+    public TextureAtlas(BGFX bgfx, TextureFormat format) {
+        this(bgfx, format, DEFAULT_PAGE_SIZE, BGFX.BGFX_TEXTURE_NONE, DEFAULT_PADDING);
+    }
+
+    /**
+     * @param bgfx
+     *            the context to create the pages in
+     * @param format
+     *            the format of the pages and images, must not be compressed
+     * @param pageSize
+     *            the width and height of every page
+     * @param flags
+     *            the texture flags of the pages, see BGFX.createTexture2D
+     * @param padding
+     *            the number of texels between images
+     */
+    public TextureAtlas(BGFX bgfx, TextureFormat format, int pageSize, long flags, int padding) {
+        if (format.ordinal() <= TextureFormat.Unknown.ordinal()
+                || format.ordinal() >= TextureFormat.UnknownDepth.ordinal() || format == TextureFormat.R1) {
+            throw new BGFXException("Texture atlases don't support " + format + ".");
+        }
+
+        this.bgfx = bgfx;
+        this.format = format;
+        this.pageSize = pageSize;
+        this.flags = flags;
+        this.padding = padding;
+        this.bytesPerTexel = TextureContainer.calcMipSize(format, 1, 1, 1);
+    }
+
+    /**
+     * <p>
+     * Copies an image into the atlas.
+     * </p>
+     *
+     * @param data
+     *            the image in the format of the atlas, starting at its
+     *            position
+     * @param width
+     *            the width of the image
+     * @param height
+     *            the height of the image
+     * @param pitch
+     *            the distance between rows of the image in bytes
+     * @return the region the image was placed in
+     * @throws BGFXException
+     *             if the image doesn't fit into a page
+     */
+    public AtlasRegion add(ByteBuffer data, int width, int height, int pitch) {
+        if (data == null) {
+            throw new NullPointerException(Messages.getString("BGFX.NullByteBuffer")); //$NON-NLS-1$
+        }
+
+        int rowSize = width * bytesPerTexel;
+
+        if (width <= 0 || height <= 0 || pitch < rowSize || data.remaining() < (long) pitch * (height - 1) + rowSize) {
+            throw new BGFXException("Invalid image, " + width + "x" + height + " with a pitch of " + pitch + ".");
+        }
+
+        if (width + padding * 2 > pageSize || height + padding * 2 > pageSize) {
+            throw new BGFXException("Image of " + width + "x" + height + " doesn't fit into an atlas page of "
+                    + pageSize + "x" + pageSize + ".");
+        }
+
+        byte[] pixels = new byte[rowSize * height];
+        ByteBuffer source = data.duplicate();
+
+        for (int row = 0; row < height; row++) {
+            source.position(data.position() + row * pitch);
+            source.get(pixels, row * rowSize, rowSize);
+        }
+
+        AtlasRegion region = new AtlasRegion(this, width, height, pixels);
+
+        place(region);
+        upload(region);
+
+        liveArea += getPaddedArea(region);
+
+        return region;
+    }
+
+    /**
+     * <p>
+     * Removes an image, its space is reused once the atlas is defragmented.
+     * </p>
+     *
+     * @param region
+     *            the region to remove
+     */
+    public void remove(AtlasRegion region) {
+        Page page = region.page;
+
+        if (page == null) {
+            return;
+        }
+
+        page.regions.remove(region);
+        region.page = null;
+        liveArea -= getPaddedArea(region);
+
+        if (page.regions.isEmpty()) {
+            // Nothing moves, so the page can be reused right away
+            page.packer.clear();
+            clear(page);
+        }
+    }
+
+    /**
+     * @return the fraction of the page space that is used by the packer but
+     *         not by images, 0 if there are no pages
+     */
+    public float getFragmentation() {
+        if (pages.isEmpty()) {
+            return 0;
+        }
+
+        long packedArea = 0;
+
+        for (int i = 0; i < pages.size(); i++) {
+            packedArea += pages.get(i).packer.getUsedArea();
+        }
+
+        return (packedArea - liveArea) / ((float) pageSize * pageSize * pages.size());
+    }
+
+    /**
+     * <p>
+     * Defragments the atlas if the fragmentation exceeds the threshold. Must
+     * be called before anything is drawn in the current frame.
+     * </p>
+     *
+     * @return true if the atlas was defragmented
+     */
+    public boolean defragmentIfNeeded() {
+        if (getFragmentation() <= defragmentThreshold) {
+            return false;
+        }
+
+        defragment();
+
+        return true;
+    }
+
+    /**
+     * <p>
+     * Packs every image again, tallest first, uploads the pages again and
+     * destroys the pages that are left empty. Must be called before
+     * anything is drawn in the current frame.
+     * </p>
+     */
+    public void defragment() {
+        List<AtlasRegion> regions = new ArrayList<AtlasRegion>();
+
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+
+            regions.addAll(page.regions);
+            page.regions.clear();
+            page.packer.clear();
+        }
+
+        Collections.sort(regions, TALLEST_FIRST);
+
+        for (int i = 0; i < regions.size(); i++) {
+            place(regions.get(i));
+        }
+
+        for (int i = pages.size() - 1; i >= 0; i--) {
+            Page page = pages.get(i);
+
+            if (page.regions.isEmpty() && pages.size() > 1) {
+                bgfx.destroyTexture(page.handle);
+                pages.remove(i);
+            } else {
+                clear(page);
+            }
+        }
+
+        for (int i = 0; i < regions.size(); i++) {
+            upload(regions.get(i));
+        }
+    }
+
+    /**
+     * @param defragmentThreshold
+     *            the fraction of unused page space above which
+     *            {@link #defragmentIfNeeded()} defragments
+     */
+    public void setDefragmentThreshold(float defragmentThreshold) {
+        this.defragmentThreshold = defragmentThreshold;
+    }
+
+    /**
+     * @return the fraction of unused page space above which
+     *         {@link #defragmentIfNeeded()} defragments
+     */
+    public float getDefragmentThreshold() {
+        return defragmentThreshold;
+    }
+
+    /**
+     * @return the format of the pages
+     */
+    public TextureFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the width and height of every page
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return the number of page textures
+     */
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * @param index
+     *            the page index
+     * @return the page texture
+     */
+    public int getPage(int index) {
+        return pages.get(index).handle;
+    }
+
+    /**
+     * <p>
+     * Destroys every page. The regions of the atlas can't be used
+     * afterwards.
+     * </p>
+     */
+    public void destroy() {
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+
+            for (int j = 0; j < page.regions.size(); j++) {
+                page.regions.get(j).page = null;
+            }
+
+            bgfx.destroyTexture(page.handle);
+        }
+
+        pages.clear();
+        liveArea = 0;
+    }
+
+    private void place(AtlasRegion region) {
+        int paddedWidth = region.getWidth() + padding * 2;
+        int paddedHeight = region.getHeight() + padding * 2;
+
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+
+            if (page.packer.add(paddedWidth, paddedHeight, position)) {
+                page.add(region, position[0] + padding, position[1] + padding);
+                return;
+            }
+        }
+
+        int handle = bgfx.createTexture2D(pageSize, pageSize, 1, format, flags, getClearBuffer());
+
+        if (handle == BGFX.INVALID_HANDLE) {
+            throw new BGFXException("Could not create texture atlas page.");
+        }
+
+        Page page = new Page(handle, new SkylinePacker(pageSize, pageSize));
+        pages.add(page);
+
+        page.packer.add(paddedWidth, paddedHeight, position);
+        page.add(region, position[0] + padding, position[1] + padding);
+    }
+
+    private void upload(AtlasRegion region) {
+        int size = region.pixels.length;
+
+        if (uploadBuffer == null || uploadBuffer.capacity() < size) {
+            uploadBuffer = ByteBuffer.allocateDirect(Math.max(size, 64 * 1024)).order(ByteOrder.nativeOrder());
+        }
+
+        // BGFX copies the whole buffer, so it is sliced to the image size
+        uploadBuffer.clear();
+        uploadBuffer.put(region.pixels).flip();
+
+        bgfx.updateTexture2D(region.page.handle, (short) 0, region.x, region.y, region.getWidth(), region.getHeight(),
+                uploadBuffer.slice(), region.getWidth() * bytesPerTexel);
+    }
+
+    private void clear(Page page) {
+        bgfx.updateTexture2D(page.handle, (short) 0, 0, 0, pageSize, pageSize, getClearBuffer(), pageSize
+                * bytesPerTexel);
+    }
+
+    private long getPaddedArea(AtlasRegion region) {
+        return (long) (region.getWidth() + padding * 2) * (region.getHeight() + padding * 2);
+    }
+
+    private ByteBuffer getClearBuffer() {
+        if (clearBuffer == null) {
+            clearBuffer = ByteBuffer.allocateDirect(pageSize * pageSize * bytesPerTexel);
+        }
+
+        return clearBuffer;
+    }
+
+    /**
+     * A page texture and the images packed into it.
+     */
+    static final class Page {
+        final int handle;
+        final SkylinePacker packer;
+        final List<AtlasRegion> regions = new ArrayList<AtlasRegion>();
+
+        Page(int handle, SkylinePacker packer) {
+            this.handle = handle;
+            this.packer = packer;
+        }
+
+        void add(AtlasRegion region, int x, int y) {
+            region.page = this;
+            region.x = x;
+            region.y = y;
+
+            regions.add(region);
+        }
+    }
+
+}
@@ -0,0 +1,310 @@
+package twilight.bgfx.texture;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.TextureInfo;
+import twilight.bgfx.util.ResourceUtil;
+
+/**
+ * <p>
+ * Owns a set of textures and keeps the memory of the resident ones within a
+ * byte budget. Textures are created from their {@link TextureSource} the
+ * first time they are bound, binding them through
+ * {@link #setTexture(int, int, CachedTexture, long)} or
+ * {@link CachedTexture#get()} marks them as used.
+ * </p>
+ *
+ * <p>
+ * When the resident textures exceed the budget, the least recently used
+ * textures are destroyed until they fit again, and are created again from
+ * their source the next time they are bound. Textures used in the current
+ * frame are never evicted, so the budget is exceeded if a single frame uses
+ * more than it. Sizes come from TextureInfo.getStorageSize() as filled in by
+ * BGFX.createTexture or BGFX.calcTextureSize.
+ * </p>
+ *
+ * <p>
+ * The cache is not thread safe, it must be used on the submission thread.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class TextureCache {
+
+    /** The default budget, 256 MiB. */
+    public static final long DEFAULT_BUDGET = 256L << 20;
+
+    private final BGFX bgfx;
+
+    /** The resident textures, least recently used first. */
+    private final LinkedHashMap<CachedTexture, CachedTexture> resident = new LinkedHashMap<CachedTexture, CachedTexture>(
+            16, 0.75f, true);
+
+    private long budget;
+    private long residentBytes;
+    private long frame;
+    private int loadCount;
+    private int evictionCount;
+    private boolean destroyed;
+
+    /**
+     * Creates a cache with the default budget.
+     *
+     * @param bgfx
+     *            the context the textures are created in
+     */
+    public TextureCache(BGFX bgfx) {
+        this(bgfx, DEFAULT_BUDGET);
+    }
+
+    /**
+     * @param bgfx
+     *            the context the textures are created in
+     * @param budget
+     *            the number of bytes resident textures may use
+     */
+    public TextureCache(BGFX bgfx, long budget) {
+        this.bgfx = bgfx;
+        this.budget = budget;
+
+        bgfx.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (destroyed) {
+                    return;
+                }
+
+                endFrame();
+                TextureCache.this.bgfx.invokeLater(this);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Adds a texture created by a source. The texture isn't created until
+     * it is first bound.
+     * </p>
+     *
+     * @param source
+     *            creates the texture
+     * @return the cached texture
+     */
+    public CachedTexture add(TextureSource source) {
+        if (destroyed) {
+            throw new BGFXException("Texture cache has been destroyed.");
+        }
+
+        return new CachedTexture(this, source);
+    }
+
+    /**
+     * <p>
+     * Adds a DDS, KTX or PVR texture file. The file is read each time the
+     * texture is created.
+     * </p>
+     *
+     * @param file
+     *            the texture file
+     * @param flags
+     *            the texture flags, see BGFX.createTexture
+     * @param skip
+     *            the number of top mip levels to skip
+     * @return the cached texture
+     */
+    public CachedTexture add(File file, long flags, int skip) {
+        return add(new FileSource(file, flags, skip));
+    }
+
+    /**
+     * <p>
+     * Binds a cached texture, creating it if it isn't resident, and marks
+     * it as used.
+     * </p>
+     *
+     * @param stage
+     *            texture unit
+     * @param sampler
+     *            program sampler
+     * @param texture
+     *            the texture to bind
+     * @param flags
+     *            texture sampling flags, see BGFX.setTexture
+     */
+    public void setTexture(int stage, int sampler, CachedTexture texture, long flags) {
+        bgfx.setTexture(stage, sampler, use(texture), flags);
+    }
+
+    /**
+     * @param budget
+     *            the number of bytes resident textures may use, textures are
+     *            evicted right away if they use more
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+
+        trim();
+    }
+
+    /**
+     * @return the number of bytes resident textures may use
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the number of bytes used by resident textures
+     */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * @return the number of resident textures
+     */
+    public int getResidentCount() {
+        return resident.size();
+    }
+
+    /**
+     * @return the number of times a texture has been created
+     */
+    public int getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * @return the number of times a texture has been evicted
+     */
+    public int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * <p>
+     * Evicts least recently used textures until the resident textures fit
+     * into the budget, skipping textures used in the current frame. Called
+     * when a texture is created and at the start of every frame.
+     * </p>
+     */
+    public void trim() {
+        Iterator<CachedTexture> iterator = resident.keySet().iterator();
+
+        while (residentBytes > budget && iterator.hasNext()) {
+            CachedTexture texture = iterator.next();
+
+            if (texture.lastUsedFrame >= frame) {
+                // Every texture after it was used more recently
+                break;
+            }
+
+            iterator.remove();
+            evict(texture);
+            evictionCount++;
+        }
+    }
+
+    /**
+     * <p>
+     * Destroys every resident texture. Cached textures can't be used
+     * afterwards.
+     * </p>
+     */
+    public void destroy() {
+        for (CachedTexture texture : resident.keySet()) {
+            bgfx.destroyTexture(texture.handle);
+            texture.handle = BGFX.INVALID_HANDLE;
+            texture.destroyed = true;
+        }
+
+        resident.clear();
+        residentBytes = 0;
+        destroyed = true;
+    }
+
+    int use(CachedTexture texture) {
+        if (texture.destroyed || destroyed) {
+            throw new BGFXException("Texture has been destroyed.");
+        }
+
+        texture.lastUsedFrame = frame;
+
+        if (texture.handle == BGFX.INVALID_HANDLE) {
+            load(texture);
+        } else {
+            // Moves the texture to the most recently used end
+            resident.get(texture);
+        }
+
+        return texture.handle;
+    }
+
+    void remove(CachedTexture texture) {
+        if (texture.destroyed) {
+            return;
+        }
+
+        if (resident.remove(texture) != null) {
+            evict(texture);
+        }
+
+        texture.destroyed = true;
+    }
+
+    private void load(CachedTexture texture) {
+        TextureInfo info = new TextureInfo();
+        int handle = texture.getSource().create(bgfx, info);
+
+        if (handle == BGFX.INVALID_HANDLE) {
+            throw new BGFXException("Could not create cached texture.");
+        }
+
+        texture.handle = handle;
+        texture.size = info.getStorageSize();
+
+        residentBytes += texture.size;
+        resident.put(texture, texture);
+        loadCount++;
+
+        trim();
+    }
+
+    private void evict(CachedTexture texture) {
+        bgfx.destroyTexture(texture.handle);
+
+        texture.handle = BGFX.INVALID_HANDLE;
+        residentBytes -= texture.size;
+    }
+
+    private void endFrame() {
+        trim();
+        frame++;
+    }
+
+    /**
+     * Creates a texture from a DDS, KTX or PVR file.
+     */
+    private static final class FileSource implements TextureSource {
+        private final File file;
+        private final long flags;
+        private final int skip;
+
+        FileSource(File file, long flags, int skip) {
+            this.file = file;
+            this.flags = flags;
+            this.skip = skip;
+        }
+
+        @Override
+        public int create(BGFX bgfx, TextureInfo info) {
+            return bgfx.createTexture(ResourceUtil.mapFile(file), flags, skip, info);
+        }
+    }
+
+}
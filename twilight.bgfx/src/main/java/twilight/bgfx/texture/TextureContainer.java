@@ -0,0 +1,753 @@
+package twilight.bgfx.texture;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.TextureFormat;
+
+/**
+ * <p>
+ * The layout of a DDS or KTX texture file, parsed in Java so single mip
+ * levels and cube faces can be uploaded without handing the whole file to
+ * BGFX.createTexture.
+ * </p>
+ *
+ * <p>
+ * {@link #parse(ByteBuffer)} reads only the header, the mip levels returned
+ * by {@link #getMip(int, int)} are slices of the parsed buffer, so a memory
+ * mapped file is only paged in for the levels that are used. Mip data is
+ * laid out the way BGFX expects it for createTexture2D and updateTexture2D.
+ * Texture arrays and big endian KTX files with multi byte texel types are not
+ * supported.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class TextureContainer {
+
+    private static final int DDS_MAGIC = fourCC('D', 'D', 'S', ' ');
+    private static final int DDS_HEADER_SIZE = 124;
+    private static final int DDS_DX10 = fourCC('D', 'X', '1', '0');
+
+    private static final int DDSD_MIPMAPCOUNT = 0x20000;
+    private static final int DDSD_DEPTH = 0x800000;
+
+    private static final int DDPF_ALPHA = 0x2;
+    private static final int DDPF_FOURCC = 0x4;
+    private static final int DDPF_RGB = 0x40;
+    private static final int DDPF_LUMINANCE = 0x20000;
+
+    private static final int DDSCAPS2_CUBEMAP = 0x200;
+    private static final int DDSCAPS2_CUBEMAP_ALLFACES = 0xfc00;
+    private static final int DDSCAPS2_VOLUME = 0x200000;
+
+    private static final int DDS_RESOURCE_MISC_TEXTURECUBE = 0x4;
+
+    private static final byte[] KTX_IDENTIFIER = { (byte) 0xab, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xbb, '\r',
+            '\n', 0x1a, '\n' };
+    private static final int KTX_HEADER_SIZE = 64;
+    private static final int KTX_ENDIANNESS = 0x04030201;
+
+    private final ByteBuffer data;
+    private final TextureFormat format;
+    private final int width;
+    private final int height;
+    private final int depth;
+    private final int numMips;
+    private final int numFaces;
+
+    /** The offset of every level, indexed by face * numMips + mip. */
+    private final int[] offsets;
+
+    private TextureContainer(ByteBuffer data, TextureFormat format, int width, int height, int depth, int numMips,
+            int numFaces, int[] offsets) {
+        this.data = data;
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        this.numMips = numMips;
+        this.numFaces = numFaces;
+        this.offsets = offsets;
+    }
+
+    /**
+     * <p>
+     * Parses the header of a DDS or KTX file.
+     * </p>
+     *
+     * @param data
+     *            the file contents, starting at the buffer position
+     * @return the texture layout
+     * @throws BGFXException
+     *             if the data isn't a supported DDS or KTX file
+     */
+    public static TextureContainer parse(ByteBuffer data) {
+        ByteBuffer file = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        if (file.capacity() >= 4 + DDS_HEADER_SIZE && file.getInt(0) == DDS_MAGIC) {
+            return parseDds(file);
+        }
+
+        if (file.capacity() >= KTX_HEADER_SIZE && isKtx(file)) {
+            return parseKtx(file);
+        }
+
+        throw new BGFXException("Unsupported texture container, expected DDS or KTX.");
+    }
+
+    /**
+     * <p>
+     * Returns the size of a mip level in the layout BGFX uses: whole blocks
+     * for block compressed formats and tightly packed rows otherwise.
+     * </p>
+     *
+     * @param format
+     *            the texture format
+     * @param width
+     *            the width of the level
+     * @param height
+     *            the height of the level
+     * @param depth
+     *            the depth of the level
+     * @return the size in bytes
+     */
+    public static int calcMipSize(TextureFormat format, int width, int height, int depth) {
+        int blockWidth = 1;
+        int blockHeight = 1;
+        int minBlocks = 1;
+        int blockBits;
+
+        switch (format) {
+        case BC1:
+        case BC4:
+        case ETC1:
+        case ETC2:
+        case ETC2A1:
+            blockWidth = blockHeight = 4;
+            blockBits = 64;
+            break;
+        case BC2:
+        case BC3:
+        case BC5:
+        case BC6H:
+        case BC7:
+        case ETC2A:
+            blockWidth = blockHeight = 4;
+            blockBits = 128;
+            break;
+        case PTC12:
+        case PTC12A:
+        case PTC22:
+            blockWidth = 8;
+            blockHeight = 4;
+            minBlocks = 2;
+            blockBits = 64;
+            break;
+        case PTC14:
+        case PTC14A:
+        case PTC24:
+            blockWidth = blockHeight = 4;
+            minBlocks = 2;
+            blockBits = 64;
+            break;
+        default:
+            blockBits = getBitsPerPixel(format);
+            break;
+        }
+
+        long blocksX = Math.max(minBlocks, (width + blockWidth - 1) / blockWidth);
+        long blocksY = Math.max(minBlocks, (height + blockHeight - 1) / blockHeight);
+        long size = (blocksX * blocksY * blockBits + 7) / 8 * Math.max(depth, 1);
+
+        if (size > Integer.MAX_VALUE) {
+            throw new BGFXException("Mip level is too large: " + width + "x" + height + "x" + depth);
+        }
+
+        return (int) size;
+    }
+
+    /**
+     * @return the texture format
+     */
+    public TextureFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the width of the top level
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the top level
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the depth of the top level, 1 unless the texture is a volume
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the number of mip levels including the top level
+     */
+    public int getNumMips() {
+        return numMips;
+    }
+
+    /**
+     * @return 6 for cube maps, 1 otherwise
+     */
+    public int getNumFaces() {
+        return numFaces;
+    }
+
+    /**
+     * @return true if the texture is a cube map
+     */
+    public boolean isCubeMap() {
+        return numFaces == 6;
+    }
+
+    /**
+     * @param mip
+     *            the mip level
+     * @return the width of the level
+     */
+    public int getMipWidth(int mip) {
+        return Math.max(1, width >> mip);
+    }
+
+    /**
+     * @param mip
+     *            the mip level
+     * @return the height of the level
+     */
+    public int getMipHeight(int mip) {
+        return Math.max(1, height >> mip);
+    }
+
+    /**
+     * @param mip
+     *            the mip level
+     * @return the depth of the level
+     */
+    public int getMipDepth(int mip) {
+        return Math.max(1, depth >> mip);
+    }
+
+    /**
+     * @param mip
+     *            the mip level
+     * @return the size of the level of a single face in bytes
+     */
+    public int getMipSize(int mip) {
+        return calcMipSize(format, getMipWidth(mip), getMipHeight(mip), getMipDepth(mip));
+    }
+
+    /**
+     * @param face
+     *            the cube face, 0 for other textures
+     * @param mip
+     *            the mip level
+     * @return the offset of the level from the start of the parsed buffer
+     */
+    public int getMipOffset(int face, int mip) {
+        checkLevel(face, mip);
+
+        return offsets[face * numMips + mip];
+    }
+
+    /**
+     * <p>
+     * Returns the data of a single level, ready for updateTexture2D.
+     * </p>
+     *
+     * @param face
+     *            the cube face, 0 for other textures
+     * @param mip
+     *            the mip level
+     * @return a slice of the parsed buffer
+     */
+    public ByteBuffer getMip(int face, int mip) {
+        return slice(getMipOffset(face, mip), getMipSize(mip));
+    }
+
+    /**
+     * <p>
+     * Returns the levels from firstMip to the smallest level of a face
+     * packed back to back, ready for createTexture2D with
+     * {@code getNumMips() - firstMip} levels. DDS files store the levels
+     * that way, so the result is a slice of the parsed buffer. KTX files pad
+     * every level, so their levels are copied into a new direct buffer.
+     * </p>
+     *
+     * @param face
+     *            the cube face, 0 for other textures
+     * @param firstMip
+     *            the largest level to include
+     * @return the packed levels
+     */
+    public ByteBuffer getMipChain(int face, int firstMip) {
+        int start = getMipOffset(face, firstMip);
+        int size = 0;
+        boolean packed = true;
+
+        for (int mip = firstMip; mip < numMips; mip++) {
+            packed &= offsets[face * numMips + mip] == start + size;
+            size += getMipSize(mip);
+        }
+
+        if (packed) {
+            return slice(start, size);
+        }
+
+        ByteBuffer chain = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+
+        for (int mip = firstMip; mip < numMips; mip++) {
+            chain.put(getMip(face, mip));
+        }
+
+        chain.flip();
+
+        return chain;
+    }
+
+    private ByteBuffer slice(int offset, int size) {
+        ByteBuffer view = data.duplicate();
+        view.limit(offset + size);
+        view.position(offset);
+
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+
+    private void checkLevel(int face, int mip) {
+        if (face < 0 || face >= numFaces || mip < 0 || mip >= numMips) {
+            throw new IndexOutOfBoundsException("No face " + face + " mip " + mip + " in a texture with " + numFaces
+                    + " faces and " + numMips + " mips.");
+        }
+    }
+
+    private static TextureContainer parseDds(ByteBuffer file) {
+        int flags = file.getInt(8);
+        int height = file.getInt(12);
+        int width = file.getInt(16);
+        int depth = (flags & DDSD_DEPTH) != 0 ? Math.max(file.getInt(24), 1) : 1;
+        int numMips = (flags & DDSD_MIPMAPCOUNT) != 0 ? Math.max(file.getInt(28), 1) : 1;
+
+        int pixelFlags = file.getInt(80);
+        int fourCC = file.getInt(84);
+        int caps2 = file.getInt(112);
+
+        int dataOffset = 4 + DDS_HEADER_SIZE;
+        int numFaces = 1;
+        TextureFormat format;
+
+        if ((pixelFlags & DDPF_FOURCC) != 0 && fourCC == DDS_DX10) {
+            if (file.capacity() < dataOffset + 20) {
+                throw new BGFXException("Truncated DDS header.");
+            }
+
+            format = dxgiFormat(file.getInt(dataOffset));
+
+            if ((file.getInt(dataOffset + 8) & DDS_RESOURCE_MISC_TEXTURECUBE) != 0) {
+                numFaces = 6;
+            }
+
+            if (file.getInt(dataOffset + 12) > 1) {
+                throw new BGFXException("DDS texture arrays are not supported.");
+            }
+
+            dataOffset += 20;
+        } else if ((pixelFlags & DDPF_FOURCC) != 0) {
+            format = ddsFourCCFormat(fourCC);
+        } else {
+            format = ddsMaskFormat(pixelFlags, file.getInt(88), file.getInt(92), file.getInt(96), file.getInt(100),
+                    file.getInt(104));
+        }
+
+        if ((caps2 & DDSCAPS2_CUBEMAP) != 0) {
+            if ((caps2 & DDSCAPS2_CUBEMAP_ALLFACES) != DDSCAPS2_CUBEMAP_ALLFACES) {
+                throw new BGFXException("DDS cube maps must contain all faces.");
+            }
+
+            numFaces = 6;
+        }
+
+        if ((caps2 & DDSCAPS2_VOLUME) == 0) {
+            depth = 1;
+        }
+
+        checkSize(width, height, numMips);
+
+        int[] offsets = new int[numFaces * numMips];
+        long offset = dataOffset;
+
+        // Every face stores its complete mip chain before the next face
+        for (int face = 0; face < numFaces; face++) {
+            for (int mip = 0; mip < numMips; mip++) {
+                offsets[face * numMips + mip] = (int) offset;
+                offset += calcMipSize(format, Math.max(1, width >> mip), Math.max(1, height >> mip),
+                        Math.max(1, depth >> mip));
+
+                checkBounds(offset, file);
+            }
+        }
+
+        return new TextureContainer(file, format, width, height, depth, numMips, numFaces, offsets);
+    }
+
+    private static TextureContainer parseKtx(ByteBuffer file) {
+        int endianness = file.getInt(12);
+
+        if (endianness != KTX_ENDIANNESS) {
+            file.order(ByteOrder.BIG_ENDIAN);
+
+            if (file.getInt(12) != KTX_ENDIANNESS) {
+                throw new BGFXException("Corrupt KTX endianness field.");
+            }
+
+            if (file.getInt(20) > 1) {
+                throw new BGFXException("Big endian KTX files with multi byte texel types are not supported.");
+            }
+        }
+
+        TextureFormat format = glFormat(file.getInt(28));
+        int width = file.getInt(36);
+        int height = Math.max(file.getInt(40), 1);
+        int depth = Math.max(file.getInt(44), 1);
+        int arrayElements = file.getInt(48);
+        int numFaces = file.getInt(52);
+        int numMips = Math.max(file.getInt(56), 1);
+        int keyValueBytes = file.getInt(60);
+
+        if (arrayElements > 0) {
+            throw new BGFXException("KTX texture arrays are not supported.");
+        }
+
+        if (numFaces != 1 && numFaces != 6) {
+            throw new BGFXException("Invalid KTX face count: " + numFaces);
+        }
+
+        checkSize(width, height, numMips);
+
+        int[] offsets = new int[numFaces * numMips];
+        long offset = KTX_HEADER_SIZE + (long) keyValueBytes;
+
+        for (int mip = 0; mip < numMips; mip++) {
+            checkBounds(offset + 4, file);
+
+            long imageSize = file.getInt((int) offset) & 0xffffffffL;
+            int mipSize = calcMipSize(format, Math.max(1, width >> mip), Math.max(1, height >> mip),
+                    Math.max(1, depth >> mip));
+
+            if (imageSize < mipSize) {
+                throw new BGFXException("KTX mip " + mip + " is smaller than its format requires.");
+            }
+
+            offset += 4;
+
+            // Cube faces and mips are padded to 4 bytes
+            for (int face = 0; face < numFaces; face++) {
+                offsets[face * numMips + mip] = (int) offset;
+                offset += imageSize;
+
+                checkBounds(offset, file);
+
+                offset = (offset + 3) & ~3L;
+            }
+        }
+
+        return new TextureContainer(file, format, width, height, depth, numMips, numFaces, offsets);
+    }
+
+    private static boolean isKtx(ByteBuffer file) {
+        for (int i = 0; i < KTX_IDENTIFIER.length; i++) {
+            if (file.get(i) != KTX_IDENTIFIER[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void checkSize(int width, int height, int numMips) {
+        if (width <= 0 || height <= 0 || width > 0xffff || height > 0xffff || numMips > 16) {
+            throw new BGFXException("Invalid texture size " + width + "x" + height + " with " + numMips + " mips.");
+        }
+    }
+
+    private static void checkBounds(long end, ByteBuffer file) {
+        if (end > file.capacity()) {
+            throw new BGFXException("Truncated texture data.");
+        }
+    }
+
+    private static TextureFormat ddsFourCCFormat(int fourCC) {
+        if (fourCC == fourCC('D', 'X', 'T', '1')) {
+            return TextureFormat.BC1;
+        } else if (fourCC == fourCC('D', 'X', 'T', '2') || fourCC == fourCC('D', 'X', 'T', '3')) {
+            return TextureFormat.BC2;
+        } else if (fourCC == fourCC('D', 'X', 'T', '4') || fourCC == fourCC('D', 'X', 'T', '5')) {
+            return TextureFormat.BC3;
+        } else if (fourCC == fourCC('A', 'T', 'I', '1') || fourCC == fourCC('B', 'C', '4', 'U')) {
+            return TextureFormat.BC4;
+        } else if (fourCC == fourCC('A', 'T', 'I', '2') || fourCC == fourCC('B', 'C', '5', 'U')) {
+            return TextureFormat.BC5;
+        }
+
+        // Legacy D3DFORMAT values stored in the FourCC field
+        switch (fourCC) {
+        case 36:
+            return TextureFormat.RGBA16;
+        case 111:
+            return TextureFormat.R16F;
+        case 112:
+            return TextureFormat.RG16F;
+        case 113:
+            return TextureFormat.RGBA16F;
+        case 114:
+            return TextureFormat.R32F;
+        case 115:
+            return TextureFormat.RG32F;
+        case 116:
+            return TextureFormat.RGBA32F;
+        default:
+            throw new BGFXException("Unsupported DDS FourCC: 0x" + Integer.toHexString(fourCC));
+        }
+    }
+
+    private static TextureFormat ddsMaskFormat(int pixelFlags, int bits, int red, int green, int blue, int alpha) {
+        if ((pixelFlags & DDPF_RGB) != 0) {
+            if (bits == 32 && red == 0x00ff0000 && green == 0x0000ff00 && blue == 0x000000ff) {
+                return TextureFormat.BGRA8;
+            } else if (bits == 32 && red == 0x000000ff && green == 0x0000ff00 && blue == 0x00ff0000) {
+                return TextureFormat.RGBA8;
+            } else if (bits == 32 && red == 0x000003ff && green == 0x000ffc00 && blue == 0x3ff00000) {
+                return TextureFormat.RGB10A2;
+            } else if (bits == 32 && red == 0x0000ffff && green == 0xffff0000) {
+                return TextureFormat.RG16;
+            } else if (bits == 16 && red == 0xf800 && green == 0x07e0 && blue == 0x001f) {
+                return TextureFormat.R5G6B5;
+            } else if (bits == 16 && red == 0x0f00 && green == 0x00f0 && blue == 0x000f) {
+                return TextureFormat.RGBA4;
+            } else if (bits == 16 && red == 0x7c00 && green == 0x03e0 && blue == 0x001f) {
+                return TextureFormat.RGB5A1;
+            }
+        } else if ((pixelFlags & (DDPF_LUMINANCE | DDPF_ALPHA)) != 0) {
+            if (bits == 8) {
+                return TextureFormat.R8;
+            } else if (bits == 16 && red == 0xffff) {
+                return TextureFormat.R16;
+            } else if (bits == 16) {
+                return TextureFormat.RG8;
+            }
+        }
+
+        throw new BGFXException("Unsupported DDS pixel format: " + bits + " bits, masks 0x" + Integer.toHexString(red)
+                + " 0x" + Integer.toHexString(green) + " 0x" + Integer.toHexString(blue) + " 0x"
+                + Integer.toHexString(alpha));
+    }
+
+    private static TextureFormat dxgiFormat(int dxgiFormat) {
+        switch (dxgiFormat) {
+        case 2: // R32G32B32A32_FLOAT
+            return TextureFormat.RGBA32F;
+        case 10: // R16G16B16A16_FLOAT
+            return TextureFormat.RGBA16F;
+        case 11: // R16G16B16A16_UNORM
+            return TextureFormat.RGBA16;
+        case 16: // R32G32_FLOAT
+            return TextureFormat.RG32F;
+        case 24: // R10G10B10A2_UNORM
+            return TextureFormat.RGB10A2;
+        case 26: // R11G11B10_FLOAT
+            return TextureFormat.R11G11B10F;
+        case 28: // R8G8B8A8_UNORM
+        case 29: // R8G8B8A8_UNORM_SRGB
+            return TextureFormat.RGBA8;
+        case 34: // R16G16_FLOAT
+            return TextureFormat.RG16F;
+        case 35: // R16G16_UNORM
+            return TextureFormat.RG16;
+        case 41: // R32_FLOAT
+            return TextureFormat.R32F;
+        case 49: // R8G8_UNORM
+            return TextureFormat.RG8;
+        case 54: // R16_FLOAT
+            return TextureFormat.R16F;
+        case 56: // R16_UNORM
+            return TextureFormat.R16;
+        case 61: // R8_UNORM
+            return TextureFormat.R8;
+        case 71: // BC1_UNORM
+        case 72: // BC1_UNORM_SRGB
+            return TextureFormat.BC1;
+        case 74: // BC2_UNORM
+        case 75: // BC2_UNORM_SRGB
+            return TextureFormat.BC2;
+        case 77: // BC3_UNORM
+        case 78: // BC3_UNORM_SRGB
+            return TextureFormat.BC3;
+        case 80: // BC4_UNORM
+            return TextureFormat.BC4;
+        case 83: // BC5_UNORM
+            return TextureFormat.BC5;
+        case 85: // B5G6R5_UNORM
+            return TextureFormat.R5G6B5;
+        case 86: // B5G5R5A1_UNORM
+            return TextureFormat.RGB5A1;
+        case 87: // B8G8R8A8_UNORM
+        case 91: // B8G8R8A8_UNORM_SRGB
+            return TextureFormat.BGRA8;
+        case 95: // BC6H_UF16
+        case 96: // BC6H_SF16
+            return TextureFormat.BC6H;
+        case 98: // BC7_UNORM
+        case 99: // BC7_UNORM_SRGB
+            return TextureFormat.BC7;
+        case 115: // B4G4R4A4_UNORM
+            return TextureFormat.RGBA4;
+        default:
+            throw new BGFXException("Unsupported DXGI format: " + dxgiFormat);
+        }
+    }
+
+    private static TextureFormat glFormat(int internalFormat) {
+        switch (internalFormat) {
+        case 0x83f0: // COMPRESSED_RGB_S3TC_DXT1
+        case 0x83f1: // COMPRESSED_RGBA_S3TC_DXT1
+            return TextureFormat.BC1;
+        case 0x83f2: // COMPRESSED_RGBA_S3TC_DXT3
+            return TextureFormat.BC2;
+        case 0x83f3: // COMPRESSED_RGBA_S3TC_DXT5
+            return TextureFormat.BC3;
+        case 0x8c70: // COMPRESSED_LUMINANCE_LATC1
+        case 0x8dbb: // COMPRESSED_RED_RGTC1
+            return TextureFormat.BC4;
+        case 0x8c72: // COMPRESSED_LUMINANCE_ALPHA_LATC2
+        case 0x8dbd: // COMPRESSED_RG_RGTC2
+            return TextureFormat.BC5;
+        case 0x8e8e: // COMPRESSED_RGB_BPTC_SIGNED_FLOAT
+        case 0x8e8f: // COMPRESSED_RGB_BPTC_UNSIGNED_FLOAT
+            return TextureFormat.BC6H;
+        case 0x8e8c: // COMPRESSED_RGBA_BPTC_UNORM
+            return TextureFormat.BC7;
+        case 0x8d64: // ETC1_RGB8
+            return TextureFormat.ETC1;
+        case 0x9274: // COMPRESSED_RGB8_ETC2
+            return TextureFormat.ETC2;
+        case 0x9278: // COMPRESSED_RGBA8_ETC2_EAC
+            return TextureFormat.ETC2A;
+        case 0x9276: // COMPRESSED_RGB8_PUNCHTHROUGH_ALPHA1_ETC2
+            return TextureFormat.ETC2A1;
+        case 0x8c01: // COMPRESSED_RGB_PVRTC_2BPPV1
+            return TextureFormat.PTC12;
+        case 0x8c00: // COMPRESSED_RGB_PVRTC_4BPPV1
+            return TextureFormat.PTC14;
+        case 0x8c03: // COMPRESSED_RGBA_PVRTC_2BPPV1
+            return TextureFormat.PTC12A;
+        case 0x8c02: // COMPRESSED_RGBA_PVRTC_4BPPV1
+            return TextureFormat.PTC14A;
+        case 0x9137: // COMPRESSED_RGBA_PVRTC_2BPPV2
+            return TextureFormat.PTC22;
+        case 0x9138: // COMPRESSED_RGBA_PVRTC_4BPPV2
+            return TextureFormat.PTC24;
+        case 0x8229: // R8
+            return TextureFormat.R8;
+        case 0x822a: // R16
+            return TextureFormat.R16;
+        case 0x822d: // R16F
+            return TextureFormat.R16F;
+        case 0x8236: // R32UI
+            return TextureFormat.R32;
+        case 0x822e: // R32F
+            return TextureFormat.R32F;
+        case 0x822b: // RG8
+            return TextureFormat.RG8;
+        case 0x822c: // RG16
+            return TextureFormat.RG16;
+        case 0x822f: // RG16F
+            return TextureFormat.RG16F;
+        case 0x823c: // RG32UI
+            return TextureFormat.RG32;
+        case 0x8230: // RG32F
+            return TextureFormat.RG32F;
+        case 0x80e1: // BGRA
+        case 0x93a1: // BGRA8_EXT
+            return TextureFormat.BGRA8;
+        case 0x8058: // RGBA8
+        case 0x8c43: // SRGB8_ALPHA8
+            return TextureFormat.RGBA8;
+        case 0x805b: // RGBA16
+            return TextureFormat.RGBA16;
+        case 0x881a: // RGBA16F
+            return TextureFormat.RGBA16F;
+        case 0x8d70: // RGBA32UI
+            return TextureFormat.RGBA32;
+        case 0x8814: // RGBA32F
+            return TextureFormat.RGBA32F;
+        case 0x8d62: // RGB565
+            return TextureFormat.R5G6B5;
+        case 0x8056: // RGBA4
+            return TextureFormat.RGBA4;
+        case 0x8057: // RGB5_A1
+            return TextureFormat.RGB5A1;
+        case 0x8059: // RGB10_A2
+            return TextureFormat.RGB10A2;
+        case 0x8c3a: // R11F_G11F_B10F
+            return TextureFormat.R11G11B10F;
+        default:
+            throw new BGFXException("Unsupported KTX internal format: 0x" + Integer.toHexString(internalFormat));
+        }
+    }
+
+    private static int getBitsPerPixel(TextureFormat format) {
+        switch (format) {
+        case R1:
+            return 1;
+        case R8:
+            return 8;
+        case R16:
+        case R16F:
+        case RG8:
+        case R5G6B5:
+        case RGBA4:
+        case RGB5A1:
+            return 16;
+        case R32:
+        case R32F:
+        case RG16:
+        case RG16F:
+        case BGRA8:
+        case RGBA8:
+        case RGB10A2:
+        case R11G11B10F:
+            return 32;
+        case RG32:
+        case RG32F:
+        case RGBA16:
+        case RGBA16F:
+            return 64;
+        case RGBA32:
+        case RGBA32F:
+            return 128;
+        default:
+            throw new BGFXException("Texture format has no fixed texel size: " + format);
+        }
+    }
+
+    private static int fourCC(char a, char b, char c, char d) {
+        return a | (b << 8) | (c << 16) | (d << 24);
+    }
+
+}
@@ -0,0 +1,164 @@
+package twilight.bgfx.texture;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import twilight.bgfx.BGFX;
+
+/**
+ * <p>
+ * A texture being loaded by a {@link TextureLoader}. Until the texture has
+ * been created {@link #get()} returns the placeholder texture of the loader,
+ * so the handle can be bound every frame without checking its state.
+ * </p>
+ *
+ * <p>
+ * The state can be queried from any thread. {@link #destroy()} must be
+ * called on the submission thread, it destroys the texture once it has been
+ * created or cancels the load if it hasn't.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class TextureHandle {
+
+    static final int PENDING = 0;
+    static final int READY = 1;
+    static final int FAILED = 2;
+    static final int CANCELLED = 3;
+
+    private final TextureLoader loader;
+    private final File file;
+    private final long flags;
+    private final int skip;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile int state = PENDING;
+    private volatile int handle = BGFX.INVALID_HANDLE;
+    private volatile RuntimeException error;
+
+    TextureHandle(TextureLoader loader, File file, long flags, int skip) {
+        this.loader = loader;
+        this.file = file;
+        this.flags = flags;
+        this.skip = skip;
+    }
+
+    /**
+     * @return the texture, or the placeholder texture of the loader while it
+     *         is loading or if loading failed
+     */
+    public int get() {
+        return state == READY ? handle : loader.getPlaceholder();
+    }
+
+    /**
+     * @return the file the texture is loaded from
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return true once the texture has been created
+     */
+    public boolean isReady() {
+        return state == READY;
+    }
+
+    /**
+     * @return true if the texture has been created, failed to load or was
+     *         cancelled
+     */
+    public boolean isDone() {
+        return state != PENDING;
+    }
+
+    /**
+     * @return the reason loading failed, null if it didn't
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    /**
+     * <p>
+     * Waits until the texture is done loading. Textures are created by
+     * BGFX.frame(), so this must not be called on the submission thread.
+     * </p>
+     *
+     * @param timeout
+     *            the maximum time to wait
+     * @param unit
+     *            the unit of the timeout
+     * @return true if the texture is done, false if the wait timed out
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    /**
+     * <p>
+     * Destroys the texture, or cancels loading if it hasn't been created yet.
+     * Must be called on the submission thread.
+     * </p>
+     */
+    public void destroy() {
+        if (state == READY) {
+            loader.destroyTexture(handle);
+            handle = BGFX.INVALID_HANDLE;
+        }
+
+        if (state == PENDING || state == READY) {
+            finish(CANCELLED);
+        }
+    }
+
+    long getFlags() {
+        return flags;
+    }
+
+    int getSkip() {
+        return skip;
+    }
+
+    boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    void ready(int handle) {
+        this.handle = handle;
+        finish(READY);
+    }
+
+    /**
+     * Replaces a ready texture with a refined one, on the submission thread.
+     */
+    void replace(int newHandle) {
+        int oldHandle = handle;
+        handle = newHandle;
+
+        loader.destroyTexture(oldHandle);
+    }
+
+    void fail(RuntimeException error) {
+        if (state != PENDING) {
+            return;
+        }
+
+        this.error = error;
+        finish(FAILED);
+    }
+
+    private void finish(int newState) {
+        state = newState;
+        done.countDown();
+
+        loader.finished(this);
+    }
+
+}
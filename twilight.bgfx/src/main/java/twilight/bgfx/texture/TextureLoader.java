@@ -0,0 +1,532 @@
+package twilight.bgfx.texture;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.BGFXException;
+import twilight.bgfx.TextureFormat;
+import twilight.bgfx.util.ResourceUtil;
+
+/**
+ * <p>
+ * Loads DDS, KTX and PVR textures without blocking the submission thread.
+ * </p>
+ *
+ * <p>
+ * {@link #load(File, long, int)} returns a {@link TextureHandle} at once.
+ * A worker thread maps the file into direct memory and pages it in, then the
+ * call to BGFX.createTexture is queued with BGFX#invokeLater and runs at the
+ * start of the next frame. The file is never copied into the Java heap. Until
+ * the texture exists the handle returns a small placeholder texture.
+ * {@link #loadStreaming(File, long)} shows the small mip levels of a DDS or
+ * KTX texture first and uploads the large levels over the following frames.
+ * </p>
+ *
+ * <p>
+ * The loader must be created and shut down on the submission thread, load
+ * may be called from any thread.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class TextureLoader {
+
+    /** The default number of bytes uploaded per frame while refining streamed textures. */
+    public static final int DEFAULT_STREAMING_BUDGET = 4 << 20;
+
+    /** The default largest dimension of the first level shown by a streamed texture. */
+    public static final int DEFAULT_PREVIEW_SIZE = 64;
+
+    /** Lets updateTexture2D calculate the pitch of a level. */
+    private static final int DEFAULT_PITCH = 0xffff;
+
+    /** Mapped pages are touched at this stride to fault them in. */
+    private static final int PAGE_SIZE = 4096;
+
+    /** Magenta and black, the placeholder texture in BGRA8. */
+    private static final int[] PLACEHOLDER_TEXELS = { 0xffff00ff, 0xff000000, 0xff000000, 0xffff00ff };
+
+    private final BGFX bgfx;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int placeholder;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /** Handles that aren't done yet, failed by shutdown so nobody waits forever. */
+    private final Set<TextureHandle> loading = Collections
+            .newSetFromMap(new ConcurrentHashMap<TextureHandle, Boolean>());
+
+    private volatile boolean shutdown;
+    private volatile int streamingBudget = DEFAULT_STREAMING_BUDGET;
+    private volatile int previewSize = DEFAULT_PREVIEW_SIZE;
+
+    /**
+     * <p>
+     * Creates a loader with its own pool of daemon worker threads.
+     * </p>
+     *
+     * @param bgfx
+     *            the context textures are created in
+     */
+    public TextureLoader(BGFX bgfx) {
+        this(bgfx, createExecutor(), true);
+    }
+
+    /**
+     * @param bgfx
+     *            the context textures are created in
+     * @param executor
+     *            the executor files are read on, it is not shut down by the
+     *            loader
+     */
+    public TextureLoader(BGFX bgfx, ExecutorService executor) {
+        this(bgfx, executor, false);
+    }
+
+    private TextureLoader(BGFX bgfx, ExecutorService executor, boolean ownsExecutor) {
+        this.bgfx = bgfx;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.placeholder = createPlaceholder(bgfx);
+    }
+
+    /**
+     * <p>
+     * Loads a texture with the default sampler flags.
+     * </p>
+     *
+     * @param file
+     *            a DDS, KTX or PVR file
+     * @return the handle of the texture
+     */
+    public TextureHandle load(File file) {
+        return load(file, BGFX.BGFX_TEXTURE_NONE, 0);
+    }
+
+    /**
+     * <p>
+     * Starts loading a texture. May be called from any thread.
+     * </p>
+     *
+     * @param file
+     *            a DDS, KTX or PVR file
+     * @param flags
+     *            the texture flags, see BGFX.createTexture
+     * @param skip
+     *            the number of top level mips to skip
+     * @return the handle of the texture
+     */
+    public TextureHandle load(File file, long flags, int skip) {
+        if (shutdown) {
+            throw new BGFXException("Texture loader has been shut down.");
+        }
+
+        final TextureHandle texture = new TextureHandle(this, file, flags, skip);
+
+        start(texture, new Runnable() {
+            @Override
+            public void run() {
+                read(texture);
+            }
+        });
+
+        return texture;
+    }
+
+    /**
+     * <p>
+     * Starts loading a DDS or KTX texture so that its small mip levels are
+     * shown first. May be called from any thread.
+     * </p>
+     *
+     * <p>
+     * A worker thread parses the container with {@link TextureContainer}.
+     * The first frame creates a preview texture from the levels no larger
+     * than the preview size, which the handle returns from then on. Following
+     * frames create the full size texture and upload its levels smallest
+     * first with updateTexture2D, at most the streaming budget per frame,
+     * and the handle switches to it once every level is uploaded. Cube maps,
+     * volumes and textures without mips are created in one step.
+     * </p>
+     *
+     * @param file
+     *            a DDS or KTX file
+     * @param flags
+     *            the texture flags, see BGFX.createTexture2D
+     * @return the handle of the texture
+     */
+    public TextureHandle loadStreaming(File file, long flags) {
+        if (shutdown) {
+            throw new BGFXException("Texture loader has been shut down.");
+        }
+
+        final TextureHandle texture = new TextureHandle(this, file, flags, 0);
+
+        start(texture, new Runnable() {
+            @Override
+            public void run() {
+                readStreaming(texture);
+            }
+        });
+
+        return texture;
+    }
+
+    /**
+     * @param streamingBudget
+     *            the number of bytes uploaded per frame while refining
+     *            streamed textures, at least one level is uploaded per frame
+     */
+    public void setStreamingBudget(int streamingBudget) {
+        this.streamingBudget = streamingBudget;
+    }
+
+    /**
+     * @return the number of bytes uploaded per frame while refining streamed
+     *         textures
+     */
+    public int getStreamingBudget() {
+        return streamingBudget;
+    }
+
+    /**
+     * @param previewSize
+     *            the largest width or height of the first level of the
+     *            preview texture of streamed textures
+     */
+    public void setPreviewSize(int previewSize) {
+        this.previewSize = previewSize;
+    }
+
+    /**
+     * @return the largest width or height of the first level of preview
+     *         textures
+     */
+    public int getPreviewSize() {
+        return previewSize;
+    }
+
+    /**
+     * @return the texture returned by handles that aren't ready
+     */
+    public int getPlaceholder() {
+        return placeholder;
+    }
+
+    /**
+     * @return the number of textures that are being read or waiting to be
+     *         created
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * <p>
+     * Stops loading, textures that haven't been created yet never will be.
+     * Their handles fail, which releases threads waiting in
+     * {@link TextureHandle#await(long, java.util.concurrent.TimeUnit)}.
+     * Destroys the placeholder texture and the worker threads if the loader
+     * created them. Must be called on the submission thread.
+     * </p>
+     */
+    public void shutdown() {
+        shutdown = true;
+
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+
+        for (TextureHandle texture : loading) {
+            texture.fail(new BGFXException("Texture loader has been shut down."));
+        }
+
+        bgfx.destroyTexture(placeholder);
+    }
+
+    void destroyTexture(int handle) {
+        bgfx.destroyTexture(handle);
+    }
+
+    /**
+     * Called by a handle once it is done.
+     */
+    void finished(TextureHandle texture) {
+        loading.remove(texture);
+    }
+
+    private void start(TextureHandle texture, Runnable task) {
+        loading.add(texture);
+        pending.incrementAndGet();
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            texture.fail(new BGFXException("Texture loader has been shut down."));
+            return;
+        }
+
+        if (shutdown) {
+            // Shut down while starting, the handle may have been missed
+            texture.fail(new BGFXException("Texture loader has been shut down."));
+        }
+    }
+
+    /**
+     * Runs on a worker thread.
+     */
+    private void read(final TextureHandle texture) {
+        if (texture.isCancelled() || shutdown) {
+            pending.decrementAndGet();
+            return;
+        }
+
+        final MappedByteBuffer data;
+
+        try {
+            data = ResourceUtil.mapFile(texture.getFile());
+
+            if (data.capacity() == 0) {
+                throw new BGFXException("Texture file is empty: " + texture.getFile());
+            }
+
+            // Fault the pages in here instead of inside createTexture
+            data.load();
+        } catch (RuntimeException e) {
+            pending.decrementAndGet();
+            texture.fail(e);
+            return;
+        }
+
+        bgfx.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                create(texture, data);
+            }
+        });
+    }
+
+    /**
+     * Runs on a worker thread.
+     */
+    private void readStreaming(final TextureHandle texture) {
+        if (texture.isCancelled() || shutdown) {
+            pending.decrementAndGet();
+            return;
+        }
+
+        final MappedByteBuffer data;
+        final TextureContainer container;
+        final int previewMip;
+
+        try {
+            data = ResourceUtil.mapFile(texture.getFile());
+            container = TextureContainer.parse(data);
+
+            if (container.isCubeMap() || container.getDepth() > 1 || container.getNumMips() == 1) {
+                data.load();
+
+                bgfx.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        create(texture, data);
+                    }
+                });
+
+                return;
+            }
+
+            previewMip = getPreviewMip(container);
+            touch(container.getMipChain(0, previewMip));
+        } catch (RuntimeException e) {
+            pending.decrementAndGet();
+            texture.fail(e);
+            return;
+        }
+
+        bgfx.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                createPreview(texture, container, previewMip);
+            }
+        });
+
+        // Page in the large levels while the preview is shown
+        data.load();
+    }
+
+    /**
+     * Runs on the submission thread.
+     */
+    private void createPreview(TextureHandle texture, TextureContainer container, int previewMip) {
+        if (texture.isCancelled() || shutdown) {
+            pending.decrementAndGet();
+            return;
+        }
+
+        int numMips = container.getNumMips();
+        long flags = texture.getFlags();
+
+        try {
+            int preview = bgfx.createTexture2D(container.getMipWidth(previewMip), container.getMipHeight(previewMip),
+                    numMips - previewMip, container.getFormat(), flags, container.getMipChain(0, previewMip));
+
+            if (preview == BGFX.INVALID_HANDLE) {
+                throw new BGFXException("Could not create texture from " + texture.getFile());
+            }
+
+            texture.ready(preview);
+
+            if (previewMip == 0) {
+                pending.decrementAndGet();
+                return;
+            }
+
+            int full = bgfx.createTexture2D(container.getWidth(), container.getHeight(), numMips,
+                    container.getFormat(), flags, (ByteBuffer) null);
+
+            if (full == BGFX.INVALID_HANDLE) {
+                // Keep showing the preview
+                pending.decrementAndGet();
+                return;
+            }
+
+            bgfx.invokeLater(new Refinement(texture, container, full));
+        } catch (RuntimeException e) {
+            pending.decrementAndGet();
+            texture.fail(e);
+        }
+    }
+
+    private int getPreviewMip(TextureContainer container) {
+        int mip = 0;
+
+        while (mip < container.getNumMips() - 1
+                && Math.max(container.getMipWidth(mip), container.getMipHeight(mip)) > previewSize) {
+            mip++;
+        }
+
+        return mip;
+    }
+
+    /**
+     * Reads a byte of every page so the data is resident before it is used.
+     */
+    private static void touch(ByteBuffer data) {
+        int sum = 0;
+
+        for (int i = 0; i < data.limit(); i += PAGE_SIZE) {
+            sum += data.get(i);
+        }
+
+        if (sum == Integer.MIN_VALUE) {
+            // Keeps the reads from being optimized away
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Uploads the levels of a streamed texture into the full size texture
+     * over several frames, on the submission thread.
+     */
+    private final class Refinement implements Runnable {
+        private final TextureHandle texture;
+        private final TextureContainer container;
+        private final int full;
+        private int nextMip;
+
+        Refinement(TextureHandle texture, TextureContainer container, int full) {
+            this.texture = texture;
+            this.container = container;
+            this.full = full;
+            this.nextMip = container.getNumMips() - 1;
+        }
+
+        @Override
+        public void run() {
+            if (!texture.isReady() || shutdown) {
+                bgfx.destroyTexture(full);
+                pending.decrementAndGet();
+                return;
+            }
+
+            int budget = streamingBudget;
+            int uploaded = 0;
+
+            while (nextMip >= 0 && (uploaded == 0 || uploaded + container.getMipSize(nextMip) <= budget)) {
+                bgfx.updateTexture2D(full, (short) nextMip, 0, 0, container.getMipWidth(nextMip),
+                        container.getMipHeight(nextMip), container.getMip(0, nextMip), DEFAULT_PITCH);
+
+                uploaded += container.getMipSize(nextMip);
+                nextMip--;
+            }
+
+            if (nextMip >= 0) {
+                bgfx.invokeLater(this);
+                return;
+            }
+
+            texture.replace(full);
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs on the submission thread.
+     */
+    private void create(TextureHandle texture, ByteBuffer data) {
+        pending.decrementAndGet();
+
+        if (texture.isCancelled() || shutdown) {
+            return;
+        }
+
+        try {
+            int handle = bgfx.createTexture(data, texture.getFlags(), texture.getSkip(), null);
+
+            if (handle == BGFX.INVALID_HANDLE) {
+                throw new BGFXException("Could not create texture from " + texture.getFile());
+            }
+
+            texture.ready(handle);
+        } catch (RuntimeException e) {
+            texture.fail(e);
+        }
+    }
+
+    private static int createPlaceholder(BGFX bgfx) {
+        ByteBuffer texels = bgfx.getFrameArena().allocate(PLACEHOLDER_TEXELS.length * 4);
+        texels.asIntBuffer().put(PLACEHOLDER_TEXELS);
+
+        return bgfx.createTexture2D(2, 2, 1, TextureFormat.BGRA8, BGFX.BGFX_TEXTURE_MInPOINT
+                | BGFX.BGFX_TEXTURE_MAG_POINT, texels);
+    }
+
+    private static ExecutorService createExecutor() {
+        final AtomicInteger count = new AtomicInteger();
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "TextureLoader-" + count.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+}
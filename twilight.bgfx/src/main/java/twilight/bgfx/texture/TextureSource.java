@@ -0,0 +1,32 @@
+package twilight.bgfx.texture;
+
+import twilight.bgfx.BGFX;
+import twilight.bgfx.TextureInfo;
+
+/**
+ * <p>
+ * Creates a texture for a {@link TextureCache}, the first time it is bound
+ * and again every time it is bound after being evicted.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public interface TextureSource {
+
+    /**
+     * <p>
+     * Creates the texture, called on the submission thread.
+     * </p>
+     *
+     * @param bgfx
+     *            the context to create the texture in
+     * @param info
+     *            receives the format, size and storage size of the texture,
+     *            BGFX.createTexture and BGFX.calcTextureSize fill it in
+     * @return the texture handle, or BGFX.INVALID_HANDLE if it couldn't be
+     *         created
+     */
+    int create(BGFX bgfx, TextureInfo info);
+
+}
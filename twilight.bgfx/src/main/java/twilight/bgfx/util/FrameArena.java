@@ -0,0 +1,186 @@
+package twilight.bgfx.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * A bump pointer allocator for per frame scratch memory, backed by a large
+ * direct ByteBuffer.
+ * </p>
+ *
+ * <p>
+ * {@link #allocate(int)} returns slices of the backing buffer, so no direct
+ * memory is allocated, zeroed or left for the Cleaner in steady state. The
+ * slices can be passed to any BGFX create or update method, BGFX copies the
+ * data before the call returns. Everything allocated is released at once by
+ * {@link #reset()}, which BGFX.frame() calls for the arena returned by
+ * BGFX.getFrameArena(), so slices must not be used after the frame they
+ * were allocated in.
+ * </p>
+ *
+ * <p>
+ * When a frame needs more memory than the arena holds, the remaining
+ * allocations of the frame come from an overflow buffer and the next
+ * {@link #reset()} replaces the backing buffer with one large enough for
+ * the whole frame. An arena is not thread safe.
+ * </p>
+ *
+ * @author tmccrary
+ *
+ */
+public final class FrameArena {
+
+    /** The alignment of every allocation in bytes. */
+    public static final int ALIGNMENT = 16;
+
+    /** The buffer allocations are sliced from. */
+    private ByteBuffer block;
+
+    /** The offset of the next allocation in block. */
+    private int offset;
+
+    /** Bytes allocated since the last reset, including overflow. */
+    private long used;
+
+    /** The largest number of bytes allocated in a single frame. */
+    private long highWater;
+
+    /**
+     * @param capacity
+     *            the initial capacity in bytes
+     */
+    public FrameArena(int capacity) {
+        block = newBlock(Math.max(capacity, ALIGNMENT));
+    }
+
+    /**
+     * <p>
+     * Allocates a slice of the arena. The slice is in native byte order, its
+     * position is 0 and its capacity and limit are the requested size. The
+     * contents are undefined.
+     * </p>
+     *
+     * @param size
+     *            the size in bytes
+     * @return a direct buffer valid until the next reset
+     */
+    public ByteBuffer allocate(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Arena allocations must not be empty: " + size);
+        }
+
+        int aligned = align(size);
+
+        if (block.capacity() - offset < aligned) {
+            // Overflow, the next reset grows the arena to fit the whole frame
+            block = newBlock(Math.max(aligned, block.capacity()));
+            offset = 0;
+        }
+
+        block.limit(offset + size);
+        block.position(offset);
+
+        ByteBuffer slice = block.slice().order(ByteOrder.nativeOrder());
+
+        offset += aligned;
+        used += aligned;
+
+        return slice;
+    }
+
+    /**
+     * <p>
+     * Allocates a slice holding a copy of the supplied floats.
+     * </p>
+     *
+     * @param values
+     *            the values to copy
+     * @return a direct buffer valid until the next reset
+     */
+    public ByteBuffer put(float[] values) {
+        ByteBuffer slice = allocate(values.length * 4);
+        slice.asFloatBuffer().put(values);
+
+        return slice;
+    }
+
+    /**
+     * <p>
+     * Allocates a slice holding a copy of the supplied shorts.
+     * </p>
+     *
+     * @param values
+     *            the values to copy
+     * @return a direct buffer valid until the next reset
+     */
+    public ByteBuffer put(short[] values) {
+        ByteBuffer slice = allocate(values.length * 2);
+        slice.asShortBuffer().put(values);
+
+        return slice;
+    }
+
+    /**
+     * <p>
+     * Allocates a slice holding a copy of the supplied ints.
+     * </p>
+     *
+     * @param values
+     *            the values to copy
+     * @return a direct buffer valid until the next reset
+     */
+    public ByteBuffer put(int[] values) {
+        ByteBuffer slice = allocate(values.length * 4);
+        slice.asIntBuffer().put(values);
+
+        return slice;
+    }
+
+    /**
+     * <p>
+     * Releases all allocations. If the last frame overflowed, the backing
+     * buffer is replaced with one that fits the whole frame.
+     * </p>
+     */
+    public void reset() {
+        highWater = Math.max(highWater, used);
+
+        if (highWater > block.capacity() || offset < used) {
+            block = newBlock((int) Math.min(Integer.MAX_VALUE - ALIGNMENT, Math.max(highWater, block.capacity())));
+        }
+
+        offset = 0;
+        used = 0;
+    }
+
+    /**
+     * @return the capacity of the backing buffer in bytes
+     */
+    public int getCapacity() {
+        return block.capacity();
+    }
+
+    /**
+     * @return the number of bytes allocated since the last reset
+     */
+    public long getUsed() {
+        return used;
+    }
+
+    /**
+     * @return the largest number of bytes allocated in a single frame
+     */
+    public long getHighWater() {
+        return Math.max(highWater, used);
+    }
+
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+
+    private static ByteBuffer newBlock(int capacity) {
+        return ByteBuffer.allocateDirect(align(capacity)).order(ByteOrder.nativeOrder());
+    }
+
+}
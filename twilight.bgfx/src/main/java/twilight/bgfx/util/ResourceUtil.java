@@ -1,14 +1,16 @@
 package twilight.bgfx.util;
 
 import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 import twilight.bgfx.BGFX;
 import twilight.bgfx.BGFXException;
@@ -25,35 +27,54 @@ import twilight.bgfx.BGFXException;
 public class ResourceUtil {
 
     /**
+     * <p>
+     * Creates a texture from a DDS, KTX or PVR file on the calling thread.
+     * The file is memory mapped and passed to BGFX without copying it into
+     * the Java heap. Use twilight.bgfx.texture.TextureLoader to load
+     * textures on worker threads instead.
+     * </p>
      * 
      * @param bgfx
+     *            the bgfx context on the current Thread
      * @param path
-     * @return
+     *            the path of the texture file
+     * @return the texture handle
      */
     public static int loadTexture(BGFX bgfx, String path) {
-        DataInputStream dataStream = null;
+        return bgfx.createTexture(mapFile(new File(path)), BGFX.BGFX_TEXTURE_NONE, 0, null);
+    }
+
+    /**
+     * <p>
+     * Maps a file read only into memory. The returned buffer is direct, so it
+     * can be passed to BGFX create methods, and stays valid after the file
+     * is closed until it is garbage collected.
+     * </p>
+     * 
+     * @param file
+     *            the file to map
+     * @return the mapped file contents
+     */
+    public static MappedByteBuffer mapFile(File file) {
         try {
-            File file = new File(path);
+            RandomAccessFile input = new RandomAccessFile(file, "r");
 
-            byte[] imgData = new byte[(int) file.length()];
-            dataStream = new DataInputStream(new FileInputStream(file));
-            dataStream.readFully(imgData);
+            try {
+                FileChannel channel = input.getChannel();
+                long size = channel.size();
 
-            ByteBuffer buffer = ByteBuffer.allocateDirect(imgData.length);
-            buffer.put(imgData);
-            buffer.rewind();
+                if (size > Integer.MAX_VALUE) {
+                    throw new BGFXException("File is too large to map: " + file);
+                }
 
-            return bgfx.createTexture(buffer, BGFX.BGFX_TEXTURE_NONE, 0, null);
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } finally {
+                input.close();
+            }
         } catch (FileNotFoundException e) {
             throw new BGFXException("Error opening input file: " + e.getMessage(), e);
         } catch (IOException e) {
-            throw new BGFXException("Error reading data stream: " + e.getMessage(), e);
-        } finally {
-            try {
-                dataStream.close();
-            } catch (IOException e) {
-                throw new BGFXException("Error closing data stream: " + e.getMessage(), e);
-            }
+            throw new BGFXException("Error mapping file: " + e.getMessage(), e);
         }
     }
 
@@ -90,19 +111,33 @@ public class ResourceUtil {
      */
     public static int loadShader(BGFX bgfx, InputStream stream) {
         try {
-            byte[] shaderBytes = inputStreamToByteArray(stream);
-
-            ByteBuffer buffer = ByteBuffer.allocateDirect(shaderBytes.length + 1).order(ByteOrder.nativeOrder());
-            buffer.put(shaderBytes);
-            buffer.put(buffer.capacity() - 1, (byte) 0x0A);
-            buffer.rewind();
-
-            return bgfx.createShader(buffer);
+            return createShader(bgfx, inputStreamToByteArray(stream));
         } catch (Exception e) {
             throw new BGFXException("Error loading shader: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * <p>
+     * Creates a shader from compiled shader bytes, copying them into a
+     * direct buffer with the trailing newline BGFX expects.
+     * </p>
+     * 
+     * @param bgfx
+     *            the bgfx context on the current Thread
+     * @param shaderBytes
+     *            the contents of a compiled shader file
+     * @return the shader handle
+     */
+    public static int createShader(BGFX bgfx, byte[] shaderBytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(shaderBytes.length + 1).order(ByteOrder.nativeOrder());
+        buffer.put(shaderBytes);
+        buffer.put(buffer.capacity() - 1, (byte) 0x0A);
+        buffer.rewind();
+
+        return bgfx.createShader(buffer);
+    }
+
     /***
      * 
      * @param stream